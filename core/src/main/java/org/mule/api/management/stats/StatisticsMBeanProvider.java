@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.api.management.stats;
+
+import java.util.Map;
+
+/**
+ * Implemented by objects in the registry that publish statistics through JMX. When a JMX agent
+ * is configured, every provided MBean is registered in the artifact domain once the context is started.
+ */
+public interface StatisticsMBeanProvider
+{
+
+    /**
+     * @return the MBeans to register, keyed by the key properties of their object name, for example
+     *         {@code type=HttpRequester,name=requestConfig}. Each value must be a compliant standard MBean or MXBean.
+     */
+    Map<String, Object> getStatisticsMBeans();
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.lifecycle.LifecycleUtils;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.processor.AbstractMessageProcessorOwner;
+import org.mule.processor.chain.DefaultMessageProcessorChainBuilder;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scope that executes its message processors through a {@link CachingStrategy}, so their response can be
+ * reused by equivalent requests. When no caching strategy is referenced, an {@link ObjectStoreCachingStrategy}
+ * with its default configuration is used.
+ * <p/>
+ * Requests for which the filter expression evaluates to false are processed without using the cache.
+ */
+public class CacheMessageProcessor extends AbstractMessageProcessorOwner implements MessageProcessor
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheMessageProcessor.class);
+
+    private List<MessageProcessor> messageProcessors;
+    private MessageProcessor ownedMessageProcessor;
+    private CachingStrategy cachingStrategy;
+    private boolean ownedCachingStrategy;
+    private String filterExpression;
+
+    @Override
+    public MuleEvent process(MuleEvent event) throws MuleException
+    {
+        if (filterExpression != null && !muleContext.getExpressionManager().evaluateBoolean(filterExpression, event, false, false))
+        {
+            return ownedMessageProcessor.process(event);
+        }
+        return cachingStrategy.process(event, ownedMessageProcessor);
+    }
+
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        if (cachingStrategy == null)
+        {
+            ObjectStoreCachingStrategy defaultCachingStrategy = new ObjectStoreCachingStrategy();
+            defaultCachingStrategy.setMuleContext(muleContext);
+            cachingStrategy = defaultCachingStrategy;
+            ownedCachingStrategy = true;
+            LifecycleUtils.initialiseIfNeeded(cachingStrategy);
+        }
+
+        try
+        {
+            ownedMessageProcessor = new DefaultMessageProcessorChainBuilder().chain(messageProcessors).build();
+        }
+        catch (MuleException e)
+        {
+            throw new InitialisationException(e, this);
+        }
+        super.initialise();
+    }
+
+    @Override
+    public void dispose()
+    {
+        super.dispose();
+        if (ownedCachingStrategy)
+        {
+            LifecycleUtils.disposeIfNeeded(cachingStrategy, logger);
+        }
+    }
+
+    @Override
+    protected List<MessageProcessor> getOwnedMessageProcessors()
+    {
+        return messageProcessors;
+    }
+
+    public void setMessageProcessors(List<MessageProcessor> messageProcessors)
+    {
+        this.messageProcessors = messageProcessors;
+    }
+
+    public CachingStrategy getCachingStrategy()
+    {
+        return cachingStrategy;
+    }
+
+    public void setCachingStrategy(CachingStrategy cachingStrategy)
+    {
+        this.cachingStrategy = cachingStrategy;
+    }
+
+    public void setFilterExpression(String filterExpression)
+    {
+        this.filterExpression = filterExpression;
+    }
+}
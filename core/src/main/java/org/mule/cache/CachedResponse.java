@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.transformer.DataType;
+import org.mule.transformer.types.DataTypeFactory;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Response stored by {@link ObjectStoreCachingStrategy}. Keeps the payload, data type and the serializable
+ * message properties of a response, so an equivalent response can be created for each cache hit.
+ * <p/>
+ * Payloads must already be replayable when the response is created, that is, streams must have been consumed.
+ */
+public class CachedResponse implements Serializable
+{
+
+    private static final long serialVersionUID = -2764419530237283217L;
+
+    private final Object payload;
+    private final String mimeType;
+    private final String encoding;
+    private final HashMap<String, Object> inboundProperties;
+    private final HashMap<String, Object> outboundProperties;
+    private final long creationTime;
+
+    public CachedResponse(MuleMessage message, long creationTime)
+    {
+        this.payload = message.getPayload();
+        this.mimeType = message.getDataType().getMimeType();
+        this.encoding = message.getDataType().getEncoding();
+        this.inboundProperties = getSerializableProperties(message, message.getInboundPropertyNames(), true);
+        this.outboundProperties = getSerializableProperties(message, message.getOutboundPropertyNames(), false);
+        this.creationTime = creationTime;
+    }
+
+    private static HashMap<String, Object> getSerializableProperties(MuleMessage message, Set<String> names, boolean inbound)
+    {
+        HashMap<String, Object> properties = new HashMap<>();
+        for (String name : names)
+        {
+            Object value = inbound ? message.getInboundProperty(name) : message.getOutboundProperty(name);
+            if (value instanceof Serializable)
+            {
+                properties.put(name, value);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Creates a response for the given request from the cached content. Flow variables and session of the
+     * request are kept.
+     *
+     * @param request the event that hit the cache
+     * @return a new event with a copy of the cached message
+     */
+    public MuleEvent createResponse(MuleEvent request)
+    {
+        Object responsePayload = payload instanceof byte[] ? ((byte[]) payload).clone() : payload;
+        DataType<?> dataType = DataTypeFactory.create(responsePayload.getClass(), mimeType);
+        dataType.setEncoding(encoding);
+        MuleMessage message = new DefaultMuleMessage(responsePayload, new HashMap<>(inboundProperties),
+                                                     new HashMap<>(outboundProperties), null, request.getMuleContext(), dataType);
+        return new DefaultMuleEvent(message, request);
+    }
+
+    /**
+     * @param timeToLive the time in milliseconds that responses are valid, or a non positive value if they never expire
+     * @param now the current time in milliseconds
+     * @return true if this response should not be used anymore
+     */
+    public boolean isExpired(long timeToLive, long now)
+    {
+        return timeToLive > 0 && now - creationTime >= timeToLive;
+    }
+
+    public Object getPayload()
+    {
+        return payload;
+    }
+
+    public Map<String, Object> getOutboundProperties()
+    {
+        return outboundProperties;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit and miss counters of a caching strategy.
+ */
+public class CachingStrategyStatistics implements CachingStrategyStatisticsMBean
+{
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public void hit()
+    {
+        hits.incrementAndGet();
+    }
+
+    public void miss()
+    {
+        misses.incrementAndGet();
+    }
+
+    public void coalesced()
+    {
+        coalescedRequests.incrementAndGet();
+    }
+
+    public void expired()
+    {
+        expirations.incrementAndGet();
+    }
+
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public long getCoalescedRequests()
+    {
+        return coalescedRequests.get();
+    }
+
+    @Override
+    public long getExpirations()
+    {
+        return expirations.get();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        long currentHits = hits.get();
+        long total = currentHits + misses.get();
+        return total == 0 ? 0 : (double) currentHits / total;
+    }
+
+    @Override
+    public void clear()
+    {
+        hits.set(0);
+        misses.set(0);
+        coalescedRequests.set(0);
+        expirations.set(0);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+/**
+ * JMX view of the usage of a caching strategy.
+ */
+public interface CachingStrategyStatisticsMBean
+{
+
+    /**
+     * @return the amount of requests that were answered with a cached response
+     */
+    long getHits();
+
+    /**
+     * @return the amount of requests that had to be processed because there was no valid cached response
+     */
+    long getMisses();
+
+    /**
+     * @return the amount of requests that waited for a concurrent request with the same key to be processed
+     *         instead of processing it themselves
+     */
+    long getCoalescedRequests();
+
+    /**
+     * @return the amount of cached responses discarded because their time to live elapsed
+     */
+    long getExpirations();
+
+    /**
+     * @return the fraction of requests answered with a cached response
+     */
+    double getHitRatio();
+
+    /**
+     * Resets all the statistics.
+     */
+    void clear();
+}
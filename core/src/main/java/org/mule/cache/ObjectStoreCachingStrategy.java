@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import org.mule.VoidMuleEvent;
+import org.mule.api.MuleContext;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleEventKeyGenerator;
+import org.mule.api.MuleException;
+import org.mule.api.NameableObject;
+import org.mule.api.cache.CachingStrategy;
+import org.mule.api.cache.InvalidatableCachingStrategy;
+import org.mule.api.cache.InvalidateCacheException;
+import org.mule.api.context.MuleContextAware;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.Initialisable;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.lifecycle.LifecycleUtils;
+import org.mule.api.management.stats.StatisticsMBeanProvider;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.store.ObjectDoesNotExistException;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.keygenerator.ExpressionMuleEventKeyGenerator;
+import org.mule.keygenerator.SHA256MuleEventKeyGenerator;
+import org.mule.util.ClassUtils;
+import org.mule.util.UUID;
+
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CachingStrategy} that keeps responses in an {@link ObjectStore}.
+ * <p/>
+ * Requests are identified by the key obtained from a {@link MuleEventKeyGenerator}, by default a SHA-256 hash of
+ * the payload. Streamed responses are consumed before being cached, so each hit gets a response it can read.
+ * Responses older than the configured time to live are discarded when they are read, and when no store is
+ * configured, an in-memory store that evicts expired entries and limits its size is used.
+ * <p/>
+ * When concurrent requests with the same key miss the cache, only the first one is processed and the others
+ * wait for its response to be cached, so expensive lookups are not repeated while they are being loaded.
+ */
+public class ObjectStoreCachingStrategy implements CachingStrategy, InvalidatableCachingStrategy, Initialisable, Disposable,
+        MuleContextAware, NameableObject, StatisticsMBeanProvider
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectStoreCachingStrategy.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 4000;
+    public static final int DEFAULT_ENTRY_TTL = 60000;
+    public static final int DEFAULT_EXPIRATION_INTERVAL = 5000;
+
+    private static final String STATISTICS_KEY_PATTERN = "type=CachingStrategy,name=%s";
+
+    private final ConcurrentMap<Serializable, CountDownLatch> loadingKeys = new ConcurrentHashMap<>();
+    private final CachingStrategyStatistics statistics = new CachingStrategyStatistics();
+
+    private MuleContext muleContext;
+    private String name;
+    private MuleEventKeyGenerator keyGenerator;
+    private String keyGenerationExpression;
+    private ObjectStore<CachedResponse> store;
+    private boolean defaultStore;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int entryTTL = DEFAULT_ENTRY_TTL;
+    private int expirationInterval = DEFAULT_EXPIRATION_INTERVAL;
+
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        if (keyGenerator == null)
+        {
+            if (keyGenerationExpression != null)
+            {
+                ExpressionMuleEventKeyGenerator expressionKeyGenerator = new ExpressionMuleEventKeyGenerator();
+                expressionKeyGenerator.setExpression(keyGenerationExpression);
+                keyGenerator = expressionKeyGenerator;
+            }
+            else
+            {
+                keyGenerator = new SHA256MuleEventKeyGenerator();
+            }
+        }
+
+        if (store == null)
+        {
+            String storeName = String.format("%s.%s", ObjectStoreCachingStrategy.class.getName(), name != null ? name : UUID.getUUID());
+            store = muleContext.getObjectStoreManager().getObjectStore(storeName, false, maxEntries, entryTTL, expirationInterval);
+            defaultStore = true;
+        }
+        LifecycleUtils.initialiseIfNeeded(store);
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (defaultStore)
+        {
+            try
+            {
+                muleContext.getObjectStoreManager().disposeStore(store);
+            }
+            catch (ObjectStoreException e)
+            {
+                logger.warn("Could not dispose caching strategy store", e);
+            }
+        }
+        else
+        {
+            LifecycleUtils.disposeIfNeeded(store, logger);
+        }
+    }
+
+    @Override
+    public MuleEvent process(MuleEvent request, MessageProcessor messageProcessor) throws MuleException
+    {
+        Serializable key;
+        try
+        {
+            key = keyGenerator.generateKey(request);
+        }
+        catch (NotSerializableException e)
+        {
+            logger.warn("Could not generate a cache key, the request will be processed without using the cache: {}", e.getMessage());
+            statistics.miss();
+            return messageProcessor.process(request);
+        }
+
+        CachedResponse cachedResponse = lookup(key);
+        if (cachedResponse != null)
+        {
+            statistics.hit();
+            return cachedResponse.createResponse(request);
+        }
+
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch loading = loadingKeys.putIfAbsent(key, loaded);
+        if (loading == null)
+        {
+            try
+            {
+                // A concurrent request may have cached its response after the first lookup
+                cachedResponse = lookup(key);
+                if (cachedResponse != null)
+                {
+                    statistics.hit();
+                    return cachedResponse.createResponse(request);
+                }
+                statistics.miss();
+                return load(key, request, messageProcessor);
+            }
+            finally
+            {
+                loadingKeys.remove(key, loaded);
+                loaded.countDown();
+            }
+        }
+
+        statistics.coalesced();
+        try
+        {
+            loading.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            statistics.miss();
+            return messageProcessor.process(request);
+        }
+
+        cachedResponse = lookup(key);
+        if (cachedResponse != null)
+        {
+            statistics.hit();
+            return cachedResponse.createResponse(request);
+        }
+        // The concurrent request failed or its response could not be cached. Process this one on its own
+        // instead of retrying, so a failing processor is not executed once per waiting request in sequence.
+        statistics.miss();
+        return messageProcessor.process(request);
+    }
+
+    private MuleEvent load(Serializable key, MuleEvent request, MessageProcessor messageProcessor) throws MuleException
+    {
+        MuleEvent response = messageProcessor.process(request);
+        if (response == null || VoidMuleEvent.getInstance().equals(response))
+        {
+            return response;
+        }
+
+        Object payload = response.getMessage().getPayload();
+        if (payload instanceof InputStream || ClassUtils.isConsumable(payload.getClass()))
+        {
+            try
+            {
+                response.getMessage().setPayload(response.getMessage().getPayloadAsBytes());
+            }
+            catch (Exception e)
+            {
+                logger.warn("Could not consume response to cache it", e);
+                return response;
+            }
+        }
+
+        try
+        {
+            store.store(key, new CachedResponse(response.getMessage(), System.currentTimeMillis()));
+        }
+        catch (ObjectStoreException e)
+        {
+            logger.warn("Could not store response in cache", e);
+        }
+        return response;
+    }
+
+    private CachedResponse lookup(Serializable key)
+    {
+        try
+        {
+            if (!store.contains(key))
+            {
+                return null;
+            }
+            CachedResponse cachedResponse = store.retrieve(key);
+            if (cachedResponse.isExpired(entryTTL, System.currentTimeMillis()))
+            {
+                statistics.expired();
+                store.remove(key);
+                return null;
+            }
+            return cachedResponse;
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            // Removed or expired since it was checked
+            return null;
+        }
+        catch (ObjectStoreException e)
+        {
+            logger.warn("Could not retrieve response from cache, the request will be processed", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void invalidate()
+    {
+        try
+        {
+            store.clear();
+        }
+        catch (ObjectStoreException e)
+        {
+            throw new InvalidateCacheException("Could not invalidate cache", e);
+        }
+    }
+
+    @Override
+    public void invalidate(Serializable key) throws InvalidateCacheException
+    {
+        if (key == null)
+        {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        try
+        {
+            if (store.contains(key))
+            {
+                store.remove(key);
+            }
+        }
+        catch (ObjectDoesNotExistException e)
+        {
+            // Already removed
+        }
+        catch (ObjectStoreException e)
+        {
+            throw new InvalidateCacheException(String.format("Could not invalidate cache entry %s", key), e);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatisticsMBeans()
+    {
+        if (name == null)
+        {
+            return Collections.emptyMap();
+        }
+        return Collections.<String, Object>singletonMap(String.format(STATISTICS_KEY_PATTERN, ObjectName.quote(name)), statistics);
+    }
+
+    public CachingStrategyStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    public void setMuleContext(MuleContext context)
+    {
+        this.muleContext = context;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void setName(String name)
+    {
+        this.name = name;
+    }
+
+    public MuleEventKeyGenerator getKeyGenerator()
+    {
+        return keyGenerator;
+    }
+
+    public void setKeyGenerator(MuleEventKeyGenerator keyGenerator)
+    {
+        this.keyGenerator = keyGenerator;
+    }
+
+    public void setKeyGenerationExpression(String keyGenerationExpression)
+    {
+        this.keyGenerationExpression = keyGenerationExpression;
+    }
+
+    public ObjectStore<CachedResponse> getStore()
+    {
+        return store;
+    }
+
+    public void setStore(ObjectStore<CachedResponse> store)
+    {
+        this.store = store;
+    }
+
+    public void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    public void setEntryTTL(int entryTTL)
+    {
+        this.entryTTL = entryTTL;
+    }
+
+    public void setExpirationInterval(int expirationInterval)
+    {
+        this.expirationInterval = expirationInterval;
+    }
+}
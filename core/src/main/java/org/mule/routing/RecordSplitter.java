@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing;
+
+import org.mule.DefaultMuleEvent;
+import org.mule.DefaultMuleMessage;
+import org.mule.RequestContext;
+import org.mule.VoidMuleEvent;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.routing.RoutingException;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.config.i18n.CoreMessages;
+import org.mule.config.i18n.MessageFactory;
+import org.mule.routing.outbound.AbstractMessageSequenceSplitter;
+import org.mule.util.IOUtils;
+import org.mule.util.RecordReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang.StringEscapeUtils;
+
+/**
+ * Splits a flat file in records, separated by a delimiter or of a fixed length, and
+ * processes each record, or each batch of records, as a separate message.
+ * <p/>
+ * The payload is read through a channel as the records are processed, so files
+ * received as streams by the file, FTP or SFTP endpoints are never loaded in memory.
+ * Each message carries the offset of its first record in the
+ * {@link #RECORD_OFFSET_PROPERTY} invocation property.
+ * <p/>
+ * When a checkpoint store is configured, the offset of the records already processed
+ * is stored every {@link #setCheckpointInterval checkpoint interval} records under
+ * the checkpoint key, so splitting the same file again after a failure resumes from
+ * the last checkpoint instead of the beginning. The checkpoint is removed once every
+ * record was processed.
+ * <p/>
+ * Only the result of the last record is kept and returned, so memory does not grow
+ * with the number of records. As the number of records is not known in advance the
+ * correlation group size of the messages is not set, so they cannot be aggregated by
+ * a collection aggregator that waits for the whole group.
+ */
+public class RecordSplitter extends AbstractMessageSequenceSplitter
+{
+
+    public static final String RECORD_OFFSET_PROPERTY = "recordOffset";
+
+    public static final String DEFAULT_CHECKPOINT_KEY = "#[message.inboundProperties.originalFilename]";
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+
+    private String delimiter = "\n";
+    private int recordLength;
+    private String encoding;
+    private int recordBatchSize;
+    private int bufferSize = RecordReader.DEFAULT_BUFFER_SIZE;
+    private ObjectStore<Serializable> checkpointStore;
+    private String checkpointKey = DEFAULT_CHECKPOINT_KEY;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    @Override
+    protected MessageSequence<?> splitMessageIntoSequence(MuleEvent event) throws MuleException
+    {
+        MuleMessage message = event.getMessage();
+        String recordEncoding = encoding != null ? encoding : event.getEncoding();
+        String key = getCheckpointKey(event);
+
+        RecordReader reader = null;
+        try
+        {
+            ReadableByteChannel channel = openChannel(message);
+            if (recordLength > 0)
+            {
+                reader = RecordReader.fixedLength(channel, recordLength, bufferSize);
+            }
+            else
+            {
+                byte[] delimiterBytes = StringEscapeUtils.unescapeJava(delimiter).getBytes(recordEncoding);
+                reader = RecordReader.delimited(channel, delimiterBytes, bufferSize);
+            }
+
+            if (key != null && checkpointStore.contains(key))
+            {
+                long offset = (Long) checkpointStore.retrieve(key);
+                if (logger.isInfoEnabled())
+                {
+                    logger.info(String.format("Resuming split of '%s' from offset %d", key, offset));
+                }
+                reader.skipTo(offset);
+            }
+        }
+        catch (Exception e)
+        {
+            IOUtils.closeQuietly(reader);
+            throw new RoutingException(CoreMessages.failedToReadPayload(), event, next, e);
+        }
+
+        return new RecordSequence(reader, message, recordEncoding, key, !(message.getPayload() instanceof InputStream));
+    }
+
+    private ReadableByteChannel openChannel(MuleMessage message) throws Exception
+    {
+        Object payload = message.getPayload();
+        if (payload instanceof File)
+        {
+            return new FileInputStream((File) payload).getChannel();
+        }
+        else if (payload instanceof FileInputStream)
+        {
+            return ((FileInputStream) payload).getChannel();
+        }
+        else if (payload instanceof InputStream)
+        {
+            return Channels.newChannel((InputStream) payload);
+        }
+        else
+        {
+            return Channels.newChannel(new ByteArrayInputStream(message.getPayloadAsBytes()));
+        }
+    }
+
+    private String getCheckpointKey(MuleEvent event)
+    {
+        if (checkpointStore == null)
+        {
+            return null;
+        }
+
+        Object key = muleContext.getExpressionManager().evaluate(checkpointKey, event);
+        if (key == null)
+        {
+            logger.warn(String.format("Checkpoint key '%s' evaluated to null, the split will not be resumable", checkpointKey));
+            return null;
+        }
+        return key.toString();
+    }
+
+    @Override
+    protected List<MuleEvent> processParts(MessageSequence<?> seq, MuleEvent originalEvent) throws MuleException
+    {
+        try
+        {
+            return processRecords((RecordSequence) seq, originalEvent);
+        }
+        finally
+        {
+            ((RecordSequence) seq).release();
+        }
+    }
+
+    private List<MuleEvent> processRecords(RecordSequence sequence, MuleEvent originalEvent) throws MuleException
+    {
+        if (messageInfoMapping == null)
+        {
+            messageInfoMapping = originalEvent.getFlowConstruct().getMessageInfoMapping();
+        }
+        String correlationId = messageInfoMapping.getCorrelationId(originalEvent.getMessage());
+        int correlationSequence = 0;
+        MuleEvent currentEvent = originalEvent;
+        MuleEvent lastResultEvent = null;
+        while (sequence.hasNext())
+        {
+            MuleMessage message = sequence.next();
+            correlationSequence++;
+            if (counterVariableName != null)
+            {
+                message.setInvocationProperty(counterVariableName, correlationSequence);
+            }
+            if (enableCorrelation != CorrelationMode.NEVER)
+            {
+                if ((message.getCorrelationId() == null && enableCorrelation == CorrelationMode.IF_NOT_SET)
+                    || enableCorrelation == CorrelationMode.ALWAYS)
+                {
+                    message.setCorrelationId(correlationId);
+                }
+                message.setCorrelationSequence(correlationSequence);
+            }
+            message.propagateRootId(originalEvent.getMessage());
+            MuleEvent resultEvent = processNext(RequestContext.setEvent(new DefaultMuleEvent(message, originalEvent, currentEvent.getSession())));
+            if (resultEvent != null && !VoidMuleEvent.getInstance().equals(resultEvent))
+            {
+                currentEvent = resultEvent;
+                lastResultEvent = resultEvent;
+            }
+        }
+        if (lastResultEvent == null)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(lastResultEvent);
+    }
+
+    /**
+     * Character or characters that separate the records, Java escapes such as
+     * <code>\r\n</code> are supported. Ignored when a record length is set.
+     */
+    public void setDelimiter(String delimiter)
+    {
+        this.delimiter = delimiter;
+    }
+
+    public String getDelimiter()
+    {
+        return delimiter;
+    }
+
+    /**
+     * Length in bytes of fixed length records, or zero to split the payload on the
+     * delimiter
+     */
+    public void setRecordLength(int recordLength)
+    {
+        this.recordLength = recordLength;
+    }
+
+    public int getRecordLength()
+    {
+        return recordLength;
+    }
+
+    /**
+     * Encoding of the records, by default the encoding of the message
+     */
+    public void setEncoding(String encoding)
+    {
+        this.encoding = encoding;
+    }
+
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * Processes the records in lists of the specified size. Unlike other splitters the
+     * records of a batch are not read until the previous batch was processed, so
+     * checkpoints never include records that were not processed.
+     */
+    @Override
+    public void setBatchSize(int batchSize)
+    {
+        this.recordBatchSize = batchSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public void setCheckpointStore(ObjectStore<Serializable> checkpointStore)
+    {
+        this.checkpointStore = checkpointStore;
+    }
+
+    public ObjectStore<Serializable> getCheckpointStore()
+    {
+        return checkpointStore;
+    }
+
+    /**
+     * Expression that identifies the payload being split in the checkpoint store, by
+     * default the original file name
+     */
+    public void setCheckpointKey(String checkpointKey)
+    {
+        this.checkpointKey = checkpointKey;
+    }
+
+    public String getCheckpointKey()
+    {
+        return checkpointKey;
+    }
+
+    /**
+     * Number of records processed between checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval)
+    {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public int getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * Reads the records lazily, so {@link #hasNext()} is only invoked once the
+     * previous message has been processed, which is when the checkpoints are stored.
+     */
+    private class RecordSequence extends AbstractMessageSequence<MuleMessage>
+    {
+
+        private final RecordReader reader;
+        private final MuleMessage originalMessage;
+        private final String recordEncoding;
+        private final String key;
+        private final boolean closeOnFailure;
+
+        private MuleMessage nextMessage;
+        private long processedOffset = -1;
+        private int uncheckpointedRecords;
+        private boolean finished;
+
+        private RecordSequence(RecordReader reader, MuleMessage originalMessage, String recordEncoding, String key, boolean closeOnFailure)
+        {
+            this.reader = reader;
+            this.originalMessage = originalMessage;
+            this.recordEncoding = recordEncoding;
+            this.key = key;
+            this.closeOnFailure = closeOnFailure;
+        }
+
+        @Override
+        public int size()
+        {
+            return UNKNOWN_SIZE;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (nextMessage == null && !finished)
+            {
+                try
+                {
+                    if (key != null && uncheckpointedRecords > 0 && uncheckpointedRecords >= checkpointInterval)
+                    {
+                        checkpoint(processedOffset);
+                        uncheckpointedRecords = 0;
+                    }
+                    nextMessage = readMessage();
+                    if (nextMessage == null)
+                    {
+                        finish();
+                    }
+                }
+                catch (Exception e)
+                {
+                    release();
+                    throw new MuleRuntimeException(MessageFactory.createStaticMessage("Unable to read next record"), e);
+                }
+            }
+            return nextMessage != null;
+        }
+
+        @Override
+        public MuleMessage next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            MuleMessage message = nextMessage;
+            nextMessage = null;
+            processedOffset = reader.getPosition();
+            return message;
+        }
+
+        private MuleMessage readMessage() throws IOException
+        {
+            byte[] record = reader.readRecord();
+            if (record == null)
+            {
+                return null;
+            }
+            long offset = reader.getRecordOffset();
+
+            Object payload;
+            if (recordBatchSize > 1)
+            {
+                List<String> batch = new ArrayList<String>(recordBatchSize);
+                batch.add(new String(record, recordEncoding));
+                uncheckpointedRecords++;
+                while (batch.size() < recordBatchSize && (record = reader.readRecord()) != null)
+                {
+                    batch.add(new String(record, recordEncoding));
+                    uncheckpointedRecords++;
+                }
+                payload = batch;
+            }
+            else
+            {
+                payload = new String(record, recordEncoding);
+                uncheckpointedRecords++;
+            }
+
+            MuleMessage message = new DefaultMuleMessage(payload, originalMessage, muleContext);
+            message.setInvocationProperty(RECORD_OFFSET_PROPERTY, offset);
+            return message;
+        }
+
+        private void checkpoint(long offset) throws ObjectStoreException
+        {
+            if (checkpointStore.contains(key))
+            {
+                checkpointStore.remove(key);
+            }
+            checkpointStore.store(key, offset);
+        }
+
+        private void finish() throws Exception
+        {
+            finished = true;
+            if (key != null && checkpointStore.contains(key))
+            {
+                checkpointStore.remove(key);
+            }
+            reader.close();
+        }
+
+        /**
+         * Closes the reader if the sequence was not completely processed and it was
+         * opened by the splitter, streams received as payload are closed by their
+         * owner so the failure is noticed.
+         */
+        private void release()
+        {
+            if (!finished && closeOnFailure)
+            {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+    }
+}
@@ -36,7 +36,12 @@ public class PartitionedMessageSequence<Q> implements MessageSequence<Collection
     @Override
     public int size()
     {
-        return (delegate.size() / groupSize) + ((delegate.size() % groupSize) > 0 ? 1 : 0);
+        int size = delegate.size();
+        if (size == UNKNOWN_SIZE)
+        {
+            return UNKNOWN_SIZE;
+        }
+        return (size / groupSize) + ((size % groupSize) > 0 ? 1 : 0);
     }
 
     @Override
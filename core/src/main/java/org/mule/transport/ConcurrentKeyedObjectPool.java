@@ -0,0 +1,839 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import org.mule.util.concurrent.NamedThreadFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.pool.KeyedPoolableObjectFactory;
+import org.apache.commons.pool.impl.GenericKeyedObjectPool;
+
+/**
+ * Implements {@link ConfigurableKeyedObjectPool} without locking on the borrow and
+ * return paths, so threads using different keys, or the same key, never serialize on
+ * the pool as they do with {@link DefaultConfigurableKeyedObjectPool}.
+ * <p/>
+ * Idle instances of each key are kept in a concurrent stack, so the most recently
+ * returned instance is borrowed first, and the limits are enforced with atomic
+ * counters. Threads only synchronize when they have to wait for an instance because
+ * the pool is exhausted.
+ * <p/>
+ * Instances are not validated when borrowed. They are validated when returned, unless
+ * {@link #setTestOnReturn} is disabled, and while idle when
+ * {@link #setTimeBetweenEvictionRunsMillis} is set, by a background thread that also
+ * evicts the instances idle longer than {@link #setMinEvictableIdleTimeMillis}.
+ * <p/>
+ * The {@link #setMaxIdle maxIdle} limit is enforced on a best effort basis, so it can
+ * be briefly exceeded by instances returned concurrently.
+ * <p/>
+ * The pool keeps track of the instances it lends. Instances returned or invalidated
+ * that were not borrowed from it, like the ones borrowed from a pool it replaced, are
+ * destroyed without changing its counters.
+ */
+public class ConcurrentKeyedObjectPool implements ConfigurableKeyedObjectPool
+{
+
+    private static final Log logger = LogFactory.getLog(ConcurrentKeyedObjectPool.class);
+
+    private final String name;
+    private final ConcurrentMap<Object, KeyPool> keyPools = new ConcurrentHashMap<Object, KeyPool>();
+    private final AtomicInteger totalObjects = new AtomicInteger();
+    private final AtomicInteger totalIdle = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object waitMonitor = new Object();
+
+    private volatile KeyedPoolableObjectFactory factory;
+    private volatile int maxActive = GenericKeyedObjectPool.DEFAULT_MAX_ACTIVE;
+    private volatile int maxIdle = GenericKeyedObjectPool.DEFAULT_MAX_IDLE;
+    private volatile int maxTotal = GenericKeyedObjectPool.DEFAULT_MAX_TOTAL;
+    private volatile long maxWait = GenericKeyedObjectPool.DEFAULT_MAX_WAIT;
+    private volatile byte whenExhaustedAction = WHEN_EXHAUSTED_BLOCK;
+    private volatile boolean testOnReturn = true;
+    private volatile boolean testWhileIdle = false;
+    private volatile long minEvictableIdleTimeMillis = -1;
+    private volatile boolean closed;
+
+    private long timeBetweenEvictionRunsMillis = -1;
+    private ScheduledExecutorService evictor;
+    private ScheduledFuture<?> evictionTask;
+
+    public ConcurrentKeyedObjectPool()
+    {
+        this("keyed.pool");
+    }
+
+    /**
+     * @param name name of the pool, used to name the thread that validates and evicts
+     *            idle instances
+     */
+    public ConcurrentKeyedObjectPool(String name)
+    {
+        this.name = name;
+    }
+
+    public Object borrowObject(Object key) throws Exception, NoSuchElementException, IllegalStateException
+    {
+        assertOpen();
+        KeyPool keyPool = getKeyPool(key);
+        long waitStart = 0;
+
+        while (true)
+        {
+            if (keyPool.reserveActive())
+            {
+                Object obj;
+                try
+                {
+                    obj = activateIdleObject(key, keyPool);
+                    if (obj == null && reserveTotal())
+                    {
+                        obj = makeObject(key, keyPool);
+                    }
+                }
+                catch (Exception e)
+                {
+                    releaseActive(keyPool);
+                    throw e;
+                }
+
+                if (obj != null)
+                {
+                    keyPool.active.add(obj);
+                    keyPool.statistics.borrowed(waitStart == 0 ? 0 : System.nanoTime() - waitStart);
+                    return obj;
+                }
+                releaseActive(keyPool);
+            }
+
+            if (whenExhaustedAction == WHEN_EXHAUSTED_FAIL)
+            {
+                throw new NoSuchElementException("Pool exhausted");
+            }
+            if (waitStart == 0)
+            {
+                waitStart = System.nanoTime();
+            }
+            awaitCapacity(keyPool, waitStart);
+        }
+    }
+
+    public void returnObject(Object key, Object obj) throws Exception
+    {
+        KeyPool keyPool = keyPools.get(key);
+        if (keyPool == null || !keyPool.active.remove(obj))
+        {
+            destroyUnknownObject(key, obj);
+            return;
+        }
+        keyPool.statistics.returned.incrementAndGet();
+
+        boolean keep = !closed;
+        if (keep && testOnReturn && !factory.validateObject(key, obj))
+        {
+            keyPool.statistics.validationFailures.incrementAndGet();
+            keep = false;
+        }
+        if (keep)
+        {
+            try
+            {
+                factory.passivateObject(key, obj);
+            }
+            catch (Exception e)
+            {
+                keep = false;
+            }
+        }
+        if (keep && maxIdle >= 0 && keyPool.numIdle.get() >= maxIdle)
+        {
+            keep = false;
+        }
+
+        if (keep)
+        {
+            pushIdle(keyPool, new IdleObject(obj));
+        }
+        else
+        {
+            destroyObject(key, keyPool, obj);
+        }
+        releaseActive(keyPool);
+
+        if (closed)
+        {
+            // The pool was closed while the instance was being returned
+            destroyIdleObjects(key, keyPool);
+        }
+    }
+
+    public void invalidateObject(Object key, Object obj) throws Exception
+    {
+        KeyPool keyPool = keyPools.get(key);
+        if (keyPool == null || !keyPool.active.remove(obj))
+        {
+            destroyUnknownObject(key, obj);
+            return;
+        }
+
+        destroyObject(key, keyPool, obj);
+        releaseActive(keyPool);
+    }
+
+    public void addObject(Object key) throws Exception, IllegalStateException, UnsupportedOperationException
+    {
+        assertOpen();
+        KeyPool keyPool = getKeyPool(key);
+        if (!reserveTotal())
+        {
+            throw new NoSuchElementException("Pool exhausted");
+        }
+
+        Object obj = makeObject(key, keyPool);
+        try
+        {
+            factory.passivateObject(key, obj);
+        }
+        catch (Exception e)
+        {
+            destroyObject(key, keyPool, obj);
+            throw e;
+        }
+        pushIdle(keyPool, new IdleObject(obj));
+        signalWaiters();
+    }
+
+    public int getNumIdle(Object key) throws UnsupportedOperationException
+    {
+        KeyPool keyPool = keyPools.get(key);
+        return keyPool == null ? 0 : keyPool.numIdle.get();
+    }
+
+    public int getNumActive(Object key) throws UnsupportedOperationException
+    {
+        KeyPool keyPool = keyPools.get(key);
+        return keyPool == null ? 0 : keyPool.numActive.get();
+    }
+
+    public int getNumIdle() throws UnsupportedOperationException
+    {
+        return totalIdle.get();
+    }
+
+    public int getNumActive() throws UnsupportedOperationException
+    {
+        int numActive = 0;
+        for (KeyPool keyPool : keyPools.values())
+        {
+            numActive += keyPool.numActive.get();
+        }
+        return numActive;
+    }
+
+    /**
+     * @return the statistics of the instances of the given key, or null if no instance
+     *         was ever borrowed for that key
+     */
+    public KeyStatistics getStatistics(Object key)
+    {
+        KeyPool keyPool = keyPools.get(key);
+        return keyPool == null ? null : keyPool.statistics;
+    }
+
+    public void clear()
+    {
+        for (Map.Entry<Object, KeyPool> entry : keyPools.entrySet())
+        {
+            destroyIdleObjects(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void clear(Object key) throws Exception, UnsupportedOperationException
+    {
+        KeyPool keyPool = keyPools.get(key);
+        if (keyPool != null)
+        {
+            destroyIdleObjects(key, keyPool);
+        }
+    }
+
+    public void close() throws Exception
+    {
+        closed = true;
+        synchronized (this)
+        {
+            if (evictor != null)
+            {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+        }
+        clear();
+
+        // Waiting threads must fail instead of waiting for instances that won't be returned
+        synchronized (waitMonitor)
+        {
+            waitMonitor.notifyAll();
+        }
+    }
+
+    public void setFactory(KeyedPoolableObjectFactory factory) throws IllegalStateException, UnsupportedOperationException
+    {
+        if (getNumActive() > 0)
+        {
+            throw new IllegalStateException("Objects are already active");
+        }
+        clear();
+        this.factory = factory;
+    }
+
+    public int getMaxActive()
+    {
+        return maxActive;
+    }
+
+    public void setMaxActive(int maxActive)
+    {
+        this.maxActive = maxActive;
+        signalWaiters();
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+        signalWaiters();
+    }
+
+    public long getMaxWait()
+    {
+        return maxWait;
+    }
+
+    public void setMaxWait(long maxWait)
+    {
+        this.maxWait = maxWait;
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle)
+    {
+        this.maxIdle = maxIdle;
+    }
+
+    public byte getWhenExhaustedAction()
+    {
+        return whenExhaustedAction;
+    }
+
+    public void setWhenExhaustedAction(byte whenExhaustedAction)
+    {
+        this.whenExhaustedAction = whenExhaustedAction;
+        signalWaiters();
+    }
+
+    public boolean getTestOnReturn()
+    {
+        return testOnReturn;
+    }
+
+    /**
+     * Sets whether instances are validated when returned, which is needed when the
+     * validation also prepares the instance for reuse.
+     */
+    public void setTestOnReturn(boolean testOnReturn)
+    {
+        this.testOnReturn = testOnReturn;
+    }
+
+    public boolean getTestWhileIdle()
+    {
+        return testWhileIdle;
+    }
+
+    /**
+     * Sets whether idle instances are validated on each eviction run
+     */
+    public void setTestWhileIdle(boolean testWhileIdle)
+    {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public long getMinEvictableIdleTimeMillis()
+    {
+        return minEvictableIdleTimeMillis;
+    }
+
+    /**
+     * Sets the time an instance can be idle before it is evicted. A non positive value
+     * disables the eviction of idle instances.
+     */
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis)
+    {
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    public synchronized long getTimeBetweenEvictionRunsMillis()
+    {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    /**
+     * Sets the time between runs of the thread that validates and evicts idle
+     * instances. A non positive value stops the thread.
+     */
+    public synchronized void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis)
+    {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+
+        if (evictionTask != null)
+        {
+            evictionTask.cancel(false);
+            evictionTask = null;
+        }
+        if (timeBetweenEvictionRunsMillis > 0 && !closed)
+        {
+            if (evictor == null)
+            {
+                evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name + ".evictor"));
+            }
+            evictionTask = evictor.scheduleWithFixedDelay(new Runnable()
+            {
+                public void run()
+                {
+                    evict();
+                }
+            }, timeBetweenEvictionRunsMillis, timeBetweenEvictionRunsMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Validates and evicts the idle instances of every key. Each instance is taken out
+     * of the pool while it is checked, so it is never handed out during its validation.
+     */
+    void evict()
+    {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<Object, KeyPool> entry : keyPools.entrySet())
+        {
+            Object key = entry.getKey();
+            KeyPool keyPool = entry.getValue();
+
+            // Takes the oldest instances first, putting back the valid ones on top so
+            // they keep their order relative to each other
+            for (int count = keyPool.numIdle.get(); count > 0 && !closed; count--)
+            {
+                IdleObject idleObject = pollIdle(keyPool, false);
+                if (idleObject == null)
+                {
+                    break;
+                }
+
+                if (minEvictableIdleTimeMillis > 0 && now - idleObject.idleSince >= minEvictableIdleTimeMillis)
+                {
+                    keyPool.statistics.evicted.incrementAndGet();
+                    destroyObject(key, keyPool, idleObject.object);
+                }
+                else if (testWhileIdle && !isValid(key, idleObject.object))
+                {
+                    keyPool.statistics.validationFailures.incrementAndGet();
+                    destroyObject(key, keyPool, idleObject.object);
+                }
+                else
+                {
+                    pushIdle(keyPool, idleObject);
+                }
+            }
+        }
+        signalWaiters();
+    }
+
+    private boolean isValid(Object key, Object obj)
+    {
+        try
+        {
+            return factory.validateObject(key, obj);
+        }
+        catch (RuntimeException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Error validating idle object of key " + key, e);
+            }
+            return false;
+        }
+    }
+
+    private KeyPool getKeyPool(Object key)
+    {
+        KeyPool keyPool = keyPools.get(key);
+        if (keyPool == null)
+        {
+            KeyPool newKeyPool = new KeyPool();
+            keyPool = keyPools.putIfAbsent(key, newKeyPool);
+            if (keyPool == null)
+            {
+                keyPool = newKeyPool;
+            }
+        }
+        return keyPool;
+    }
+
+    private Object activateIdleObject(Object key, KeyPool keyPool)
+    {
+        IdleObject idleObject;
+        while ((idleObject = pollIdle(keyPool, true)) != null)
+        {
+            try
+            {
+                factory.activateObject(key, idleObject.object);
+                return idleObject.object;
+            }
+            catch (Exception e)
+            {
+                destroyObject(key, keyPool, idleObject.object);
+            }
+        }
+        return null;
+    }
+
+    private Object makeObject(Object key, KeyPool keyPool) throws Exception
+    {
+        try
+        {
+            Object obj = factory.makeObject(key);
+            keyPool.statistics.created.incrementAndGet();
+            return obj;
+        }
+        catch (Exception e)
+        {
+            totalObjects.decrementAndGet();
+            signalWaiters();
+            throw e;
+        }
+    }
+
+    private void destroyObject(Object key, KeyPool keyPool, Object obj)
+    {
+        try
+        {
+            factory.destroyObject(key, obj);
+        }
+        catch (Exception e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Error destroying object of key " + key, e);
+            }
+        }
+        finally
+        {
+            totalObjects.decrementAndGet();
+            keyPool.statistics.destroyed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Destroys an instance that was not borrowed from this pool, like the ones
+     * borrowed from a pool that was replaced by this one
+     */
+    private void destroyUnknownObject(Object key, Object obj) throws Exception
+    {
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Destroying object of key " + key + " that was not borrowed from this pool");
+        }
+        factory.destroyObject(key, obj);
+    }
+
+    private void destroyIdleObjects(Object key, KeyPool keyPool)
+    {
+        IdleObject idleObject;
+        while ((idleObject = pollIdle(keyPool, true)) != null)
+        {
+            destroyObject(key, keyPool, idleObject.object);
+        }
+        signalWaiters();
+    }
+
+    private void pushIdle(KeyPool keyPool, IdleObject idleObject)
+    {
+        keyPool.idle.offerFirst(idleObject);
+        keyPool.numIdle.incrementAndGet();
+        totalIdle.incrementAndGet();
+    }
+
+    private IdleObject pollIdle(KeyPool keyPool, boolean newest)
+    {
+        IdleObject idleObject = newest ? keyPool.idle.pollFirst() : keyPool.idle.pollLast();
+        if (idleObject != null)
+        {
+            keyPool.numIdle.decrementAndGet();
+            totalIdle.decrementAndGet();
+        }
+        return idleObject;
+    }
+
+    /**
+     * Reserves room for a new instance, destroying an idle instance of another key
+     * when the total limit was reached.
+     */
+    private boolean reserveTotal()
+    {
+        while (true)
+        {
+            int current = totalObjects.get();
+            if (maxTotal < 0 || current < maxTotal || whenExhaustedAction == WHEN_EXHAUSTED_GROW)
+            {
+                if (totalObjects.compareAndSet(current, current + 1))
+                {
+                    return true;
+                }
+            }
+            else if (!destroyOldestIdleObject())
+            {
+                return false;
+            }
+        }
+    }
+
+    private boolean destroyOldestIdleObject()
+    {
+        for (Map.Entry<Object, KeyPool> entry : keyPools.entrySet())
+        {
+            IdleObject idleObject = pollIdle(entry.getValue(), false);
+            if (idleObject != null)
+            {
+                destroyObject(entry.getKey(), entry.getValue(), idleObject.object);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releaseActive(KeyPool keyPool)
+    {
+        keyPool.numActive.decrementAndGet();
+        signalWaiters();
+    }
+
+    private void signalWaiters()
+    {
+        if (waiters.get() > 0)
+        {
+            synchronized (waitMonitor)
+            {
+                waitMonitor.notifyAll();
+            }
+        }
+    }
+
+    private void awaitCapacity(KeyPool keyPool, long waitStart) throws InterruptedException
+    {
+        synchronized (waitMonitor)
+        {
+            // Registering before checking again guarantees that any instance released
+            // after the check signals this thread
+            waiters.incrementAndGet();
+            try
+            {
+                assertOpen();
+                if (hasCapacity(keyPool))
+                {
+                    return;
+                }
+
+                if (maxWait > 0)
+                {
+                    long remaining = maxWait - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+                    if (remaining <= 0)
+                    {
+                        throw new NoSuchElementException("Timeout waiting for idle object");
+                    }
+                    waitMonitor.wait(remaining);
+                }
+                else
+                {
+                    waitMonitor.wait();
+                }
+            }
+            finally
+            {
+                waiters.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean hasCapacity(KeyPool keyPool)
+    {
+        if (whenExhaustedAction != WHEN_EXHAUSTED_BLOCK)
+        {
+            return true;
+        }
+        if (maxActive >= 0 && keyPool.numActive.get() >= maxActive)
+        {
+            return false;
+        }
+        return keyPool.numIdle.get() > 0 || maxTotal < 0 || totalObjects.get() < maxTotal || totalIdle.get() > 0;
+    }
+
+    private void assertOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Pool not open");
+        }
+    }
+
+    /**
+     * Counters of the instances of a single key
+     */
+    public static class KeyStatistics
+    {
+
+        private final AtomicLong borrowed = new AtomicLong();
+        private final AtomicLong returned = new AtomicLong();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong destroyed = new AtomicLong();
+        private final AtomicLong evicted = new AtomicLong();
+        private final AtomicLong validationFailures = new AtomicLong();
+        private final AtomicLong waits = new AtomicLong();
+        private final AtomicLong waitTime = new AtomicLong();
+
+        void borrowed(long waitNanos)
+        {
+            borrowed.incrementAndGet();
+            if (waitNanos > 0)
+            {
+                waits.incrementAndGet();
+                waitTime.addAndGet(waitNanos);
+            }
+        }
+
+        public long getBorrowed()
+        {
+            return borrowed.get();
+        }
+
+        public long getReturned()
+        {
+            return returned.get();
+        }
+
+        public long getCreated()
+        {
+            return created.get();
+        }
+
+        public long getDestroyed()
+        {
+            return destroyed.get();
+        }
+
+        /**
+         * @return number of instances destroyed because they were idle too long
+         */
+        public long getEvicted()
+        {
+            return evicted.get();
+        }
+
+        /**
+         * @return number of instances destroyed because they failed their validation
+         */
+        public long getValidationFailures()
+        {
+            return validationFailures.get();
+        }
+
+        /**
+         * @return number of borrows that had to wait because the pool was exhausted
+         */
+        public long getWaits()
+        {
+            return waits.get();
+        }
+
+        /**
+         * @return total time in milliseconds spent waiting for an instance
+         */
+        public long getWaitTime()
+        {
+            return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+        }
+
+        @Override
+        public String toString()
+        {
+            return "KeyStatistics{borrowed=" + getBorrowed() + ", returned=" + getReturned() + ", created="
+                   + getCreated() + ", destroyed=" + getDestroyed() + ", evicted=" + getEvicted()
+                   + ", validationFailures=" + getValidationFailures() + ", waits=" + getWaits()
+                   + ", waitTime=" + getWaitTime() + "}";
+        }
+    }
+
+    private class KeyPool
+    {
+
+        private final ConcurrentLinkedDeque<IdleObject> idle = new ConcurrentLinkedDeque<IdleObject>();
+        private final AtomicInteger numIdle = new AtomicInteger();
+        private final AtomicInteger numActive = new AtomicInteger();
+        private final Set<Object> active = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+        private final KeyStatistics statistics = new KeyStatistics();
+
+        private boolean reserveActive()
+        {
+            while (true)
+            {
+                int current = numActive.get();
+                if (maxActive >= 0 && current >= maxActive && whenExhaustedAction != WHEN_EXHAUSTED_GROW)
+                {
+                    return false;
+                }
+                if (numActive.compareAndSet(current, current + 1))
+                {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static class IdleObject
+    {
+
+        private final Object object;
+        private final long idleSince = System.currentTimeMillis();
+
+        private IdleObject(Object object)
+        {
+            this.object = object;
+        }
+    }
+}
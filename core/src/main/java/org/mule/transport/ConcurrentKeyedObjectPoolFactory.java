@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+/**
+ * Implements {@link org.mule.transport.ConfigurableKeyedObjectPoolFactory} creating instances
+ * of {@link ConcurrentKeyedObjectPool}, for connectors whose dispatchers are borrowed
+ * concurrently by many threads.
+ */
+public class ConcurrentKeyedObjectPoolFactory implements ConfigurableKeyedObjectPoolFactory
+{
+
+    public ConfigurableKeyedObjectPool createObjectPool()
+    {
+        return new ConcurrentKeyedObjectPool();
+    }
+}
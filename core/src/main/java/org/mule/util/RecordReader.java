@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads records from a channel, either separated by a delimiter or of a fixed length,
+ * without loading more than one record and one buffer in memory.
+ * <p/>
+ * The reader keeps track of the offset of each record from the start of the channel,
+ * and can {@link #skipTo skip} to the offset of a record before reading, so a
+ * partially processed channel can be resumed.
+ */
+public class RecordReader implements Closeable
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final byte[] delimiter;
+    private final int[] partialMatches;
+    private final int recordLength;
+    private final ByteBuffer buffer;
+
+    private byte[] record = new byte[256];
+    private int recordSize;
+    private long position;
+    private long recordOffset;
+    private boolean eof;
+
+    private RecordReader(ReadableByteChannel channel, byte[] delimiter, int recordLength, int bufferSize)
+    {
+        this.channel = channel;
+        this.delimiter = delimiter;
+        this.partialMatches = delimiter == null ? null : computePartialMatches(delimiter);
+        this.recordLength = recordLength;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Creates a reader of records separated by a delimiter. The delimiter is not
+     * included in the records and the last record does not need to be followed by it.
+     */
+    public static RecordReader delimited(ReadableByteChannel channel, byte[] delimiter, int bufferSize)
+    {
+        if (delimiter == null || delimiter.length == 0)
+        {
+            throw new IllegalArgumentException("Record delimiter cannot be empty");
+        }
+        return new RecordReader(channel, delimiter, 0, bufferSize);
+    }
+
+    /**
+     * Creates a reader of records of a fixed length. The last record is shorter if the
+     * length of the channel is not a multiple of the record length.
+     */
+    public static RecordReader fixedLength(ReadableByteChannel channel, int recordLength, int bufferSize)
+    {
+        if (recordLength <= 0)
+        {
+            throw new IllegalArgumentException("Record length must be greater than 0");
+        }
+        return new RecordReader(channel, null, recordLength, bufferSize);
+    }
+
+    /**
+     * Skips the beginning of the channel. Must be invoked before reading any record.
+     *
+     * @param offset offset of the first record to read, as returned by
+     *            {@link #getPosition()} while reading the same channel previously
+     * @throws EOFException if the channel is shorter than the offset
+     */
+    public void skipTo(long offset) throws IOException
+    {
+        if (position != 0)
+        {
+            throw new IllegalStateException("Records were already read");
+        }
+
+        if (channel instanceof FileChannel)
+        {
+            FileChannel fileChannel = (FileChannel) channel;
+            if (fileChannel.position() + offset > fileChannel.size())
+            {
+                throw new EOFException("Offset " + offset + " is beyond the end of the file");
+            }
+            fileChannel.position(fileChannel.position() + offset);
+            position = offset;
+        }
+        else
+        {
+            while (position < offset)
+            {
+                if (!buffer.hasRemaining() && !fill())
+                {
+                    throw new EOFException("Offset " + offset + " is beyond the end of the stream");
+                }
+                int count = (int) Math.min(buffer.remaining(), offset - position);
+                buffer.position(buffer.position() + count);
+                position += count;
+            }
+        }
+        recordOffset = position;
+    }
+
+    /**
+     * @return the next record, or null if there are no more records
+     */
+    public byte[] readRecord() throws IOException
+    {
+        recordSize = 0;
+        long offset = position;
+        byte[] result = delimiter != null ? readDelimitedRecord() : readFixedLengthRecord();
+        if (result != null)
+        {
+            recordOffset = offset;
+        }
+        return result;
+    }
+
+    /**
+     * @return the offset of the last record read
+     */
+    public long getRecordOffset()
+    {
+        return recordOffset;
+    }
+
+    /**
+     * @return the offset of the record following the last record read
+     */
+    public long getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private byte[] readDelimitedRecord() throws IOException
+    {
+        int matched = 0;
+        while (true)
+        {
+            if (!buffer.hasRemaining() && !fill())
+            {
+                // A partial delimiter at the end of the channel is part of the record
+                return recordSize == 0 ? null : Arrays.copyOf(record, recordSize);
+            }
+
+            byte[] bytes = buffer.array();
+            int start = buffer.arrayOffset() + buffer.position();
+            int end = buffer.arrayOffset() + buffer.limit();
+            int index = start;
+            boolean found = false;
+            while (index < end && !found)
+            {
+                byte b = bytes[index++];
+                while (matched > 0 && b != delimiter[matched])
+                {
+                    matched = partialMatches[matched - 1];
+                }
+                if (b == delimiter[matched] && ++matched == delimiter.length)
+                {
+                    found = true;
+                }
+            }
+
+            append(bytes, start, index - start);
+            buffer.position(index - buffer.arrayOffset());
+            position += index - start;
+
+            if (found)
+            {
+                return Arrays.copyOf(record, recordSize - delimiter.length);
+            }
+        }
+    }
+
+    private byte[] readFixedLengthRecord() throws IOException
+    {
+        while (recordSize < recordLength)
+        {
+            if (!buffer.hasRemaining() && !fill())
+            {
+                return recordSize == 0 ? null : Arrays.copyOf(record, recordSize);
+            }
+
+            int count = Math.min(buffer.remaining(), recordLength - recordSize);
+            append(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+            buffer.position(buffer.position() + count);
+            position += count;
+        }
+        return Arrays.copyOf(record, recordSize);
+    }
+
+    private boolean fill() throws IOException
+    {
+        if (eof)
+        {
+            return false;
+        }
+
+        buffer.clear();
+        int count;
+        do
+        {
+            count = channel.read(buffer);
+        }
+        while (count == 0);
+        buffer.flip();
+
+        if (count < 0)
+        {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void append(byte[] bytes, int offset, int length)
+    {
+        if (recordSize + length > record.length)
+        {
+            record = Arrays.copyOf(record, Math.max(record.length * 2, recordSize + length));
+        }
+        System.arraycopy(bytes, offset, record, recordSize, length);
+        recordSize += length;
+    }
+
+    /**
+     * Computes, for each prefix of the delimiter, the length of its longest proper
+     * prefix that is also a suffix, so a mismatch after a partial match of the
+     * delimiter does not require reading the bytes again.
+     */
+    private static int[] computePartialMatches(byte[] delimiter)
+    {
+        int[] partialMatches = new int[delimiter.length];
+        int length = 0;
+        for (int i = 1; i < delimiter.length; i++)
+        {
+            while (length > 0 && delimiter[i] != delimiter[length])
+            {
+                length = partialMatches[length - 1];
+            }
+            if (delimiter[i] == delimiter[length])
+            {
+                length++;
+            }
+            partialMatches[i] = length;
+        }
+        return partialMatches;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded FIFO queue for many producers and many consumers backed by a ring
+ * buffer, where offering and polling an element only take a compare-and-set on the
+ * position of the producers or of the consumers.
+ * <p/>
+ * Each slot of the ring has a sequence telling whether it is free for the producer
+ * of a given position or holds the element for the consumer of that position, so
+ * producers and consumers never lock each other out. Only threads that wait for an
+ * element or for room, when the queue is empty or full, block on a lock, and they are
+ * only signalled while some thread is waiting.
+ */
+// @ThreadSafe
+public class RingBufferQueue<E>
+{
+
+    private final int capacity;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+    private final AtomicInteger pendingWakeUps = new AtomicInteger();
+
+    public RingBufferQueue(int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+        }
+        this.capacity = capacity;
+        elements = new AtomicReferenceArray<E>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+        {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element if there is room for it.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(E element)
+    {
+        if (element == null)
+        {
+            throw new NullPointerException();
+        }
+
+        long position = producerPosition.get();
+        int index;
+        while (true)
+        {
+            index = index(position);
+            long difference = sequences.get(index) - position;
+            if (difference == 0)
+            {
+                if (producerPosition.compareAndSet(position, position + 1))
+                {
+                    break;
+                }
+                position = producerPosition.get();
+            }
+            else if (difference < 0)
+            {
+                // The slot still holds the element of the previous lap
+                return false;
+            }
+            else
+            {
+                position = producerPosition.get();
+            }
+        }
+
+        elements.set(index, element);
+        sequences.set(index, position + 1);
+        if (waitingConsumers.get() > 0)
+        {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the element, waiting up to the given time for room if the queue is full.
+     *
+     * @return false if the queue is still full when the timeout expires
+     */
+    public boolean offer(E element, long timeout) throws InterruptedException
+    {
+        if (offer(element))
+        {
+            return true;
+        }
+        if (timeout <= 0)
+        {
+            return false;
+        }
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lockInterruptibly();
+        try
+        {
+            waitingProducers.incrementAndGet();
+            try
+            {
+                while (!offer(element))
+                {
+                    if (remaining <= 0)
+                    {
+                        return false;
+                    }
+                    remaining = notFull.awaitNanos(remaining);
+                }
+                return true;
+            }
+            finally
+            {
+                waitingProducers.decrementAndGet();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the first element.
+     *
+     * @return the element, or null if the queue is empty
+     */
+    public E poll()
+    {
+        long position = consumerPosition.get();
+        int index;
+        while (true)
+        {
+            index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0)
+            {
+                if (consumerPosition.compareAndSet(position, position + 1))
+                {
+                    break;
+                }
+                position = consumerPosition.get();
+            }
+            else if (difference < 0)
+            {
+                // The slot was not filled yet
+                return null;
+            }
+            else
+            {
+                position = consumerPosition.get();
+            }
+        }
+
+        E element = elements.get(index);
+        elements.set(index, null);
+        sequences.set(index, position + capacity);
+        if (waitingProducers.get() > 0)
+        {
+            signal(notFull);
+        }
+        return element;
+    }
+
+    /**
+     * Removes the first element, waiting up to the given time for one if the queue is
+     * empty.
+     *
+     * @return the element, or null if the queue is still empty when the timeout expires
+     *         or the wait is ended by {@link #wakeUpConsumers()}
+     */
+    public E poll(long timeout) throws InterruptedException
+    {
+        E element = poll();
+        if (element != null || timeout <= 0)
+        {
+            return element;
+        }
+
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lockInterruptibly();
+        try
+        {
+            waitingConsumers.incrementAndGet();
+            try
+            {
+                // Checked again once registered as waiting, so an element offered meanwhile is not missed
+                while ((element = poll()) == null)
+                {
+                    if (remaining <= 0 || pendingWakeUps.getAndSet(0) > 0)
+                    {
+                        return null;
+                    }
+                    remaining = notEmpty.awaitNanos(remaining);
+                }
+                return element;
+            }
+            finally
+            {
+                waitingConsumers.decrementAndGet();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a consumer waiting for an element return null without waiting for the rest
+     * of its timeout, so it can look for elements somewhere else. If no consumer is
+     * waiting, the next one to wait returns null instead.
+     */
+    public void wakeUpConsumers()
+    {
+        pendingWakeUps.incrementAndGet();
+        if (waitingConsumers.get() > 0)
+        {
+            signal(notEmpty);
+        }
+    }
+
+    /**
+     * Removes up to the given number of elements without waiting, adding them to the
+     * given collection.
+     *
+     * @return the number of elements removed
+     */
+    public int drainTo(Collection<? super E> collection, int maxElements)
+    {
+        int drained = 0;
+        E element;
+        while (drained < maxElements && (element = poll()) != null)
+        {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return the number of elements in the queue, which may already have changed when
+     *         it is returned if other threads are using the queue
+     */
+    public int size()
+    {
+        while (true)
+        {
+            long consumed = consumerPosition.get();
+            long produced = producerPosition.get();
+            if (consumed == consumerPosition.get())
+            {
+                return (int) Math.max(0, Math.min(capacity, produced - consumed));
+            }
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Discards all the elements in the queue
+     */
+    public void clear()
+    {
+        while (poll() != null)
+        {
+            // keep draining
+        }
+    }
+
+    private int index(long position)
+    {
+        return (int) (position % capacity);
+    }
+
+    private void signal(Condition condition)
+    {
+        lock.lock();
+        try
+        {
+            condition.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
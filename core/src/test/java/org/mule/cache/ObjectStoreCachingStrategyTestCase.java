@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.tck.probe.JUnitProbe;
+import org.mule.tck.probe.PollingProber;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ObjectStoreCachingStrategyTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String REQUEST = "request";
+    private static final String RESPONSE = "response";
+
+    private final ObjectStoreCachingStrategy cachingStrategy = new ObjectStoreCachingStrategy();
+    private final CountingMessageProcessor messageProcessor = new CountingMessageProcessor();
+
+    @After
+    public void disposeCachingStrategy()
+    {
+        cachingStrategy.dispose();
+    }
+
+    @Test
+    public void cachesResponse() throws Exception
+    {
+        initialiseCachingStrategy();
+
+        assertThat(cachingStrategy.process(getTestEvent(REQUEST), messageProcessor).getMessageAsString(), is(RESPONSE));
+        assertThat(cachingStrategy.process(getTestEvent(REQUEST), messageProcessor).getMessageAsString(), is(RESPONSE));
+
+        assertThat(messageProcessor.invocations.get(), is(1));
+        assertThat(cachingStrategy.getStatistics().getHits(), is(1L));
+        assertThat(cachingStrategy.getStatistics().getMisses(), is(1L));
+        assertThat(cachingStrategy.getStatistics().getHitRatio(), is(0.5));
+    }
+
+    @Test
+    public void differentKeysAreNotShared() throws Exception
+    {
+        initialiseCachingStrategy();
+
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.process(getTestEvent("other request"), messageProcessor);
+
+        assertThat(messageProcessor.invocations.get(), is(2));
+    }
+
+    @Test
+    public void replaysStreamedResponse() throws Exception
+    {
+        messageProcessor.streaming = true;
+        initialiseCachingStrategy();
+
+        assertThat(cachingStrategy.process(getTestEvent(REQUEST), messageProcessor).getMessageAsString(), is(RESPONSE));
+        assertThat(cachingStrategy.process(getTestEvent(REQUEST), messageProcessor).getMessageAsString(), is(RESPONSE));
+        assertThat(cachingStrategy.process(getTestEvent(REQUEST), messageProcessor).getMessageAsString(), is(RESPONSE));
+
+        assertThat(messageProcessor.invocations.get(), is(1));
+    }
+
+    @Test
+    public void expiresResponse() throws Exception
+    {
+        cachingStrategy.setStore(new SimpleMemoryObjectStore<CachedResponse>());
+        cachingStrategy.setEntryTTL(1);
+        initialiseCachingStrategy();
+
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        Thread.sleep(10);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations.get(), is(2));
+        assertThat(cachingStrategy.getStatistics().getExpirations(), is(1L));
+    }
+
+    @Test
+    public void usesKeyGenerationExpression() throws Exception
+    {
+        cachingStrategy.setKeyGenerationExpression("#[flowVars.key]");
+        initialiseCachingStrategy();
+
+        MuleEvent firstRequest = getTestEvent(REQUEST);
+        firstRequest.setFlowVariable("key", "same");
+        MuleEvent secondRequest = getTestEvent("other request");
+        secondRequest.setFlowVariable("key", "same");
+
+        cachingStrategy.process(firstRequest, messageProcessor);
+        cachingStrategy.process(secondRequest, messageProcessor);
+
+        assertThat(messageProcessor.invocations.get(), is(1));
+    }
+
+    @Test
+    public void invalidatesResponses() throws Exception
+    {
+        cachingStrategy.setKeyGenerationExpression("#[payload]");
+        initialiseCachingStrategy();
+
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.invalidate(REQUEST);
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        cachingStrategy.invalidate();
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations.get(), is(3));
+    }
+
+    @Test
+    public void failedResponsesAreNotCached() throws Exception
+    {
+        initialiseCachingStrategy();
+        messageProcessor.failure = new RuntimeException("Expected");
+
+        try
+        {
+            cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+        }
+        catch (RuntimeException e)
+        {
+            // Expected
+        }
+        messageProcessor.failure = null;
+        cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+
+        assertThat(messageProcessor.invocations.get(), is(2));
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws Exception
+    {
+        initialiseCachingStrategy();
+        messageProcessor.release = new CountDownLatch(1);
+
+        Thread loader = new Thread(new ProcessRequest());
+        Thread waiter = new Thread(new ProcessRequest());
+        loader.start();
+        messageProcessor.started.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+        waiter.start();
+
+        new PollingProber(RECEIVE_TIMEOUT, 10).check(new JUnitProbe()
+        {
+            @Override
+            protected boolean test() throws Exception
+            {
+                assertThat(cachingStrategy.getStatistics().getCoalescedRequests(), is(1L));
+                return true;
+            }
+        });
+        messageProcessor.release.countDown();
+        loader.join(RECEIVE_TIMEOUT);
+        waiter.join(RECEIVE_TIMEOUT);
+
+        assertThat(messageProcessor.invocations.get(), is(1));
+        assertThat(cachingStrategy.getStatistics().getHits(), is(1L));
+    }
+
+    private void initialiseCachingStrategy() throws Exception
+    {
+        cachingStrategy.setMuleContext(muleContext);
+        cachingStrategy.initialise();
+    }
+
+    private class ProcessRequest implements Runnable
+    {
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                cachingStrategy.process(getTestEvent(REQUEST), messageProcessor);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class CountingMessageProcessor implements MessageProcessor
+    {
+
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile CountDownLatch release;
+        private volatile RuntimeException failure;
+        private boolean streaming;
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            invocations.incrementAndGet();
+            started.countDown();
+            if (release != null)
+            {
+                try
+                {
+                    release.await(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failure != null)
+            {
+                throw failure;
+            }
+            event.getMessage().setPayload(streaming ? new ByteArrayInputStream(RESPONSE.getBytes()) : RESPONSE);
+            return event;
+        }
+    }
+}
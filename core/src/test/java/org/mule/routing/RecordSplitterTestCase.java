@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.routing;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.api.DefaultMuleException;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.api.store.ObjectStore;
+import org.mule.config.i18n.MessageFactory;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.store.SimpleMemoryObjectStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RecordSplitterTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String RECORDS = "a\nb\nc\nd\ne";
+
+    private RecordSplitter splitter;
+    private List<Object> splitPayloads = new ArrayList<Object>();
+    private List<Long> splitOffsets = new ArrayList<Long>();
+    private String failingRecord;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        super.doSetUp();
+        splitter = new RecordSplitter();
+        splitter.setMuleContext(muleContext);
+        splitter.setListener(new MessageProcessor()
+        {
+            public MuleEvent process(MuleEvent event) throws MuleException
+            {
+                Object payload = event.getMessage().getPayload();
+                if (payload.equals(failingRecord))
+                {
+                    throw new DefaultMuleException(MessageFactory.createStaticMessage("Failed to process " + payload));
+                }
+                splitPayloads.add(payload);
+                splitOffsets.add(event.getMessage().<Long>getInvocationProperty(RecordSplitter.RECORD_OFFSET_PROPERTY));
+                return event;
+            }
+        });
+    }
+
+    @Test
+    public void splitsStreamOnDelimiter() throws Exception
+    {
+        splitter.setBufferSize(3);
+
+        splitter.process(getTestEvent(new ByteArrayInputStream(RECORDS.getBytes())));
+
+        assertThat(splitPayloads, equalTo(Arrays.<Object>asList("a", "b", "c", "d", "e")));
+        assertThat(splitOffsets, equalTo(Arrays.asList(0L, 2L, 4L, 6L, 8L)));
+    }
+
+    @Test
+    public void splitsFixedLengthRecords() throws Exception
+    {
+        splitter.setRecordLength(4);
+
+        splitter.process(getTestEvent("0001000200"));
+
+        assertThat(splitPayloads, equalTo(Arrays.<Object>asList("0001", "0002", "00")));
+    }
+
+    @Test
+    public void splitsInBatches() throws Exception
+    {
+        splitter.setBatchSize(2);
+
+        splitter.process(getTestEvent(RECORDS));
+
+        assertThat(splitPayloads, equalTo(Arrays.<Object>asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"),
+            Arrays.asList("e"))));
+        assertThat(splitOffsets, equalTo(Arrays.asList(0L, 4L, 8L)));
+    }
+
+    @Test
+    public void returnsOnlyLastResult() throws Exception
+    {
+        MuleEvent result = splitter.process(getTestEvent(RECORDS));
+
+        assertThat(result.getMessage().getPayload(), equalTo((Object) "e"));
+    }
+
+    @Test
+    public void resumesFromLastCheckpoint() throws Exception
+    {
+        ObjectStore<Serializable> store = new SimpleMemoryObjectStore<Serializable>();
+        splitter.setCheckpointStore(store);
+        splitter.setCheckpointKey("#['records.txt']");
+        splitter.setCheckpointInterval(2);
+        failingRecord = "d";
+
+        try
+        {
+            splitter.process(getTestEvent(RECORDS));
+            fail("Processing of record should fail");
+        }
+        catch (MuleException e)
+        {
+            // expected
+        }
+        assertThat(store.retrieve("records.txt"), equalTo((Serializable) 4L));
+
+        failingRecord = null;
+        splitPayloads.clear();
+        splitter.process(getTestEvent(RECORDS));
+
+        assertThat(splitPayloads, equalTo(Arrays.<Object>asList("c", "d", "e")));
+        assertThat(store.contains("records.txt"), equalTo(false));
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class ConcurrentKeyedObjectPoolTestCase extends AbstractMuleTestCase
+{
+
+    private static final String KEY = "key";
+    private static final String OTHER_KEY = "otherKey";
+
+    private final ConcurrentKeyedObjectPool pool = new ConcurrentKeyedObjectPool();
+    private final TestObjectFactory factory = new TestObjectFactory();
+
+    @Before
+    public void setUpPool()
+    {
+        pool.setFactory(factory);
+        pool.setMaxActive(2);
+    }
+
+    @After
+    public void closePool() throws Exception
+    {
+        pool.close();
+    }
+
+    @Test
+    public void reusesReturnedObject() throws Exception
+    {
+        Object first = pool.borrowObject(KEY);
+        pool.returnObject(KEY, first);
+        Object second = pool.borrowObject(KEY);
+
+        assertThat(second, sameInstance(first));
+        assertThat(pool.getStatistics(KEY).getCreated(), equalTo(1L));
+        assertThat(pool.getStatistics(KEY).getBorrowed(), equalTo(2L));
+        assertThat(pool.getStatistics(KEY).getReturned(), equalTo(1L));
+    }
+
+    @Test
+    public void keepsObjectsOfEachKeyApart() throws Exception
+    {
+        Object first = pool.borrowObject(KEY);
+        pool.returnObject(KEY, first);
+        Object other = pool.borrowObject(OTHER_KEY);
+
+        assertThat(other, not(sameInstance(first)));
+        assertThat(pool.getNumIdle(KEY), equalTo(1));
+        assertThat(pool.getNumActive(OTHER_KEY), equalTo(1));
+        assertThat(pool.getNumActive(), equalTo(1));
+    }
+
+    @Test
+    public void failsWhenExhausted() throws Exception
+    {
+        pool.setWhenExhaustedAction(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
+        pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+
+        try
+        {
+            pool.borrowObject(KEY);
+            fail("Pool should be exhausted");
+        }
+        catch (NoSuchElementException e)
+        {
+            // expected
+        }
+
+        // Other keys have their own limit
+        pool.borrowObject(OTHER_KEY);
+    }
+
+    @Test
+    public void growsWhenExhausted() throws Exception
+    {
+        pool.setWhenExhaustedAction(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_GROW);
+        pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+
+        assertThat(pool.getNumActive(KEY), equalTo(3));
+    }
+
+    @Test
+    public void blocksUntilObjectIsReturned() throws Exception
+    {
+        final Object first = pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+
+        final AtomicReference<Object> borrowed = new AtomicReference<Object>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread borrower = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    borrowed.set(pool.borrowObject(KEY));
+                }
+                catch (Exception e)
+                {
+                    borrowed.set(e);
+                }
+                done.countDown();
+            }
+        };
+        borrower.start();
+
+        assertThat(done.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+        pool.returnObject(KEY, first);
+
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(borrowed.get(), sameInstance(first));
+        assertThat(pool.getStatistics(KEY).getWaits(), equalTo(1L));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void timesOutWaitingForObject() throws Exception
+    {
+        pool.setMaxWait(50);
+        pool.borrowObject(KEY);
+        pool.borrowObject(KEY);
+
+        pool.borrowObject(KEY);
+    }
+
+    @Test
+    public void destroysInvalidObjectOnReturn() throws Exception
+    {
+        Object obj = pool.borrowObject(KEY);
+        factory.valid = false;
+        pool.returnObject(KEY, obj);
+
+        assertThat(pool.getNumIdle(KEY), equalTo(0));
+        assertThat(pool.getNumActive(KEY), equalTo(0));
+        assertThat(pool.getStatistics(KEY).getValidationFailures(), equalTo(1L));
+        assertThat(pool.getStatistics(KEY).getDestroyed(), equalTo(1L));
+    }
+
+    @Test
+    public void validatesIdleObjectsInsteadOfBorrowedOnes() throws Exception
+    {
+        pool.setTestOnReturn(false);
+        pool.setTestWhileIdle(true);
+        Object obj = pool.borrowObject(KEY);
+        pool.returnObject(KEY, obj);
+        pool.borrowObject(KEY);
+        assertThat(factory.validations, equalTo(0));
+
+        pool.returnObject(KEY, obj);
+        factory.valid = false;
+        pool.evict();
+
+        assertThat(factory.validations, equalTo(1));
+        assertThat(pool.getNumIdle(KEY), equalTo(0));
+        assertThat(pool.getStatistics(KEY).getValidationFailures(), equalTo(1L));
+    }
+
+    @Test
+    public void evictsObjectsIdleTooLong() throws Exception
+    {
+        pool.setMinEvictableIdleTimeMillis(1);
+        Object obj = pool.borrowObject(KEY);
+        pool.returnObject(KEY, obj);
+        Thread.sleep(10);
+
+        pool.evict();
+
+        assertThat(pool.getNumIdle(), equalTo(0));
+        assertThat(pool.getStatistics(KEY).getEvicted(), equalTo(1L));
+    }
+
+    @Test
+    public void destroysIdleObjectOfOtherKeyWhenTotalIsReached() throws Exception
+    {
+        pool.setMaxTotal(1);
+        Object obj = pool.borrowObject(KEY);
+        pool.returnObject(KEY, obj);
+
+        Object other = pool.borrowObject(OTHER_KEY);
+
+        assertThat(other, not(sameInstance(obj)));
+        assertThat(pool.getNumIdle(KEY), equalTo(0));
+        assertThat(pool.getStatistics(KEY).getDestroyed(), equalTo(1L));
+    }
+
+    @Test
+    public void destroysObjectsReturnedAfterClose() throws Exception
+    {
+        Object obj = pool.borrowObject(KEY);
+        pool.close();
+        pool.returnObject(KEY, obj);
+
+        assertThat(pool.getNumIdle(), equalTo(0));
+        assertThat(pool.getStatistics(KEY).getDestroyed(), equalTo(1L));
+    }
+
+    @Test
+    public void destroysObjectsBorrowedFromReplacedPool() throws Exception
+    {
+        ConcurrentKeyedObjectPool replacement = new ConcurrentKeyedObjectPool();
+        replacement.setFactory(factory);
+        try
+        {
+            Object obj = pool.borrowObject(KEY);
+            replacement.borrowObject(KEY);
+
+            replacement.returnObject(KEY, obj);
+
+            assertThat(factory.destroyed, equalTo(1));
+            assertThat(replacement.getNumIdle(KEY), equalTo(0));
+            assertThat(replacement.getNumActive(KEY), equalTo(1));
+            assertThat(replacement.getStatistics(KEY).getReturned(), equalTo(0L));
+        }
+        finally
+        {
+            replacement.close();
+        }
+    }
+
+    private static class TestObjectFactory extends BaseKeyedPoolableObjectFactory
+    {
+
+        private volatile boolean valid = true;
+        private volatile int validations;
+        private volatile int destroyed;
+
+        @Override
+        public Object makeObject(Object key) throws Exception
+        {
+            return new Object();
+        }
+
+        @Override
+        public boolean validateObject(Object key, Object obj)
+        {
+            validations++;
+            return valid;
+        }
+
+        @Override
+        public void destroyObject(Object key, Object obj) throws Exception
+        {
+            destroyed++;
+        }
+    }
+}
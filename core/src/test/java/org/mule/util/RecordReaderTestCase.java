@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SmallTest
+public class RecordReaderTestCase extends AbstractMuleTestCase
+{
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsRecordsSpanningSeveralBuffers() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("first\nsecond record\n\nlast"), "\n".getBytes(), 4);
+
+        assertThat(readAll(reader), equalTo(list("first", "second record", "", "last")));
+    }
+
+    @Test
+    public void readsRecordsWithDelimiterSplitBetweenBuffers() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("abc\r\ndefg\r\nhi\r\n"), "\r\n".getBytes(), 4);
+
+        assertThat(readAll(reader), equalTo(list("abc", "defg", "hi")));
+    }
+
+    @Test
+    public void matchesDelimiterAfterPartialMatch() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("xaaab|yaab|z"), "aab|".getBytes(), 3);
+
+        assertThat(readAll(reader), equalTo(list("xa", "y", "z")));
+    }
+
+    @Test
+    public void keepsPartialDelimiterAtTheEnd() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("one||two|"), "||".getBytes(), 16);
+
+        assertThat(readAll(reader), equalTo(list("one", "two|")));
+    }
+
+    @Test
+    public void readsFixedLengthRecords() throws Exception
+    {
+        RecordReader reader = RecordReader.fixedLength(channel("aaabbbcccd"), 3, 4);
+
+        assertThat(readAll(reader), equalTo(list("aaa", "bbb", "ccc", "d")));
+    }
+
+    @Test
+    public void tracksRecordOffsets() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("one\ntwo\nthree"), "\n".getBytes(), 4);
+
+        reader.readRecord();
+        reader.readRecord();
+
+        assertThat(reader.getRecordOffset(), equalTo(4L));
+        assertThat(reader.getPosition(), equalTo(8L));
+    }
+
+    @Test
+    public void resumesStreamFromOffset() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("one\ntwo\nthree"), "\n".getBytes(), 4);
+
+        reader.skipTo(8);
+
+        assertThat(readAll(reader), equalTo(list("three")));
+        assertThat(reader.getRecordOffset(), equalTo(8L));
+    }
+
+    @Test
+    public void resumesFileFromOffset() throws Exception
+    {
+        File file = temporaryFolder.newFile("records.txt");
+        FileUtils.writeStringToFile(file, "aaabbbccc");
+        RecordReader reader = RecordReader.fixedLength(new FileInputStream(file).getChannel(), 3, 4);
+
+        try
+        {
+            reader.skipTo(3);
+
+            assertThat(readAll(reader), equalTo(list("bbb", "ccc")));
+            assertThat(reader.getPosition(), equalTo(9L));
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void failsToResumeBeyondTheEnd() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel("one\ntwo"), "\n".getBytes(), 4);
+
+        reader.skipTo(10);
+    }
+
+    @Test
+    public void returnsNullWhenEmpty() throws Exception
+    {
+        RecordReader reader = RecordReader.delimited(channel(""), "\n".getBytes(), 4);
+
+        assertThat(reader.readRecord(), nullValue());
+    }
+
+    private ReadableByteChannel channel(String content)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(content.getBytes()));
+    }
+
+    private List<String> readAll(RecordReader reader) throws Exception
+    {
+        List<String> records = new ArrayList<String>();
+        byte[] record;
+        while ((record = reader.readRecord()) != null)
+        {
+            records.add(new String(record));
+        }
+        return records;
+    }
+
+    private List<String> list(String... records)
+    {
+        List<String> list = new ArrayList<String>();
+        for (String record : records)
+        {
+            list.add(record);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+@SmallTest
+public class RingBufferQueueTestCase extends AbstractMuleTestCase
+{
+
+    private static final long TIMEOUT = 5000;
+
+    @Test
+    public void keepsOrderAcrossLaps()
+    {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(3);
+        List<Integer> polled = new ArrayList<Integer>();
+        for (int i = 0; i < 10; i++)
+        {
+            queue.offer(i);
+            polled.add(queue.poll());
+        }
+
+        assertThat(polled, equalTo(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+        assertThat(queue.poll(), nullValue());
+    }
+
+    @Test
+    public void rejectsElementsWhenFull() throws Exception
+    {
+        RingBufferQueue<String> queue = new RingBufferQueue<String>(2);
+
+        assertThat(queue.offer("a"), equalTo(true));
+        assertThat(queue.offer("b"), equalTo(true));
+        assertThat(queue.offer("c", 10), equalTo(false));
+        assertThat(queue.size(), equalTo(2));
+    }
+
+    @Test
+    public void drainsUpToMaxElements()
+    {
+        RingBufferQueue<String> queue = new RingBufferQueue<String>(4);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        List<String> drained = new ArrayList<String>();
+
+        assertThat(queue.drainTo(drained, 2), equalTo(2));
+        assertThat(drained, equalTo(Arrays.asList("a", "b")));
+        assertThat(queue.size(), equalTo(1));
+    }
+
+    @Test
+    public void pollWaitsForElement() throws Exception
+    {
+        final RingBufferQueue<String> queue = new RingBufferQueue<String>(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<String> polled = executor.submit(new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return queue.poll(TIMEOUT);
+                }
+            });
+            Thread.sleep(100);
+            queue.offer("a");
+
+            assertThat(polled.get(TIMEOUT, TimeUnit.MILLISECONDS), equalTo("a"));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void wakeUpEndsWaitingPoll() throws Exception
+    {
+        final RingBufferQueue<String> queue = new RingBufferQueue<String>(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<String> polled = executor.submit(new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return queue.poll(TIMEOUT * 10);
+                }
+            });
+            Thread.sleep(100);
+            queue.wakeUpConsumers();
+
+            assertThat(polled.get(TIMEOUT, TimeUnit.MILLISECONDS), nullValue());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void wakeUpBeforePollIsNotLost() throws Exception
+    {
+        RingBufferQueue<String> queue = new RingBufferQueue<String>(1);
+        queue.wakeUpConsumers();
+
+        assertThat(queue.poll(TIMEOUT * 10), nullValue());
+    }
+
+    @Test
+    public void offerWaitsForRoom() throws Exception
+    {
+        final RingBufferQueue<String> queue = new RingBufferQueue<String>(1);
+        queue.offer("a");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<Boolean> offered = executor.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return queue.offer("b", TIMEOUT);
+                }
+            });
+            Thread.sleep(100);
+
+            assertThat(queue.poll(), equalTo("a"));
+            assertThat(offered.get(TIMEOUT, TimeUnit.MILLISECONDS), equalTo(true));
+            assertThat(queue.poll(), equalTo("b"));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deliversEveryElementToConcurrentConsumers() throws Exception
+    {
+        final int producers = 4;
+        final int elements = 10000;
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(16);
+        final AtomicLong consumed = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(producers * 2);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int p = 0; p < producers; p++)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        for (int i = 1; i <= elements; i++)
+                        {
+                            while (!queue.offer(i, 100))
+                            {
+                                // keep trying until consumers make room
+                            }
+                        }
+                        return null;
+                    }
+                }));
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        List<Integer> batch = new ArrayList<Integer>();
+                        while (consumed.get() < producers * elements)
+                        {
+                            Integer element = queue.poll(10);
+                            if (element != null)
+                            {
+                                batch.add(element);
+                                queue.drainTo(batch, 8);
+                                for (Integer value : batch)
+                                {
+                                    sum.addAndGet(value);
+                                }
+                                consumed.addAndGet(batch.size());
+                                batch.clear();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+            {
+                future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+
+            assertThat(consumed.get(), equalTo((long) producers * elements));
+            assertThat(sum.get(), equalTo(producers * (elements * (elements + 1L) / 2)));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
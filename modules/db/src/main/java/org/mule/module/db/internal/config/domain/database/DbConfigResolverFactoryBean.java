@@ -11,9 +11,12 @@ import org.mule.api.AnnotatedObject;
 import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.lifecycle.Disposable;
+import org.mule.api.management.stats.StatisticsMBeanProvider;
 import org.mule.api.retry.RetryPolicyTemplate;
 import org.mule.config.spring.factories.AnnotatedObjectFactoryBean;
 import org.mule.module.db.internal.domain.connection.DbPoolingProfile;
+import org.mule.module.db.internal.domain.connection.TransactionalDbConnectionFactory;
+import org.mule.module.db.internal.domain.connection.pool.PoolingDataSource;
 import org.mule.module.db.internal.domain.database.ConfigurableDbConfigFactory;
 import org.mule.module.db.internal.domain.database.DataSourceConfig;
 import org.mule.module.db.internal.domain.database.DataSourceFactory;
@@ -23,19 +26,26 @@ import org.mule.module.db.internal.domain.type.DbType;
 import org.mule.module.db.internal.resolver.database.DbConfigResolver;
 import org.mule.module.db.internal.resolver.database.DynamicDbConfigResolver;
 import org.mule.module.db.internal.resolver.database.StaticDbConfigResolver;
+import org.mule.module.db.internal.resolver.param.ParamTypeCache;
 import org.mule.util.Preconditions;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
 /**
  * Creates {@link DbConfigResolver} instances
  */
-public class DbConfigResolverFactoryBean extends AnnotatedObjectFactoryBean<DbConfigResolver> implements AnnotatedObject, MuleContextAware, Disposable
+public class DbConfigResolverFactoryBean extends AnnotatedObjectFactoryBean<DbConfigResolver> implements AnnotatedObject, MuleContextAware, Disposable, StatisticsMBeanProvider
 {
 
+    private static final String STATEMENT_CACHE_MBEAN_TYPE = "DbStatementCache";
+    private static final String PARAM_TYPE_CACHE_MBEAN_TYPE = "DbParamTypeCache";
+    private static final String CONNECTION_POOL_MBEAN_TYPE = "DbConnectionPool";
+
     private MuleContext muleContext;
     private String name;
     private DataSource dataSource;
@@ -43,6 +53,8 @@ public class DbConfigResolverFactoryBean extends AnnotatedObjectFactoryBean<DbCo
     private DataSourceFactory dataSourceFactory;
     private final DataSourceConfig dataSourceConfig = new DataSourceConfig();
     private final ConfigurableDbConfigFactory dbConfigFactory;
+    private int statementCacheSize;
+    private DbConfig staticDbConfig;
 
     @SuppressWarnings("unused")
     public DbConfigResolverFactoryBean()
@@ -93,6 +105,7 @@ public class DbConfigResolverFactoryBean extends AnnotatedObjectFactoryBean<DbCo
 
             DbConfig dbConfig = dbConfigFactory.create(name, getAnnotations(), instanceDataSource);
             dbConfig.setAnnotations(getAnnotations());
+            staticDbConfig = dbConfig;
 
             return new StaticDbConfigResolver(dbConfig);
         }
@@ -206,6 +219,46 @@ public class DbConfigResolverFactoryBean extends AnnotatedObjectFactoryBean<DbCo
         this.dbConfigFactory.setRetryPolicyTemplate(retryPolicyTemplate);
     }
 
+    public void setStatementCacheSize(int statementCacheSize)
+    {
+        this.statementCacheSize = statementCacheSize;
+        this.dbConfigFactory.setStatementCacheSize(statementCacheSize);
+    }
+
+    @Override
+    public Map<String, Object> getStatisticsMBeans()
+    {
+        Map<String, Object> mbeans = new HashMap<>();
+
+        if (statementCacheSize > 0)
+        {
+            mbeans.put(getMBeanKey(STATEMENT_CACHE_MBEAN_TYPE), dbConfigFactory.getStatementCacheStatistics());
+        }
+
+        // Parameter types of dynamic configs are cached per resolved config, so only the static one is published
+        if (staticDbConfig != null && staticDbConfig.getConnectionFactory() instanceof TransactionalDbConnectionFactory)
+        {
+            ParamTypeCache paramTypeCache = ((TransactionalDbConnectionFactory) staticDbConfig.getConnectionFactory()).getParamTypeCache();
+            if (paramTypeCache != null)
+            {
+                mbeans.put(getMBeanKey(PARAM_TYPE_CACHE_MBEAN_TYPE), paramTypeCache);
+            }
+        }
+
+        // Dynamic configs create a pool per resolved config, so only the static one is published
+        if (staticDbConfig != null && staticDbConfig.getDataSource() instanceof PoolingDataSource)
+        {
+            mbeans.put(getMBeanKey(CONNECTION_POOL_MBEAN_TYPE), ((PoolingDataSource) staticDbConfig.getDataSource()).getStatistics());
+        }
+
+        return mbeans;
+    }
+
+    private String getMBeanKey(String type)
+    {
+        return String.format("type=%s,name=%s", type, ObjectName.quote(name));
+    }
+
     @Override
     public void dispose()
     {
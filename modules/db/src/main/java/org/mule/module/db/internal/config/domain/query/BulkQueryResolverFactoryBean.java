@@ -9,6 +9,7 @@ package org.mule.module.db.internal.config.domain.query;
 
 import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
+import org.mule.module.db.internal.parser.CachedQueryTemplateParser;
 import org.mule.module.db.internal.parser.SimpleQueryTemplateParser;
 import org.mule.module.db.internal.resolver.param.ParamValueResolver;
 import org.mule.module.db.internal.resolver.query.BulkQueryResolver;
@@ -33,7 +34,7 @@ public class BulkQueryResolverFactoryBean implements FactoryBean<BulkQueryResolv
     {
         if (context.getExpressionManager().isExpression(bulkQuery))
         {
-            return new DynamicBulkQueryResolver(bulkQuery, new SimpleQueryTemplateParser(), context.getExpressionManager());
+            return new DynamicBulkQueryResolver(bulkQuery, new CachedQueryTemplateParser(new SimpleQueryTemplateParser()), context.getExpressionManager());
         }
         else
         {
@@ -27,6 +27,7 @@ public abstract class AbstractDbProcessorDefinitionParser extends AbstractHierar
     public static final String MAX_ROWS_ATTRIBUTE = "maxRows";
     public static final String FETCH_SIZE = "fetchSize";
     public static final String STREAMING_ATTRIBUTE = "streaming";
+    public static final String RESULT_FORMAT_ATTRIBUTE = "resultFormat";
     public static final int DEFAULT_FETCH_SIZE = 10;
     public static final String QUERY_TIMEOUT_ATTRIBUTE = "queryTimeout";
 
@@ -9,9 +9,12 @@ package org.mule.module.db.internal.config.processor;
 
 import static org.springframework.beans.factory.support.BeanDefinitionBuilder.genericBeanDefinition;
 
+import org.mule.module.db.internal.result.resultset.ColumnarResultSetHandler;
 import org.mule.module.db.internal.result.resultset.IteratorResultSetHandler;
 import org.mule.module.db.internal.result.resultset.ListResultSetHandler;
+import org.mule.module.db.internal.result.row.CompactMapRowHandler;
 import org.mule.module.db.internal.result.row.InsensitiveMapRowHandler;
+import org.mule.module.db.internal.result.row.RowHandler;
 
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
@@ -21,12 +24,18 @@ import org.w3c.dom.Element;
 public abstract class AbstractResultSetHandlerProcessorDefinitionParser extends AbstractSingleQueryProcessorDefinitionParser
 {
 
+    public static final String MAP_RESULT_FORMAT = "MAP";
+    public static final String COMPACT_MAP_RESULT_FORMAT = "COMPACT_MAP";
+    public static final String COLUMNAR_RESULT_FORMAT = "COLUMNAR";
+
     protected String resultSetHandlerBeanName;
+    protected String resultFormat;
 
     @Override
     protected void doParseElement(Element element, ParserContext context, BeanDefinitionBuilder builder)
     {
         resultSetHandlerBeanName = getBeanName(element) + ".resultSetHandler";
+        resultFormat = element.getAttribute(RESULT_FORMAT_ATTRIBUTE);
         super.doParseElement(element, context, builder);
         builder.addConstructorArgValue(streaming);
     }
@@ -36,10 +45,18 @@ public abstract class AbstractResultSetHandlerProcessorDefinitionParser extends
     {
         super.processStreamingAttribute(streamingValue);
 
-        InsensitiveMapRowHandler recordHandler = new InsensitiveMapRowHandler();
+        RowHandler recordHandler = createRowHandler();
 
         BeanDefinition beanDefinition;
-        if (Boolean.parseBoolean(streamingValue))
+        if (COLUMNAR_RESULT_FORMAT.equals(resultFormat))
+        {
+            if (Boolean.parseBoolean(streamingValue))
+            {
+                throw new IllegalArgumentException(String.format("Result format %s cannot be used when streaming is enabled", COLUMNAR_RESULT_FORMAT));
+            }
+            beanDefinition = genericBeanDefinition(ColumnarResultSetHandler.class).getBeanDefinition();
+        }
+        else if (Boolean.parseBoolean(streamingValue))
         {
             beanDefinition = genericBeanDefinition(IteratorResultSetHandler.class)
                                                   .addConstructorArgValue(recordHandler)
@@ -53,4 +70,9 @@ public abstract class AbstractResultSetHandlerProcessorDefinitionParser extends
 
         getRegistry().registerBeanDefinition(resultSetHandlerBeanName, beanDefinition);
     }
+
+    protected RowHandler createRowHandler()
+    {
+        return COMPACT_MAP_RESULT_FORMAT.equals(resultFormat) ? new CompactMapRowHandler() : new InsensitiveMapRowHandler();
+    }
 }
@@ -30,6 +30,10 @@ public abstract class AbstractUpdateProcessorBeanDefinitionParser implements Bea
 
         if (element.hasAttribute(BULK_MODE_ATTRIBUTE) && element.getAttribute(BULK_MODE_ATTRIBUTE).equals("true"))
         {
+            if (element.hasAttribute(SingleUpdateProcessorDefinitionParser.COALESCE_ATTRIBUTE) && element.getAttribute(SingleUpdateProcessorDefinitionParser.COALESCE_ATTRIBUTE).equals("true"))
+            {
+                throw new IllegalArgumentException("Updates cannot be coalesced when bulkMode is enabled");
+            }
             beanDefinitionParser = new PreparedBulkUpdateProcessorBeanDefinitionParser(validQueryTypes);
         }
         else
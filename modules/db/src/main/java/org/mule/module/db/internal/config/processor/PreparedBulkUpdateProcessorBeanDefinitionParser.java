@@ -22,6 +22,9 @@ import org.w3c.dom.Element;
 public class PreparedBulkUpdateProcessorBeanDefinitionParser extends AbstractSingleQueryProcessorDefinitionParser
 {
 
+    public static final String BATCH_SIZE_ATTRIBUTE = "batchSize";
+    public static final String COMMIT_PER_BATCH_ATTRIBUTE = "commitPerBatch";
+
     private final List<QueryType> validQueryTypes;
 
     public PreparedBulkUpdateProcessorBeanDefinitionParser(List<QueryType> validQueryTypes)
@@ -60,6 +63,16 @@ public class PreparedBulkUpdateProcessorBeanDefinitionParser extends AbstractSin
 
         executorFactoryBean.addConstructorArgValue(parseStatementFactory(element));
 
+        if (element.hasAttribute(BATCH_SIZE_ATTRIBUTE))
+        {
+            executorFactoryBean.addPropertyValue("batchSize", element.getAttribute(BATCH_SIZE_ATTRIBUTE));
+        }
+
+        if (element.hasAttribute(COMMIT_PER_BATCH_ATTRIBUTE))
+        {
+            executorFactoryBean.addPropertyValue("commitPerBatch", element.getAttribute(COMMIT_PER_BATCH_ATTRIBUTE));
+        }
+
         return executorFactoryBean.getBeanDefinition();
     }
 
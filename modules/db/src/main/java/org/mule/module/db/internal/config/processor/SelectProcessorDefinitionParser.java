@@ -8,21 +8,73 @@
 package org.mule.module.db.internal.config.processor;
 
 import org.mule.module.db.internal.domain.executor.SelectExecutorFactory;
+import org.mule.module.db.internal.domain.partition.PartitionMode;
+import org.mule.module.db.internal.domain.partition.PartitionedSelect;
 import org.mule.module.db.internal.metadata.SelectMetadataProvider;
 import org.mule.module.db.internal.processor.SelectMessageProcessor;
 
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.xml.ParserContext;
 import org.w3c.dom.Element;
 
 public class SelectProcessorDefinitionParser extends AbstractResultSetHandlerProcessorDefinitionParser
 {
 
+    public static final String PARTITIONS_ATTRIBUTE = "partitions";
+    public static final String PARTITION_COLUMN_ATTRIBUTE = "partitionColumn";
+    public static final String PARTITION_MODE_ATTRIBUTE = "partitionMode";
+    public static final String ORDERED_MERGE_ATTRIBUTE = "orderedMerge";
+    public static final String PAGE_SIZE_ATTRIBUTE = "pageSize";
+    public static final String START_AFTER_ATTRIBUTE = "startAfter";
+
     @Override
     protected Class<?> getBeanClass(Element element)
     {
         return SelectMessageProcessor.class;
     }
 
+    @Override
+    protected void doParseElement(Element element, ParserContext context, BeanDefinitionBuilder builder)
+    {
+        super.doParseElement(element, context, builder);
+
+        if (element.hasAttribute(PARTITIONS_ATTRIBUTE))
+        {
+            parsePartitionedSelect(element, builder);
+        }
+    }
+
+    private void parsePartitionedSelect(Element element, BeanDefinitionBuilder builder)
+    {
+        if (!streaming || COLUMNAR_RESULT_FORMAT.equals(resultFormat))
+        {
+            throw new IllegalArgumentException(String.format("Element %s requires streaming and a map result format to use partitions", element.getTagName()));
+        }
+        if (!element.hasAttribute(PARTITION_COLUMN_ATTRIBUTE))
+        {
+            throw new IllegalArgumentException(String.format("Element %s must define attribute %s to use partitions", element.getTagName(), PARTITION_COLUMN_ATTRIBUTE));
+        }
+
+        BeanDefinitionBuilder partitionedSelectBuilder = BeanDefinitionBuilder.genericBeanDefinition(PartitionedSelect.class);
+        partitionedSelectBuilder.addConstructorArgValue(element.getAttribute(PARTITION_COLUMN_ATTRIBUTE));
+        partitionedSelectBuilder.addConstructorArgValue(element.getAttribute(PARTITIONS_ATTRIBUTE));
+        partitionedSelectBuilder.addConstructorArgValue(element.hasAttribute(PARTITION_MODE_ATTRIBUTE) ? PartitionMode.valueOf(element.getAttribute(PARTITION_MODE_ATTRIBUTE)) : PartitionMode.MODULO);
+        partitionedSelectBuilder.addConstructorArgValue(createRowHandler());
+
+        if (element.hasAttribute(ORDERED_MERGE_ATTRIBUTE))
+        {
+            partitionedSelectBuilder.addPropertyValue("orderedMerge", element.getAttribute(ORDERED_MERGE_ATTRIBUTE));
+        }
+        if (element.hasAttribute(PAGE_SIZE_ATTRIBUTE))
+        {
+            partitionedSelectBuilder.addPropertyValue("pageSize", element.getAttribute(PAGE_SIZE_ATTRIBUTE));
+        }
+        partitionedSelectBuilder.addPropertyValue("fetchSize", element.hasAttribute(FETCH_SIZE) ? element.getAttribute(FETCH_SIZE) : String.valueOf(DEFAULT_FETCH_SIZE));
+
+        builder.addPropertyValue("partitionedSelect", partitionedSelectBuilder.getBeanDefinition());
+        builder.addPropertyValue("startAfter", element.getAttribute(START_AFTER_ATTRIBUTE));
+    }
+
     @Override
     protected Object createExecutorFactory(Element element)
     {
@@ -7,6 +7,8 @@
 
 package org.mule.module.db.internal.config.processor;
 
+import org.mule.module.db.internal.domain.executor.BulkUpdateExecutorFactory;
+import org.mule.module.db.internal.domain.executor.UpdateCoalescer;
 import org.mule.module.db.internal.domain.executor.UpdateExecutorFactory;
 import org.mule.module.db.internal.domain.query.QueryType;
 import org.mule.module.db.internal.metadata.UpdateMetadataProvider;
@@ -21,6 +23,10 @@ import org.w3c.dom.Element;
 public class SingleUpdateProcessorDefinitionParser extends AbstractSingleQueryProcessorDefinitionParser
 {
 
+    public static final String COALESCE_ATTRIBUTE = "coalesce";
+    public static final String COALESCE_MAX_BATCH_SIZE_ATTRIBUTE = "coalesceMaxBatchSize";
+    public static final String COALESCE_MAX_DELAY_ATTRIBUTE = "coalesceMaxDelay";
+
     private final List<QueryType> validQueryTypes;
 
     public SingleUpdateProcessorDefinitionParser(List<QueryType> validQueryTypes)
@@ -48,12 +54,45 @@ public class SingleUpdateProcessorDefinitionParser extends AbstractSingleQueryPr
     protected void doParse(Element element, ParserContext context, BeanDefinitionBuilder builder)
     {
         parseAutoGeneratedKeys(element, builder);
+        parseUpdateCoalescer(element, builder);
 
         super.doParse(element, context, builder);
 
         builder.addConstructorArgValue(validQueryTypes);
     }
 
+    private void parseUpdateCoalescer(Element element, BeanDefinitionBuilder builder)
+    {
+        if (!(element.hasAttribute(COALESCE_ATTRIBUTE) && Boolean.parseBoolean(element.getAttribute(COALESCE_ATTRIBUTE))))
+        {
+            return;
+        }
+
+        if (autoGeneratedKeyStrategy.returnsAutoGeneratedKeys())
+        {
+            throw new IllegalArgumentException("Updates returning auto generated keys cannot be coalesced");
+        }
+
+        BeanDefinitionBuilder bulkExecutorFactoryBean = BeanDefinitionBuilder.genericBeanDefinition(BulkUpdateExecutorFactory.class);
+        bulkExecutorFactoryBean.addConstructorArgValue(parseStatementFactory(element));
+
+        BeanDefinitionBuilder updateCoalescerBean = BeanDefinitionBuilder.genericBeanDefinition(UpdateCoalescer.class);
+        updateCoalescerBean.addConstructorArgValue(bulkExecutorFactoryBean.getBeanDefinition());
+        updateCoalescerBean.addConstructorArgValue(createExecutorFactory(element));
+
+        if (element.hasAttribute(COALESCE_MAX_BATCH_SIZE_ATTRIBUTE))
+        {
+            updateCoalescerBean.addPropertyValue("maxBatchSize", element.getAttribute(COALESCE_MAX_BATCH_SIZE_ATTRIBUTE));
+        }
+
+        if (element.hasAttribute(COALESCE_MAX_DELAY_ATTRIBUTE))
+        {
+            updateCoalescerBean.addPropertyValue("maxDelay", element.getAttribute(COALESCE_MAX_DELAY_ATTRIBUTE));
+        }
+
+        builder.addPropertyValue("updateCoalescer", updateCoalescerBean.getBeanDefinition());
+    }
+
     @Override
     protected Object getMetadataProvider()
     {
@@ -10,6 +10,7 @@ package org.mule.module.db.internal.config.resolver.query;
 import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.parser.CachedQueryTemplateParser;
 import org.mule.module.db.internal.parser.SimpleQueryTemplateParser;
 import org.mule.module.db.internal.resolver.database.DbConfigResolver;
 import org.mule.module.db.internal.resolver.param.ParamValueResolver;
@@ -40,7 +41,7 @@ public class QueryResolverFactoryBean implements FactoryBean<QueryResolver>, Mul
     {
         if (isDynamic(query))
         {
-            return new DynamicQueryResolver(query, new SimpleQueryTemplateParser(), muleContext.getExpressionManager());
+            return new DynamicQueryResolver(query, new CachedQueryTemplateParser(new SimpleQueryTemplateParser()), muleContext.getExpressionManager());
         }
         else if (hasParameters(query))
         {
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection;
+
+/**
+ * Defines the implementation used to pool database connections
+ */
+public enum DbPoolType
+{
+    /**
+     * Connections are pooled using c3p0
+     */
+    C3P0,
+
+    /**
+     * Connections are pooled using {@link org.mule.module.db.internal.domain.connection.pool.PoolingDataSource}
+     */
+    INTERNAL
+}
@@ -20,6 +20,9 @@ public class DbPoolingProfile
     private int acquireIncrement = 1;
     private int preparedStatementCacheSize = 5;
     private int maxWaitMillis = 300000;  // 30 seconds
+    private DbPoolType poolType = DbPoolType.C3P0;
+    private int validationTimeout = 5;
+    private int leakDetectionThreshold = 0;
 
     public int getPreparedStatementCacheSize()
     {
@@ -72,11 +75,40 @@ public class DbPoolingProfile
         this.maxWaitMillis = maxWaitMillis;
     }
 
+    public DbPoolType getPoolType()
+    {
+        return poolType;
+    }
+
+    public void setPoolType(DbPoolType poolType)
+    {
+        this.poolType = poolType;
+    }
+
+    public int getValidationTimeout()
+    {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(int validationTimeout)
+    {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public int getLeakDetectionThreshold()
+    {
+        return leakDetectionThreshold;
+    }
+
+    public void setLeakDetectionThreshold(int leakDetectionThreshold)
+    {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(minPoolSize, maxPoolSize, acquireIncrement, preparedStatementCacheSize, maxWaitMillis);
+        return Objects.hash(minPoolSize, maxPoolSize, acquireIncrement, preparedStatementCacheSize, maxWaitMillis, poolType, validationTimeout, leakDetectionThreshold);
     }
 
     @Override
@@ -109,7 +141,19 @@ public class DbPoolingProfile
         {
             return false;
         }
-        return maxWaitMillis == that.maxWaitMillis;
+        if (maxWaitMillis != that.maxWaitMillis)
+        {
+            return false;
+        }
+        if (poolType != that.poolType)
+        {
+            return false;
+        }
+        if (validationTimeout != that.validationTimeout)
+        {
+            return false;
+        }
+        return leakDetectionThreshold == that.leakDetectionThreshold;
 
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection;
+
+import org.mule.module.db.internal.domain.statement.CachingConnectionInvocationHandler;
+import org.mule.module.db.internal.domain.statement.StatementCacheStatistics;
+import org.mule.transaction.XaTransaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Decorates the connections created by another {@link ConnectionFactory} so they cache
+ * their prepared statements for as long as the physical connection is open. Connections
+ * borrowed from the internal connection pool keep their cache between borrows, while any other
+ * connection drops it when it is closed.
+ * <p/>
+ * XA connections are not decorated, as they must be enlisted by the transaction as they are.
+ */
+public class StatementCachingConnectionFactory implements ConnectionFactory
+{
+
+    private final ConnectionFactory delegate;
+    private final int cacheSize;
+    private final StatementCacheStatistics statistics;
+
+    public StatementCachingConnectionFactory(ConnectionFactory delegate, int cacheSize, StatementCacheStatistics statistics)
+    {
+        this.delegate = delegate;
+        this.cacheSize = cacheSize;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Connection create(DataSource dataSource) throws ConnectionCreationException
+    {
+        Connection connection = delegate.create(dataSource);
+
+        if (connection instanceof XaTransaction.MuleXaObject)
+        {
+            return connection;
+        }
+
+        try
+        {
+            return CachingConnectionInvocationHandler.createProxy(connection, cacheSize, statistics);
+        }
+        catch (SQLException e)
+        {
+            closeQuietly(connection);
+            throw new ConnectionCreationException(e);
+        }
+    }
+
+    private void closeQuietly(Connection connection)
+    {
+        try
+        {
+            connection.close();
+        }
+        catch (SQLException e)
+        {
+            // Ignore
+        }
+    }
+}
@@ -13,6 +13,8 @@ import org.mule.module.db.internal.domain.transaction.DbTransactionManager;
 import org.mule.module.db.internal.domain.transaction.TransactionalAction;
 import org.mule.module.db.internal.domain.type.DbTypeManager;
 import org.mule.module.db.internal.resolver.param.GenericParamTypeResolverFactory;
+import org.mule.module.db.internal.resolver.param.ParamTypeCache;
+import org.mule.module.db.internal.resolver.param.ParamTypeResolverFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -34,13 +36,26 @@ public class TransactionalDbConnectionFactory implements DbConnectionFactory
     protected final DbTypeManager dbTypeManager;
     private final ConnectionFactory connectionFactory;
     private final DataSource dataSource;
+    private final ParamTypeCache paramTypeCache;
+    private final ParamTypeResolverFactory paramTypeResolverFactory;
 
     public TransactionalDbConnectionFactory(DbTransactionManager dbTransactionManager, DbTypeManager dbTypeManager, ConnectionFactory connectionFactory, DataSource dataSource)
+    {
+        this(dbTransactionManager, dbTypeManager, connectionFactory, dataSource, null);
+    }
+
+    /**
+     * @param paramTypeCache cache shared by the created connections to keep the parameter types resolved
+     *                       from metadata. Can be null.
+     */
+    public TransactionalDbConnectionFactory(DbTransactionManager dbTransactionManager, DbTypeManager dbTypeManager, ConnectionFactory connectionFactory, DataSource dataSource, ParamTypeCache paramTypeCache)
     {
         this.dbTransactionManager = dbTransactionManager;
         this.dbTypeManager = dbTypeManager;
         this.connectionFactory = connectionFactory;
         this.dataSource = dataSource;
+        this.paramTypeCache = paramTypeCache;
+        this.paramTypeResolverFactory = new GenericParamTypeResolverFactory(dbTypeManager, paramTypeCache);
     }
 
     @Override
@@ -101,7 +116,7 @@ public class TransactionalDbConnectionFactory implements DbConnectionFactory
 
     protected DbConnection doCreateDbConnection(Connection connection, TransactionalAction transactionalAction)
     {
-        return new DefaultDbConnection(connection, transactionalAction, new DefaultDbConnectionReleaser(this), new GenericParamTypeResolverFactory(dbTypeManager));
+        return new DefaultDbConnection(connection, transactionalAction, new DefaultDbConnectionReleaser(this), paramTypeResolverFactory);
     }
 
     private Connection getConnectionFromTransaction(Transaction tx, DataSource dataSource) throws SQLException
@@ -138,6 +153,14 @@ public class TransactionalDbConnectionFactory implements DbConnectionFactory
         return con;
     }
 
+    /**
+     * @return the cache of parameter types used by the created connections, null if there is none
+     */
+    public ParamTypeCache getParamTypeCache()
+    {
+        return paramTypeCache;
+    }
+
     @Override
     public void releaseConnection(DbConnection connection)
     {
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_IN_USE;
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_NOT_IN_USE;
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_REMOVED;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock free container of the {@link PoolEntry}s of a pool.
+ * <p/>
+ * Entries are reserved by changing their state with a compare and set operation, so no lock is taken on the
+ * borrow or return paths. Each thread remembers the entries it returned and tries them first when borrowing
+ * again, which usually gets back the same connection without contention. Returned entries are handed off
+ * directly to the threads waiting for one.
+ */
+class ConnectionBag
+{
+
+    private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+    private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+    private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList = new ThreadLocal<List<WeakReference<PoolEntry>>>()
+    {
+        @Override
+        protected List<WeakReference<PoolEntry>> initialValue()
+        {
+            return new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES);
+        }
+    };
+
+    /**
+     * Reserves an entry that is not in use
+     *
+     * @param timeout maximum time to wait for an entry. Zero to return immediately when no entry is available
+     * @param unit unit of the timeout
+     * @return the reserved entry or null if no entry was available before the timeout
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    PoolEntry borrow(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        List<WeakReference<PoolEntry>> entries = threadList.get();
+        for (int i = entries.size() - 1; i >= 0; i--)
+        {
+            PoolEntry entry = entries.remove(i).get();
+            if (entry != null && entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE))
+            {
+                return entry;
+            }
+        }
+
+        waiters.incrementAndGet();
+        try
+        {
+            for (PoolEntry entry : sharedList)
+            {
+                if (entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE))
+                {
+                    return entry;
+                }
+            }
+
+            long remaining = unit.toNanos(timeout);
+            while (remaining > 0)
+            {
+                long start = System.nanoTime();
+                PoolEntry entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (entry == null || entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE))
+                {
+                    return entry;
+                }
+                remaining -= System.nanoTime() - start;
+            }
+
+            return null;
+        }
+        finally
+        {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Makes a borrowed entry available again, handing it off to a waiting thread if there is any
+     */
+    void requite(PoolEntry entry)
+    {
+        entry.setState(STATE_NOT_IN_USE);
+
+        while (waiters.get() > 0)
+        {
+            if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry))
+            {
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+
+        List<WeakReference<PoolEntry>> entries = threadList.get();
+        if (entries.size() < MAX_THREAD_LOCAL_ENTRIES)
+        {
+            entries.add(new WeakReference<>(entry));
+        }
+    }
+
+    /**
+     * Adds a new entry to the bag, handing it off to a waiting thread if there is any
+     */
+    void add(PoolEntry entry)
+    {
+        sharedList.add(entry);
+
+        while (waiters.get() > 0 && entry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(entry))
+        {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Removes an entry from the bag. The entry must be reserved by the caller, either because it was borrowed
+     * or because it was reserved using {@link #reserve(PoolEntry)}
+     */
+    boolean remove(PoolEntry entry)
+    {
+        if (!entry.compareAndSetState(STATE_IN_USE, STATE_REMOVED))
+        {
+            return false;
+        }
+
+        return sharedList.remove(entry);
+    }
+
+    /**
+     * Reserves an entry that is not in use so it can be removed
+     */
+    boolean reserve(PoolEntry entry)
+    {
+        return entry.compareAndSetState(STATE_NOT_IN_USE, STATE_IN_USE);
+    }
+
+    List<PoolEntry> values()
+    {
+        return new ArrayList<>(sharedList);
+    }
+
+    int size()
+    {
+        return sharedList.size();
+    }
+
+    int getWaiters()
+    {
+        return waiters.get();
+    }
+
+    int getCount(int state)
+    {
+        int count = 0;
+        for (PoolEntry entry : sharedList)
+        {
+            if (entry.getState() == state)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_IN_USE;
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_NOT_IN_USE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of a {@link PoolingDataSource}.
+ */
+public class ConnectionPoolStatistics implements ConnectionPoolStatisticsMXBean
+{
+
+    private static final long[] WAIT_BUCKET_BOUNDS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final ConnectionBag bag;
+    private final AtomicLongArray waitBuckets = new AtomicLongArray(WAIT_BUCKET_BOUNDS.length + 1);
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong acquisitionTimeouts = new AtomicLong();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsDiscarded = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    ConnectionPoolStatistics(ConnectionBag bag)
+    {
+        this.bag = bag;
+    }
+
+    void connectionAcquired(long waitMillis)
+    {
+        acquisitions.incrementAndGet();
+        totalWaitMillis.addAndGet(waitMillis);
+        waitBuckets.incrementAndGet(getBucket(waitMillis));
+
+        long max = maxWaitMillis.get();
+        while (waitMillis > max && !maxWaitMillis.compareAndSet(max, waitMillis))
+        {
+            max = maxWaitMillis.get();
+        }
+    }
+
+    void acquisitionTimedOut()
+    {
+        acquisitionTimeouts.incrementAndGet();
+    }
+
+    void connectionCreated()
+    {
+        connectionsCreated.incrementAndGet();
+    }
+
+    void connectionDiscarded()
+    {
+        connectionsDiscarded.incrementAndGet();
+    }
+
+    void leakDetected()
+    {
+        leaksDetected.incrementAndGet();
+    }
+
+    private int getBucket(long waitMillis)
+    {
+        for (int i = 0; i < WAIT_BUCKET_BOUNDS.length; i++)
+        {
+            if (waitMillis < WAIT_BUCKET_BOUNDS[i])
+            {
+                return i;
+            }
+        }
+
+        return WAIT_BUCKET_BOUNDS.length;
+    }
+
+    @Override
+    public int getActiveConnections()
+    {
+        return bag.getCount(STATE_IN_USE);
+    }
+
+    @Override
+    public int getIdleConnections()
+    {
+        return bag.getCount(STATE_NOT_IN_USE);
+    }
+
+    @Override
+    public int getTotalConnections()
+    {
+        return bag.size();
+    }
+
+    @Override
+    public int getPendingThreads()
+    {
+        return bag.getWaiters();
+    }
+
+    @Override
+    public long getAcquisitions()
+    {
+        return acquisitions.get();
+    }
+
+    @Override
+    public long getAcquisitionTimeouts()
+    {
+        return acquisitionTimeouts.get();
+    }
+
+    @Override
+    public double getAverageAcquisitionWaitMillis()
+    {
+        long count = acquisitions.get();
+        return count == 0 ? 0 : (double) totalWaitMillis.get() / count;
+    }
+
+    @Override
+    public long getMaxAcquisitionWaitMillis()
+    {
+        return maxWaitMillis.get();
+    }
+
+    @Override
+    public Map<String, Long> getAcquisitionWaitHistogram()
+    {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < WAIT_BUCKET_BOUNDS.length; i++)
+        {
+            histogram.put("<" + WAIT_BUCKET_BOUNDS[i] + "ms", waitBuckets.get(i));
+        }
+        histogram.put(">=" + WAIT_BUCKET_BOUNDS[WAIT_BUCKET_BOUNDS.length - 1] + "ms", waitBuckets.get(WAIT_BUCKET_BOUNDS.length));
+
+        return histogram;
+    }
+
+    @Override
+    public long getConnectionsCreated()
+    {
+        return connectionsCreated.get();
+    }
+
+    @Override
+    public long getConnectionsDiscarded()
+    {
+        return connectionsDiscarded.get();
+    }
+
+    @Override
+    public long getLeaksDetected()
+    {
+        return leaksDetected.get();
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < waitBuckets.length(); i++)
+        {
+            waitBuckets.set(i, 0);
+        }
+        acquisitions.set(0);
+        totalWaitMillis.set(0);
+        maxWaitMillis.set(0);
+        acquisitionTimeouts.set(0);
+        connectionsCreated.set(0);
+        connectionsDiscarded.set(0);
+        leaksDetected.set(0);
+    }
+}
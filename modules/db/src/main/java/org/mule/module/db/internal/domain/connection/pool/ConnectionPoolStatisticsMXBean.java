@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import java.util.Map;
+
+/**
+ * JMX view of the connection pool of a database config.
+ */
+public interface ConnectionPoolStatisticsMXBean
+{
+
+    /**
+     * @return the amount of connections currently borrowed from the pool
+     */
+    int getActiveConnections();
+
+    /**
+     * @return the amount of connections available in the pool
+     */
+    int getIdleConnections();
+
+    /**
+     * @return the amount of physical connections opened by the pool
+     */
+    int getTotalConnections();
+
+    /**
+     * @return the amount of threads waiting for a connection
+     */
+    int getPendingThreads();
+
+    /**
+     * @return the amount of connections borrowed from the pool
+     */
+    long getAcquisitions();
+
+    /**
+     * @return the amount of requests that timed out waiting for a connection
+     */
+    long getAcquisitionTimeouts();
+
+    /**
+     * @return the average time in milliseconds spent waiting for a connection
+     */
+    double getAverageAcquisitionWaitMillis();
+
+    /**
+     * @return the maximum time in milliseconds spent waiting for a connection
+     */
+    long getMaxAcquisitionWaitMillis();
+
+    /**
+     * @return the amount of acquisitions per wait time bucket, keyed by the upper bound of the bucket
+     */
+    Map<String, Long> getAcquisitionWaitHistogram();
+
+    /**
+     * @return the amount of physical connections opened by the pool
+     */
+    long getConnectionsCreated();
+
+    /**
+     * @return the amount of connections discarded because they failed validation or a connection error
+     */
+    long getConnectionsDiscarded();
+
+    /**
+     * @return the amount of connections held longer than the leak detection threshold
+     */
+    long getLeaksDetected();
+
+    /**
+     * Resets all the counters.
+     */
+    void clear();
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a physical connection of a {@link PoolingDataSource} along with its pooling state
+ */
+class PoolEntry
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolEntry.class);
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+
+    private final Connection connection;
+    private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+    private final boolean autoCommit;
+    private final int transactionIsolation;
+    private final boolean readOnly;
+    private volatile long lastAccessed;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowStack;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+    private final ConcurrentMap<Object, AutoCloseable> attachments = new ConcurrentHashMap<>();
+
+    PoolEntry(Connection connection, boolean autoCommit, int transactionIsolation, boolean readOnly)
+    {
+        this.connection = connection;
+        this.autoCommit = autoCommit;
+        this.transactionIsolation = transactionIsolation;
+        this.readOnly = readOnly;
+        this.lastAccessed = System.currentTimeMillis();
+    }
+
+    Connection getConnection()
+    {
+        return connection;
+    }
+
+    int getState()
+    {
+        return state.get();
+    }
+
+    boolean compareAndSetState(int expected, int update)
+    {
+        return state.compareAndSet(expected, update);
+    }
+
+    void setState(int update)
+    {
+        state.set(update);
+    }
+
+    boolean isAutoCommit()
+    {
+        return autoCommit;
+    }
+
+    int getTransactionIsolation()
+    {
+        return transactionIsolation;
+    }
+
+    boolean isReadOnly()
+    {
+        return readOnly;
+    }
+
+    long getLastAccessed()
+    {
+        return lastAccessed;
+    }
+
+    void borrowed(long now, Throwable borrowStack)
+    {
+        this.borrowedAt = now;
+        this.borrowStack = borrowStack;
+        this.leakReported = false;
+    }
+
+    void returned(long now)
+    {
+        this.lastAccessed = now;
+        this.borrowStack = null;
+    }
+
+    long getBorrowedAt()
+    {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowStack()
+    {
+        return borrowStack;
+    }
+
+    boolean isLeakReported()
+    {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported)
+    {
+        this.leakReported = leakReported;
+    }
+
+    boolean isBroken()
+    {
+        return broken;
+    }
+
+    void markBroken()
+    {
+        this.broken = true;
+    }
+
+    <T extends AutoCloseable> T getAttachment(Object key, PooledConnection.AttachmentFactory<T> factory) throws SQLException
+    {
+        @SuppressWarnings("unchecked") // attachments are always created by the factory used with their key
+        T attachment = (T) attachments.get(key);
+
+        if (attachment == null)
+        {
+            attachment = factory.create(connection);
+            attachments.put(key, attachment);
+        }
+
+        return attachment;
+    }
+
+    void closeAttachments()
+    {
+        for (AutoCloseable attachment : attachments.values())
+        {
+            try
+            {
+                attachment.close();
+            }
+            catch (Exception e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Error closing pooled connection attachment " + attachment, e);
+                }
+            }
+        }
+        attachments.clear();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connection borrowed from a {@link PoolingDataSource}.
+ * <p/>
+ * Allows decorators to keep state bound to the physical connection, so it survives the connection
+ * being returned to the pool and borrowed again.
+ */
+public interface PooledConnection extends Connection
+{
+
+    /**
+     * Returns the object attached to the physical connection for the given key, creating it when there is none.
+     * Attachments are closed when the pool closes the physical connection.
+     *
+     * @param key identifies the attachment
+     * @param factory creates the attachment when the physical connection has none for the key
+     * @return the attachment of the physical connection
+     * @throws SQLException if the attachment cannot be created
+     */
+    <T extends AutoCloseable> T getAttachment(Object key, AttachmentFactory<T> factory) throws SQLException;
+
+    /**
+     * Marks the physical connection as broken, so it is discarded instead of being reused once it is returned.
+     */
+    void markBroken();
+
+    /**
+     * Creates the objects attached to a physical connection
+     */
+    interface AttachmentFactory<T extends AutoCloseable>
+    {
+
+        /**
+         * @param connection physical connection. Objects created from it, like statements, are not
+         *                   closed when the pooled connection is returned.
+         * @return the attachment
+         * @throws SQLException if the attachment cannot be created
+         */
+        T create(Connection connection) throws SQLException;
+    }
+}
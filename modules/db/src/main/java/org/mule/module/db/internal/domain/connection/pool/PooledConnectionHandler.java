@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Invocation handler for the connections borrowed from a {@link PoolingDataSource}.
+ * <p/>
+ * Closing the connection returns it to the pool. Statements, and result sets obtained from the database
+ * metadata, that the borrower left open are closed before that, so they don't leak to the next borrower.
+ * Connections that fail with a connection error are discarded when they are returned. Attachments requested
+ * through {@link PooledConnection} are kept by the {@link PoolEntry}, so they outlive the borrow.
+ */
+class PooledConnectionHandler implements InvocationHandler
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnectionHandler.class);
+    private static final String CONNECTION_ERROR_SQL_STATE_CLASS = "08";
+    private static final int PURGE_CLOSED_THRESHOLD = 64;
+
+    private final PoolingDataSource pool;
+    private final PoolEntry entry;
+    private final List<Statement> statements = new ArrayList<>();
+    private final List<ResultSet> resultSets = new ArrayList<>();
+    private volatile boolean closed;
+    private boolean dirtyState;
+
+    PooledConnectionHandler(PoolingDataSource pool, PoolEntry entry)
+    {
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String methodName = method.getName();
+
+        if ("close".equals(methodName))
+        {
+            if (!closed)
+            {
+                closed = true;
+                try
+                {
+                    closeOpenResources();
+                }
+                finally
+                {
+                    pool.returnConnection(entry, dirtyState);
+                }
+            }
+            return null;
+        }
+        if ("markBroken".equals(methodName))
+        {
+            entry.markBroken();
+            return null;
+        }
+        if ("isClosed".equals(methodName))
+        {
+            return closed;
+        }
+        if ("unwrap".equals(methodName) && ((Class<?>) args[0]).isInstance(proxy))
+        {
+            return proxy;
+        }
+        if ("isWrapperFor".equals(methodName) && ((Class<?>) args[0]).isInstance(proxy))
+        {
+            return true;
+        }
+        if ("equals".equals(methodName))
+        {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(methodName))
+        {
+            return System.identityHashCode(proxy);
+        }
+        if ("toString".equals(methodName))
+        {
+            return "Pooled connection " + entry.getConnection() + (closed ? " (closed)" : "");
+        }
+        if (closed)
+        {
+            throw new SQLException("Connection was already returned to the pool");
+        }
+        if ("getAttachment".equals(methodName))
+        {
+            return entry.getAttachment(args[0], (PooledConnection.AttachmentFactory<?>) args[1]);
+        }
+        if ("setAutoCommit".equals(methodName) || "setTransactionIsolation".equals(methodName) || "setReadOnly".equals(methodName))
+        {
+            dirtyState = true;
+        }
+
+        Object result = invokeTarget(entry.getConnection(), method, args);
+
+        if (result instanceof Statement)
+        {
+            track(statements, (Statement) result);
+        }
+        else if (result instanceof DatabaseMetaData)
+        {
+            result = Proxy.newProxyInstance(PooledConnectionHandler.class.getClassLoader(), new Class[] {DatabaseMetaData.class}, new MetaDataHandler((DatabaseMetaData) result, proxy));
+        }
+
+        return result;
+    }
+
+    private Object invokeTarget(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable cause = e.getCause();
+            if (isConnectionError(cause))
+            {
+                entry.markBroken();
+            }
+            throw cause;
+        }
+    }
+
+    private synchronized <T extends AutoCloseable> void track(List<T> resources, T resource)
+    {
+        if (resources.size() >= PURGE_CLOSED_THRESHOLD)
+        {
+            purgeClosed(resources);
+        }
+        resources.add(resource);
+    }
+
+    private void purgeClosed(List<? extends AutoCloseable> resources)
+    {
+        for (Iterator<? extends AutoCloseable> iterator = resources.iterator(); iterator.hasNext(); )
+        {
+            if (isClosed(iterator.next()))
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void closeOpenResources()
+    {
+        // Result sets go first, as closing their statement would already close them
+        closeOpen(resultSets);
+        closeOpen(statements);
+    }
+
+    private void closeOpen(List<? extends AutoCloseable> resources)
+    {
+        for (AutoCloseable resource : resources)
+        {
+            if (!isClosed(resource))
+            {
+                try
+                {
+                    resource.close();
+                }
+                catch (Exception e)
+                {
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Error closing resource left open on a pooled connection", e);
+                    }
+                }
+            }
+        }
+        resources.clear();
+    }
+
+    private boolean isClosed(AutoCloseable resource)
+    {
+        try
+        {
+            return resource instanceof Statement ? ((Statement) resource).isClosed() : ((ResultSet) resource).isClosed();
+        }
+        catch (SQLException e)
+        {
+            return true;
+        }
+    }
+
+    private boolean isConnectionError(Throwable error)
+    {
+        if (error instanceof SQLNonTransientConnectionException)
+        {
+            return true;
+        }
+
+        if (error instanceof SQLException)
+        {
+            String sqlState = ((SQLException) error).getSQLState();
+            return sqlState != null && sqlState.startsWith(CONNECTION_ERROR_SQL_STATE_CLASS);
+        }
+
+        return false;
+    }
+
+    /**
+     * Tracks the result sets returned by the database metadata of a pooled connection
+     */
+    private class MetaDataHandler implements InvocationHandler
+    {
+
+        private final DatabaseMetaData metaData;
+        private final Object connectionProxy;
+
+        private MetaDataHandler(DatabaseMetaData metaData, Object connectionProxy)
+        {
+            this.metaData = metaData;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            if ("getConnection".equals(method.getName()))
+            {
+                return connectionProxy;
+            }
+
+            Object result = invokeTarget(metaData, method, args);
+            if (result instanceof ResultSet)
+            {
+                track(resultSets, (ResultSet) result);
+            }
+
+            return result;
+        }
+    }
+}
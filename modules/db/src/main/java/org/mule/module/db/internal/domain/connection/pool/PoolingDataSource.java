@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import static org.mule.module.db.internal.domain.connection.pool.PoolEntry.STATE_IN_USE;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.module.db.internal.domain.connection.DbPoolingProfile;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DataSource} that pools the connections of another, non pooled, data source.
+ * <p/>
+ * Connections are kept in a {@link ConnectionBag}, so borrowing and returning a connection does not take any lock.
+ * A connection that was idle for more than {@link #VALIDATION_BYPASS_MILLIS} is validated before being borrowed.
+ * A housekeeping thread keeps the minimum amount of connections opened and, when a leak detection threshold is
+ * configured, reports the connections that are held for longer than that, along with the place they were
+ * borrowed from.
+ */
+public class PoolingDataSource implements DataSource, Disposable
+{
+
+    static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolingDataSource.class);
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30000;
+    private static final long MIN_HOUSEKEEPING_PERIOD_MILLIS = 100;
+
+    private final String name;
+    private final DataSource dataSource;
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final int acquireIncrement;
+    private final long maxWaitMillis;
+    private final int validationTimeout;
+    private final long leakDetectionThreshold;
+    private final ConnectionBag bag = new ConnectionBag();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ConnectionPoolStatistics statistics = new ConnectionPoolStatistics(bag);
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public PoolingDataSource(String name, DataSource dataSource, DbPoolingProfile poolingProfile, ThreadFactory threadFactory)
+    {
+        if (poolingProfile.getMaxPoolSize() < 1)
+        {
+            throw new IllegalArgumentException("Connection pool requires a maxPoolSize of at least one but got " + poolingProfile.getMaxPoolSize());
+        }
+
+        this.name = name;
+        this.dataSource = dataSource;
+        this.maxPoolSize = poolingProfile.getMaxPoolSize();
+        this.minPoolSize = Math.min(Math.max(poolingProfile.getMinPoolSize(), 0), maxPoolSize);
+        this.acquireIncrement = Math.max(poolingProfile.getAcquireIncrement(), 1);
+        this.maxWaitMillis = poolingProfile.getMaxWaitMillis();
+        this.validationTimeout = poolingProfile.getValidationTimeout();
+        this.leakDetectionThreshold = poolingProfile.getLeakDetectionThreshold();
+
+        long housekeepingPeriod = HOUSEKEEPING_PERIOD_MILLIS;
+        if (leakDetectionThreshold > 0)
+        {
+            housekeepingPeriod = Math.max(Math.min(housekeepingPeriod, leakDetectionThreshold / 2), MIN_HOUSEKEEPING_PERIOD_MILLIS);
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        housekeeper.scheduleWithFixedDelay(new HouseKeeper(), 0, housekeepingPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if (closed)
+        {
+            throw new SQLException(String.format("Connection pool '%s' is closed", name));
+        }
+
+        long start = System.currentTimeMillis();
+        long deadline = maxWaitMillis > 0 ? start + maxWaitMillis : Long.MAX_VALUE;
+
+        try
+        {
+            while (true)
+            {
+                PoolEntry entry = bag.borrow(0, TimeUnit.MILLISECONDS);
+
+                if (entry == null)
+                {
+                    if (reserveConnection())
+                    {
+                        entry = createEntry();
+                        entry.setState(STATE_IN_USE);
+                        bag.add(entry);
+
+                        for (int i = 1; i < acquireIncrement; i++)
+                        {
+                            addConnectionAsync();
+                        }
+                    }
+                    else
+                    {
+                        long remaining = deadline - System.currentTimeMillis();
+                        entry = remaining > 0 ? bag.borrow(remaining, TimeUnit.MILLISECONDS) : null;
+                        if (entry == null)
+                        {
+                            statistics.acquisitionTimedOut();
+                            throw new SQLTransientConnectionException(String.format("Timed out after %d ms waiting for a connection from pool '%s' (total: %d, active: %d, waiting: %d)",
+                                                                                    System.currentTimeMillis() - start, name, bag.size(), statistics.getActiveConnections(), bag.getWaiters()));
+                        }
+                    }
+                }
+
+                if (isValid(entry))
+                {
+                    long now = System.currentTimeMillis();
+                    entry.borrowed(now, leakDetectionThreshold > 0 ? new Exception("Connection borrowed from pool '" + name + "'") : null);
+                    statistics.connectionAcquired(now - start);
+
+                    return (Connection) Proxy.newProxyInstance(PooledConnection.class.getClassLoader(), new Class[] {PooledConnection.class}, new PooledConnectionHandler(this, entry));
+                }
+
+                discard(entry, true);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException(String.format("Interrupted while waiting for a connection from pool '%s'", name), e);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException("Connection pool does not support connections with custom credentials");
+    }
+
+    /**
+     * Returns a borrowed connection to the pool
+     *
+     * @param entry entry of the returned connection
+     * @param dirtyState indicates whether the connection state was changed while it was borrowed
+     */
+    void returnConnection(PoolEntry entry, boolean dirtyState)
+    {
+        if (!entry.isBroken())
+        {
+            try
+            {
+                resetConnection(entry, dirtyState);
+            }
+            catch (SQLException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug(String.format("Unable to reset connection returned to pool '%s'", name), e);
+                }
+                entry.markBroken();
+            }
+        }
+
+        if (entry.isLeakReported())
+        {
+            logger.info(String.format("Connection previously reported as leaked was returned to pool '%s'", name));
+        }
+        entry.returned(System.currentTimeMillis());
+
+        if (closed || entry.isBroken())
+        {
+            discard(entry, entry.isBroken());
+        }
+        else
+        {
+            bag.requite(entry);
+        }
+    }
+
+    private void resetConnection(PoolEntry entry, boolean dirtyState) throws SQLException
+    {
+        Connection connection = entry.getConnection();
+
+        if (!connection.getAutoCommit())
+        {
+            connection.rollback();
+        }
+
+        if (dirtyState)
+        {
+            connection.setAutoCommit(entry.isAutoCommit());
+            connection.setTransactionIsolation(entry.getTransactionIsolation());
+            connection.setReadOnly(entry.isReadOnly());
+        }
+    }
+
+    private boolean isValid(PoolEntry entry)
+    {
+        if (entry.isBroken())
+        {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - entry.getLastAccessed() < VALIDATION_BYPASS_MILLIS)
+        {
+            return true;
+        }
+
+        try
+        {
+            return entry.getConnection().isValid(validationTimeout);
+        }
+        catch (SQLException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Error validating connection from pool '%s'", name), e);
+            }
+            return false;
+        }
+    }
+
+    private boolean reserveConnection()
+    {
+        int total = totalConnections.get();
+        while (total < maxPoolSize)
+        {
+            if (totalConnections.compareAndSet(total, total + 1))
+            {
+                return true;
+            }
+            total = totalConnections.get();
+        }
+
+        return false;
+    }
+
+    private PoolEntry createEntry() throws SQLException
+    {
+        Connection connection = null;
+        try
+        {
+            connection = dataSource.getConnection();
+            PoolEntry entry = new PoolEntry(connection, connection.getAutoCommit(), connection.getTransactionIsolation(), connection.isReadOnly());
+            statistics.connectionCreated();
+
+            return entry;
+        }
+        catch (SQLException e)
+        {
+            totalConnections.decrementAndGet();
+            if (connection != null)
+            {
+                closeConnection(connection);
+            }
+            throw e;
+        }
+    }
+
+    private void addConnectionAsync()
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        try
+        {
+            housekeeper.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    addConnection();
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Pool is being closed
+        }
+    }
+
+    private boolean addConnection()
+    {
+        if (closed || !reserveConnection())
+        {
+            return false;
+        }
+
+        try
+        {
+            bag.add(createEntry());
+            return true;
+        }
+        catch (SQLException e)
+        {
+            logger.warn(String.format("Unable to open connection for pool '%s': %s", name, e.getMessage()));
+            return false;
+        }
+    }
+
+    private void discard(PoolEntry entry, boolean failed)
+    {
+        if (bag.remove(entry))
+        {
+            totalConnections.decrementAndGet();
+            if (failed)
+            {
+                statistics.connectionDiscarded();
+            }
+        }
+        entry.closeAttachments();
+        closeConnection(entry.getConnection());
+
+        // Threads waiting for a connection will only get one if somebody else returns it
+        if (bag.getWaiters() > 0)
+        {
+            addConnectionAsync();
+        }
+    }
+
+    private void closeConnection(Connection connection)
+    {
+        try
+        {
+            connection.close();
+        }
+        catch (SQLException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Error closing connection from pool '%s'", name), e);
+            }
+        }
+    }
+
+    public ConnectionPoolStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public void dispose()
+    {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        for (PoolEntry entry : bag.values())
+        {
+            if (bag.reserve(entry))
+            {
+                discard(entry, false);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException
+    {
+        if (iface.isInstance(this))
+        {
+            return iface.cast(this);
+        }
+
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException
+    {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * Keeps the minimum amount of connections in the pool and reports leaked connections
+     */
+    private class HouseKeeper implements Runnable
+    {
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if (leakDetectionThreshold > 0)
+                {
+                    detectLeaks();
+                }
+
+                while (totalConnections.get() < minPoolSize && addConnection())
+                {
+                    // Keeps adding connections until reaching the minimum
+                }
+            }
+            catch (RuntimeException e)
+            {
+                logger.warn(String.format("Error maintaining connection pool '%s'", name), e);
+            }
+        }
+
+        private void detectLeaks()
+        {
+            long now = System.currentTimeMillis();
+
+            for (PoolEntry entry : bag.values())
+            {
+                Throwable borrowStack = entry.getBorrowStack();
+                if (entry.getState() == STATE_IN_USE && borrowStack != null && !entry.isLeakReported() && now - entry.getBorrowedAt() > leakDetectionThreshold)
+                {
+                    entry.setLeakReported(true);
+                    statistics.leakDetected();
+                    logger.warn(String.format("Connection from pool '%s' was borrowed %d ms ago and was not returned, it may have leaked", name, now - entry.getBorrowedAt()), borrowStack);
+                }
+            }
+        }
+    }
+}
@@ -8,6 +8,7 @@
 package org.mule.module.db.internal.domain.database;
 
 import org.mule.api.retry.RetryPolicyTemplate;
+import org.mule.module.db.internal.domain.statement.StatementCacheStatistics;
 import org.mule.module.db.internal.domain.type.DbType;
 
 import java.util.List;
@@ -30,4 +31,16 @@ public interface ConfigurableDbConfigFactory extends DbConfigFactory
      * @param retryPolicyTemplate retry policety template. Can be null.
      */
     void setRetryPolicyTemplate(RetryPolicyTemplate retryPolicyTemplate);
+
+    /**
+     * Sets the maximum number of prepared statements cached per connection of the created {@link DbConfig}
+     *
+     * @param statementCacheSize maximum number of idle statements per connection. 0 disables the cache.
+     */
+    void setStatementCacheSize(int statementCacheSize);
+
+    /**
+     * @return the statistics of the prepared statement caches of the created {@link DbConfig}
+     */
+    StatementCacheStatistics getStatementCacheStatistics();
 }
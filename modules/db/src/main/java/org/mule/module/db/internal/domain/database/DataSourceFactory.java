@@ -10,9 +10,13 @@ package org.mule.module.db.internal.domain.database;
 import org.mule.api.MuleContext;
 import org.mule.api.context.MuleContextAware;
 import org.mule.api.lifecycle.Disposable;
+import org.mule.module.db.internal.domain.connection.DbPoolType;
 import org.mule.module.db.internal.domain.connection.DbPoolingProfile;
+import org.mule.module.db.internal.domain.connection.pool.PoolingDataSource;
 import org.mule.module.db.internal.domain.xa.CompositeDataSourceDecorator;
 import org.mule.util.concurrent.ConcurrentHashSet;
+import org.mule.util.concurrent.NamedThreadFactory;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import com.mchange.v2.c3p0.DataSources;
 
@@ -77,7 +81,11 @@ public class DataSourceFactory implements MuleContextAware, Disposable
             dataSource = decorateDataSource(dataSource, dataSourceConfig.getPoolingProfile(), getMuleContext());
         }
 
-        if (!(dataSourceConfig.getPoolingProfile() == null || dataSourceConfig.isUseXaTransactions()))
+        if (dataSource instanceof PoolingDataSource)
+        {
+            disposableDataSources.add((Disposable) dataSource);
+        }
+        else if (!(dataSourceConfig.getPoolingProfile() == null || dataSourceConfig.isUseXaTransactions()))
         {
             pooledDataSources.add(dataSource);
         }
@@ -119,12 +127,23 @@ public class DataSourceFactory implements MuleContextAware, Disposable
         {
             return createSingleDataSource(dataSourceConfig);
         }
+        else if (dataSourceConfig.getPoolingProfile().getPoolType() == DbPoolType.INTERNAL)
+        {
+            return createInternalPooledDataSource(createSingleDataSource(dataSourceConfig), dataSourceConfig.getPoolingProfile());
+        }
         else
         {
             return createPooledStandardDataSource(createSingleDataSource(dataSourceConfig), dataSourceConfig.getPoolingProfile());
         }
     }
 
+    protected DataSource createInternalPooledDataSource(DataSource dataSource, DbPoolingProfile poolingProfile)
+    {
+        String threadNamePrefix = muleContext == null ? "" : ThreadNameHelper.getPrefix(muleContext);
+
+        return new PoolingDataSource(name, dataSource, poolingProfile, new NamedThreadFactory(threadNamePrefix + "db.pool." + name));
+    }
+
     protected DataSource createPooledStandardDataSource(DataSource dataSource, DbPoolingProfile poolingProfile) throws SQLException
     {
         Map<String, Object> config = new HashMap<>();
@@ -15,7 +15,9 @@ import org.mule.module.db.internal.domain.connection.ConnectionFactory;
 import org.mule.module.db.internal.domain.connection.DbConnectionFactory;
 import org.mule.module.db.internal.domain.connection.RetryConnectionFactory;
 import org.mule.module.db.internal.domain.connection.SimpleConnectionFactory;
+import org.mule.module.db.internal.domain.connection.StatementCachingConnectionFactory;
 import org.mule.module.db.internal.domain.connection.TransactionalDbConnectionFactory;
+import org.mule.module.db.internal.domain.statement.StatementCacheStatistics;
 import org.mule.module.db.internal.domain.transaction.TransactionCoordinationDbTransactionManager;
 import org.mule.module.db.internal.domain.type.CompositeDbTypeManager;
 import org.mule.module.db.internal.domain.type.DbType;
@@ -23,6 +25,7 @@ import org.mule.module.db.internal.domain.type.DbTypeManager;
 import org.mule.module.db.internal.domain.type.JdbcTypes;
 import org.mule.module.db.internal.domain.type.MetadataDbTypeManager;
 import org.mule.module.db.internal.domain.type.StaticDbTypeManager;
+import org.mule.module.db.internal.resolver.param.ParamTypeCache;
 
 import java.sql.Connection;
 import java.util.ArrayList;
@@ -67,6 +70,8 @@ public class GenericDbConfigFactory implements ConfigurableDbConfigFactory
 
     private List<DbType> customDataTypes;
     private RetryPolicyTemplate retryPolicyTemplate;
+    private int statementCacheSize;
+    private final StatementCacheStatistics statementCacheStatistics = new StatementCacheStatistics();
 
     @Override
     public DbConfig create(String name, Map<QName, Object> annotations, DataSource dataSource)
@@ -83,9 +88,14 @@ public class GenericDbConfigFactory implements ConfigurableDbConfigFactory
             connectionFactory = new RetryConnectionFactory(retryPolicyTemplate, new AnnotatedConnectionFactory(name, simpleConnectionFactory, annotations));
         }
 
+        if (statementCacheSize > 0)
+        {
+            connectionFactory = new StatementCachingConnectionFactory(connectionFactory, statementCacheSize, statementCacheStatistics);
+        }
+
         DbTypeManager dbTypeManager = doCreateTypeManager();
 
-        DbConnectionFactory dbConnectionFactory = new TransactionalDbConnectionFactory(new TransactionCoordinationDbTransactionManager(), dbTypeManager, connectionFactory, dataSource);
+        DbConnectionFactory dbConnectionFactory = new TransactionalDbConnectionFactory(new TransactionCoordinationDbTransactionManager(), dbTypeManager, connectionFactory, dataSource, new ParamTypeCache());
 
         return doCreateDbConfig(dataSource, dbTypeManager, dbConnectionFactory, name);
     }
@@ -131,4 +141,14 @@ public class GenericDbConfigFactory implements ConfigurableDbConfigFactory
     {
         this.retryPolicyTemplate = retryPolicyTemplate;
     }
+
+    public void setStatementCacheSize(int statementCacheSize)
+    {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public StatementCacheStatistics getStatementCacheStatistics()
+    {
+        return statementCacheStatistics;
+    }
 }
@@ -13,6 +13,7 @@ import org.mule.module.db.internal.domain.query.Query;
 import org.mule.module.db.internal.domain.query.QueryParamValue;
 
 import java.sql.SQLException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -41,4 +42,16 @@ public interface BulkExecutor
      * @throws SQLException if a database access error occurs or this method is called on a closed connection
      */
     Object execute(DbConnection connection, Query query, List<List<QueryParamValue>> paramValues) throws SQLException;
+
+    /**
+     * Executes a parameterized query using a bulk of parameter sets that are consumed while
+     * the query is executed, so they don't have to be available in memory at the same time
+     *
+     * @param connection connection to the database where the query will be executed. Non null
+     * @param query parameterized query to executed using the sets of parameters
+     * @param paramValues provides the parameters to use to execute the query
+     * @return a non null result of the query execution
+     * @throws SQLException if a database access error occurs or this method is called on a closed connection
+     */
+    Object execute(DbConnection connection, Query query, Iterator<List<QueryParamValue>> paramValues) throws SQLException;
 }
@@ -15,31 +15,61 @@ import org.mule.module.db.internal.domain.query.Query;
 import org.mule.module.db.internal.domain.query.QueryParamValue;
 import org.mule.module.db.internal.domain.query.QueryTemplate;
 import org.mule.module.db.internal.domain.statement.StatementFactory;
+import org.mule.module.db.internal.domain.transaction.DbTransactionManager;
+import org.mule.module.db.internal.domain.transaction.TransactionCoordinationDbTransactionManager;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 /**
  * Executes bulk queries
+ * <p/>
+ * When a batch size is configured, the bulk is split in batches of that size that are executed
+ * one after the other, so neither the parameter sets nor the driver batch have to hold the whole bulk.
+ * Optionally, each batch is committed after its execution when the connection is not part of a transaction.
+ * Auto-commit is disabled while such a bulk runs, so each batch is committed as a whole, and restored
+ * once it finishes. A batch that fails is rolled back.
  */
 public class BulkUpdateExecutor extends AbstractExecutor implements BulkExecutor
 {
 
+    public static final int UNLIMITED_BATCH_SIZE = 0;
+
+    private final int batchSize;
+    private final boolean commitPerBatch;
+    private DbTransactionManager dbTransactionManager = new TransactionCoordinationDbTransactionManager();
+
     public BulkUpdateExecutor(StatementFactory statementFactory)
+    {
+        this(statementFactory, UNLIMITED_BATCH_SIZE, false);
+    }
+
+    public BulkUpdateExecutor(StatementFactory statementFactory, int batchSize, boolean commitPerBatch)
     {
         super(statementFactory);
+        this.batchSize = batchSize;
+        this.commitPerBatch = commitPerBatch;
     }
 
     @Override
     public Object execute(DbConnection connection, BulkQuery bulkQuery) throws SQLException
     {
         Statement statement = statementFactory.create(connection, bulkQuery.getQueryTemplates().get(0));
+        boolean commitBatches = commitPerBatch && isCommitAllowed(connection);
+        boolean restoreAutoCommit = commitBatches && disableAutoCommit(connection);
+        boolean completed = false;
 
         try
         {
+            UpdateCounts updateCounts = new UpdateCounts();
             BulkQueryLogger queryLogger = queryLoggerFactory.createBulkQueryLogger(logger);
+            int batchedQueries = 0;
 
             for (QueryTemplate queryTemplate : bulkQuery.getQueryTemplates())
             {
@@ -47,21 +77,52 @@ public class BulkUpdateExecutor extends AbstractExecutor implements BulkExecutor
 
                 statement.addBatch(sql);
                 queryLogger.addQuery(sql);
+                batchedQueries++;
+
+                if (batchedQueries == batchSize)
+                {
+                    queryLogger.logQuery();
+                    executeBatch(connection, statement, updateCounts, commitBatches);
+
+                    queryLogger = queryLoggerFactory.createBulkQueryLogger(logger);
+                    batchedQueries = 0;
+                }
             }
 
-            queryLogger.logQuery();
+            if (batchedQueries > 0 || updateCounts.getBatchCount() == 0)
+            {
+                queryLogger.logQuery();
+                executeBatch(connection, statement, updateCounts, commitBatches);
+            }
 
-            return statement.executeBatch();
+            completed = true;
+            return updateCounts.toArray();
         }
         finally
         {
-            statement.clearBatch();
-            statement.close();
+            try
+            {
+                statement.clearBatch();
+                statement.close();
+            }
+            finally
+            {
+                if (restoreAutoCommit)
+                {
+                    restoreAutoCommit(connection, completed);
+                }
+            }
         }
     }
 
     @Override
     public Object execute(DbConnection connection, Query query, List<List<QueryParamValue>> paramValues) throws SQLException
+    {
+        return execute(connection, query, paramValues.iterator());
+    }
+
+    @Override
+    public Object execute(DbConnection connection, Query query, Iterator<List<QueryParamValue>> paramValues) throws SQLException
     {
         Statement statement = statementFactory.create(connection, query.getQueryTemplate());
 
@@ -71,24 +132,179 @@ public class BulkUpdateExecutor extends AbstractExecutor implements BulkExecutor
         }
 
         PreparedStatement preparedStatement = (PreparedStatement) statement;
-        PreparedBulkQueryLogger queryLogger = queryLoggerFactory.createBulkQueryLogger(logger, query.getQueryTemplate(), paramValues.size());
+        boolean commitBatches = commitPerBatch && isCommitAllowed(connection);
+        boolean restoreAutoCommit = commitBatches && disableAutoCommit(connection);
+        boolean completed = false;
+
         try
         {
-            for (List<QueryParamValue> params : paramValues)
+            UpdateCounts updateCounts = new UpdateCounts();
+
+            do
+            {
+                List<List<QueryParamValue>> batch = nextBatch(paramValues);
+                PreparedBulkQueryLogger queryLogger = queryLoggerFactory.createBulkQueryLogger(logger, query.getQueryTemplate(), batch.size());
+
+                for (List<QueryParamValue> params : batch)
+                {
+                    doProcessParameters(preparedStatement, query.getQueryTemplate(), params, queryLogger);
+                    preparedStatement.addBatch();
+                    queryLogger.addParameterSet();
+                }
+
+                queryLogger.logQuery();
+
+                executeBatch(connection, preparedStatement, updateCounts, commitBatches);
+            }
+            while (paramValues.hasNext());
+
+            completed = true;
+            return updateCounts.toArray();
+        }
+        finally
+        {
+            try
+            {
+                preparedStatement.clearParameters();
+                statement.close();
+            }
+            finally
             {
-                doProcessParameters(preparedStatement, query.getQueryTemplate(), params, queryLogger);
-                preparedStatement.addBatch();
-                queryLogger.addParameterSet();
+                if (restoreAutoCommit)
+                {
+                    restoreAutoCommit(connection, completed);
+                }
             }
+        }
+    }
+
+    private List<List<QueryParamValue>> nextBatch(Iterator<List<QueryParamValue>> paramValues)
+    {
+        List<List<QueryParamValue>> batch = new ArrayList<>(batchSize > 0 ? batchSize : 16);
+
+        while (paramValues.hasNext() && (batchSize <= UNLIMITED_BATCH_SIZE || batch.size() < batchSize))
+        {
+            batch.add(paramValues.next());
+        }
+
+        return batch;
+    }
+
+    private void executeBatch(DbConnection connection, Statement statement, UpdateCounts updateCounts, boolean commitBatches) throws SQLException
+    {
+        long startTime = System.currentTimeMillis();
+
+        int[] batchUpdateCounts = statement.executeBatch();
 
-            queryLogger.logQuery();
+        if (commitBatches)
+        {
+            connection.commit();
+        }
+
+        updateCounts.add(batchUpdateCounts);
 
-            return preparedStatement.executeBatch();
+        if (logger.isDebugEnabled())
+        {
+            long elapsedTime = Math.max(1, System.currentTimeMillis() - startTime);
+            logger.debug(String.format("Executed batch %d with %d statements updating %d rows in %d ms (%d statements/s)",
+                                       updateCounts.getBatchCount(), batchUpdateCounts.length, sumUpdateCounts(batchUpdateCounts),
+                                       elapsedTime, batchUpdateCounts.length * 1000L / elapsedTime));
+        }
+    }
+
+    private boolean isCommitAllowed(DbConnection connection)
+    {
+        TransactionalAction transactionalAction = connection.getTransactionalAction();
+        if (transactionalAction == TransactionalAction.NOT_SUPPORTED)
+        {
+            return true;
+        }
+
+        return transactionalAction == TransactionalAction.JOIN_IF_POSSIBLE && dbTransactionManager.getTransaction() == null;
+    }
+
+    private boolean disableAutoCommit(DbConnection connection) throws SQLException
+    {
+        if (connection.getAutoCommit())
+        {
+            connection.setAutoCommit(false);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void restoreAutoCommit(DbConnection connection, boolean completed) throws SQLException
+    {
+        try
+        {
+            if (!completed)
+            {
+                connection.rollback();
+            }
         }
         finally
         {
-            preparedStatement.clearParameters();
-            statement.close();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    public void setDbTransactionManager(DbTransactionManager dbTransactionManager)
+    {
+        this.dbTransactionManager = dbTransactionManager;
+    }
+
+    private static long sumUpdateCounts(int[] updateCounts)
+    {
+        long result = 0;
+        for (int updateCount : updateCounts)
+        {
+            if (updateCount > 0)
+            {
+                result += updateCount;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Accumulates the update counts of the executed batches
+     */
+    private static class UpdateCounts
+    {
+
+        private int[] counts = new int[0];
+        private int size;
+        private int batchCount;
+
+        void add(int[] batchCounts)
+        {
+            if (batchCount == 0)
+            {
+                counts = batchCounts;
+            }
+            else
+            {
+                if (size + batchCounts.length > counts.length)
+                {
+                    counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + batchCounts.length));
+                }
+                System.arraycopy(batchCounts, 0, counts, size, batchCounts.length);
+            }
+
+            size += batchCounts.length;
+            batchCount++;
+        }
+
+        int getBatchCount()
+        {
+            return batchCount;
+        }
+
+        int[] toArray()
+        {
+            return size == counts.length ? counts : Arrays.copyOf(counts, size);
         }
     }
 }
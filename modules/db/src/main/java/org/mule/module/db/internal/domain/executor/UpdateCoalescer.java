@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.executor;
+
+import org.mule.module.db.internal.domain.autogeneratedkey.NoAutoGeneratedKeyStrategy;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.connection.DbConnectionFactory;
+import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.domain.query.QueryParamValue;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Coalesces the single row updates executed concurrently with the same SQL text into JDBC batches.
+ * <p/>
+ * The first update that finds no open batch for its SQL text opens one and waits until the batch is full or
+ * the maximum delay elapses. Meanwhile, concurrent updates join that batch and wait for its execution. The batch
+ * is executed in a single transaction using its own connection. When the batch fails, it is rolled back and each
+ * update is executed again on its own, so every update gets its own update count or error.
+ * <p/>
+ * Only insert, update, delete and merge queries are coalesced, other queries are executed immediately.
+ * Updates must not be part of a transaction, as they are committed when their batch is executed.
+ */
+public class UpdateCoalescer
+{
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long DEFAULT_MAX_DELAY = 5;
+
+    private static final Log logger = LogFactory.getLog(UpdateCoalescer.class);
+    private static final List<QueryType> COALESCED_QUERY_TYPES = Arrays.asList(QueryType.INSERT, QueryType.UPDATE, QueryType.DELETE, QueryType.MERGE);
+
+    private final BulkQueryExecutorFactory bulkQueryExecutorFactory;
+    private final QueryExecutorFactory queryExecutorFactory;
+    private final ConcurrentMap<BatchKey, Batch> openBatches = new ConcurrentHashMap<>();
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+
+    public UpdateCoalescer(BulkQueryExecutorFactory bulkQueryExecutorFactory, QueryExecutorFactory queryExecutorFactory)
+    {
+        this.bulkQueryExecutorFactory = bulkQueryExecutorFactory;
+        this.queryExecutorFactory = queryExecutorFactory;
+    }
+
+    /**
+     * Executes an update, coalescing it with the concurrent updates of the same query
+     *
+     * @param connectionFactory creates the connection used to execute the batch. Non null
+     * @param query update to execute. Non null
+     * @return the update count of the query
+     * @throws SQLException if the update fails
+     */
+    public Object execute(DbConnectionFactory connectionFactory, Query query) throws SQLException
+    {
+        if (maxBatchSize <= 1 || !COALESCED_QUERY_TYPES.contains(query.getQueryTemplate().getType()))
+        {
+            return executeSingle(connectionFactory, query);
+        }
+
+        BatchKey key = new BatchKey(connectionFactory, query.getQueryTemplate().getSqlText());
+        CoalescedUpdate update = new CoalescedUpdate(query);
+
+        while (true)
+        {
+            Batch batch = openBatches.get(key);
+
+            if (batch == null)
+            {
+                batch = new Batch(maxBatchSize);
+                batch.add(update);
+
+                if (openBatches.putIfAbsent(key, batch) == null)
+                {
+                    executeBatch(connectionFactory, key, batch);
+                    break;
+                }
+            }
+            else if (batch.add(update))
+            {
+                break;
+            }
+            else
+            {
+                // Batch is full or being executed, a new one must be opened
+                openBatches.remove(key, batch);
+            }
+        }
+
+        return update.getResult();
+    }
+
+    private Object executeSingle(DbConnectionFactory connectionFactory, Query query) throws SQLException
+    {
+        DbConnection connection = connectionFactory.createConnection(TransactionalAction.NOT_SUPPORTED);
+        try
+        {
+            return queryExecutorFactory.create().execute(connection, query, new NoAutoGeneratedKeyStrategy());
+        }
+        finally
+        {
+            connectionFactory.releaseConnection(connection);
+        }
+    }
+
+    private void executeBatch(DbConnectionFactory connectionFactory, BatchKey key, Batch batch)
+    {
+        List<CoalescedUpdate> updates = null;
+        try
+        {
+            batch.awaitFull(maxDelay);
+            openBatches.remove(key, batch);
+            updates = batch.close();
+
+            DbConnection connection = connectionFactory.createConnection(TransactionalAction.NOT_SUPPORTED);
+            try
+            {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try
+                {
+                    if (!executeAsBatch(connection, updates))
+                    {
+                        executeOneByOne(connection, updates);
+                    }
+                }
+                finally
+                {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
+            finally
+            {
+                connectionFactory.releaseConnection(connection);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            failPendingUpdates(updates == null ? batch.close() : updates, new SQLException("Interrupted while coalescing updates", e));
+        }
+        catch (SQLException e)
+        {
+            failPendingUpdates(updates, e);
+        }
+        catch (RuntimeException e)
+        {
+            failPendingUpdates(updates == null ? batch.close() : updates, new SQLException("Unable to execute coalesced updates", e));
+            throw e;
+        }
+    }
+
+    private boolean executeAsBatch(DbConnection connection, List<CoalescedUpdate> updates) throws SQLException
+    {
+        List<List<QueryParamValue>> paramValues = new ArrayList<>(updates.size());
+        for (CoalescedUpdate update : updates)
+        {
+            paramValues.add(update.query.getParamValues());
+        }
+
+        long startTime = System.currentTimeMillis();
+        int[] updateCounts;
+        try
+        {
+            updateCounts = (int[]) bulkQueryExecutorFactory.create().execute(connection, updates.get(0).query, paramValues);
+        }
+        catch (SQLException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Coalesced batch of %d updates failed, executing them one by one", updates.size()), e);
+            }
+            connection.rollback();
+            return false;
+        }
+
+        if (updateCounts.length != updates.size())
+        {
+            connection.rollback();
+            return false;
+        }
+
+        connection.commit();
+
+        for (int i = 0; i < updates.size(); i++)
+        {
+            updates.get(i).complete(updateCounts[i]);
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(String.format("Executed coalesced batch of %d updates in %d ms", updates.size(), System.currentTimeMillis() - startTime));
+        }
+
+        return true;
+    }
+
+    private void executeOneByOne(DbConnection connection, List<CoalescedUpdate> updates) throws SQLException
+    {
+        QueryExecutor queryExecutor = queryExecutorFactory.create();
+
+        for (CoalescedUpdate update : updates)
+        {
+            try
+            {
+                Object result = queryExecutor.execute(connection, update.query, new NoAutoGeneratedKeyStrategy());
+                connection.commit();
+                update.complete(result);
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                update.fail(e);
+            }
+        }
+    }
+
+    private void failPendingUpdates(List<CoalescedUpdate> updates, SQLException error)
+    {
+        if (updates == null)
+        {
+            return;
+        }
+
+        for (CoalescedUpdate update : updates)
+        {
+            update.fail(error);
+        }
+    }
+
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void setMaxDelay(long maxDelay)
+    {
+        this.maxDelay = maxDelay;
+    }
+
+    private static class BatchKey
+    {
+
+        private final DbConnectionFactory connectionFactory;
+        private final String sqlText;
+
+        private BatchKey(DbConnectionFactory connectionFactory, String sqlText)
+        {
+            this.connectionFactory = connectionFactory;
+            this.sqlText = sqlText;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass())
+            {
+                return false;
+            }
+
+            BatchKey that = (BatchKey) o;
+
+            return connectionFactory == that.connectionFactory && sqlText.equals(that.sqlText);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(connectionFactory) + sqlText.hashCode();
+        }
+    }
+
+    /**
+     * Updates waiting to be executed together
+     */
+    private static class Batch
+    {
+
+        private final int maxSize;
+        private final List<CoalescedUpdate> updates;
+        private boolean closed;
+
+        private Batch(int maxSize)
+        {
+            this.maxSize = maxSize;
+            this.updates = new ArrayList<>(maxSize);
+        }
+
+        synchronized boolean add(CoalescedUpdate update)
+        {
+            if (closed || updates.size() >= maxSize)
+            {
+                return false;
+            }
+
+            updates.add(update);
+            if (updates.size() == maxSize)
+            {
+                notifyAll();
+            }
+
+            return true;
+        }
+
+        synchronized void awaitFull(long maxDelay) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + maxDelay;
+            long remaining = maxDelay;
+
+            while (updates.size() < maxSize && remaining > 0)
+            {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        }
+
+        synchronized List<CoalescedUpdate> close()
+        {
+            closed = true;
+
+            return updates;
+        }
+    }
+
+    /**
+     * An update waiting for the execution of its batch
+     */
+    private static class CoalescedUpdate
+    {
+
+        private final Query query;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Object result;
+        private volatile SQLException error;
+
+        private CoalescedUpdate(Query query)
+        {
+            this.query = query;
+        }
+
+        void complete(Object result)
+        {
+            if (done.getCount() > 0)
+            {
+                this.result = result;
+                done.countDown();
+            }
+        }
+
+        void fail(SQLException error)
+        {
+            if (done.getCount() > 0)
+            {
+                this.error = error;
+                done.countDown();
+            }
+        }
+
+        Object getResult() throws SQLException
+        {
+            try
+            {
+                done.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for coalesced update", e);
+            }
+
+            if (error != null)
+            {
+                throw error;
+            }
+
+            return result;
+        }
+    }
+}
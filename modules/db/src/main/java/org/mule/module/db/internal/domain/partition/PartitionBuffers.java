@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+import org.mule.module.db.internal.result.resultset.ResultSetProcessingException;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Bounded buffers where the partitions of a {@link PartitionedSelect} push the rows they read.
+ * <p/>
+ * Partition readers only reference the buffers, never the {@link PartitionedResultSetIterator} reading
+ * from them, so the iterator can be closed once it is not referenced anymore. Closing the buffers cancels
+ * the statements the partitions are executing.
+ */
+class PartitionBuffers
+{
+
+    private static final Log logger = LogFactory.getLog(PartitionBuffers.class);
+    private static final long OFFER_TIMEOUT = 100;
+
+    private final List<BlockingQueue<Object>> buffers;
+    private final Set<Statement> statements = Collections.newSetFromMap(new ConcurrentHashMap<Statement, Boolean>());
+    private volatile boolean closed;
+
+    PartitionBuffers(int partitions, boolean ordered, int bufferSize)
+    {
+        this.buffers = new ArrayList<>(partitions);
+
+        if (ordered)
+        {
+            for (int i = 0; i < partitions; i++)
+            {
+                buffers.add(new ArrayBlockingQueue<Object>(bufferSize));
+            }
+        }
+        else
+        {
+            BlockingQueue<Object> sharedBuffer = new ArrayBlockingQueue<Object>(Math.max(1, bufferSize * partitions));
+            for (int i = 0; i < partitions; i++)
+            {
+                buffers.add(sharedBuffer);
+            }
+        }
+    }
+
+    /**
+     * Adds a row read by a partition, waiting while the partition buffer is full
+     *
+     * @return false if the buffers were closed and the partition must stop reading
+     */
+    boolean offer(int partition, Map<String, Object> row) throws InterruptedException
+    {
+        return doOffer(partition, row);
+    }
+
+    /**
+     * Notifies that a partition finished reading rows
+     *
+     * @param partition partition number
+     * @param error error that made the partition stop. Null if all the partition rows were read
+     */
+    void complete(int partition, Throwable error)
+    {
+        try
+        {
+            doOffer(partition, new PartitionEnd(error));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Registers a statement being executed by a partition, so it is cancelled when the buffers are closed
+     *
+     * @return false if the buffers were already closed and the statement must not be executed
+     */
+    boolean addStatement(Statement statement)
+    {
+        statements.add(statement);
+
+        if (closed)
+        {
+            statements.remove(statement);
+            return false;
+        }
+
+        return true;
+    }
+
+    void removeStatement(Statement statement)
+    {
+        statements.remove(statement);
+    }
+
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    void close()
+    {
+        closed = true;
+
+        for (BlockingQueue<Object> buffer : buffers)
+        {
+            buffer.clear();
+        }
+
+        for (Statement statement : statements)
+        {
+            try
+            {
+                statement.cancel();
+            }
+            catch (SQLException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Error cancelling partition statement. Ignored", e);
+                }
+            }
+        }
+    }
+
+    int size()
+    {
+        return buffers.size();
+    }
+
+    /**
+     * @return next row of the partition or null if the partition has no more rows
+     */
+    Map<String, Object> take(int partition) throws InterruptedException
+    {
+        Object element = buffers.get(partition).take();
+
+        if (element instanceof PartitionEnd)
+        {
+            Throwable error = ((PartitionEnd) element).error;
+            if (error != null)
+            {
+                throw new ResultSetProcessingException("Error reading partitioned select rows", error);
+            }
+
+            return null;
+        }
+
+        return (Map<String, Object>) element;
+    }
+
+    private boolean doOffer(int partition, Object element) throws InterruptedException
+    {
+        BlockingQueue<Object> buffer = buffers.get(partition);
+
+        while (!closed)
+        {
+            if (buffer.offer(element, OFFER_TIMEOUT, TimeUnit.MILLISECONDS))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class PartitionEnd
+    {
+
+        private final Throwable error;
+
+        private PartitionEnd(Throwable error)
+        {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+/**
+ * Defines how the rows of a query are split between partitions
+ */
+public enum PartitionMode
+{
+    /**
+     * Each partition selects the rows whose partition column value modulo the number of partitions
+     * is equal to the partition number
+     */
+    MODULO,
+
+    /**
+     * The range between the minimum and maximum values of the partition column is split in
+     * contiguous ranges of the same size, one per partition
+     */
+    RANGE
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+import org.mule.api.Closeable;
+import org.mule.module.db.internal.result.resultset.ResultSetProcessingException;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Iterates the rows read by the partitions of a {@link PartitionedSelect}.
+ * <p/>
+ * Partitions are read concurrently and push their rows to bounded {@link PartitionBuffers}. When the merge is
+ * ordered, rows are returned ordered by the partition column, otherwise they are returned as soon as any
+ * partition reads them. Closing the iterator stops the partitions, which release their connections. An iterator
+ * that is garbage collected without being closed is closed then.
+ */
+public class PartitionedResultSetIterator implements Iterator<Map<String, Object>>, Closeable
+{
+
+    private final String partitionColumn;
+    private final boolean ordered;
+    private final PartitionBuffers buffers;
+    private int activePartitions;
+    private PriorityQueue<PartitionRow> orderedRows;
+    private Map<String, Object> next;
+
+    PartitionedResultSetIterator(int partitions, String partitionColumn, boolean ordered, int bufferSize)
+    {
+        this.partitionColumn = partitionColumn;
+        this.ordered = ordered;
+        this.activePartitions = partitions;
+        this.buffers = new PartitionBuffers(partitions, ordered, bufferSize);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (next == null && !buffers.isClosed())
+        {
+            next = ordered ? nextOrderedRow() : nextRow();
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public Map<String, Object> next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        Map<String, Object> result = next;
+        next = null;
+
+        return result;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+        next = null;
+        buffers.close();
+    }
+
+    @Override
+    protected void finalize() throws Throwable
+    {
+        try
+        {
+            buffers.close();
+        }
+        finally
+        {
+            super.finalize();
+        }
+    }
+
+    PartitionBuffers getBuffers()
+    {
+        return buffers;
+    }
+
+    private Map<String, Object> nextRow()
+    {
+        while (activePartitions > 0)
+        {
+            Map<String, Object> row = take(0);
+            if (row != null)
+            {
+                return row;
+            }
+            activePartitions--;
+        }
+
+        return null;
+    }
+
+    private Map<String, Object> nextOrderedRow()
+    {
+        if (orderedRows == null)
+        {
+            orderedRows = new PriorityQueue<>(Math.max(1, buffers.size()), new PartitionRowComparator());
+            for (int i = 0; i < buffers.size(); i++)
+            {
+                addOrderedRow(i);
+            }
+        }
+
+        PartitionRow partitionRow = orderedRows.poll();
+        if (partitionRow == null)
+        {
+            return null;
+        }
+        addOrderedRow(partitionRow.partition);
+
+        return partitionRow.row;
+    }
+
+    private void addOrderedRow(int partition)
+    {
+        Map<String, Object> row = take(partition);
+        if (row != null)
+        {
+            orderedRows.add(new PartitionRow(partition, row, (Comparable<Object>) row.get(partitionColumn)));
+        }
+    }
+
+    /**
+     * @return next row of the partition or null if the partition has no more rows
+     */
+    private Map<String, Object> take(int partition)
+    {
+        try
+        {
+            return buffers.take(partition);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            close();
+            throw new ResultSetProcessingException("Interrupted while waiting for partitioned select rows", e);
+        }
+        catch (ResultSetProcessingException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    private static class PartitionRow
+    {
+
+        private final int partition;
+        private final Map<String, Object> row;
+        private final Comparable<Object> key;
+
+        private PartitionRow(int partition, Map<String, Object> row, Comparable<Object> key)
+        {
+            this.partition = partition;
+            this.row = row;
+            this.key = key;
+        }
+    }
+
+    private static class PartitionRowComparator implements Comparator<PartitionRow>
+    {
+
+        @Override
+        public int compare(PartitionRow row1, PartitionRow row2)
+        {
+            int result = row1.key.compareTo(row2.key);
+
+            return result != 0 ? result : row1.partition - row2.partition;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.connection.DbConnectionFactory;
+import org.mule.module.db.internal.domain.param.InputQueryParam;
+import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.domain.query.QueryParamValue;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+import org.mule.module.db.internal.result.row.BindableRowHandler;
+import org.mule.module.db.internal.result.row.RowHandler;
+import org.mule.module.db.internal.result.statement.StatementStreamingResultSetCloser;
+
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Executes a select query splitting it in partitions that are read concurrently, each one using its own connection.
+ * <p/>
+ * Partitions are defined using a predicate on an integer, not null, column of the query result. When a page size
+ * is configured, each partition reads its rows in pages using keyset pagination: rows are ordered by the partition
+ * column and each page starts after the last value read in the previous page, using a different connection.
+ * This requires the partition column to be unique. Exports can be restarted from a given value of the partition
+ * column, which is exact when the merge is ordered.
+ * <p/>
+ * Partitions are always executed outside of any transaction. Closing the returned iterator, or losing all the
+ * references to it, cancels the statements being executed by the partitions so they release their connections.
+ */
+public class PartitionedSelect
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private static final Log logger = LogFactory.getLog(PartitionedSelect.class);
+    private static final String PARTITIONED_QUERY_ALIAS = "partitioned_query";
+
+    private final String partitionColumn;
+    private final int partitions;
+    private final PartitionMode partitionMode;
+    private final RowHandler rowHandler;
+    private boolean orderedMerge;
+    private int pageSize;
+    private int fetchSize;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    public PartitionedSelect(String partitionColumn, int partitions, PartitionMode partitionMode, RowHandler rowHandler)
+    {
+        if (partitions < 1)
+        {
+            throw new IllegalArgumentException("Partitioned select requires at least one partition but got " + partitions);
+        }
+        this.partitionColumn = partitionColumn;
+        this.partitions = partitions;
+        this.partitionMode = partitionMode;
+        this.rowHandler = rowHandler;
+    }
+
+    /**
+     * Starts reading the partitions of a query
+     *
+     * @param connectionFactory creates the connections used by each partition. Non null
+     * @param connection connection used to calculate the partitions. It must not be part of a transaction. Non null
+     * @param query select query to partition. Non null
+     * @param startAfter value of the partition column after which rows are read. Null to read all the rows
+     * @param executor executes the readers of the partitions. Must not run them in the calling thread
+     * @param streamingResultSetCloser closes the result sets read by the partitions, releasing their connections
+     * @return an iterator returning the rows read by all the partitions
+     * @throws SQLException if the partitions cannot be calculated
+     */
+    public PartitionedResultSetIterator execute(DbConnectionFactory connectionFactory, DbConnection connection, Query query, Object startAfter, Executor executor, StatementStreamingResultSetCloser streamingResultSetCloser) throws SQLException
+    {
+        if (query.getQueryTemplate().getType() != QueryType.SELECT)
+        {
+            throw new IllegalArgumentException("Partitioned select can only be used with select queries but got " + query.getQueryTemplate().getType());
+        }
+
+        List<PartitionPredicate> predicates = createPredicates(connection, query);
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(predicates.size(), partitionColumn, orderedMerge, bufferSize);
+
+        // Readers reference the buffers instead of the iterator, so an iterator that is never closed can still be collected
+        PartitionBuffers buffers = iterator.getBuffers();
+        try
+        {
+            for (int i = 0; i < predicates.size(); i++)
+            {
+                executor.execute(new PartitionReader(i, predicates.get(i), connectionFactory, query, startAfter, streamingResultSetCloser, buffers));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // Stops the partitions already started
+            iterator.close();
+            throw e;
+        }
+
+        return iterator;
+    }
+
+    private List<PartitionPredicate> createPredicates(DbConnection connection, Query query) throws SQLException
+    {
+        List<PartitionPredicate> predicates = new ArrayList<>(partitions);
+
+        if (partitions == 1)
+        {
+            predicates.add(new PartitionPredicate("1 = 1"));
+        }
+        else if (partitionMode == PartitionMode.MODULO)
+        {
+            for (int i = 0; i < partitions; i++)
+            {
+                predicates.add(new PartitionPredicate(String.format("MOD(%s, %d) = %d", partitionColumn, partitions, i)));
+            }
+        }
+        else
+        {
+            long[] bounds = getPartitionColumnBounds(connection, query);
+            if (bounds == null)
+            {
+                return Collections.emptyList();
+            }
+
+            // Calculated on big integers as the range of the column values may not fit in a long
+            BigInteger min = BigInteger.valueOf(bounds[0]);
+            BigInteger max = BigInteger.valueOf(bounds[1]);
+            BigInteger rangeSize = max.subtract(min).divide(BigInteger.valueOf(partitions)).add(BigInteger.ONE);
+            long lowerBound = bounds[0];
+            for (int i = 0; i < partitions; i++)
+            {
+                long upperBound = min.add(rangeSize.multiply(BigInteger.valueOf(i + 1))).min(max).longValue();
+                if (i == 0)
+                {
+                    predicates.add(new PartitionPredicate(partitionColumn + " < ?", upperBound));
+                }
+                else if (i == partitions - 1)
+                {
+                    predicates.add(new PartitionPredicate(partitionColumn + " >= ?", lowerBound));
+                }
+                else
+                {
+                    predicates.add(new PartitionPredicate(partitionColumn + " >= ? AND " + partitionColumn + " < ?", lowerBound, upperBound));
+                }
+                lowerBound = upperBound;
+            }
+        }
+
+        return predicates;
+    }
+
+    private long[] getPartitionColumnBounds(DbConnection connection, Query query) throws SQLException
+    {
+        String sql = String.format("SELECT MIN(%s), MAX(%s) FROM (%s) %s", partitionColumn, partitionColumn, query.getQueryTemplate().getSqlText(), PARTITIONED_QUERY_ALIAS);
+
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try
+        {
+            bindQueryParameters(statement, query);
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+
+            long min = resultSet.getLong(1);
+            if (resultSet.wasNull())
+            {
+                return null;
+            }
+
+            return new long[] {min, resultSet.getLong(2)};
+        }
+        finally
+        {
+            statement.close();
+        }
+    }
+
+    private int bindQueryParameters(PreparedStatement statement, Query query) throws SQLException
+    {
+        List<InputQueryParam> inputParams = query.getQueryTemplate().getInputParams();
+        List<QueryParamValue> paramValues = query.getParamValues();
+
+        int index = 1;
+        for (int i = 0; i < paramValues.size(); i++)
+        {
+            inputParams.get(i).getType().setParameterValue(statement, index++, paramValues.get(i).getValue());
+        }
+
+        return index;
+    }
+
+    private String createPartitionSql(Query query, PartitionPredicate predicate, boolean afterKey)
+    {
+        StringBuilder builder = new StringBuilder("SELECT * FROM (").append(query.getQueryTemplate().getSqlText()).append(") ")
+                .append(PARTITIONED_QUERY_ALIAS).append(" WHERE ").append(predicate.sql);
+
+        if (afterKey)
+        {
+            builder.append(" AND ").append(partitionColumn).append(" > ?");
+        }
+
+        if (orderedMerge || pageSize > 0)
+        {
+            builder.append(" ORDER BY ").append(partitionColumn);
+        }
+
+        return builder.toString();
+    }
+
+    public void setOrderedMerge(boolean orderedMerge)
+    {
+        this.orderedMerge = orderedMerge;
+    }
+
+    public void setPageSize(int pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setBufferSize(int bufferSize)
+    {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getPartitions()
+    {
+        return partitions;
+    }
+
+    private static class PartitionPredicate
+    {
+
+        private final String sql;
+        private final long[] params;
+
+        private PartitionPredicate(String sql, long... params)
+        {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Reads the rows of a partition, page by page, and pushes them to the iterator
+     */
+    private class PartitionReader implements Runnable
+    {
+
+        private final int partition;
+        private final PartitionPredicate predicate;
+        private final DbConnectionFactory connectionFactory;
+        private final Query query;
+        private final StatementStreamingResultSetCloser streamingResultSetCloser;
+        private final PartitionBuffers buffers;
+        private Object lastKey;
+
+        private PartitionReader(int partition, PartitionPredicate predicate, DbConnectionFactory connectionFactory, Query query, Object startAfter, StatementStreamingResultSetCloser streamingResultSetCloser, PartitionBuffers buffers)
+        {
+            this.partition = partition;
+            this.predicate = predicate;
+            this.connectionFactory = connectionFactory;
+            this.query = query;
+            this.lastKey = startAfter;
+            this.streamingResultSetCloser = streamingResultSetCloser;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void run()
+        {
+            Throwable error = null;
+            try
+            {
+                int rows;
+                do
+                {
+                    rows = readPage();
+                }
+                while (pageSize > 0 && rows == pageSize && !buffers.isClosed());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                error = e;
+            }
+            catch (Throwable e)
+            {
+                error = e;
+            }
+            finally
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug(String.format("Partition %d of query '%s' finished%s", partition, query.getQueryTemplate().getSqlText(), error == null ? "" : " with error: " + error));
+                }
+                buffers.complete(partition, error);
+            }
+        }
+
+        private int readPage() throws SQLException, InterruptedException
+        {
+            if (buffers.isClosed())
+            {
+                return 0;
+            }
+
+            DbConnection connection = connectionFactory.createConnection(TransactionalAction.NOT_SUPPORTED);
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            try
+            {
+                statement = connection.prepareStatement(createPartitionSql(query, predicate, lastKey != null));
+                if (!buffers.addStatement(statement))
+                {
+                    return 0;
+                }
+
+                if (fetchSize > 0)
+                {
+                    statement.setFetchSize(fetchSize);
+                }
+                if (pageSize > 0)
+                {
+                    statement.setMaxRows(pageSize);
+                }
+
+                int index = bindQueryParameters(statement, query);
+                for (long param : predicate.params)
+                {
+                    statement.setLong(index++, param);
+                }
+                if (lastKey != null)
+                {
+                    statement.setObject(index, lastKey);
+                }
+
+                resultSet = statement.executeQuery();
+                streamingResultSetCloser.trackResultSet(connection, resultSet);
+
+                RowHandler resultSetRowHandler = rowHandler instanceof BindableRowHandler ? ((BindableRowHandler) rowHandler).bind(resultSet) : rowHandler;
+                int rows = 0;
+                while (resultSet.next())
+                {
+                    Map<String, Object> row = resultSetRowHandler.process(resultSet);
+                    lastKey = row.get(partitionColumn);
+                    rows++;
+
+                    if (!buffers.offer(partition, row))
+                    {
+                        break;
+                    }
+                }
+
+                return rows;
+            }
+            finally
+            {
+                if (statement != null)
+                {
+                    buffers.removeStatement(statement);
+                    closeQuietly(statement);
+                }
+
+                if (resultSet == null)
+                {
+                    connectionFactory.releaseConnection(connection);
+                }
+                else
+                {
+                    streamingResultSetCloser.close(connection, resultSet);
+                }
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement statement)
+    {
+        try
+        {
+            statement.close();
+        }
+        catch (SQLException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Error closing partition statement. Ignored", e);
+            }
+        }
+    }
+}
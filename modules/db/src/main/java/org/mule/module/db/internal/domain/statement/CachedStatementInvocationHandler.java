@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Invocation handler for statements created by a {@link CachingConnectionInvocationHandler}.
+ * <p/>
+ * Closing the statement resets it and returns it to the connection's cache instead of closing it. The
+ * result sets it returned are closed and the limits changed while it was used are restored, so they
+ * don't leak to the next execution. A statement
+ * that failed is not reused, and a failure caused by the connection invalidates the whole cache.
+ */
+public class CachedStatementInvocationHandler implements InvocationHandler
+{
+
+    private static final Log logger = LogFactory.getLog(CachedStatementInvocationHandler.class);
+    private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+
+    private final Statement statement;
+    private final StatementCacheKey key;
+    private final CachingConnectionInvocationHandler connectionHandler;
+    private final List<ResultSet> resultSets = new ArrayList<>();
+    private Statement proxy;
+    private boolean closed;
+    private boolean reusable = true;
+    private Integer originalMaxRows;
+    private Integer originalFetchSize;
+    private Integer originalQueryTimeout;
+
+    private CachedStatementInvocationHandler(Statement statement, StatementCacheKey key, CachingConnectionInvocationHandler connectionHandler)
+    {
+        this.statement = statement;
+        this.key = key;
+        this.connectionHandler = connectionHandler;
+    }
+
+    static Statement createProxy(Statement statement, Class<?> statementType, StatementCacheKey key, CachingConnectionInvocationHandler connectionHandler)
+    {
+        CachedStatementInvocationHandler handler = new CachedStatementInvocationHandler(statement, key, connectionHandler);
+
+        handler.proxy = (Statement) Proxy.newProxyInstance(CachedStatementInvocationHandler.class.getClassLoader(), new Class[] {statementType}, handler);
+
+        return handler.proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String methodName = method.getName();
+
+        if ("close".equals(methodName))
+        {
+            close();
+            return null;
+        }
+        else if ("isClosed".equals(methodName))
+        {
+            return closed;
+        }
+        else if ("equals".equals(methodName))
+        {
+            return proxy == args[0];
+        }
+        else if ("hashCode".equals(methodName))
+        {
+            return System.identityHashCode(proxy);
+        }
+        else if (closed)
+        {
+            throw new SQLException("Statement is closed");
+        }
+        else if ("getConnection".equals(methodName))
+        {
+            return connectionHandler.getProxy();
+        }
+
+        saveOriginalLimits(methodName);
+
+        try
+        {
+            Object result = method.invoke(statement, args);
+            if (result instanceof ResultSet)
+            {
+                resultSets.add((ResultSet) result);
+            }
+
+            return result;
+        }
+        catch (InvocationTargetException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException)
+            {
+                reusable = false;
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS))
+                {
+                    connectionHandler.invalidate();
+                }
+            }
+            throw cause;
+        }
+    }
+
+    private void saveOriginalLimits(String methodName) throws SQLException
+    {
+        if ("setMaxRows".equals(methodName) && originalMaxRows == null)
+        {
+            originalMaxRows = statement.getMaxRows();
+        }
+        else if ("setFetchSize".equals(methodName) && originalFetchSize == null)
+        {
+            originalFetchSize = statement.getFetchSize();
+        }
+        else if ("setQueryTimeout".equals(methodName) && originalQueryTimeout == null)
+        {
+            originalQueryTimeout = statement.getQueryTimeout();
+        }
+    }
+
+    private void close() throws SQLException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        connectionHandler.statementClosed(proxy);
+
+        if (reusable)
+        {
+            try
+            {
+                reset();
+                if (connectionHandler.release(key, statement))
+                {
+                    return;
+                }
+            }
+            catch (SQLException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Unable to reset statement, it won't be cached", e);
+                }
+            }
+        }
+
+        statement.close();
+    }
+
+    private void reset() throws SQLException
+    {
+        for (ResultSet resultSet : resultSets)
+        {
+            resultSet.close();
+        }
+        resultSets.clear();
+
+        if (originalMaxRows != null)
+        {
+            statement.setMaxRows(originalMaxRows);
+        }
+        if (originalFetchSize != null)
+        {
+            statement.setFetchSize(originalFetchSize);
+        }
+        if (originalQueryTimeout != null)
+        {
+            statement.setQueryTimeout(originalQueryTimeout);
+        }
+        if (statement instanceof PreparedStatement)
+        {
+            ((PreparedStatement) statement).clearParameters();
+        }
+        statement.clearBatch();
+        statement.clearWarnings();
+    }
+}
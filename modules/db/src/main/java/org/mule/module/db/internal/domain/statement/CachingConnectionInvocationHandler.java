@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import org.mule.module.db.internal.domain.connection.pool.PooledConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Invocation handler for connections that keep their prepared statements in a {@link StatementCache}.
+ * <p/>
+ * Statements returned by {@code prepareStatement} and {@code prepareCall} are taken from the cache when
+ * possible and go back to it when they are closed. The cache lives as long as the physical connection:
+ * <ul>
+ * <li>for connections borrowed from a {@link PooledConnection}, the cache is attached to the physical
+ * connection, so it is reused by the next borrower. Statements still open when the connection is
+ * closed are returned to the cache.</li>
+ * <li>for any other connection, the cache is invalidated when the connection is closed, even if closing
+ * it fails.</li>
+ * </ul>
+ */
+public class CachingConnectionInvocationHandler implements InvocationHandler
+{
+
+    private static final Log logger = LogFactory.getLog(CachingConnectionInvocationHandler.class);
+    private static final String STATEMENT_CACHE_ATTACHMENT = CachingConnectionInvocationHandler.class.getName() + ".statementCache";
+
+    private final Connection connection;
+    private final Connection statementConnection;
+    private final StatementCache statementCache;
+    private final boolean pooled;
+    private final Set<Statement> openStatements = Collections.newSetFromMap(new ConcurrentHashMap<Statement, Boolean>());
+    private Connection proxy;
+
+    private CachingConnectionInvocationHandler(Connection connection, Connection statementConnection, StatementCache statementCache, boolean pooled)
+    {
+        this.connection = connection;
+        this.statementConnection = statementConnection;
+        this.statementCache = statementCache;
+        this.pooled = pooled;
+    }
+
+    /**
+     * Creates a connection that caches its prepared statements
+     *
+     * @param connection connection to decorate
+     * @param cacheSize maximum number of idle statements to keep for the connection
+     * @param statistics counters to update with the cache usage
+     * @return a connection proxy
+     * @throws SQLException if the cache of a pooled connection cannot be created
+     */
+    public static Connection createProxy(Connection connection, final int cacheSize, final StatementCacheStatistics statistics) throws SQLException
+    {
+        CachingConnectionInvocationHandler handler;
+
+        if (connection instanceof PooledConnection)
+        {
+            PhysicalConnectionCache cache = ((PooledConnection) connection).getAttachment(STATEMENT_CACHE_ATTACHMENT, new PooledConnection.AttachmentFactory<PhysicalConnectionCache>()
+            {
+                @Override
+                public PhysicalConnectionCache create(Connection physicalConnection)
+                {
+                    return new PhysicalConnectionCache(physicalConnection, new StatementCache(cacheSize, statistics));
+                }
+            });
+            handler = new CachingConnectionInvocationHandler(connection, cache.connection, cache.statementCache, true);
+        }
+        else
+        {
+            handler = new CachingConnectionInvocationHandler(connection, connection, new StatementCache(cacheSize, statistics), false);
+        }
+
+        handler.proxy = (Connection) Proxy.newProxyInstance(CachingConnectionInvocationHandler.class.getClassLoader(), new Class[] {Connection.class}, handler);
+
+        return handler.proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        String methodName = method.getName();
+
+        if ("prepareStatement".equals(methodName) || "prepareCall".equals(methodName))
+        {
+            return prepare(method, args);
+        }
+        else if ("close".equals(methodName) && pooled)
+        {
+            try
+            {
+                closeOpenStatements();
+            }
+            finally
+            {
+                invokeDelegate(method, args);
+            }
+            return null;
+        }
+        else if ("close".equals(methodName) || "abort".equals(methodName))
+        {
+            try
+            {
+                invalidate();
+            }
+            finally
+            {
+                invokeDelegate(method, args);
+            }
+            return null;
+        }
+        else if ("equals".equals(methodName))
+        {
+            return proxy == args[0];
+        }
+        else if ("hashCode".equals(methodName))
+        {
+            return System.identityHashCode(proxy);
+        }
+
+        return invokeDelegate(method, args);
+    }
+
+    private Object prepare(Method method, Object[] args) throws Throwable
+    {
+        StatementCacheKey key = new StatementCacheKey(method.getName(), args);
+        Statement statement = statementCache.checkout(key);
+
+        if (statement == null)
+        {
+            try
+            {
+                statement = (Statement) method.invoke(statementConnection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+
+        Statement statementProxy = CachedStatementInvocationHandler.createProxy(statement, method.getReturnType(), key, this);
+        openStatements.add(statementProxy);
+
+        return statementProxy;
+    }
+
+    private void closeOpenStatements()
+    {
+        List<Statement> statements = new ArrayList<>(openStatements);
+
+        for (Statement statement : statements)
+        {
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Error closing statement left open. Ignored", e);
+                }
+            }
+        }
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(connection, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    Connection getProxy()
+    {
+        return proxy;
+    }
+
+    void statementClosed(Statement statementProxy)
+    {
+        openStatements.remove(statementProxy);
+    }
+
+    boolean release(StatementCacheKey key, Statement statement)
+    {
+        return statementCache.checkin(key, statement);
+    }
+
+    void invalidate()
+    {
+        statementCache.invalidate();
+
+        // The cache of a pooled connection is shared with later borrowers, so the physical connection must go too
+        if (pooled)
+        {
+            ((PooledConnection) connection).markBroken();
+        }
+    }
+
+    /**
+     * Statement cache attached to the physical connection of a {@link PooledConnection}
+     */
+    private static class PhysicalConnectionCache implements AutoCloseable
+    {
+
+        private final Connection connection;
+        private final StatementCache statementCache;
+
+        private PhysicalConnectionCache(Connection connection, StatementCache statementCache)
+        {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        @Override
+        public void close()
+        {
+            statementCache.invalidate();
+        }
+    }
+}
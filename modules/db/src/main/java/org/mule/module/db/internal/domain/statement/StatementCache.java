@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps the idle prepared statements of a single connection, up to a maximum size, evicting the least
+ * recently used one when the cache is full.
+ * <p/>
+ * A statement is removed from the cache while it is in use, so it is never shared by two executions.
+ * Once the connection is closed the cache is invalidated: idle statements are closed and statements
+ * returned afterwards are not cached anymore.
+ */
+public class StatementCache
+{
+
+    private static final Log logger = LogFactory.getLog(StatementCache.class);
+
+    private final StatementCacheStatistics statistics;
+    private final Map<StatementCacheKey, Statement> idleStatements;
+    private boolean invalidated;
+
+    /**
+     * @param maxSize maximum number of idle statements to keep
+     * @param statistics counters to update with the cache usage
+     */
+    public StatementCache(final int maxSize, final StatementCacheStatistics statistics)
+    {
+        this.statistics = statistics;
+        this.idleStatements = new LinkedHashMap<StatementCacheKey, Statement>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementCacheKey, Statement> eldest)
+            {
+                if (size() > maxSize)
+                {
+                    closeQuietly(eldest.getValue());
+                    statistics.statementEvicted();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Takes an idle statement from the cache.
+     *
+     * @param key identifies the statement
+     * @return an open statement or null if there is no idle statement for the key
+     */
+    public synchronized Statement checkout(StatementCacheKey key)
+    {
+        Statement statement = idleStatements.remove(key);
+
+        if (statement != null && !isClosed(statement))
+        {
+            statistics.statementHit();
+            return statement;
+        }
+
+        statistics.statementMissed();
+        return null;
+    }
+
+    /**
+     * Returns a statement to the cache once it is not used anymore.
+     *
+     * @param key identifies the statement
+     * @param statement statement to cache
+     * @return true if the statement was cached, false if it must be closed by the caller
+     */
+    public synchronized boolean checkin(StatementCacheKey key, Statement statement)
+    {
+        if (invalidated || idleStatements.containsKey(key))
+        {
+            return false;
+        }
+
+        idleStatements.put(key, statement);
+        return true;
+    }
+
+    /**
+     * Closes all the idle statements and stops caching the ones returned afterwards.
+     */
+    public void invalidate()
+    {
+        List<Statement> statements;
+        synchronized (this)
+        {
+            invalidated = true;
+            statements = new ArrayList<>(idleStatements.values());
+            idleStatements.clear();
+        }
+
+        for (Statement statement : statements)
+        {
+            closeQuietly(statement);
+        }
+        statistics.statementsInvalidated(statements.size());
+    }
+
+    /**
+     * @return the number of idle statements in the cache
+     */
+    public synchronized int size()
+    {
+        return idleStatements.size();
+    }
+
+    private static boolean isClosed(Statement statement)
+    {
+        try
+        {
+            return statement.isClosed();
+        }
+        catch (SQLException e)
+        {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Statement statement)
+    {
+        try
+        {
+            statement.close();
+        }
+        catch (SQLException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Error closing cached statement. Ignored", e);
+            }
+        }
+    }
+}
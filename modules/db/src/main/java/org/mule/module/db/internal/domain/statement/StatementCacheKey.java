@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import java.util.Arrays;
+
+/**
+ * Identifies a statement in a {@link StatementCache}. Two statements are equivalent when they were
+ * prepared with the same connection method and arguments, that is, the same SQL text, result set type,
+ * concurrency and holdability and the same auto generated key strategy.
+ */
+public class StatementCacheKey
+{
+
+    private final String methodName;
+    private final Object[] arguments;
+    private final int hashCode;
+
+    public StatementCacheKey(String methodName, Object[] arguments)
+    {
+        this.methodName = methodName;
+        this.arguments = copy(arguments);
+        this.hashCode = 31 * methodName.hashCode() + Arrays.deepHashCode(this.arguments);
+    }
+
+    private static Object[] copy(Object[] arguments)
+    {
+        Object[] copy = arguments.clone();
+        for (int i = 0; i < copy.length; i++)
+        {
+            if (copy[i] instanceof int[])
+            {
+                copy[i] = ((int[]) copy[i]).clone();
+            }
+            else if (copy[i] instanceof String[])
+            {
+                copy[i] = ((String[]) copy[i]).clone();
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        StatementCacheKey that = (StatementCacheKey) o;
+
+        return hashCode == that.hashCode && methodName.equals(that.methodName) && Arrays.deepEquals(arguments, that.arguments);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return methodName + Arrays.deepToString(arguments);
+    }
+}
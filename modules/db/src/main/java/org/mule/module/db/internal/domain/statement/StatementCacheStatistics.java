@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the {@link StatementCache}s created for the connections of a database config.
+ */
+public class StatementCacheStatistics implements StatementCacheStatisticsMXBean
+{
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    void statementHit()
+    {
+        hits.incrementAndGet();
+    }
+
+    void statementMissed()
+    {
+        misses.incrementAndGet();
+    }
+
+    void statementEvicted()
+    {
+        evictions.incrementAndGet();
+    }
+
+    void statementsInvalidated(int count)
+    {
+        invalidations.addAndGet(count);
+    }
+
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidations()
+    {
+        return invalidations.get();
+    }
+
+    @Override
+    public void clear()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+/**
+ * JMX view of the prepared statement cache of a database config.
+ */
+public interface StatementCacheStatisticsMXBean
+{
+
+    /**
+     * @return the amount of statements taken from the cache instead of being prepared
+     */
+    long getHits();
+
+    /**
+     * @return the amount of statements that had to be prepared because they were not in the cache
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of statements taken from the cache, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * @return the amount of statements closed to keep the cache under its maximum size
+     */
+    long getEvictions();
+
+    /**
+     * @return the amount of cached statements closed because their connection was closed or failed
+     */
+    long getInvalidations();
+
+    /**
+     * Resets all the counters.
+     */
+    void clear();
+}
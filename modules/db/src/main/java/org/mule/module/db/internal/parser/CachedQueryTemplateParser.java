@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.parser;
+
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates a {@link QueryTemplateParser} keeping the most recently parsed templates, so queries
+ * resolved to the same SQL text on each event are parsed only once.
+ */
+public class CachedQueryTemplateParser implements QueryTemplateParser
+{
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final QueryTemplateParser delegate;
+    private final Map<String, QueryTemplate> templates;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachedQueryTemplateParser(QueryTemplateParser delegate)
+    {
+        this(delegate, DEFAULT_CACHE_SIZE);
+    }
+
+    public CachedQueryTemplateParser(QueryTemplateParser delegate, final int maxSize)
+    {
+        this.delegate = delegate;
+        this.templates = Collections.synchronizedMap(new LinkedHashMap<String, QueryTemplate>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryTemplate> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    @Override
+    public QueryTemplate parse(String sql) throws QueryTemplateParsingException
+    {
+        QueryTemplate queryTemplate = templates.get(sql);
+
+        if (queryTemplate == null)
+        {
+            misses.incrementAndGet();
+            queryTemplate = delegate.parse(sql);
+            templates.put(sql, queryTemplate);
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+
+        return queryTemplate;
+    }
+
+    /**
+     * Removes all the parsed templates
+     */
+    public void invalidate()
+    {
+        templates.clear();
+    }
+
+    /**
+     * @return the number of queries that were found already parsed
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of queries that had to be parsed
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+}
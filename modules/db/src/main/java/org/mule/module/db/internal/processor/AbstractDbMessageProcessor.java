@@ -69,7 +69,7 @@ public abstract class AbstractDbMessageProcessor extends AbstractInterceptingMes
 
         try
         {
-            connection = dbConfig.getConnectionFactory().createConnection(transactionalAction);
+            connection = dbConfig.getConnectionFactory().createConnection(getTransactionalAction());
         }
         catch (SQLException e)
         {
@@ -92,16 +92,7 @@ public abstract class AbstractDbMessageProcessor extends AbstractInterceptingMes
                 }
             }
 
-            if (target == null || "".equals(target) || "#[payload]".equals(target))
-            {
-                muleEvent.getMessage().setPayload(result);
-            }
-            else
-            {
-                muleContext.getExpressionManager().enrich(target, muleEvent, result);
-            }
-
-            return processNext(muleEvent);
+            return processResult(muleEvent, result);
         }
         catch (SQLException e)
         {
@@ -118,11 +109,38 @@ public abstract class AbstractDbMessageProcessor extends AbstractInterceptingMes
         }
     }
 
+    /**
+     * Sets the result of the query on the event and continues processing it
+     *
+     * @param muleEvent event being processed
+     * @param result result of the query execution
+     * @return the event returned by the next processor
+     * @throws MuleException if the next processor fails
+     */
+    protected MuleEvent processResult(MuleEvent muleEvent, Object result) throws MuleException
+    {
+        if (target == null || "".equals(target) || "#[payload]".equals(target))
+        {
+            muleEvent.getMessage().setPayload(result);
+        }
+        else
+        {
+            muleContext.getExpressionManager().enrich(target, muleEvent, result);
+        }
+
+        return processNext(muleEvent);
+    }
+
     protected boolean mustCloseConnection()
     {
         return true;
     }
 
+    protected TransactionalAction getTransactionalAction()
+    {
+        return transactionalAction;
+    }
+
     protected MuleEvent resolveSource(MuleEvent muleEvent)
     {
         MuleEvent eventToUse = muleEvent;
@@ -190,6 +208,11 @@ public abstract class AbstractDbMessageProcessor extends AbstractInterceptingMes
         this.streamingResultSetCloser = streamingResultSetCloser;
     }
 
+    protected StatementStreamingResultSetCloser getStatementStreamingResultSetCloser()
+    {
+        return streamingResultSetCloser;
+    }
+
     protected void validateQueryType(QueryTemplate queryTemplate)
     {
         List<QueryType> validTypes = getValidQueryTypes();
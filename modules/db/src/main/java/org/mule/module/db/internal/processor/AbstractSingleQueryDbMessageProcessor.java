@@ -42,6 +42,13 @@ public abstract class AbstractSingleQueryDbMessageProcessor extends AbstractDbMe
 
     @Override
     protected Object executeQuery(DbConnection connection, MuleEvent muleEvent) throws SQLException
+    {
+        Query resolvedQuery = resolveQuery(connection, muleEvent);
+
+        return doExecuteQuery(connection, resolvedQuery);
+    }
+
+    protected Query resolveQuery(DbConnection connection, MuleEvent muleEvent)
     {
         MuleEvent eventToUse = resolveSource(muleEvent);
 
@@ -49,7 +56,7 @@ public abstract class AbstractSingleQueryDbMessageProcessor extends AbstractDbMe
 
         validateQueryType(resolvedQuery.getQueryTemplate());
 
-        return doExecuteQuery(connection, resolvedQuery);
+        return resolvedQuery;
     }
 
     protected abstract Object doExecuteQuery(DbConnection connection, Query query) throws SQLException;
@@ -62,27 +62,62 @@ public class PreparedBulkUpdateMessageProcessor extends AbstractBulkUpdateMessag
 
         validateQueryType(query.getQueryTemplate());
 
-        List<List<QueryParamValue>> paramValues = resolveParamSets(muleEvent, query);
-
         BulkExecutor bulkUpdateExecutor = bulkUpdateExecutorFactory.create();
-        return bulkUpdateExecutor.execute(connection, query, paramValues);
+        return bulkUpdateExecutor.execute(connection, query, new ParamSetIterator(getIterator(muleEvent), muleEvent, query));
     }
 
     private List<List<QueryParamValue>> resolveParamSets(MuleEvent muleEvent, Query query)
     {
-        final Iterator<Object> paramsIterator = getIterator(muleEvent);
+        final Iterator<List<QueryParamValue>> paramSetIterator = new ParamSetIterator(getIterator(muleEvent), muleEvent, query);
 
         List<List<QueryParamValue>> result = new LinkedList<>();
 
-        while (paramsIterator.hasNext())
+        while (paramSetIterator.hasNext())
+        {
+            result.add(paramSetIterator.next());
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves the parameter set of each bulk item only when it is requested, so the bulk
+     * can be consumed while it is executed
+     */
+    private class ParamSetIterator implements Iterator<List<QueryParamValue>>
+    {
+
+        private final Iterator<Object> paramsIterator;
+        private final MuleEvent muleEvent;
+        private final Query query;
+
+        public ParamSetIterator(Iterator<Object> paramsIterator, MuleEvent muleEvent, Query query)
+        {
+            this.paramsIterator = paramsIterator;
+            this.muleEvent = muleEvent;
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return paramsIterator.hasNext();
+        }
+
+        @Override
+        public List<QueryParamValue> next()
         {
             MuleMessage itemMessage = new DefaultMuleMessage(paramsIterator.next(), muleContext);
             MuleEvent itemEvent = new DefaultMuleEvent(itemMessage, muleEvent);
-            List<QueryParamValue> queryParamValues = paramValueResolver.resolveParams(itemEvent, query.getParamValues());
-            result.add(queryParamValues);
+
+            return paramValueResolver.resolveParams(itemEvent, query.getParamValues());
         }
 
-        return result;
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
     }
 
     @Override
@@ -7,6 +7,14 @@
 
 package org.mule.module.db.internal.processor;
 
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.context.WorkManager;
+import org.mule.api.lifecycle.Disposable;
+import org.mule.api.lifecycle.InitialisationException;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.module.db.internal.domain.partition.PartitionedSelect;
 import org.mule.module.db.internal.resolver.query.QueryResolver;
 import org.mule.module.db.internal.domain.executor.QueryExecutor;
 import org.mule.module.db.internal.domain.query.Query;
@@ -15,6 +23,8 @@ import org.mule.module.db.internal.resolver.database.DbConfigResolver;
 import org.mule.module.db.internal.domain.connection.DbConnection;
 import org.mule.module.db.internal.domain.executor.QueryExecutorFactory;
 import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+import org.mule.util.StringUtils;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -28,14 +38,25 @@ import java.util.List;
  * <p/>
  * Both database and queries are resolved, if required, using the {@link org.mule.api.MuleEvent}
  * being processed.
+ * <p/>
+ * When a {@link PartitionedSelect} is configured, the query is split in partitions that are read
+ * concurrently using their own connections, and the result is an iterator over the rows of all of them.
+ * Partitions are read by a work manager with as many threads as partitions, so concurrent executions
+ * wait for each other instead of opening more connections. The connection of the processor is used to
+ * resolve the query and calculate the partitions, outside of any transaction.
  */
 
-public class SelectMessageProcessor extends AbstractSingleQueryDbMessageProcessor
+public class SelectMessageProcessor extends AbstractSingleQueryDbMessageProcessor implements Disposable
 {
 
+    private static final String PARTITION_READER_THREAD_NAME = "db.partitionedSelect";
+
     private final QueryExecutorFactory queryExecutorFactory;
     private final boolean streaming;
     private final List<QueryType> validQueryTypes;
+    private PartitionedSelect partitionedSelect;
+    private String startAfter;
+    private WorkManager partitionReaderWorkManager;
 
     public SelectMessageProcessor(DbConfigResolver dbConfigResolver, QueryResolver queryResolver, QueryExecutorFactory queryExecutorFactory, TransactionalAction transactionalAction, boolean streaming)
     {
@@ -48,10 +69,74 @@ public class SelectMessageProcessor extends AbstractSingleQueryDbMessageProcesso
         validQueryTypes.add(QueryType.STORE_PROCEDURE_CALL);
     }
 
+    @Override
+    public void initialise() throws InitialisationException
+    {
+        super.initialise();
+
+        if (partitionedSelect != null)
+        {
+            partitionReaderWorkManager = createPartitionReaderWorkManager();
+            try
+            {
+                partitionReaderWorkManager.start();
+            }
+            catch (MuleException e)
+            {
+                throw new InitialisationException(e, this);
+            }
+        }
+    }
+
+    private WorkManager createPartitionReaderWorkManager()
+    {
+        int partitions = partitionedSelect.getPartitions();
+
+        ThreadingProfile threadingProfile = new ChainedThreadingProfile(muleContext.getDefaultThreadingProfile());
+        threadingProfile.setMaxThreadsActive(partitions);
+        threadingProfile.setMaxThreadsIdle(partitions);
+        threadingProfile.setMaxBufferSize(partitions);
+        // Partitions must never be read by the thread executing the query, as it is the one consuming their rows
+        threadingProfile.setPoolExhaustedAction(ThreadingProfile.WHEN_EXHAUSTED_WAIT);
+        threadingProfile.setMuleContext(muleContext);
+
+        return threadingProfile.createWorkManager(ThreadNameHelper.getPrefix(muleContext) + PARTITION_READER_THREAD_NAME, muleContext.getConfiguration().getShutdownTimeout());
+    }
+
+    @Override
+    public void dispose()
+    {
+        if (partitionReaderWorkManager != null)
+        {
+            partitionReaderWorkManager.dispose();
+            partitionReaderWorkManager = null;
+        }
+    }
+
+    @Override
+    protected TransactionalAction getTransactionalAction()
+    {
+        return partitionedSelect == null ? super.getTransactionalAction() : TransactionalAction.NOT_SUPPORTED;
+    }
+
     @Override
     protected boolean mustCloseConnection()
     {
-        return !streaming;
+        return !streaming || partitionedSelect != null;
+    }
+
+    @Override
+    protected Object executeQuery(DbConnection connection, MuleEvent muleEvent) throws SQLException
+    {
+        if (partitionedSelect == null)
+        {
+            return super.executeQuery(connection, muleEvent);
+        }
+
+        Query query = resolveQuery(connection, muleEvent);
+        Object startAfterValue = StringUtils.isEmpty(startAfter) ? null : muleContext.getExpressionManager().evaluate(startAfter, muleEvent);
+
+        return partitionedSelect.execute(dbConfigResolver.resolve(muleEvent).getConnectionFactory(), connection, query, startAfterValue, partitionReaderWorkManager, getStatementStreamingResultSetCloser());
     }
 
     @Override
@@ -66,4 +151,14 @@ public class SelectMessageProcessor extends AbstractSingleQueryDbMessageProcesso
         QueryExecutor queryExecutor = queryExecutorFactory.create();
         return queryExecutor.execute(connection, query);
     }
+
+    public void setPartitionedSelect(PartitionedSelect partitionedSelect)
+    {
+        this.partitionedSelect = partitionedSelect;
+    }
+
+    public void setStartAfter(String startAfter)
+    {
+        this.startAfter = startAfter;
+    }
 }
@@ -7,14 +7,20 @@
 
 package org.mule.module.db.internal.processor;
 
+import org.mule.api.MessagingException;
 import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
 import org.mule.module.db.internal.domain.autogeneratedkey.AutoGeneratedKeyStrategy;
 import org.mule.module.db.internal.domain.autogeneratedkey.NoAutoGeneratedKeyStrategy;
 import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.database.DbConfig;
 import org.mule.module.db.internal.domain.executor.QueryExecutor;
 import org.mule.module.db.internal.domain.executor.QueryExecutorFactory;
+import org.mule.module.db.internal.domain.executor.UpdateCoalescer;
 import org.mule.module.db.internal.domain.query.Query;
 import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.transaction.DbTransactionManager;
+import org.mule.module.db.internal.domain.transaction.TransactionCoordinationDbTransactionManager;
 import org.mule.module.db.internal.domain.transaction.TransactionalAction;
 import org.mule.module.db.internal.resolver.database.DbConfigResolver;
 import org.mule.module.db.internal.resolver.query.QueryResolver;
@@ -30,6 +36,9 @@ import java.util.List;
  * <p/>
  * Both database and queries are resolved, if required, using the {@link MuleEvent}
  * being processed.
+ * <p/>
+ * When an {@link UpdateCoalescer} is configured, updates executed outside of a transaction
+ * are coalesced with the concurrent updates of the same query and executed as a batch.
  */
 public class UpdateMessageProcessor extends AbstractSingleQueryDbMessageProcessor
 {
@@ -37,6 +46,8 @@ public class UpdateMessageProcessor extends AbstractSingleQueryDbMessageProcesso
     private AutoGeneratedKeyStrategy autoGeneratedKeyStrategy;
     private final QueryExecutorFactory queryExecutorFactory;
     private final List<QueryType> validQueryTypes;
+    private UpdateCoalescer updateCoalescer;
+    private DbTransactionManager dbTransactionManager = new TransactionCoordinationDbTransactionManager();
 
     public UpdateMessageProcessor(DbConfigResolver dbConfigResolver, QueryResolver queryResolver, QueryExecutorFactory queryExecutorFactory, TransactionalAction transactionalAction, List<QueryType> validQueryTypes)
     {
@@ -52,6 +63,48 @@ public class UpdateMessageProcessor extends AbstractSingleQueryDbMessageProcesso
         return validQueryTypes;
     }
 
+    @Override
+    public MuleEvent process(MuleEvent muleEvent) throws MuleException
+    {
+        if (updateCoalescer == null || getTransactionalAction() == TransactionalAction.ALWAYS_JOIN || dbTransactionManager.getTransaction() != null)
+        {
+            return super.process(muleEvent);
+        }
+
+        DbConfig dbConfig = dbConfigResolver.resolve(muleEvent);
+
+        Query query;
+        DbConnection connection;
+        try
+        {
+            connection = dbConfig.getConnectionFactory().createConnection(TransactionalAction.NOT_SUPPORTED);
+        }
+        catch (SQLException e)
+        {
+            throw new DbConnectionException(e, dbConfig);
+        }
+        try
+        {
+            query = resolveQuery(connection, muleEvent);
+        }
+        finally
+        {
+            dbConfig.getConnectionFactory().releaseConnection(connection);
+        }
+
+        Object result;
+        try
+        {
+            result = updateCoalescer.execute(dbConfig.getConnectionFactory(), query);
+        }
+        catch (SQLException e)
+        {
+            throw new MessagingException(muleEvent, e, this);
+        }
+
+        return processResult(muleEvent, result);
+    }
+
     @Override
     protected Object doExecuteQuery(DbConnection connection, Query query) throws SQLException
     {
@@ -68,4 +121,14 @@ public class UpdateMessageProcessor extends AbstractSingleQueryDbMessageProcesso
     {
         this.autoGeneratedKeyStrategy = autoGeneratedKeyStrategy;
     }
+
+    public void setUpdateCoalescer(UpdateCoalescer updateCoalescer)
+    {
+        this.updateCoalescer = updateCoalescer;
+    }
+
+    public void setDbTransactionManager(DbTransactionManager dbTransactionManager)
+    {
+        this.dbTransactionManager = dbTransactionManager;
+    }
 }
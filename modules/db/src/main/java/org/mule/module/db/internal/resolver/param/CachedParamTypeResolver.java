@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.resolver.param;
+
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.module.db.internal.domain.type.DbType;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Resolves parameter types using a delegate {@link ParamTypeResolver} only when they
+ * are not already in a {@link ParamTypeCache}. Failed resolutions are not cached.
+ */
+public class CachedParamTypeResolver implements ParamTypeResolver
+{
+
+    private final ParamTypeResolver delegate;
+    private final ParamTypeCache paramTypeCache;
+
+    public CachedParamTypeResolver(ParamTypeResolver delegate, ParamTypeCache paramTypeCache)
+    {
+        this.delegate = delegate;
+        this.paramTypeCache = paramTypeCache;
+    }
+
+    @Override
+    public Map<Integer, DbType> getParameterTypes(DbConnection connection, QueryTemplate queryTemplate) throws SQLException
+    {
+        Map<Integer, DbType> paramTypes = paramTypeCache.get(queryTemplate.getSqlText());
+
+        if (paramTypes == null)
+        {
+            paramTypes = delegate.getParameterTypes(connection, queryTemplate);
+            paramTypeCache.put(queryTemplate.getSqlText(), paramTypes);
+        }
+
+        return paramTypes;
+    }
+}
@@ -18,10 +18,21 @@ public class GenericParamTypeResolverFactory implements ParamTypeResolverFactory
 {
 
     private final DbTypeManager dbTypeManager;
+    private final ParamTypeCache paramTypeCache;
 
     public GenericParamTypeResolverFactory(DbTypeManager dbTypeManager)
+    {
+        this(dbTypeManager, null);
+    }
+
+    /**
+     * @param dbTypeManager type manager used to resolve the parameter types
+     * @param paramTypeCache cache for the parameter types resolved from metadata. Can be null.
+     */
+    public GenericParamTypeResolverFactory(DbTypeManager dbTypeManager, ParamTypeCache paramTypeCache)
     {
         this.dbTypeManager = dbTypeManager;
+        this.paramTypeCache = paramTypeCache;
     }
 
     public ParamTypeResolver create(QueryTemplate queryTemplate)
@@ -37,6 +48,11 @@ public class GenericParamTypeResolverFactory implements ParamTypeResolverFactory
             metadataParamTypeResolver = new QueryParamTypeResolver(dbTypeManager);
         }
 
+        if (paramTypeCache != null)
+        {
+            metadataParamTypeResolver = new CachedParamTypeResolver(metadataParamTypeResolver, paramTypeCache);
+        }
+
         return new DefaultParamTypeResolver(dbTypeManager, metadataParamTypeResolver);
     }
 }
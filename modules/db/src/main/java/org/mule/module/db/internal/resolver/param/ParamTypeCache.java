@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.resolver.param;
+
+import org.mule.module.db.internal.domain.type.DbType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the parameter types resolved from metadata for the most recently used queries of a
+ * database config, keyed by SQL text.
+ */
+public class ParamTypeCache implements ParamTypeCacheMXBean
+{
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final Map<String, Map<Integer, DbType>> paramTypes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ParamTypeCache()
+    {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public ParamTypeCache(final int maxSize)
+    {
+        this.paramTypes = Collections.synchronizedMap(new LinkedHashMap<String, Map<Integer, DbType>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, DbType>> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * @param sqlText SQL text of the query
+     * @return the parameter types of the query or null if they are not cached
+     */
+    public Map<Integer, DbType> get(String sqlText)
+    {
+        Map<Integer, DbType> types = paramTypes.get(sqlText);
+
+        if (types == null)
+        {
+            misses.incrementAndGet();
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+
+        return types;
+    }
+
+    /**
+     * @param sqlText SQL text of the query
+     * @param types parameter types of the query
+     */
+    public void put(String sqlText, Map<Integer, DbType> types)
+    {
+        paramTypes.put(sqlText, Collections.unmodifiableMap(new HashMap<>(types)));
+    }
+
+    /**
+     * Removes the cached parameter types of a query
+     *
+     * @param sqlText SQL text of the query
+     */
+    public void invalidate(String sqlText)
+    {
+        paramTypes.remove(sqlText);
+    }
+
+    @Override
+    public void invalidate()
+    {
+        paramTypes.clear();
+    }
+
+    @Override
+    public int getSize()
+    {
+        return paramTypes.size();
+    }
+
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+}
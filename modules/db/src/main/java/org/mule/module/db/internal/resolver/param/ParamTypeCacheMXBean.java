@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.resolver.param;
+
+/**
+ * JMX view of the parameter types resolved from metadata for the queries of a database config.
+ */
+public interface ParamTypeCacheMXBean
+{
+
+    /**
+     * @return the number of queries whose parameter types are cached
+     */
+    int getSize();
+
+    /**
+     * @return the number of resolutions answered from the cache
+     */
+    long getHits();
+
+    /**
+     * @return the number of resolutions that required querying the database metadata
+     */
+    long getMisses();
+
+    /**
+     * @return the ratio of resolutions answered from the cache, between 0 and 1
+     */
+    double getHitRatio();
+
+    /**
+     * Removes all the cached parameter types, for example after changing the database schema.
+     */
+    void invalidate();
+}
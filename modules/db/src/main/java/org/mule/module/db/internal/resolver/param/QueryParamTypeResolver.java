@@ -41,23 +41,30 @@ public class QueryParamTypeResolver implements ParamTypeResolver
 
         PreparedStatement statement = connection.prepareStatement(queryTemplate.getSqlText());
 
-        ParameterMetaData parameterMetaData = statement.getParameterMetaData();
-
-        for (QueryParam queryParam : queryTemplate.getParams())
+        try
         {
-            int parameterTypeId = parameterMetaData.getParameterType(queryParam.getIndex());
-            String parameterTypeName = parameterMetaData.getParameterTypeName(queryParam.getIndex());
-            DbType dbType;
-            try
-            {
-                dbType = dbTypeManager.lookup(connection, parameterTypeId, parameterTypeName);
-            }
-            catch (UnknownDbTypeException e)
+            ParameterMetaData parameterMetaData = statement.getParameterMetaData();
+
+            for (QueryParam queryParam : queryTemplate.getParams())
             {
-                // Type was not found in the type manager, but the DB knows about it
-                dbType = new ResolvedDbType(parameterTypeId, parameterTypeName);
+                int parameterTypeId = parameterMetaData.getParameterType(queryParam.getIndex());
+                String parameterTypeName = parameterMetaData.getParameterTypeName(queryParam.getIndex());
+                DbType dbType;
+                try
+                {
+                    dbType = dbTypeManager.lookup(connection, parameterTypeId, parameterTypeName);
+                }
+                catch (UnknownDbTypeException e)
+                {
+                    // Type was not found in the type manager, but the DB knows about it
+                    dbType = new ResolvedDbType(parameterTypeId, parameterTypeName);
+                }
+                paramTypes.put(queryParam.getIndex(), dbType);
             }
-            paramTypes.put(queryParam.getIndex(), dbType);
+        }
+        finally
+        {
+            statement.close();
         }
 
         return paramTypes;
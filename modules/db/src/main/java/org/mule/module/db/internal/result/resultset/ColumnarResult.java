@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.resultset;
+
+import org.mule.module.db.internal.result.row.ArrayRowMap;
+import org.mule.module.db.internal.result.row.ColumnIndex;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contains the rows of a resultSet stored by column. Each column is an array with one element per row:
+ * <ul>
+ * <li>int[] for INTEGER, SMALLINT and TINYINT columns</li>
+ * <li>long[] for BIGINT columns</li>
+ * <li>double[] for DOUBLE, FLOAT and REAL columns</li>
+ * <li>boolean[] for BOOLEAN and BIT columns</li>
+ * <li>Object[] for any other column</li>
+ * </ul>
+ * As primitive arrays cannot hold nulls, {@link #isNull(String, int)} must be used to check for null values.
+ */
+public class ColumnarResult implements Serializable
+{
+
+    private static final long serialVersionUID = -6385117206473735207L;
+
+    private final ColumnIndex columnIndex;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int rowCount;
+
+    public ColumnarResult(ColumnIndex columnIndex, Object[] columns, BitSet[] nulls, int rowCount)
+    {
+        this.columnIndex = columnIndex;
+        this.columns = columns;
+        this.nulls = nulls;
+        this.rowCount = rowCount;
+    }
+
+    public List<String> getColumnLabels()
+    {
+        return columnIndex.getLabels();
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * @param label label of the column. Comparison is case insensitive
+     * @return the array containing the values of the column
+     * @throws IllegalArgumentException if there is no column with the given label
+     */
+    public Object getColumn(String label)
+    {
+        return columns[getColumnPosition(label)];
+    }
+
+    /**
+     * @param label label of the column. Comparison is case insensitive
+     * @param row zero based row number
+     * @return true if the column has a null value on the given row
+     * @throws IllegalArgumentException if there is no column with the given label
+     */
+    public boolean isNull(String label, int row)
+    {
+        checkRow(row);
+        return nulls[getColumnPosition(label)].get(row);
+    }
+
+    /**
+     * Creates a map view of a row. Values of primitive columns are boxed.
+     *
+     * @param row zero based row number
+     * @return a new map containing the row values
+     */
+    public Map<String, Object> getRow(int row)
+    {
+        checkRow(row);
+
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++)
+        {
+            values[i] = nulls[i].get(row) ? null : Array.get(columns[i], row);
+        }
+
+        return new ArrayRowMap(columnIndex, values);
+    }
+
+    private int getColumnPosition(String label)
+    {
+        int position = columnIndex.indexOf(label);
+        if (position < 0)
+        {
+            throw new IllegalArgumentException(String.format("Result does not contain a column with label '%s'", label));
+        }
+
+        return position;
+    }
+
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= rowCount)
+        {
+            throw new IndexOutOfBoundsException(String.format("Row %d does not exist, result contains %d rows", row, rowCount));
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.resultset;
+
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.result.row.ColumnIndex;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Processes a {@link ResultSet} returning a {@link ColumnarResult}. Numeric and boolean columns are read into
+ * primitive arrays, so no objects are created for their values.
+ * <p/>
+ * The processed {@link ResultSet} is closed immediately after fetching its data.
+ */
+public class ColumnarResultSetHandler implements ResultSetHandler
+{
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    @Override
+    public ColumnarResult processResultSet(DbConnection connection, ResultSet resultSet) throws SQLException
+    {
+        try
+        {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            ColumnIndex columnIndex = ColumnIndex.create(metaData);
+
+            ColumnBuilder[] builders = new ColumnBuilder[columnIndex.size()];
+            for (int i = 0; i < builders.length; i++)
+            {
+                builders[i] = createColumnBuilder(metaData.getColumnType(i + 1));
+            }
+
+            int rowCount = 0;
+            while (resultSet.next())
+            {
+                for (int i = 0; i < builders.length; i++)
+                {
+                    builders[i].read(resultSet, i + 1, rowCount);
+                }
+                rowCount++;
+            }
+
+            Object[] columns = new Object[builders.length];
+            BitSet[] nulls = new BitSet[builders.length];
+            for (int i = 0; i < builders.length; i++)
+            {
+                columns[i] = builders[i].build(rowCount);
+                nulls[i] = builders[i].nulls;
+            }
+
+            return new ColumnarResult(columnIndex, columns, nulls, rowCount);
+        }
+        finally
+        {
+            resultSet.close();
+        }
+    }
+
+    @Override
+    public boolean requiresMultipleOpenedResults()
+    {
+        return false;
+    }
+
+    private ColumnBuilder createColumnBuilder(int columnType)
+    {
+        switch (columnType)
+        {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return new IntColumnBuilder();
+            case Types.BIGINT:
+                return new LongColumnBuilder();
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return new DoubleColumnBuilder();
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return new BooleanColumnBuilder();
+            default:
+                return new ObjectColumnBuilder();
+        }
+    }
+
+    private static abstract class ColumnBuilder
+    {
+
+        protected final BitSet nulls = new BitSet();
+        protected int capacity = INITIAL_CAPACITY;
+
+        void read(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            if (row == capacity)
+            {
+                capacity = capacity * 2;
+                grow(capacity);
+            }
+
+            readValue(resultSet, column, row);
+
+            if (resultSet.wasNull())
+            {
+                nulls.set(row);
+            }
+        }
+
+        protected abstract void readValue(ResultSet resultSet, int column, int row) throws SQLException;
+
+        protected abstract void grow(int newCapacity);
+
+        protected abstract Object build(int rowCount);
+    }
+
+    private static class IntColumnBuilder extends ColumnBuilder
+    {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        @Override
+        protected void readValue(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            values[row] = resultSet.getInt(column);
+        }
+
+        @Override
+        protected void grow(int newCapacity)
+        {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected Object build(int rowCount)
+        {
+            return Arrays.copyOf(values, rowCount);
+        }
+    }
+
+    private static class LongColumnBuilder extends ColumnBuilder
+    {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        @Override
+        protected void readValue(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            values[row] = resultSet.getLong(column);
+        }
+
+        @Override
+        protected void grow(int newCapacity)
+        {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected Object build(int rowCount)
+        {
+            return Arrays.copyOf(values, rowCount);
+        }
+    }
+
+    private static class DoubleColumnBuilder extends ColumnBuilder
+    {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        @Override
+        protected void readValue(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            values[row] = resultSet.getDouble(column);
+        }
+
+        @Override
+        protected void grow(int newCapacity)
+        {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected Object build(int rowCount)
+        {
+            return Arrays.copyOf(values, rowCount);
+        }
+    }
+
+    private static class BooleanColumnBuilder extends ColumnBuilder
+    {
+
+        private boolean[] values = new boolean[INITIAL_CAPACITY];
+
+        @Override
+        protected void readValue(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            values[row] = resultSet.getBoolean(column);
+        }
+
+        @Override
+        protected void grow(int newCapacity)
+        {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected Object build(int rowCount)
+        {
+            return Arrays.copyOf(values, rowCount);
+        }
+    }
+
+    private static class ObjectColumnBuilder extends ColumnBuilder
+    {
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        @Override
+        protected void readValue(ResultSet resultSet, int column, int row) throws SQLException
+        {
+            Object value = resultSet.getObject(column);
+
+            if (value instanceof SQLXML)
+            {
+                value = ((SQLXML) value).getString();
+            }
+            values[row] = value;
+        }
+
+        @Override
+        protected void grow(int newCapacity)
+        {
+            values = Arrays.copyOf(values, newCapacity);
+        }
+
+        @Override
+        protected Object build(int rowCount)
+        {
+            return Arrays.copyOf(values, rowCount);
+        }
+    }
+}
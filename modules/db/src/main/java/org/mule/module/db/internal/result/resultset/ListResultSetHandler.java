@@ -8,11 +8,12 @@
 package org.mule.module.db.internal.result.resultset;
 
 import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.result.row.BindableRowHandler;
 import org.mule.module.db.internal.result.row.RowHandler;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -34,12 +35,14 @@ public class ListResultSetHandler implements ResultSetHandler
     @Override
     public List<Map<String, Object>> processResultSet(DbConnection connection, ResultSet resultSet) throws SQLException
     {
-        List<Map<String, Object>> results = new LinkedList<Map<String, Object>>();
+        List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
         try
         {
+            RowHandler resultSetRowHandler = rowHandler instanceof BindableRowHandler ? ((BindableRowHandler) rowHandler).bind(resultSet) : rowHandler;
+
             while (resultSet.next())
             {
-                results.add(rowHandler.process(resultSet));
+                results.add(resultSetRowHandler.process(resultSet));
             }
         }
         finally
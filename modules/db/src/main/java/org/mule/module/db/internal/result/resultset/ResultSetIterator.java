@@ -10,6 +10,7 @@ package org.mule.module.db.internal.result.resultset;
 import org.mule.api.Closeable;
 import org.mule.api.MuleException;
 import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.result.row.BindableRowHandler;
 import org.mule.module.db.internal.result.row.RowHandler;
 
 import java.sql.ResultSet;
@@ -31,6 +32,7 @@ public class ResultSetIterator implements Iterator<Map<String, Object>>, Closeab
 
     private final ResultSet resultSet;
     private final RowHandler rowHandler;
+    private RowHandler resultSetRowHandler;
     private final StreamingResultSetCloser streamingResultSetCloser;
     private DbConnection connection;
     private Boolean cachedNext = null;
@@ -104,7 +106,7 @@ public class ResultSetIterator implements Iterator<Map<String, Object>>, Closeab
                 cachedNext = null;
             }
 
-            return rowHandler.process(resultSet);
+            return getResultSetRowHandler().process(resultSet);
         }
         catch (SQLException e)
         {
@@ -114,6 +116,16 @@ public class ResultSetIterator implements Iterator<Map<String, Object>>, Closeab
         }
     }
 
+    private RowHandler getResultSetRowHandler() throws SQLException
+    {
+        if (resultSetRowHandler == null)
+        {
+            resultSetRowHandler = rowHandler instanceof BindableRowHandler ? ((BindableRowHandler) rowHandler).bind(resultSet) : rowHandler;
+        }
+
+        return resultSetRowHandler;
+    }
+
     @Override
     public void remove()
     {
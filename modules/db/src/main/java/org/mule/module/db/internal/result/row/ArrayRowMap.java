@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.row;
+
+import org.mule.util.CaseInsensitiveHashMap;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Case insensitive map view of a row, backed by an array of column values and a {@link ColumnIndex} shared
+ * with the other rows of the same result set.
+ * <p/>
+ * Values of existing columns can be replaced in place. Adding or removing entries copies the row to a
+ * {@link CaseInsensitiveHashMap}, so the map keeps behaving as the one created by {@link InsensitiveMapRowHandler}.
+ */
+public class ArrayRowMap extends AbstractMap<String, Object> implements Serializable
+{
+
+    private static final long serialVersionUID = -2871329093425520139L;
+
+    private final ColumnIndex columnIndex;
+    private final Object[] values;
+    private Map<String, Object> detachedRow;
+
+    public ArrayRowMap(ColumnIndex columnIndex, Object[] values)
+    {
+        if (columnIndex.size() != values.length)
+        {
+            throw new IllegalArgumentException(String.format("Expected %d column values but got %d", columnIndex.size(), values.length));
+        }
+        this.columnIndex = columnIndex;
+        this.values = values;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (detachedRow != null)
+        {
+            return detachedRow.get(key);
+        }
+
+        int index = columnIndex.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        if (detachedRow != null)
+        {
+            return detachedRow.containsKey(key);
+        }
+
+        return columnIndex.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object put(String key, Object value)
+    {
+        if (detachedRow == null)
+        {
+            int index = columnIndex.indexOf(key);
+            if (index >= 0)
+            {
+                Object previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            detach();
+        }
+
+        return detachedRow.put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key)
+    {
+        if (detachedRow == null)
+        {
+            if (columnIndex.indexOf(key) < 0)
+            {
+                return null;
+            }
+            detach();
+        }
+
+        return detachedRow.remove(key);
+    }
+
+    @Override
+    public void clear()
+    {
+        detachedRow = new CaseInsensitiveHashMap();
+    }
+
+    @Override
+    public int size()
+    {
+        return detachedRow == null ? values.length : detachedRow.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        if (detachedRow != null)
+        {
+            return detachedRow.entrySet();
+        }
+
+        return new AbstractSet<Entry<String, Object>>()
+        {
+            @Override
+            public Iterator<Entry<String, Object>> iterator()
+            {
+                return new ColumnIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return values.length;
+            }
+        };
+    }
+
+    ColumnIndex getColumnIndex()
+    {
+        return columnIndex;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void detach()
+    {
+        Map<String, Object> row = new CaseInsensitiveHashMap(values.length * 2);
+        for (int i = 0; i < values.length; i++)
+        {
+            row.put(columnIndex.getLabel(i), values[i]);
+        }
+        detachedRow = row;
+    }
+
+    private class ColumnIterator implements Iterator<Entry<String, Object>>
+    {
+
+        private int next;
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < values.length;
+        }
+
+        @Override
+        public Entry<String, Object> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            return new ColumnEntry(next++);
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class ColumnEntry implements Entry<String, Object>
+    {
+
+        private final int index;
+
+        private ColumnEntry(int index)
+        {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return columnIndex.getLabel(index);
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return values[index];
+        }
+
+        @Override
+        public Object setValue(Object value)
+        {
+            Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+
+            return getKey().equals(entry.getKey()) && (getValue() == null ? entry.getValue() == null : getValue().equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.row;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link RowHandler} that can be bound to a given resultSet, so the work that is common to all the rows,
+ * like reading the resultSet metadata, is done only once.
+ */
+public interface BindableRowHandler extends RowHandler
+{
+
+    /**
+     * Creates a row handler for the rows of a given resultSet
+     *
+     * @param resultSet resultSet that will be processed. Non null
+     * @return a row handler that can only be used to process the rows of the given resultSet. Non null.
+     * @throws SQLException if a database access error occurs
+     */
+    RowHandler bind(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.row;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable dictionary of the column labels of a result set. It is resolved once per result set and shared
+ * by all the rows read from it, so column lookups are case insensitive without allocating a map per row.
+ */
+public final class ColumnIndex implements Serializable
+{
+
+    private static final long serialVersionUID = 4170932262425437166L;
+
+    private final String[] labels;
+    private final Map<String, Integer> indexByLabel;
+    private final Map<String, Integer> indexByLowerCaseLabel;
+
+    public ColumnIndex(String... labels)
+    {
+        this.labels = labels.clone();
+        this.indexByLabel = new HashMap<String, Integer>(labels.length * 2);
+        this.indexByLowerCaseLabel = new HashMap<String, Integer>(labels.length * 2);
+
+        for (int i = 0; i < labels.length; i++)
+        {
+            if (indexByLowerCaseLabel.put(labels[i].toLowerCase(), i) != null)
+            {
+                throw new IllegalArgumentException("Record cannot be mapped as it contains multiple columns with the same label. Define column aliases to solve this problem");
+            }
+            indexByLabel.put(labels[i], i);
+        }
+    }
+
+    /**
+     * Creates the index for the columns described by a result set metadata
+     *
+     * @param metaData metadata of the result set
+     * @return a non null index
+     * @throws SQLException if the metadata cannot be read
+     */
+    public static ColumnIndex create(ResultSetMetaData metaData) throws SQLException
+    {
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++)
+        {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+
+        return new ColumnIndex(labels);
+    }
+
+    /**
+     * @param label column label to look for. Comparison is case insensitive.
+     * @return the zero based position of the column or -1 if there is no column with the given label
+     */
+    public int indexOf(Object label)
+    {
+        if (!(label instanceof String))
+        {
+            return -1;
+        }
+
+        Integer index = indexByLabel.get(label);
+        if (index == null)
+        {
+            index = indexByLowerCaseLabel.get(((String) label).toLowerCase());
+        }
+
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index zero based position of the column
+     * @return the label of the column
+     */
+    public String getLabel(int index)
+    {
+        return labels[index];
+    }
+
+    public List<String> getLabels()
+    {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    public int size()
+    {
+        return labels.length;
+    }
+}
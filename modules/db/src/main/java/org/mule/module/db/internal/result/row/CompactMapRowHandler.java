@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.row;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.util.Map;
+
+/**
+ * Maps rows to {@link ArrayRowMap} instances. When bound to a resultSet the column labels are resolved
+ * once and shared by all the returned rows.
+ */
+public class CompactMapRowHandler implements BindableRowHandler
+{
+
+    @Override
+    public Map<String, Object> process(ResultSet resultSet) throws SQLException
+    {
+        return bind(resultSet).process(resultSet);
+    }
+
+    @Override
+    public RowHandler bind(ResultSet resultSet) throws SQLException
+    {
+        return new BoundRowHandler(ColumnIndex.create(resultSet.getMetaData()));
+    }
+
+    private static class BoundRowHandler implements RowHandler
+    {
+
+        private final ColumnIndex columnIndex;
+
+        private BoundRowHandler(ColumnIndex columnIndex)
+        {
+            this.columnIndex = columnIndex;
+        }
+
+        @Override
+        public Map<String, Object> process(ResultSet resultSet) throws SQLException
+        {
+            Object[] values = new Object[columnIndex.size()];
+
+            for (int i = 0; i < values.length; i++)
+            {
+                Object value = resultSet.getObject(i + 1);
+
+                if (value instanceof SQLXML)
+                {
+                    value = ((SQLXML) value).getString();
+                }
+                values[i] = value;
+            }
+
+            return new ArrayRowMap(columnIndex, values);
+        }
+    }
+}
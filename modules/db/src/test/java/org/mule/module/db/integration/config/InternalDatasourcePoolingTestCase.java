@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.integration.config;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import org.mule.api.MuleMessage;
+import org.mule.api.client.LocalMuleClient;
+import org.mule.module.db.integration.model.AbstractTestDatabase;
+import org.mule.module.db.internal.domain.connection.pool.ConnectionPoolStatistics;
+import org.mule.module.db.internal.domain.connection.pool.PoolingDataSource;
+import org.mule.module.db.internal.resolver.database.DbConfigResolver;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class InternalDatasourcePoolingTestCase extends AbstractDatasourcePoolingTestCase
+{
+
+    public InternalDatasourcePoolingTestCase(String dataSourceConfigResource, AbstractTestDatabase testDatabase)
+    {
+        super(dataSourceConfigResource, testDatabase);
+    }
+
+    @Override
+    protected String[] getFlowConfigurationResources()
+    {
+        return new String[] {"integration/config/derby-internal-pooling-db-config.xml", "integration/config/connection-pooling-config.xml"};
+    }
+
+    @Test
+    public void providesMultipleConnections() throws Exception
+    {
+        LocalMuleClient client = muleContext.getClient();
+
+        client.dispatch("vm://testIn", TEST_MESSAGE, null);
+        client.dispatch("vm://testIn", TEST_MESSAGE, null);
+
+        MuleMessage response = client.request("vm://testOut", RECEIVE_TIMEOUT);
+        assertThat(response.getExceptionPayload(), is(nullValue()));
+
+        response = client.request("vm://testOut", RECEIVE_TIMEOUT);
+        assertThat(response.getExceptionPayload(), is(nullValue()));
+
+        DbConfigResolver dbConfigResolver = muleContext.getRegistry().lookupObject("pooledJdbcConfig");
+        DataSource dataSource = dbConfigResolver.resolve(null).getDataSource();
+        assertThat(dataSource, instanceOf(PoolingDataSource.class));
+
+        ConnectionPoolStatistics statistics = ((PoolingDataSource) dataSource).getStatistics();
+        assertThat(statistics.getTotalConnections(), equalTo(2));
+        assertThat(statistics.getAcquisitionTimeouts(), equalTo(0L));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.connection.pool;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.connection.DbPoolType;
+import org.mule.module.db.internal.domain.connection.DbPoolingProfile;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.probe.JUnitProbe;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.concurrent.NamedThreadFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class PoolingDataSourceTestCase extends AbstractMuleTestCase
+{
+
+    private static final long PROBE_TIMEOUT = 5000;
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection1 = mock(Connection.class);
+    private final Connection connection2 = mock(Connection.class);
+    private final DbPoolingProfile poolingProfile = new DbPoolingProfile();
+    private PoolingDataSource poolingDataSource;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(dataSource.getConnection()).thenReturn(connection1, connection2);
+        when(connection1.getAutoCommit()).thenReturn(true);
+        when(connection2.getAutoCommit()).thenReturn(true);
+
+        poolingProfile.setPoolType(DbPoolType.INTERNAL);
+        poolingProfile.setMaxPoolSize(1);
+        poolingProfile.setMaxWaitMillis(100);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (poolingDataSource != null)
+        {
+            poolingDataSource.dispose();
+        }
+    }
+
+    @Test
+    public void reusesReturnedConnections() throws Exception
+    {
+        createPool();
+
+        Connection connection = poolingDataSource.getConnection();
+        connection.close();
+        poolingDataSource.getConnection().close();
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection1, never()).close();
+        assertThat(connection.isClosed(), equalTo(true));
+        assertThat(poolingDataSource.getStatistics().getAcquisitions(), equalTo(2L));
+        assertThat(poolingDataSource.getStatistics().getIdleConnections(), equalTo(1));
+    }
+
+    @Test
+    public void timesOutWhenPoolIsExhausted() throws Exception
+    {
+        createPool();
+        poolingDataSource.getConnection();
+
+        try
+        {
+            poolingDataSource.getConnection();
+            fail("Expected the pool to be exhausted");
+        }
+        catch (SQLTransientConnectionException e)
+        {
+            assertThat(poolingDataSource.getStatistics().getAcquisitionTimeouts(), equalTo(1L));
+            assertThat(poolingDataSource.getStatistics().getActiveConnections(), equalTo(1));
+        }
+    }
+
+    @Test
+    public void discardsConnectionsWithConnectionErrors() throws Exception
+    {
+        when(connection1.createStatement()).thenThrow(new SQLException("Connection reset", "08006"));
+        createPool();
+
+        Connection connection = poolingDataSource.getConnection();
+        try
+        {
+            connection.createStatement();
+            fail("Expected a connection error");
+        }
+        catch (SQLException e)
+        {
+            connection.close();
+        }
+
+        poolingDataSource.getConnection();
+
+        verify(dataSource, times(2)).getConnection();
+        verify(connection1).close();
+        assertThat(poolingDataSource.getStatistics().getConnectionsDiscarded(), equalTo(1L));
+    }
+
+    @Test
+    public void rollsBackUncommittedWorkOnReturn() throws Exception
+    {
+        createPool();
+
+        Connection connection = poolingDataSource.getConnection();
+        connection.setAutoCommit(false);
+        when(connection1.getAutoCommit()).thenReturn(false);
+        connection.close();
+
+        verify(connection1).rollback();
+        verify(connection1).setAutoCommit(true);
+    }
+
+    @Test
+    public void reportsLeakedConnections() throws Exception
+    {
+        poolingProfile.setLeakDetectionThreshold(50);
+        createPool();
+
+        poolingDataSource.getConnection();
+
+        new PollingProber(PROBE_TIMEOUT, 50).check(new JUnitProbe()
+        {
+            @Override
+            protected boolean test() throws Exception
+            {
+                return poolingDataSource.getStatistics().getLeaksDetected() == 1;
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "Leaked connection was not detected";
+            }
+        });
+    }
+
+    @Test
+    public void closesConnectionsOnDispose() throws Exception
+    {
+        createPool();
+        Connection connection = poolingDataSource.getConnection();
+        connection.close();
+
+        poolingDataSource.dispose();
+
+        verify(connection1).close();
+        assertThat(poolingDataSource.getStatistics().getTotalConnections(), equalTo(0));
+    }
+
+    @Test
+    public void unwrapsPool() throws Exception
+    {
+        createPool();
+
+        assertThat(poolingDataSource.unwrap(PoolingDataSource.class), sameInstance(poolingDataSource));
+    }
+
+    @Test
+    public void unwrapsPooledConnection() throws Exception
+    {
+        createPool();
+        Connection connection = poolingDataSource.getConnection();
+
+        assertThat(connection.unwrap(Connection.class), sameInstance(connection));
+        assertThat(connection.isWrapperFor(PooledConnection.class), equalTo(true));
+    }
+
+    @Test
+    public void closesResourcesLeftOpenOnReturn() throws Exception
+    {
+        Statement openStatement = mock(Statement.class);
+        Statement closedStatement = mock(Statement.class);
+        when(closedStatement.isClosed()).thenReturn(true);
+        when(connection1.createStatement()).thenReturn(openStatement, closedStatement);
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        ResultSet tables = mock(ResultSet.class);
+        when(connection1.getMetaData()).thenReturn(metaData);
+        when(metaData.getTables(null, null, null, null)).thenReturn(tables);
+        createPool();
+
+        Connection connection = poolingDataSource.getConnection();
+        connection.createStatement();
+        connection.createStatement();
+        connection.getMetaData().getTables(null, null, null, null);
+        connection.close();
+
+        verify(openStatement).close();
+        verify(closedStatement, never()).close();
+        verify(tables).close();
+        verify(connection1, never()).close();
+    }
+
+    private void createPool()
+    {
+        poolingDataSource = new PoolingDataSource("test", dataSource, poolingProfile, new NamedThreadFactory("test.db.pool"));
+    }
+}
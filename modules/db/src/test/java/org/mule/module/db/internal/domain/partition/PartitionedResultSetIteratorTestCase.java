@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import org.mule.module.db.internal.result.resultset.ResultSetProcessingException;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SmallTest
+public class PartitionedResultSetIteratorTestCase extends AbstractMuleTestCase
+{
+
+    private static final String ID_COLUMN = "ID";
+
+    @Test
+    public void mergesPartitionsInOrder() throws Exception
+    {
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(2, ID_COLUMN, true, 10);
+        addRows(iterator, 0, 2, 4, 6);
+        addRows(iterator, 1, 1, 3, 5);
+
+        assertThat(readIds(iterator), equalTo(Arrays.asList(1, 2, 3, 4, 5, 6)));
+    }
+
+    @Test
+    public void returnsRowsOfAllPartitionsUnordered() throws Exception
+    {
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(3, ID_COLUMN, false, 10);
+        addRows(iterator, 0, 3, 6);
+        addRows(iterator, 1);
+        addRows(iterator, 2, 1, 2);
+
+        List<Integer> ids = readIds(iterator);
+        Collections.sort(ids);
+
+        assertThat(ids, equalTo(Arrays.asList(1, 2, 3, 6)));
+    }
+
+    @Test(expected = ResultSetProcessingException.class)
+    public void failsWhenPartitionFails() throws Exception
+    {
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(2, ID_COLUMN, false, 10);
+        addRows(iterator, 0, 1);
+        iterator.getBuffers().complete(1, new SQLException("Connection lost"));
+
+        readIds(iterator);
+    }
+
+    @Test
+    public void closingStopsPartitions() throws Exception
+    {
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(1, ID_COLUMN, true, 1);
+        iterator.getBuffers().offer(0, createRow(1));
+
+        iterator.close();
+
+        assertThat(iterator.getBuffers().offer(0, createRow(2)), equalTo(false));
+        assertThat(iterator.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void closingCancelsPartitionStatements() throws Exception
+    {
+        PartitionedResultSetIterator iterator = new PartitionedResultSetIterator(1, ID_COLUMN, true, 1);
+        Statement statement = mock(Statement.class);
+        assertThat(iterator.getBuffers().addStatement(statement), equalTo(true));
+
+        iterator.close();
+
+        verify(statement).cancel();
+        assertThat(iterator.getBuffers().addStatement(mock(Statement.class)), equalTo(false));
+    }
+
+    private void addRows(PartitionedResultSetIterator iterator, int partition, int... ids) throws InterruptedException
+    {
+        for (int id : ids)
+        {
+            iterator.getBuffers().offer(partition, createRow(id));
+        }
+        iterator.getBuffers().complete(partition, null);
+    }
+
+    private Map<String, Object> createRow(int id)
+    {
+        return Collections.<String, Object>singletonMap(ID_COLUMN, id);
+    }
+
+    private List<Integer> readIds(PartitionedResultSetIterator iterator)
+    {
+        List<Integer> ids = new ArrayList<>();
+        while (iterator.hasNext())
+        {
+            ids.add((Integer) iterator.next().get(ID_COLUMN));
+        }
+
+        return ids;
+    }
+}
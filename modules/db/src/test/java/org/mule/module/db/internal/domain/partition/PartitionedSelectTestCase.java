@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.partition;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.connection.DbConnectionFactory;
+import org.mule.module.db.internal.domain.param.QueryParam;
+import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+import org.mule.module.db.internal.result.resultset.ResultSetProcessingException;
+import org.mule.module.db.internal.result.row.RowHandler;
+import org.mule.module.db.internal.result.statement.StatementStreamingResultSetCloser;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class PartitionedSelectTestCase extends AbstractMuleTestCase
+{
+
+    private static final String ID_COLUMN = "ID";
+    private static final String SQL_TEXT = "SELECT * FROM PLANET";
+
+    private final DbConnectionFactory connectionFactory = mock(DbConnectionFactory.class);
+    private final DbConnection connection = mock(DbConnection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final RowHandler rowHandler = mock(RowHandler.class);
+    private final Query query = new Query(new QueryTemplate(SQL_TEXT, QueryType.SELECT, Collections.<QueryParam>emptyList()));
+
+    private final Executor synchronousExecutor = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(connectionFactory.createConnection(TransactionalAction.NOT_SUPPORTED)).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false, true, false);
+        when(rowHandler.process(resultSet)).thenReturn(createRow(2), createRow(1));
+    }
+
+    @Test
+    public void readsModuloPartitionsUsingOwnConnections() throws Exception
+    {
+        PartitionedSelect partitionedSelect = new PartitionedSelect(ID_COLUMN, 2, PartitionMode.MODULO, rowHandler);
+        partitionedSelect.setOrderedMerge(true);
+
+        PartitionedResultSetIterator iterator = partitionedSelect.execute(connectionFactory, connection, query, null, synchronousExecutor, new StatementStreamingResultSetCloser());
+
+        assertThat(iterator.next().get(ID_COLUMN), equalTo((Object) 1));
+        assertThat(iterator.next().get(ID_COLUMN), equalTo((Object) 2));
+        assertThat(iterator.hasNext(), equalTo(false));
+
+        verify(connection).prepareStatement("SELECT * FROM (" + SQL_TEXT + ") partitioned_query WHERE MOD(ID, 2) = 0 ORDER BY ID");
+        verify(connection).prepareStatement("SELECT * FROM (" + SQL_TEXT + ") partitioned_query WHERE MOD(ID, 2) = 1 ORDER BY ID");
+        verify(connection, times(2)).release();
+        verify(statement, times(2)).close();
+    }
+
+    @Test
+    public void closesStatementWhenPartitionFails() throws Exception
+    {
+        when(statement.executeQuery()).thenThrow(new SQLException("Query failed"));
+        PartitionedSelect partitionedSelect = new PartitionedSelect(ID_COLUMN, 1, PartitionMode.MODULO, rowHandler);
+
+        PartitionedResultSetIterator iterator = partitionedSelect.execute(connectionFactory, connection, query, null, synchronousExecutor, new StatementStreamingResultSetCloser());
+
+        try
+        {
+            iterator.hasNext();
+            fail("Expected the partition error to be reported");
+        }
+        catch (ResultSetProcessingException e)
+        {
+            // Expected
+        }
+        verify(statement).close();
+        verify(connectionFactory).releaseConnection(connection);
+    }
+
+    @Test
+    public void splitsRangeWiderThanLong() throws Exception
+    {
+        when(resultSet.getLong(1)).thenReturn(Long.MIN_VALUE);
+        when(resultSet.getLong(2)).thenReturn(Long.MAX_VALUE);
+        PartitionedSelect partitionedSelect = new PartitionedSelect(ID_COLUMN, 3, PartitionMode.RANGE, rowHandler);
+
+        partitionedSelect.execute(connectionFactory, connection, query, null, synchronousExecutor, new StatementStreamingResultSetCloser());
+
+        verify(statement, times(2)).setLong(1, -3074457345618258602L);
+        verify(statement).setLong(2, 3074457345618258604L);
+        verify(statement).setLong(1, 3074457345618258604L);
+    }
+
+    @Test
+    public void restartsAfterKey() throws Exception
+    {
+        PartitionedSelect partitionedSelect = new PartitionedSelect(ID_COLUMN, 1, PartitionMode.MODULO, rowHandler);
+
+        partitionedSelect.execute(connectionFactory, connection, query, 10, synchronousExecutor, new StatementStreamingResultSetCloser());
+
+        verify(connection).prepareStatement("SELECT * FROM (" + SQL_TEXT + ") partitioned_query WHERE 1 = 1 AND ID > ?");
+        verify(statement).setObject(1, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonSelectQueries() throws Exception
+    {
+        Query updateQuery = new Query(new QueryTemplate("UPDATE PLANET SET NAME = 'Mars'", QueryType.UPDATE, Collections.<QueryParam>emptyList()));
+
+        new PartitionedSelect(ID_COLUMN, 2, PartitionMode.MODULO, rowHandler).execute(connectionFactory, connection, updateQuery, null, synchronousExecutor, new StatementStreamingResultSetCloser());
+    }
+
+    private Map<String, Object> createRow(int id)
+    {
+        return Collections.<String, Object>singletonMap(ID_COLUMN, id);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.domain.statement;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.connection.DbPoolType;
+import org.mule.module.db.internal.domain.connection.DbPoolingProfile;
+import org.mule.module.db.internal.domain.connection.pool.PoolingDataSource;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.concurrent.NamedThreadFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class CachingConnectionInvocationHandlerTestCase extends AbstractMuleTestCase
+{
+
+    private static final String SQL_TEXT = "select * from PLANET where id = ?";
+    private static final String OTHER_SQL_TEXT = "select * from PLANET where name = ?";
+
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    private final StatementCacheStatistics statistics = new StatementCacheStatistics();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(connection.prepareStatement(SQL_TEXT)).thenReturn(preparedStatement);
+    }
+
+    @Test
+    public void reusesClosedStatement() throws Exception
+    {
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        PreparedStatement statement = cachingConnection.prepareStatement(SQL_TEXT);
+        statement.executeQuery();
+        statement.close();
+        assertThat(statement.isClosed(), is(true));
+
+        cachingConnection.prepareStatement(SQL_TEXT).executeQuery();
+
+        verify(connection, times(1)).prepareStatement(SQL_TEXT);
+        verify(preparedStatement, never()).close();
+        verify(preparedStatement).clearParameters();
+        assertThat(statistics.getHits(), is(1L));
+        assertThat(statistics.getMisses(), is(1L));
+    }
+
+    @Test
+    public void doesNotShareStatementsPreparedWithDifferentKeyStrategies() throws Exception
+    {
+        when(connection.prepareStatement(SQL_TEXT, Statement.RETURN_GENERATED_KEYS)).thenReturn(mock(PreparedStatement.class));
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        cachingConnection.prepareStatement(SQL_TEXT).close();
+        cachingConnection.prepareStatement(SQL_TEXT, Statement.RETURN_GENERATED_KEYS).close();
+
+        verify(connection).prepareStatement(SQL_TEXT);
+        verify(connection).prepareStatement(SQL_TEXT, Statement.RETURN_GENERATED_KEYS);
+        assertThat(statistics.getHits(), is(0L));
+    }
+
+    @Test
+    public void doesNotShareStatementsInUse() throws Exception
+    {
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        PreparedStatement first = cachingConnection.prepareStatement(SQL_TEXT);
+        PreparedStatement second = cachingConnection.prepareStatement(SQL_TEXT);
+
+        assertThat(first, not(sameInstance(second)));
+        verify(connection, times(2)).prepareStatement(SQL_TEXT);
+    }
+
+    @Test
+    public void doesNotReuseFailedStatement() throws Exception
+    {
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("Constraint violation", "23000"));
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        PreparedStatement statement = cachingConnection.prepareStatement(SQL_TEXT);
+        try
+        {
+            statement.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+        }
+
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    public void restoresStatementLimits() throws Exception
+    {
+        when(preparedStatement.getMaxRows()).thenReturn(0);
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        PreparedStatement statement = cachingConnection.prepareStatement(SQL_TEXT);
+        statement.setMaxRows(10);
+        statement.close();
+
+        verify(preparedStatement).setMaxRows(10);
+        verify(preparedStatement).setMaxRows(0);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedStatement() throws Exception
+    {
+        PreparedStatement otherStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(OTHER_SQL_TEXT)).thenReturn(otherStatement);
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 1, statistics);
+
+        cachingConnection.prepareStatement(SQL_TEXT).close();
+        cachingConnection.prepareStatement(OTHER_SQL_TEXT).close();
+
+        verify(preparedStatement).close();
+        verify(otherStatement, never()).close();
+        assertThat(statistics.getEvictions(), is(1L));
+    }
+
+    @Test
+    public void invalidatesCacheWhenConnectionCloseFails() throws Exception
+    {
+        doThrow(new SQLException("Connection is broken")).when(connection).close();
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+        cachingConnection.prepareStatement(SQL_TEXT).close();
+
+        try
+        {
+            cachingConnection.close();
+        }
+        catch (SQLException e)
+        {
+            // Expected
+        }
+
+        verify(preparedStatement).close();
+        assertThat(statistics.getInvalidations(), is(1L));
+    }
+
+    @Test
+    public void invalidatesCacheOnConnectionError() throws Exception
+    {
+        PreparedStatement otherStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(OTHER_SQL_TEXT)).thenReturn(otherStatement);
+        when(otherStatement.executeQuery()).thenThrow(new SQLException("Connection reset", "08006"));
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+        cachingConnection.prepareStatement(SQL_TEXT).close();
+
+        PreparedStatement statement = cachingConnection.prepareStatement(OTHER_SQL_TEXT);
+        try
+        {
+            statement.executeQuery();
+        }
+        catch (SQLException e)
+        {
+            statement.close();
+        }
+
+        verify(preparedStatement).close();
+        verify(otherStatement).close();
+    }
+
+    @Test
+    public void closesResultSetsBeforeReuse() throws Exception
+    {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(connection, 5, statistics);
+
+        PreparedStatement statement = cachingConnection.prepareStatement(SQL_TEXT);
+        statement.executeQuery();
+        statement.close();
+
+        verify(resultSet).close();
+        verify(preparedStatement, never()).close();
+    }
+
+    @Test
+    public void reusesStatementOfPooledConnection() throws Exception
+    {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        DbPoolingProfile poolingProfile = new DbPoolingProfile();
+        poolingProfile.setPoolType(DbPoolType.INTERNAL);
+        poolingProfile.setMaxPoolSize(1);
+        PoolingDataSource poolingDataSource = new PoolingDataSource("test", dataSource, poolingProfile, new NamedThreadFactory("test"));
+
+        try
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                Connection cachingConnection = CachingConnectionInvocationHandler.createProxy(poolingDataSource.getConnection(), 5, statistics);
+                cachingConnection.prepareStatement(SQL_TEXT).executeQuery();
+                // Statement is left open, closing the connection returns it to the cache
+                cachingConnection.close();
+            }
+
+            verify(connection, times(1)).prepareStatement(SQL_TEXT);
+            verify(preparedStatement, never()).close();
+            assertThat(statistics.getHits(), is(1L));
+        }
+        finally
+        {
+            poolingDataSource.dispose();
+        }
+
+        verify(preparedStatement).close();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.parser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public class CachedQueryTemplateParserTestCase extends AbstractMuleTestCase
+{
+
+    private static final String SQL_TEXT = "select * from PLANET";
+    private static final String OTHER_SQL_TEXT = "select * from ALIEN";
+
+    private final QueryTemplateParser delegate = mock(QueryTemplateParser.class);
+    private final QueryTemplate queryTemplate = mock(QueryTemplate.class);
+
+    @Test
+    public void parsesEachQueryOnce() throws Exception
+    {
+        when(delegate.parse(SQL_TEXT)).thenReturn(queryTemplate);
+        CachedQueryTemplateParser parser = new CachedQueryTemplateParser(delegate);
+
+        assertThat(parser.parse(SQL_TEXT), sameInstance(queryTemplate));
+        assertThat(parser.parse(SQL_TEXT), sameInstance(queryTemplate));
+
+        verify(delegate, times(1)).parse(SQL_TEXT);
+        assertThat(parser.getHits(), is(1L));
+        assertThat(parser.getMisses(), is(1L));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedQuery() throws Exception
+    {
+        when(delegate.parse(SQL_TEXT)).thenReturn(queryTemplate);
+        when(delegate.parse(OTHER_SQL_TEXT)).thenReturn(mock(QueryTemplate.class));
+        CachedQueryTemplateParser parser = new CachedQueryTemplateParser(delegate, 1);
+
+        parser.parse(SQL_TEXT);
+        parser.parse(OTHER_SQL_TEXT);
+        parser.parse(SQL_TEXT);
+
+        verify(delegate, times(2)).parse(SQL_TEXT);
+    }
+
+    @Test
+    public void parsesAgainAfterInvalidation() throws Exception
+    {
+        when(delegate.parse(SQL_TEXT)).thenReturn(queryTemplate);
+        CachedQueryTemplateParser parser = new CachedQueryTemplateParser(delegate);
+
+        parser.parse(SQL_TEXT);
+        parser.invalidate();
+        parser.parse(SQL_TEXT);
+
+        verify(delegate, times(2)).parse(SQL_TEXT);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.resolver.param;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.param.DefaultInputQueryParam;
+import org.mule.module.db.internal.domain.param.QueryParam;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.type.DbType;
+import org.mule.module.db.internal.domain.type.JdbcTypes;
+import org.mule.module.db.internal.domain.type.UnknownDbType;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SmallTest
+public class CachedParamTypeResolverTestCase extends AbstractMuleTestCase
+{
+
+    private static final String SQL_TEXT = "select * from test where id = ?";
+
+    private final DbConnection connection = mock(DbConnection.class);
+    private final ParamTypeResolver delegate = mock(ParamTypeResolver.class);
+    private final ParamTypeCache paramTypeCache = new ParamTypeCache();
+    private final QueryTemplate queryTemplate = new QueryTemplate(SQL_TEXT, QueryType.SELECT, Collections.<QueryParam>singletonList(new DefaultInputQueryParam(1, UnknownDbType.getInstance(), "7", "param1")));
+
+    @Test
+    public void resolvesTypesOnce() throws Exception
+    {
+        Map<Integer, DbType> paramTypes = Collections.<Integer, DbType>singletonMap(1, JdbcTypes.INTEGER_DB_TYPE);
+        when(delegate.getParameterTypes(connection, queryTemplate)).thenReturn(paramTypes);
+        CachedParamTypeResolver paramTypeResolver = new CachedParamTypeResolver(delegate, paramTypeCache);
+
+        assertThat(paramTypeResolver.getParameterTypes(connection, queryTemplate), equalTo(paramTypes));
+        assertThat(paramTypeResolver.getParameterTypes(connection, queryTemplate), equalTo(paramTypes));
+
+        verify(delegate, times(1)).getParameterTypes(connection, queryTemplate);
+        assertThat(paramTypeCache.getSize(), is(1));
+        assertThat(paramTypeCache.getHits(), is(1L));
+        assertThat(paramTypeCache.getMisses(), is(1L));
+    }
+
+    @Test
+    public void doesNotCacheFailedResolution() throws Exception
+    {
+        when(delegate.getParameterTypes(connection, queryTemplate)).thenThrow(new SQLException("Metadata not supported"));
+        CachedParamTypeResolver paramTypeResolver = new CachedParamTypeResolver(delegate, paramTypeCache);
+
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                paramTypeResolver.getParameterTypes(connection, queryTemplate);
+            }
+            catch (SQLException e)
+            {
+                // Expected
+            }
+        }
+
+        verify(delegate, times(2)).getParameterTypes(connection, queryTemplate);
+        assertThat(paramTypeCache.getSize(), is(0));
+    }
+
+    @Test
+    public void resolvesTypesAgainAfterInvalidation() throws Exception
+    {
+        when(delegate.getParameterTypes(connection, queryTemplate)).thenReturn(Collections.<Integer, DbType>singletonMap(1, JdbcTypes.INTEGER_DB_TYPE));
+        CachedParamTypeResolver paramTypeResolver = new CachedParamTypeResolver(delegate, paramTypeCache);
+
+        paramTypeResolver.getParameterTypes(connection, queryTemplate);
+        paramTypeCache.invalidate();
+        paramTypeResolver.getParameterTypes(connection, queryTemplate);
+
+        verify(delegate, times(2)).getParameterTypes(connection, queryTemplate);
+    }
+}
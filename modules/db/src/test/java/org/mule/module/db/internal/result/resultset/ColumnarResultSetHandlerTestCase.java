@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.resultset;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SmallTest
+public class ColumnarResultSetHandlerTestCase extends AbstractMuleTestCase
+{
+
+    private static final int ROW_COUNT = 100;
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    private final ColumnarResultSetHandler resultSetHandler = new ColumnarResultSetHandler();
+
+    @Test
+    public void readsColumnsIntoTypedArrays() throws Exception
+    {
+        mockColumns();
+        mockRows(ROW_COUNT);
+
+        ColumnarResult result = resultSetHandler.processResultSet(mock(DbConnection.class), resultSet);
+
+        assertThat(result.getRowCount(), equalTo(ROW_COUNT));
+        assertThat(result.getColumnLabels(), equalTo(Arrays.asList("ID", "NAME")));
+        assertThat(result.getColumn("id"), instanceOf(int[].class));
+        assertThat(result.getColumn("name"), instanceOf(Object[].class));
+
+        int[] ids = (int[]) result.getColumn("ID");
+        assertThat(ids.length, equalTo(ROW_COUNT));
+        assertThat(ids[ROW_COUNT - 1], equalTo(7));
+        assertThat(((Object[]) result.getColumn("NAME"))[0], equalTo((Object) "row"));
+        verify(resultSet).close();
+    }
+
+    @Test
+    public void tracksNullValues() throws Exception
+    {
+        mockColumns();
+        mockRows(1);
+        when(resultSet.wasNull()).thenReturn(true, false);
+
+        ColumnarResult result = resultSetHandler.processResultSet(mock(DbConnection.class), resultSet);
+
+        assertThat(result.isNull("ID", 0), equalTo(true));
+        assertThat(result.isNull("NAME", 0), equalTo(false));
+
+        Map<String, Object> row = result.getRow(0);
+        assertThat(row.get("ID"), nullValue());
+        assertThat(row.get("name"), equalTo((Object) "row"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failsOnMissingColumn() throws Exception
+    {
+        mockColumns();
+        mockRows(0);
+
+        resultSetHandler.processResultSet(mock(DbConnection.class), resultSet).getColumn("missing");
+    }
+
+    private void mockColumns() throws Exception
+    {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnLabel(2)).thenReturn("NAME");
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        when(resultSet.getInt(1)).thenReturn(7);
+        when(resultSet.getObject(2)).thenReturn("row");
+    }
+
+    private void mockRows(int rowCount) throws Exception
+    {
+        Boolean[] next = new Boolean[rowCount + 1];
+        Arrays.fill(next, true);
+        next[rowCount] = false;
+
+        when(resultSet.next()).thenReturn(next[0], Arrays.copyOfRange(next, 1, next.length));
+    }
+}
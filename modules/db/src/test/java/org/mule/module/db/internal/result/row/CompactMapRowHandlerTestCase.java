@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.internal.result.row;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import org.mule.module.db.internal.result.resultset.ListResultSetHandler;
+import org.mule.module.db.test.util.ColumnMetadata;
+import org.mule.module.db.test.util.ResultSetBuilder;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+@SmallTest
+public class CompactMapRowHandlerTestCase extends AbstractMuleTestCase
+{
+
+    private static final String ID_COLUMN = "ID";
+    private static final String NAME_COLUMN = "NAME";
+
+    @Test
+    public void sharesColumnIndexBetweenRows() throws Exception
+    {
+        List<Map<String, Object>> rows = new ListResultSetHandler(new CompactMapRowHandler()).processResultSet(null, createResultSet());
+
+        assertThat(rows.size(), equalTo(2));
+        assertThat(((ArrayRowMap) rows.get(0)).getColumnIndex(), sameInstance(((ArrayRowMap) rows.get(1)).getColumnIndex()));
+        assertThat(rows.get(0).get("name"), equalTo((Object) "Venus"));
+        assertThat(rows.get(1).get("Id"), equalTo((Object) 2));
+    }
+
+    @Test
+    public void equalsInsensitiveMapRow() throws Exception
+    {
+        ResultSet resultSet = createResultSet();
+        resultSet.next();
+        Map<String, Object> expected = new InsensitiveMapRowHandler().process(resultSet);
+
+        Map<String, Object> row = new CompactMapRowHandler().process(resultSet);
+
+        assertThat(row, equalTo(expected));
+        assertThat(row.hashCode(), equalTo(expected.hashCode()));
+    }
+
+    @Test
+    public void replacesColumnValue() throws Exception
+    {
+        Map<String, Object> row = createRow();
+
+        assertThat(row.put("id", 10), equalTo((Object) 1));
+
+        assertThat(row.get(ID_COLUMN), equalTo((Object) 10));
+        assertThat(((ArrayRowMap) row).getColumnIndex().size(), equalTo(2));
+    }
+
+    @Test
+    public void addsAndRemovesColumns() throws Exception
+    {
+        Map<String, Object> row = createRow();
+
+        row.put("extra", "value");
+        assertThat(row.remove("name"), equalTo((Object) "Venus"));
+
+        assertThat(row.size(), equalTo(2));
+        assertThat(row.get("EXTRA"), equalTo((Object) "value"));
+        assertThat(row.get(NAME_COLUMN), nullValue());
+        assertThat(row.get(ID_COLUMN), equalTo((Object) 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void detectColumnLabelDuplication() throws Exception
+    {
+        List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        columns.add(new ColumnMetadata(ID_COLUMN, ID_COLUMN, 1));
+        columns.add(new ColumnMetadata(NAME_COLUMN, ID_COLUMN.toLowerCase(), 2));
+
+        ResultSetBuilder resultSetBuilder = new ResultSetBuilder(columns);
+        resultSetBuilder.with(Collections.<String, Object>emptyMap());
+
+        new CompactMapRowHandler().bind(resultSetBuilder.build());
+    }
+
+    private Map<String, Object> createRow() throws Exception
+    {
+        ResultSet resultSet = createResultSet();
+        resultSet.next();
+
+        return new CompactMapRowHandler().process(resultSet);
+    }
+
+    private ResultSet createResultSet()
+    {
+        List<ColumnMetadata> columns = new ArrayList<ColumnMetadata>();
+        columns.add(new ColumnMetadata(ID_COLUMN, 1));
+        columns.add(new ColumnMetadata(NAME_COLUMN, 2));
+
+        ResultSetBuilder resultSetBuilder = new ResultSetBuilder(columns);
+        resultSetBuilder.with(createRecord(1, "Venus"));
+        resultSetBuilder.with(createRecord(2, "Mars"));
+
+        return resultSetBuilder.build();
+    }
+
+    private Map<String, Object> createRecord(int id, String name)
+    {
+        Map<String, Object> record = new HashMap<String, Object>();
+        record.put(ID_COLUMN, id);
+        record.put(NAME_COLUMN, name);
+
+        return record;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.sql.executor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.api.transaction.Transaction;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.executor.BulkUpdateExecutor;
+import org.mule.module.db.internal.domain.param.DefaultInputQueryParam;
+import org.mule.module.db.internal.domain.param.QueryParam;
+import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.domain.query.QueryParamValue;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.statement.StatementFactory;
+import org.mule.module.db.internal.domain.transaction.DbTransactionManager;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+import org.mule.module.db.internal.domain.type.JdbcTypes;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+@SmallTest
+public class BulkUpdateTestCase extends AbstractMuleTestCase
+{
+
+    private static final int PARAM_SETS = 5;
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final StatementFactory statementFactory = mock(StatementFactory.class);
+    private final DbConnection connection = mock(DbConnection.class);
+    private final DbTransactionManager dbTransactionManager = mock(DbTransactionManager.class);
+    private Query query;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        QueryTemplate queryTemplate = new QueryTemplate("INSERT INTO PLANET(ID) VALUES (?)", QueryType.INSERT,
+                                                        Collections.<QueryParam>singletonList(new DefaultInputQueryParam(1, JdbcTypes.INTEGER_DB_TYPE, null)));
+        query = new Query(queryTemplate);
+
+        when(statementFactory.create(connection, queryTemplate)).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1}, new int[] {1, 1}, new int[] {1});
+        when(connection.getTransactionalAction()).thenReturn(TransactionalAction.JOIN_IF_POSSIBLE);
+    }
+
+    @Test
+    public void executesAllParameterSetsInSingleBatchByDefault() throws Exception
+    {
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1, 1, 1, 1});
+        BulkUpdateExecutor executor = new BulkUpdateExecutor(statementFactory);
+
+        int[] result = (int[]) executor.execute(connection, query, createParamSets());
+
+        assertThat(result.length, equalTo(PARAM_SETS));
+        verify(statement, times(PARAM_SETS)).addBatch();
+        verify(statement).executeBatch();
+    }
+
+    @Test
+    public void splitsParameterSetsInBatches() throws Exception
+    {
+        BulkUpdateExecutor executor = new BulkUpdateExecutor(statementFactory, 2, false);
+
+        int[] result = (int[]) executor.execute(connection, query, createParamSets().iterator());
+
+        assertThat(result.length, equalTo(PARAM_SETS));
+        verify(statement, times(PARAM_SETS)).addBatch();
+        verify(statement, times(3)).executeBatch();
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    public void commitsEachBatchOutsideTransaction() throws Exception
+    {
+        BulkUpdateExecutor executor = createCommittingExecutor();
+
+        executor.execute(connection, query, createParamSets().iterator());
+
+        verify(connection, times(3)).commit();
+    }
+
+    @Test
+    public void commitsEachBatchOfAutoCommitConnection() throws Exception
+    {
+        when(connection.getAutoCommit()).thenReturn(true);
+        BulkUpdateExecutor executor = createCommittingExecutor();
+
+        executor.execute(connection, query, createParamSets().iterator());
+
+        InOrder inOrder = inOrder(connection, statement);
+        inOrder.verify(connection).setAutoCommit(false);
+        for (int i = 0; i < 3; i++)
+        {
+            inOrder.verify(statement).executeBatch();
+            inOrder.verify(connection).commit();
+        }
+        inOrder.verify(connection).setAutoCommit(true);
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    public void rollsBackFailedBatchOfAutoCommitConnection() throws Exception
+    {
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.executeBatch()).thenReturn(new int[] {1, 1}).thenThrow(new SQLException("Batch failed"));
+        BulkUpdateExecutor executor = createCommittingExecutor();
+
+        try
+        {
+            executor.execute(connection, query, createParamSets().iterator());
+            fail("Expected the second batch to fail");
+        }
+        catch (SQLException e)
+        {
+            // Expected
+        }
+
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+    }
+
+    @Test
+    public void doesNotCommitBatchesInsideTransaction() throws Exception
+    {
+        when(dbTransactionManager.getTransaction()).thenReturn(mock(Transaction.class));
+        BulkUpdateExecutor executor = createCommittingExecutor();
+
+        executor.execute(connection, query, createParamSets().iterator());
+
+        verify(statement, times(3)).executeBatch();
+        verify(connection, never()).commit();
+    }
+
+    private BulkUpdateExecutor createCommittingExecutor()
+    {
+        BulkUpdateExecutor executor = new BulkUpdateExecutor(statementFactory, 2, true);
+        executor.setDbTransactionManager(dbTransactionManager);
+
+        return executor;
+    }
+
+    private List<List<QueryParamValue>> createParamSets()
+    {
+        List<List<QueryParamValue>> paramSets = new ArrayList<List<QueryParamValue>>();
+        for (int i = 0; i < PARAM_SETS; i++)
+        {
+            paramSets.add(Collections.singletonList(new QueryParamValue(null, i)));
+        }
+
+        return paramSets;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.module.db.sql.executor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.module.db.internal.domain.autogeneratedkey.AutoGeneratedKeyStrategy;
+import org.mule.module.db.internal.domain.connection.DbConnection;
+import org.mule.module.db.internal.domain.connection.DbConnectionFactory;
+import org.mule.module.db.internal.domain.executor.BulkExecutor;
+import org.mule.module.db.internal.domain.executor.BulkQueryExecutorFactory;
+import org.mule.module.db.internal.domain.executor.QueryExecutor;
+import org.mule.module.db.internal.domain.executor.QueryExecutorFactory;
+import org.mule.module.db.internal.domain.executor.UpdateCoalescer;
+import org.mule.module.db.internal.domain.param.DefaultInputQueryParam;
+import org.mule.module.db.internal.domain.param.QueryParam;
+import org.mule.module.db.internal.domain.query.Query;
+import org.mule.module.db.internal.domain.query.QueryParamValue;
+import org.mule.module.db.internal.domain.query.QueryTemplate;
+import org.mule.module.db.internal.domain.query.QueryType;
+import org.mule.module.db.internal.domain.transaction.TransactionalAction;
+import org.mule.module.db.internal.domain.type.JdbcTypes;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SmallTest
+public class UpdateCoalescerTestCase extends AbstractMuleTestCase
+{
+
+    private static final long TIMEOUT = 5000;
+    private static final String SQL_TEXT = "INSERT INTO PLANET(ID) VALUES (?)";
+
+    private final DbConnectionFactory connectionFactory = mock(DbConnectionFactory.class);
+    private final DbConnection connection = mock(DbConnection.class);
+    private final BulkQueryExecutorFactory bulkQueryExecutorFactory = mock(BulkQueryExecutorFactory.class);
+    private final BulkExecutor bulkExecutor = mock(BulkExecutor.class);
+    private final QueryExecutorFactory queryExecutorFactory = mock(QueryExecutorFactory.class);
+    private final QueryExecutor queryExecutor = mock(QueryExecutor.class);
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final UpdateCoalescer updateCoalescer = new UpdateCoalescer(bulkQueryExecutorFactory, queryExecutorFactory);
+    private final QueryTemplate queryTemplate = new QueryTemplate(SQL_TEXT, QueryType.INSERT, Collections.<QueryParam>singletonList(new DefaultInputQueryParam(1, JdbcTypes.INTEGER_DB_TYPE, null)));
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(connectionFactory.createConnection(TransactionalAction.NOT_SUPPORTED)).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(bulkQueryExecutorFactory.create()).thenReturn(bulkExecutor);
+        when(queryExecutorFactory.create()).thenReturn(queryExecutor);
+
+        updateCoalescer.setMaxDelay(TIMEOUT);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void coalescesConcurrentUpdatesInSingleBatch() throws Exception
+    {
+        updateCoalescer.setMaxBatchSize(3);
+        when(bulkExecutor.execute(eq(connection), any(Query.class), anyList())).thenReturn(new int[] {1, 1, 1});
+
+        List<Future<Object>> results = executeConcurrently(createQuery(1), createQuery(2), createQuery(3));
+
+        for (Future<Object> result : results)
+        {
+            assertThat(result.get(TIMEOUT, TimeUnit.MILLISECONDS), equalTo((Object) 1));
+        }
+        verify(bulkExecutor, times(1)).execute(eq(connection), any(Query.class), anyList());
+        verify(connection).setAutoCommit(false);
+        verify(connection).commit();
+        verify(connectionFactory).releaseConnection(connection);
+    }
+
+    @Test
+    public void executesUpdatesOneByOneWhenBatchFails() throws Exception
+    {
+        updateCoalescer.setMaxBatchSize(2);
+        Query validQuery = createQuery(1);
+        Query invalidQuery = createQuery(2);
+        SQLException duplicateKey = new SQLException("Duplicate key", "23505");
+        when(bulkExecutor.execute(eq(connection), any(Query.class), anyList())).thenThrow(duplicateKey);
+        when(queryExecutor.execute(eq(connection), eq(validQuery), any(AutoGeneratedKeyStrategy.class))).thenReturn(1);
+        when(queryExecutor.execute(eq(connection), eq(invalidQuery), any(AutoGeneratedKeyStrategy.class))).thenThrow(duplicateKey);
+
+        List<Future<Object>> results = executeConcurrently(validQuery, invalidQuery);
+
+        assertThat(results.get(0).get(TIMEOUT, TimeUnit.MILLISECONDS), equalTo((Object) 1));
+        try
+        {
+            results.get(1).get(TIMEOUT, TimeUnit.MILLISECONDS);
+            fail("Expected the update to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertThat(e.getCause(), instanceOf(SQLException.class));
+        }
+        verify(connection, times(2)).rollback();
+        verify(connection).commit();
+    }
+
+    @Test
+    public void executesNotCoalescedQueryTypesImmediately() throws Exception
+    {
+        QueryTemplate storedProcedureTemplate = new QueryTemplate("{ call doSomething() }", QueryType.STORE_PROCEDURE_CALL, Collections.<QueryParam>emptyList());
+        Query query = new Query(storedProcedureTemplate, Collections.<QueryParamValue>emptyList());
+        when(queryExecutor.execute(eq(connection), eq(query), any(AutoGeneratedKeyStrategy.class))).thenReturn(0);
+
+        assertThat(updateCoalescer.execute(connectionFactory, query), equalTo((Object) 0));
+        verify(bulkExecutor, never()).execute(eq(connection), any(Query.class), anyList());
+    }
+
+    private Query createQuery(int id)
+    {
+        return new Query(queryTemplate, Collections.singletonList(new QueryParamValue(null, id)));
+    }
+
+    private List<Future<Object>> executeConcurrently(Query... queries)
+    {
+        List<Future<Object>> results = new ArrayList<>();
+        for (final Query query : queries)
+        {
+            results.add(executorService.submit(new Callable<Object>()
+            {
+                @Override
+                public Object call() throws Exception
+                {
+                    return updateCoalescer.execute(connectionFactory, query);
+                }
+            }));
+        }
+
+        return results;
+    }
+}
@@ -43,6 +43,7 @@ public class HttpParser
     private static final String PLUS_SIGN = "\\+";
     private static final String CONTENT_DISPOSITION_PART_HEADER = "Content-Disposition";
     private static final String NAME_ATTRIBUTE = "name";
+    private static final String MULTIPART_TYPE = "multipart";
 
     public static String extractPath(String uri)
     {
@@ -66,6 +67,20 @@ public class HttpParser
         return queryString;
     }
 
+    /**
+     * @param contentType the value of a Content-Type header, may be null
+     * @return true if the media type is multipart, compared ignoring case
+     */
+    public static boolean isMultipart(String contentType)
+    {
+        if (contentType == null)
+        {
+            return false;
+        }
+        int separatorIndex = contentType.indexOf('/');
+        return separatorIndex > 0 && contentType.substring(0, separatorIndex).trim().equalsIgnoreCase(MULTIPART_TYPE);
+    }
+
     public static Collection<HttpPart> parseMultipartContent(InputStream content, String contentType) throws IOException
     {
         MimeMultipart mimeMultipart = null;
@@ -29,13 +29,18 @@ import org.mule.module.http.api.listener.HttpListenerConfig;
 import org.mule.module.http.api.requester.HttpStreamingType;
 import org.mule.module.http.internal.HttpParser;
 import org.mule.module.http.internal.domain.ByteArrayHttpEntity;
+import org.mule.module.http.internal.domain.InputStreamHttpEntity;
 import org.mule.module.http.internal.domain.request.HttpRequestContext;
+import org.mule.module.http.internal.domain.response.HttpResponse;
 import org.mule.module.http.internal.listener.async.HttpResponseReadyCallback;
 import org.mule.module.http.internal.listener.async.RequestHandler;
 import org.mule.module.http.internal.listener.async.ResponseStatusCallback;
 import org.mule.module.http.internal.listener.matcher.AcceptsAllMethodsRequestMatcher;
 import org.mule.module.http.internal.listener.matcher.ListenerRequestMatcher;
 import org.mule.module.http.internal.listener.matcher.MethodRequestMatcher;
+import org.mule.module.http.internal.multipart.StreamingMultipartParser;
+import org.mule.module.http.internal.multipart.StreamingMultipartParserFactory;
+import org.mule.util.IOUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -49,6 +54,7 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
     private static final Logger logger = LoggerFactory.getLogger(DefaultHttpListener.class);
 
     public static final String SERVER_PROBLEM = "Server encountered a problem";
+    public static final int DEFAULT_MULTIPART_IN_MEMORY_THRESHOLD = 1024 * 1024;
 
     private String path;
     private String allowedMethods;
@@ -65,6 +71,10 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
     private MessageProcessingManager messageProcessingManager;
     private String[] parsedAllowedMethods;
     private ListenerPath listenerPath;
+    private boolean streamMultipart;
+    private long maxPartSize = StreamingMultipartParser.UNLIMITED_PART_SIZE;
+    private int multipartInMemoryThreshold = DEFAULT_MULTIPART_IN_MEMORY_THRESHOLD;
+    private StreamingMultipartParserFactory multipartParserFactory;
 
     @Override
     public void setListener(final MessageProcessor messageProcessor)
@@ -107,6 +117,21 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
         this.parseRequest = parseRequest;
     }
 
+    public void setStreamMultipart(boolean streamMultipart)
+    {
+        this.streamMultipart = streamMultipart;
+    }
+
+    public void setMaxPartSize(long maxPartSize)
+    {
+        this.maxPartSize = maxPartSize;
+    }
+
+    public void setMultipartInMemoryThreshold(int multipartInMemoryThreshold)
+    {
+        this.multipartInMemoryThreshold = multipartInMemoryThreshold;
+    }
+
     @Override
     public HttpListenerConfig getConfig()
     {
@@ -128,7 +153,8 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
             {
                 try
                 {
-                    final HttpMessageProcessorTemplate httpMessageProcessorTemplate = new HttpMessageProcessorTemplate(createEvent(requestContext), messageProcessor, responseCallback, responseBuilder, errorResponseBuilder);
+                    final MuleEvent muleEvent = createEvent(requestContext);
+                    final HttpMessageProcessorTemplate httpMessageProcessorTemplate = new HttpMessageProcessorTemplate(muleEvent, messageProcessor, closingMultipartParser(muleEvent, responseCallback), responseBuilder, errorResponseBuilder);
                     final HttpMessageProcessContext messageProcessContext = new HttpMessageProcessContext(DefaultHttpListener.this, flowConstruct, config.getWorkManager(), muleContext.getExecutionClassLoader());
                     messageProcessingManager.processMessage(httpMessageProcessorTemplate, messageProcessContext);
                 }
@@ -175,9 +201,54 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
         };
     }
 
+    /**
+     * Closes the streaming multipart parser of the request once the request completes, so the temporary files
+     * of its parts are removed even if the flow never closed it.
+     */
+    private HttpResponseReadyCallback closingMultipartParser(MuleEvent muleEvent, final HttpResponseReadyCallback responseCallback)
+    {
+        final Object payload = muleEvent.getMessage().getPayload();
+        if (!(payload instanceof StreamingMultipartParser))
+        {
+            return responseCallback;
+        }
+        final StreamingMultipartParser multipartParser = (StreamingMultipartParser) payload;
+        return new HttpResponseReadyCallback()
+        {
+            @Override
+            public void responseReady(HttpResponse response, final ResponseStatusCallback responseStatusCallback)
+            {
+                if (!(response.getEntity() instanceof InputStreamHttpEntity))
+                {
+                    // The response content was already built, so the parts are no longer needed
+                    IOUtils.closeQuietly(multipartParser);
+                    responseCallback.responseReady(response, responseStatusCallback);
+                    return;
+                }
+                // The response may be streaming the content of a part, so they are removed once it's sent
+                responseCallback.responseReady(response, new ResponseStatusCallback()
+                {
+                    @Override
+                    public void responseSendFailure(Throwable throwable)
+                    {
+                        IOUtils.closeQuietly(multipartParser);
+                        responseStatusCallback.responseSendFailure(throwable);
+                    }
+
+                    @Override
+                    public void responseSendSuccessfully()
+                    {
+                        IOUtils.closeQuietly(multipartParser);
+                        responseStatusCallback.responseSendSuccessfully();
+                    }
+                });
+            }
+        };
+    }
+
     private MuleEvent createEvent(HttpRequestContext requestContext) throws HttpRequestParsingException
     {
-        MuleEvent muleEvent = HttpRequestToMuleEvent.transform(requestContext, muleContext, flowConstruct, parseRequest, listenerPath);
+        MuleEvent muleEvent = HttpRequestToMuleEvent.transform(requestContext, muleContext, flowConstruct, parseRequest, listenerPath, multipartParserFactory);
         // Update RequestContext ThreadLocal for backwards compatibility
         OptimizedRequestContext.unsafeSetEvent(muleEvent);
         return muleEvent;
@@ -211,6 +282,10 @@ public class DefaultHttpListener implements HttpListener, Initialisable, MuleCon
         responseBuilder.setResponseStreaming(responseStreamingMode);
         validatePath();
         parseRequest = config.resolveParseRequest(parseRequest);
+        if (streamMultipart)
+        {
+            multipartParserFactory = new StreamingMultipartParserFactory(maxPartSize, multipartInMemoryThreshold);
+        }
         try
         {
             messageProcessingManager = DefaultHttpListener.this.muleContext.getRegistry().lookupObject(MessageProcessingManager.class);
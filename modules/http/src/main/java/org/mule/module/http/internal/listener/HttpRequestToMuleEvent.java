@@ -10,6 +10,7 @@ import static org.mule.MessageExchangePattern.REQUEST_RESPONSE;
 import static org.mule.api.config.MuleProperties.MULE_ENCODING_PROPERTY;
 import static org.mule.module.http.api.HttpConstants.ALL_INTERFACES_IP;
 import static org.mule.module.http.internal.HttpParser.decodeUrlEncodedBody;
+import static org.mule.module.http.internal.HttpParser.isMultipart;
 import static org.mule.module.http.internal.domain.HttpProtocol.HTTP_0_9;
 import static org.mule.module.http.internal.domain.HttpProtocol.HTTP_1_0;
 import static org.mule.module.http.internal.multipart.HttpPartDataSource.createDataHandlerFrom;
@@ -27,12 +28,14 @@ import org.mule.module.http.internal.domain.InputStreamHttpEntity;
 import org.mule.module.http.internal.domain.MultipartHttpEntity;
 import org.mule.module.http.internal.domain.request.HttpRequest;
 import org.mule.module.http.internal.domain.request.HttpRequestContext;
+import org.mule.module.http.internal.multipart.StreamingMultipartParserFactory;
 import org.mule.session.DefaultMuleSession;
 import org.mule.transport.NullPayload;
 import org.mule.util.IOUtils;
 
 import com.google.common.net.MediaType;
 
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.Collection;
@@ -45,6 +48,15 @@ public class HttpRequestToMuleEvent
 {
 
     public static MuleEvent transform(final HttpRequestContext requestContext, final MuleContext muleContext, final FlowConstruct flowConstruct, Boolean parseRequest, ListenerPath listenerPath) throws HttpRequestParsingException
+    {
+        return transform(requestContext, muleContext, flowConstruct, parseRequest, listenerPath, null);
+    }
+
+    /**
+     * @param multipartParserFactory if not null, multipart requests are not mapped to inbound attachments. Instead, the
+     *                               payload is an {@link java.util.Iterator} that parses each part as it's requested.
+     */
+    public static MuleEvent transform(final HttpRequestContext requestContext, final MuleContext muleContext, final FlowConstruct flowConstruct, Boolean parseRequest, ListenerPath listenerPath, StreamingMultipartParserFactory multipartParserFactory) throws HttpRequestParsingException
     {
         final HttpRequest request = requestContext.getRequest();
         final Collection<String> headerNames = request.getHeaderNames();
@@ -74,7 +86,23 @@ public class HttpRequestToMuleEvent
 
         final Map<String, DataHandler> inboundAttachments = new HashMap<>();
         Object payload = NullPayload.getInstance();
-        if (parseRequest)
+        final String requestContentType = request.getHeaderValue(HttpHeaders.Names.CONTENT_TYPE);
+        if (parseRequest && multipartParserFactory != null && isMultipart(requestContentType))
+        {
+            final InputStreamHttpEntity inputStreamEntity = request.getInputStreamEntity();
+            if (inputStreamEntity != null)
+            {
+                try
+                {
+                    payload = multipartParserFactory.create(inputStreamEntity.getInputStream(), requestContentType);
+                }
+                catch (IOException e)
+                {
+                    throw new HttpRequestParsingException("Cannot parse multipart payload", e);
+                }
+            }
+        }
+        else if (parseRequest)
         {
             final HttpEntity entity = request.getEntity();
             if (entity != null && !(entity instanceof EmptyHttpEntity))
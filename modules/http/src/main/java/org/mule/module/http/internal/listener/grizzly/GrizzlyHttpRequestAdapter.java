@@ -44,6 +44,17 @@ public class GrizzlyHttpRequestAdapter implements HttpRequest
     private ParameterMap headers;
 
     public GrizzlyHttpRequestAdapter(FilterChainContext filterChainContext, HttpContent httpContent)
+    {
+        this(filterChainContext, httpContent, null);
+    }
+
+    /**
+     * @param filterChainContext the context in which the request was received
+     * @param httpContent the last received content of the request
+     * @param receivedContent the full request body when it was already collected by a {@link RequestBodyBuffer},
+     *                        or null if it has to be read from {@code httpContent}
+     */
+    public GrizzlyHttpRequestAdapter(FilterChainContext filterChainContext, HttpContent httpContent, InputStream receivedContent)
     {
         this.filterChainContext = filterChainContext;
         this.requestPacket = (HttpRequestPacket) httpContent.getHttpHeader();
@@ -55,6 +66,11 @@ public class GrizzlyHttpRequestAdapter implements HttpRequest
             contentLengthAsInt = Integer.parseInt(contentLengthAsString);
         }
         this.contentLength = contentLengthAsInt;
+        if (receivedContent != null)
+        {
+            this.requestContent = receivedContent;
+            return;
+        }
         InputStream contentInputStream = new BufferInputStream(httpContent.getContent());
         boolean contentIsIncomplete = !httpContent.isLast();
         if (contentIsIncomplete)
@@ -147,7 +163,7 @@ public class GrizzlyHttpRequestAdapter implements HttpRequest
             if (this.body == null)
             {
                 final String contentTypeValue = getHeaderValue(HttpHeaders.Names.CONTENT_TYPE);
-                if (contentTypeValue != null && contentTypeValue.contains("multipart"))
+                if (HttpParser.isMultipart(contentTypeValue))
                 {
                     final Collection<HttpPart> parts = HttpParser.parseMultipartContent(requestContent, contentTypeValue);
                     this.body = new MultipartHttpEntity(parts);
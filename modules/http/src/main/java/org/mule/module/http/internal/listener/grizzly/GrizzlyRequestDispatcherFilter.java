@@ -8,9 +8,12 @@ package org.mule.module.http.internal.listener.grizzly;
 
 import static org.glassfish.grizzly.http.util.HttpStatus.CONINTUE_100;
 import static org.glassfish.grizzly.http.util.HttpStatus.EXPECTATION_FAILED_417;
+import static org.glassfish.grizzly.http.util.HttpStatus.REQUEST_ENTITY_TOO_LARGE_413;
 import static org.mule.module.http.api.HttpConstants.Protocols.HTTP;
 import static org.mule.module.http.api.HttpConstants.Protocols.HTTPS;
+import static org.mule.module.http.api.HttpHeaders.Names.CONNECTION;
 import static org.mule.module.http.api.HttpHeaders.Names.EXPECT;
+import static org.mule.module.http.api.HttpHeaders.Values.CLOSE;
 import static org.mule.module.http.api.HttpHeaders.Values.CONTINUE;
 import static org.mule.module.http.internal.listener.grizzly.MuleSslFilter.SSL_SESSION_ATTRIBUTE_KEY;
 
@@ -22,12 +25,17 @@ import org.mule.module.http.internal.listener.RequestHandlerProvider;
 import org.mule.module.http.internal.listener.async.HttpResponseReadyCallback;
 import org.mule.module.http.internal.listener.async.RequestHandler;
 import org.mule.module.http.internal.listener.async.ResponseStatusCallback;
+import org.mule.module.http.internal.listener.grizzly.RequestBodyBuffer.RequestBodyTooLargeException;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 
 import javax.net.ssl.SSLSession;
 
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.NextAction;
@@ -41,11 +49,35 @@ import org.glassfish.grizzly.http.HttpResponsePacket;
 public class GrizzlyRequestDispatcherFilter extends BaseFilter
 {
 
+    private static final Attribute<RequestBodyBuffer> REQUEST_BODY_BUFFER_ATTRIBUTE = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(GrizzlyRequestDispatcherFilter.class.getName() + ".requestBodyBuffer");
+    private static final Attribute<Boolean> REQUEST_BODY_REJECTED_ATTRIBUTE = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(GrizzlyRequestDispatcherFilter.class.getName() + ".requestBodyRejected");
+
     private final RequestHandlerProvider requestHandlerProvider;
+    private final boolean nonBlockingRequestBody;
+    private final int requestBodySpillThreshold;
+    private final long requestBodyMaxSize;
 
     GrizzlyRequestDispatcherFilter(final RequestHandlerProvider requestHandlerProvider)
+    {
+        this(requestHandlerProvider, false, -1, -1);
+    }
+
+    /**
+     * @param requestHandlerProvider provider of the handler for each request
+     * @param nonBlockingRequestBody if true, request bodies that are not fully available are collected as they arrive
+     *                               and the request is dispatched once its body is complete, instead of blocking
+     *                               the worker thread reading the remaining content
+     * @param requestBodySpillThreshold amount of bytes of a collected body kept in memory before moving it to a
+     *                                  temporary file. A negative value keeps the whole body in memory.
+     * @param requestBodyMaxSize maximum amount of bytes of a collected body. Requests with larger bodies are rejected
+     *                           with a 413 status code and their connection is closed. A negative value means no limit.
+     */
+    GrizzlyRequestDispatcherFilter(final RequestHandlerProvider requestHandlerProvider, boolean nonBlockingRequestBody, int requestBodySpillThreshold, long requestBodyMaxSize)
     {
         this.requestHandlerProvider = requestHandlerProvider;
+        this.nonBlockingRequestBody = nonBlockingRequestBody;
+        this.requestBodySpillThreshold = requestBodySpillThreshold;
+        this.requestBodyMaxSize = requestBodyMaxSize;
     }
 
     @Override
@@ -57,17 +89,46 @@ public class GrizzlyRequestDispatcherFilter extends BaseFilter
         final HttpContent httpContent = ctx.getMessage();
         final HttpRequestPacket request = (HttpRequestPacket) httpContent.getHttpHeader();
 
+        if (REQUEST_BODY_REJECTED_ATTRIBUTE.isSet(ctx.getConnection()))
+        {
+            // The rest of the body of a rejected request is dropped until the connection is closed
+            return ctx.getStopAction();
+        }
+
+        RequestBodyBuffer requestBodyBuffer = REQUEST_BODY_BUFFER_ATTRIBUTE.get(ctx.getConnection());
+        if (requestBodyBuffer != null)
+        {
+            if (!collectRequestBody(ctx, requestBodyBuffer, httpContent))
+            {
+                // Release the worker thread until more content is read from the connection
+                return ctx.getStopAction();
+            }
+        }
         // Handle Expect Continue
-        if (request.requiresAcknowledgement())
+        else if (request.requiresAcknowledgement())
         {
             final HttpResponsePacket.Builder responsePacketBuilder = HttpResponsePacket.builder(request);
             if (CONTINUE.equalsIgnoreCase(request.getHeader(EXPECT)))
             {
+                if (nonBlockingRequestBody && exceedsRequestBodyMaxSize(request.getContentLength()))
+                {
+                    return rejectRequestBody(ctx, request);
+                }
                 responsePacketBuilder.status(CONINTUE_100.getStatusCode());
                 HttpResponsePacket packet = responsePacketBuilder.build();
                 packet.setAcknowledgement(true);
                 ctx.write(packet);
-                return ctx.getStopAction();
+                if (!nonBlockingRequestBody)
+                {
+                    return ctx.getStopAction();
+                }
+                // The body is sent once the client receives the acknowledgement, so it's collected as
+                // any other incomplete body
+                requestBodyBuffer = new RequestBodyBuffer(requestBodySpillThreshold, requestBodyMaxSize);
+                if (!collectRequestBody(ctx, requestBodyBuffer, httpContent))
+                {
+                    return ctx.getStopAction();
+                }
             }
             else
             {
@@ -76,8 +137,21 @@ public class GrizzlyRequestDispatcherFilter extends BaseFilter
                 return ctx.getStopAction();
             }
         }
+        else if (nonBlockingRequestBody && !httpContent.isLast())
+        {
+            if (exceedsRequestBodyMaxSize(request.getContentLength()))
+            {
+                return rejectRequestBody(ctx, request);
+            }
+            requestBodyBuffer = new RequestBodyBuffer(requestBodySpillThreshold, requestBodyMaxSize);
+            if (!collectRequestBody(ctx, requestBodyBuffer, httpContent))
+            {
+                return ctx.getStopAction();
+            }
+        }
 
-        final GrizzlyHttpRequestAdapter httpRequest = new GrizzlyHttpRequestAdapter(ctx, httpContent);
+        final RequestBodyBuffer collectedRequestBody = requestBodyBuffer;
+        final GrizzlyHttpRequestAdapter httpRequest = new GrizzlyHttpRequestAdapter(ctx, httpContent, collectedRequestBody != null ? collectedRequestBody.getInputStream() : null);
         HttpRequestContext requestContext = createRequestContext(ctx, scheme, httpRequest);
         final RequestHandler requestHandler = requestHandlerProvider.getRequestHandler(ip, port, httpRequest);
         requestHandler.handleRequest(requestContext, new HttpResponseReadyCallback()
@@ -89,15 +163,18 @@ public class GrizzlyRequestDispatcherFilter extends BaseFilter
                 {
                     if (httpResponse.getEntity() instanceof InputStreamHttpEntity)
                     {
-                        new ResponseStreamingCompletionHandler(ctx, request, httpResponse, responseStatusCallback).start();
+                        // The response may be streaming the request body, so it's only released once sent
+                        new ResponseStreamingCompletionHandler(ctx, request, httpResponse, releasingRequestBody(collectedRequestBody, responseStatusCallback)).start();
                     }
                     else
                     {
+                        discardRequestBody(collectedRequestBody);
                         new ResponseCompletionHandler(ctx, request, httpResponse, responseStatusCallback).start();
                     }
                 }
                 catch (Exception e)
                 {
+                    discardRequestBody(collectedRequestBody);
                     responseStatusCallback.responseSendFailure(e);
                 }
             }
@@ -105,6 +182,124 @@ public class GrizzlyRequestDispatcherFilter extends BaseFilter
         return ctx.getSuspendAction();
     }
 
+    @Override
+    public NextAction handleClose(FilterChainContext ctx) throws IOException
+    {
+        REQUEST_BODY_REJECTED_ATTRIBUTE.remove(ctx.getConnection());
+        final RequestBodyBuffer requestBodyBuffer = REQUEST_BODY_BUFFER_ATTRIBUTE.remove(ctx.getConnection());
+        if (requestBodyBuffer != null)
+        {
+            requestBodyBuffer.discard();
+        }
+        return ctx.getInvokeAction();
+    }
+
+    /**
+     * Appends the content to the request body being collected for the connection.
+     *
+     * @return true if the body is complete and the request can be dispatched, false if more content is expected
+     *         or the request was rejected
+     */
+    private boolean collectRequestBody(FilterChainContext ctx, RequestBodyBuffer requestBodyBuffer, HttpContent httpContent) throws IOException
+    {
+        try
+        {
+            requestBodyBuffer.append(httpContent.getContent());
+        }
+        catch (RequestBodyTooLargeException e)
+        {
+            REQUEST_BODY_BUFFER_ATTRIBUTE.remove(ctx.getConnection());
+            requestBodyBuffer.discard();
+            rejectRequestBody(ctx, (HttpRequestPacket) httpContent.getHttpHeader());
+            return false;
+        }
+        catch (IOException e)
+        {
+            REQUEST_BODY_BUFFER_ATTRIBUTE.remove(ctx.getConnection());
+            requestBodyBuffer.discard();
+            throw e;
+        }
+
+        if (httpContent.isLast())
+        {
+            REQUEST_BODY_BUFFER_ATTRIBUTE.remove(ctx.getConnection());
+            return true;
+        }
+        REQUEST_BODY_BUFFER_ATTRIBUTE.set(ctx.getConnection(), requestBodyBuffer);
+        return false;
+    }
+
+    private boolean exceedsRequestBodyMaxSize(long contentLength)
+    {
+        return requestBodyMaxSize >= 0 && contentLength > requestBodyMaxSize;
+    }
+
+    /**
+     * Responds with a 413 status code and closes the connection, as the rest of the body is not going to be read.
+     * The connection is marked as rejected so the content read before it's closed is dropped instead of being
+     * handled as a new request.
+     */
+    private NextAction rejectRequestBody(final FilterChainContext ctx, HttpRequestPacket request)
+    {
+        REQUEST_BODY_REJECTED_ATTRIBUTE.set(ctx.getConnection(), Boolean.TRUE);
+        final HttpResponsePacket response = HttpResponsePacket.builder(request)
+                .status(REQUEST_ENTITY_TOO_LARGE_413.getStatusCode())
+                .reasonPhrase(REQUEST_ENTITY_TOO_LARGE_413.getReasonPhrase())
+                .header(CONNECTION, CLOSE)
+                .build();
+        response.getProcessingState().setKeepAlive(false);
+        ctx.write(HttpContent.builder(response).last(true).build(), new EmptyCompletionHandler<WriteResult>()
+        {
+            @Override
+            public void completed(WriteResult result)
+            {
+                ctx.getConnection().closeSilently();
+            }
+
+            @Override
+            public void failed(Throwable throwable)
+            {
+                ctx.getConnection().closeSilently();
+            }
+        });
+        return ctx.getStopAction();
+    }
+
+    private static void discardRequestBody(RequestBodyBuffer requestBodyBuffer)
+    {
+        if (requestBodyBuffer != null)
+        {
+            requestBodyBuffer.discard();
+        }
+    }
+
+    /**
+     * Wraps the callback so the collected request body is released once the response is sent, or failed to be sent.
+     */
+    private static ResponseStatusCallback releasingRequestBody(final RequestBodyBuffer requestBodyBuffer, final ResponseStatusCallback responseStatusCallback)
+    {
+        if (requestBodyBuffer == null)
+        {
+            return responseStatusCallback;
+        }
+        return new ResponseStatusCallback()
+        {
+            @Override
+            public void responseSendFailure(Throwable throwable)
+            {
+                requestBodyBuffer.discard();
+                responseStatusCallback.responseSendFailure(throwable);
+            }
+
+            @Override
+            public void responseSendSuccessfully()
+            {
+                requestBodyBuffer.discard();
+                responseStatusCallback.responseSendSuccessfully();
+            }
+        };
+    }
+
     private HttpRequestContext createRequestContext(FilterChainContext ctx, String scheme, GrizzlyHttpRequestAdapter httpRequest)
     {
         ClientConnection clientConnection;
@@ -48,6 +48,14 @@ public class GrizzlyServerManager implements HttpServerManager
 
     //Defines the maximum size in bytes accepted for the http request header section (request line + headers)
     public static final String MAXIMUM_HEADER_SECTION_SIZE_PROPERTY_KEY = SYSTEM_PROPERTY_PREFIX + "http.headerSectionSize";
+    //If true, request bodies not fully available when the headers arrive are collected without holding a worker thread
+    public static final String NON_BLOCKING_REQUEST_BODY_PROPERTY_KEY = SYSTEM_PROPERTY_PREFIX + "http.listener.nonBlockingRequestBody";
+    //Defines the maximum size in bytes of a collected request body kept in memory before moving it to a temporary file
+    public static final String REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY = SYSTEM_PROPERTY_PREFIX + "http.listener.requestBodySpillThreshold";
+    private static final int DEFAULT_REQUEST_BODY_SPILL_THRESHOLD = 1024 * 1024;
+    //Defines the maximum size in bytes of a collected request body, larger requests are rejected with a 413 status code
+    public static final String REQUEST_BODY_MAX_SIZE_PROPERTY_KEY = SYSTEM_PROPERTY_PREFIX + "http.listener.requestBodyMaxSize";
+    private static final long DEFAULT_REQUEST_BODY_MAX_SIZE = -1;
     private static final int MAX_KEEP_ALIVE_REQUESTS = -1;
     private static final String IDLE_TIMEOUT_THREADS_PREFIX_NAME = ".HttpIdleConnectionCloser";
     private static final String LISTENER_WORKER_THREAD_NAME_SUFFIX = ".worker";
@@ -66,7 +74,7 @@ public class GrizzlyServerManager implements HttpServerManager
     public GrizzlyServerManager(String threadNamePrefix, HttpListenerRegistry httpListenerRegistry, TcpServerSocketProperties serverSocketProperties) throws IOException
     {
         this.httpListenerRegistry = httpListenerRegistry;
-        requestHandlerFilter = new GrizzlyRequestDispatcherFilter(httpListenerRegistry);
+        requestHandlerFilter = new GrizzlyRequestDispatcherFilter(httpListenerRegistry, Boolean.getBoolean(NON_BLOCKING_REQUEST_BODY_PROPERTY_KEY), retrieveRequestBodySpillThreshold(), retrieveRequestBodyMaxSize());
         sslFilterDelegate = new GrizzlyAddressDelegateFilter<>();
         httpServerFilterDelegate = new GrizzlyAddressDelegateFilter<>();
 
@@ -278,6 +286,30 @@ public class GrizzlyServerManager implements HttpServerManager
         }
     }
 
+    private int retrieveRequestBodySpillThreshold()
+    {
+        try
+        {
+            return valueOf(getProperty(REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY, String.valueOf(DEFAULT_REQUEST_BODY_SPILL_THRESHOLD)));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new MuleRuntimeException(CoreMessages.createStaticMessage(String.format("Invalid value %s for %s configuration", getProperty(REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY), REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY)), e);
+        }
+    }
+
+    private long retrieveRequestBodyMaxSize()
+    {
+        try
+        {
+            return Long.parseLong(getProperty(REQUEST_BODY_MAX_SIZE_PROPERTY_KEY, String.valueOf(DEFAULT_REQUEST_BODY_MAX_SIZE)));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new MuleRuntimeException(CoreMessages.createStaticMessage(String.format("Invalid value %s for %s configuration", getProperty(REQUEST_BODY_MAX_SIZE_PROPERTY_KEY), REQUEST_BODY_MAX_SIZE_PROPERTY_KEY)), e);
+        }
+    }
+
     private int convertToSeconds(int milliseconds)
     {
         return (int) Math.ceil((double) milliseconds / 1000.0);
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.listener.grizzly;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.glassfish.grizzly.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the content of an HTTP request whose body was not fully available when the request
+ * headers arrived, without holding a worker thread while the remaining chunks are being received.
+ * <p/>
+ * Content is appended by {@link GrizzlyRequestDispatcherFilter} each time Grizzly notifies that new data
+ * was read from the connection. It's kept in memory until its size goes over the spill threshold, then
+ * it's moved to a temporary file. Once the last chunk is received, {@link #getInputStream()} provides
+ * the full body to the flow, which can then be consumed without waiting for the network.
+ * <p/>
+ * The temporary file is deleted by {@link #discard()} once the request completes, whether the flow
+ * read the body or not, or when the connection is closed before the body is completed.
+ */
+public class RequestBodyBuffer
+{
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestBodyBuffer.class);
+    private static final String SPILL_FILE_PREFIX = "mule-http-request-body";
+    private static final String SPILL_FILE_SUFFIX = ".tmp";
+
+    private final int spillThreshold;
+    private final long maxSize;
+    private ByteArrayOutputStream memoryContent = new ByteArrayOutputStream();
+    private File spillFile;
+    private OutputStream spillOutputStream;
+    private SpillFileInputStream spillInputStream;
+    private long size;
+    private boolean complete;
+
+    /**
+     * @param spillThreshold maximum amount of bytes to keep in memory before moving the content to a temporary
+     *                       file. A negative value means that the content is never moved to a file.
+     */
+    public RequestBodyBuffer(int spillThreshold)
+    {
+        this(spillThreshold, -1);
+    }
+
+    /**
+     * @param spillThreshold maximum amount of bytes to keep in memory before moving the content to a temporary
+     *                       file. A negative value means that the content is never moved to a file.
+     * @param maxSize maximum amount of bytes accepted for the whole body. A negative value means no limit.
+     */
+    public RequestBodyBuffer(int spillThreshold, long maxSize)
+    {
+        this.spillThreshold = spillThreshold;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Appends the readable content of the given buffer. The buffer content is copied, so Grizzly
+     * can reuse it as soon as this method returns.
+     *
+     * @param content a chunk of the request body
+     * @throws RequestBodyTooLargeException if the body goes over the maximum size
+     * @throws IOException if the content could not be written to the temporary file
+     */
+    public void append(Buffer content) throws IOException
+    {
+        if (complete)
+        {
+            throw new IllegalStateException("Request body was already completed");
+        }
+        if (content == null || !content.hasRemaining())
+        {
+            return;
+        }
+
+        if (maxSize >= 0 && size + content.remaining() > maxSize)
+        {
+            throw new RequestBodyTooLargeException(maxSize);
+        }
+
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        size += bytes.length;
+
+        if (spillOutputStream == null && spillThreshold >= 0 && size > spillThreshold)
+        {
+            spill();
+        }
+
+        if (spillOutputStream != null)
+        {
+            spillOutputStream.write(bytes);
+        }
+        else
+        {
+            memoryContent.write(bytes);
+        }
+    }
+
+    private void spill() throws IOException
+    {
+        spillFile = File.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Request body exceeded {} bytes, moving it to {}", spillThreshold, spillFile.getAbsolutePath());
+        }
+        spillOutputStream = new BufferedOutputStream(new FileOutputStream(spillFile));
+        memoryContent.writeTo(spillOutputStream);
+        memoryContent = null;
+    }
+
+    /**
+     * Marks the body as fully received and returns a stream over its content. If the content was
+     * moved to a temporary file, the file is deleted when the stream is closed.
+     *
+     * @return the request body
+     * @throws IOException if the temporary file could not be flushed or opened
+     */
+    public InputStream getInputStream() throws IOException
+    {
+        complete = true;
+        if (spillOutputStream == null)
+        {
+            return new ByteArrayInputStream(memoryContent.toByteArray());
+        }
+        spillOutputStream.close();
+        spillInputStream = new SpillFileInputStream(spillFile);
+        return spillInputStream;
+    }
+
+    /**
+     * @return the amount of bytes received so far
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return true if the received content was moved to a temporary file
+     */
+    public boolean isSpilled()
+    {
+        return spillFile != null;
+    }
+
+    // package scoped for testing
+    File getSpillFile()
+    {
+        return spillFile;
+    }
+
+    /**
+     * Releases the received content, closing the stream returned by {@link #getInputStream()} if the flow
+     * did not. Used when the request completes, or when the connection is closed before the body is completed.
+     */
+    public void discard()
+    {
+        complete = true;
+        memoryContent = null;
+        if (spillOutputStream == null)
+        {
+            return;
+        }
+        closeQuietly(spillOutputStream);
+        if (spillInputStream != null)
+        {
+            // Deletes the file the first time it's closed
+            closeQuietly(spillInputStream);
+        }
+        else if (spillFile.exists())
+        {
+            deleteSpillFile(spillFile);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("Error closing request body temporary file", e);
+        }
+    }
+
+    private static void deleteSpillFile(File file)
+    {
+        if (!file.delete() && logger.isWarnEnabled())
+        {
+            logger.warn("Could not delete request body temporary file {}", file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Thrown when a request body goes over the maximum size accepted by the listener.
+     */
+    public static class RequestBodyTooLargeException extends IOException
+    {
+
+        private static final long serialVersionUID = 4087215837125624721L;
+
+        public RequestBodyTooLargeException(long maxSize)
+        {
+            super(String.format("Request body exceeds the maximum size of %d bytes", maxSize));
+        }
+    }
+
+    private static class SpillFileInputStream extends FileInputStream
+    {
+
+        private final File file;
+        private boolean closed;
+
+        SpillFileInputStream(File file) throws IOException
+        {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                if (!closed)
+                {
+                    closed = true;
+                    deleteSpillFile(file);
+                }
+            }
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class HttpPart implements Part
     private final String contentType;
     private final String partName;
     private final String fileName;
-    private final int size;
+    private final long size;
     private Map<String, Object> headers = new HashMap<>();
 
     public HttpPart(String partName, byte[] content, String contentType, int size)
@@ -36,6 +36,11 @@ public class HttpPart implements Part
     }
 
     public HttpPart(String partName, String fileName, byte[] content, String contentType, int size)
+    {
+        this(partName, fileName, content, contentType, (long) size);
+    }
+
+    public HttpPart(String partName, String fileName, byte[] content, String contentType, long size)
     {
         this.partName = partName;
         this.fileName = fileName;
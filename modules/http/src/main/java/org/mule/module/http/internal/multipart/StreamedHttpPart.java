@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.multipart;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link HttpPart} created by {@link StreamingMultipartParser}. Its content is either kept in memory or,
+ * for big parts, in a temporary file that is removed when the part is deleted.
+ */
+public class StreamedHttpPart extends HttpPart
+{
+
+    private final File contentFile;
+
+    public StreamedHttpPart(String partName, String fileName, byte[] content, String contentType, long size)
+    {
+        super(partName, fileName, content, contentType, size);
+        this.contentFile = null;
+    }
+
+    public StreamedHttpPart(String partName, String fileName, File contentFile, String contentType, long size)
+    {
+        super(partName, fileName, null, contentType, size);
+        this.contentFile = contentFile;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        if (contentFile != null)
+        {
+            return new FileInputStream(contentFile);
+        }
+        return super.getInputStream();
+    }
+
+    /**
+     * Removes the temporary file holding the content of this part, if any.
+     */
+    @Override
+    public void delete() throws IOException
+    {
+        if (contentFile != null && contentFile.exists() && !contentFile.delete())
+        {
+            throw new IOException(String.format("Could not delete part content file %s", contentFile.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * @return true if the content of this part is stored in a temporary file
+     */
+    public boolean isStoredInFile()
+    {
+        return contentFile != null;
+    }
+}
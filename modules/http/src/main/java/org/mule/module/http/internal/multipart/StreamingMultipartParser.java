@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.multipart;
+
+import static java.lang.Math.max;
+import org.mule.api.MuleRuntimeException;
+
+import com.google.common.base.Charsets;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.mail.internet.ContentType;
+import javax.mail.internet.ParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Incremental parser for multipart content that exposes the parts as a lazy {@link Iterator}.
+ * <p/>
+ * Parts are only read from the underlying stream when requested, so the first part can be processed
+ * before the rest of the content has been received. Boundaries are located with a Boyer-Moore-Horspool
+ * scan over a fixed size buffer, which allows skipping most of the bytes of each part without comparing
+ * them. The content of a part is kept in memory until it goes over {@code inMemoryThreshold} bytes, in
+ * which case it is moved to a temporary file that is removed with {@link StreamedHttpPart#delete()} or
+ * when this parser is closed. The HTTP listener closes the parser of a request once it completes.
+ */
+public class StreamingMultipartParser implements Iterator<HttpPart>, Closeable
+{
+
+    public static final int UNLIMITED_PART_SIZE = -1;
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingMultipartParser.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEADERS_SIZE = 16 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+    private static final String CONTENT_DISPOSITION_PART_HEADER = "Content-Disposition";
+    private static final String CONTENT_TYPE_PART_HEADER = "Content-Type";
+    private static final String DEFAULT_PART_CONTENT_TYPE = "text/plain";
+    private static final String NAME_PARAMETER = "name";
+    private static final String FILENAME_PARAMETER = "filename";
+    private static final String BOUNDARY_PARAMETER = "boundary";
+    private static final String SPILL_FILE_PREFIX = "mule-http-part";
+    private static final String SPILL_FILE_SUFFIX = ".tmp";
+
+    private final InputStream content;
+    private final byte[] delimiter;
+    private final int[] delimiterShifts = new int[256];
+    private final long maxPartSize;
+    private final int inMemoryThreshold;
+    private final byte[] buffer;
+    private final List<StreamedHttpPart> filePartsCreated = new ArrayList<>();
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean finished;
+    private HttpPart nextPart;
+
+    /**
+     * @param content the multipart content
+     * @param contentType the content type of the multipart content, containing the boundary parameter
+     * @param maxPartSize maximum size in bytes allowed for each part, or {@link #UNLIMITED_PART_SIZE}
+     * @param inMemoryThreshold maximum size in bytes of a part kept in memory before moving it to a temporary file
+     * @throws IOException if the content type does not define a boundary
+     */
+    public StreamingMultipartParser(InputStream content, String contentType, long maxPartSize, int inMemoryThreshold) throws IOException
+    {
+        this.content = content;
+        this.maxPartSize = maxPartSize;
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.delimiter = ("\r\n--" + extractBoundary(contentType)).getBytes(Charsets.US_ASCII);
+        initDelimiterShifts();
+        this.buffer = new byte[max(DEFAULT_BUFFER_SIZE, delimiter.length * 2)];
+        // The first boundary is not preceded by a line break, so one is added to match it as any other delimiter
+        buffer[limit++] = CR;
+        buffer[limit++] = LF;
+    }
+
+    private static String extractBoundary(String contentType) throws IOException
+    {
+        try
+        {
+            String boundary = new ContentType(contentType).getParameter(BOUNDARY_PARAMETER);
+            if (boundary == null || boundary.isEmpty())
+            {
+                throw new IOException(String.format("No boundary found in multipart content type %s", contentType));
+            }
+            return boundary;
+        }
+        catch (ParseException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    private void initDelimiterShifts()
+    {
+        int last = delimiter.length - 1;
+        for (int i = 0; i < delimiterShifts.length; i++)
+        {
+            delimiterShifts[i] = delimiter.length;
+        }
+        for (int i = 0; i < last; i++)
+        {
+            delimiterShifts[delimiter[i] & 0xFF] = last - i;
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (nextPart == null && !finished)
+        {
+            try
+            {
+                nextPart = readNextPart();
+            }
+            catch (IOException e)
+            {
+                finished = true;
+                throw new MuleRuntimeException(e);
+            }
+        }
+        return nextPart != null;
+    }
+
+    @Override
+    public HttpPart next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        HttpPart part = nextPart;
+        nextPart = null;
+        return part;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Closes the underlying stream and removes the temporary files of the parts that were moved to disk.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        finished = true;
+        nextPart = null;
+        try
+        {
+            content.close();
+        }
+        finally
+        {
+            for (StreamedHttpPart part : filePartsCreated)
+            {
+                try
+                {
+                    part.delete();
+                }
+                catch (IOException e)
+                {
+                    logger.warn(e.getMessage());
+                }
+            }
+            filePartsCreated.clear();
+        }
+    }
+
+    private HttpPart readNextPart() throws IOException
+    {
+        if (!started)
+        {
+            started = true;
+            // Discard the preamble
+            copyUntilDelimiter(null);
+        }
+        if (isCloseDelimiter())
+        {
+            finished = true;
+            return null;
+        }
+
+        Map<String, List<String>> headers = readHeaders();
+        PartContentCollector collector = new PartContentCollector();
+        try
+        {
+            copyUntilDelimiter(collector);
+        }
+        catch (IOException e)
+        {
+            collector.discard();
+            throw e;
+        }
+        collector.close();
+
+        return createPart(headers, collector);
+    }
+
+    private HttpPart createPart(Map<String, List<String>> headers, PartContentCollector collector)
+    {
+        String contentDisposition = getFirstHeader(headers, CONTENT_DISPOSITION_PART_HEADER);
+        String fileName = getHeaderParameter(contentDisposition, FILENAME_PARAMETER);
+        String partName = getHeaderParameter(contentDisposition, NAME_PARAMETER);
+        if (partName == null)
+        {
+            partName = fileName;
+        }
+        String contentType = getFirstHeader(headers, CONTENT_TYPE_PART_HEADER);
+        if (contentType == null)
+        {
+            contentType = DEFAULT_PART_CONTENT_TYPE;
+        }
+
+        StreamedHttpPart part;
+        if (collector.getFile() != null)
+        {
+            part = new StreamedHttpPart(partName, fileName, collector.getFile(), contentType, collector.getSize());
+            filePartsCreated.add(part);
+        }
+        else
+        {
+            part = new StreamedHttpPart(partName, fileName, collector.getContent(), contentType, collector.getSize());
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet())
+        {
+            for (String value : header.getValue())
+            {
+                part.addHeader(header.getKey(), value);
+            }
+        }
+        return part;
+    }
+
+    /**
+     * Checks what follows a delimiter: either "--" for the closing delimiter, or optional
+     * whitespace followed by a line break before the headers of the next part.
+     */
+    private boolean isCloseDelimiter() throws IOException
+    {
+        if (!ensureAvailable(2))
+        {
+            throw new IOException("Unexpected end of multipart content after boundary");
+        }
+        if (buffer[position] == DASH && buffer[position + 1] == DASH)
+        {
+            position += 2;
+            return true;
+        }
+        while (ensureAvailable(1) && (buffer[position] == ' ' || buffer[position] == '\t'))
+        {
+            position++;
+        }
+        if (!ensureAvailable(2) || buffer[position] != CR || buffer[position + 1] != LF)
+        {
+            throw new IOException("Invalid multipart boundary line");
+        }
+        position += 2;
+        return false;
+    }
+
+    private Map<String, List<String>> readHeaders() throws IOException
+    {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        String lastHeaderName = null;
+        int headersSize = 0;
+        String line;
+        while (!(line = readLine()).isEmpty())
+        {
+            headersSize += line.length();
+            if (headersSize > MAX_HEADERS_SIZE)
+            {
+                throw new IOException(String.format("Multipart part headers exceeded the maximum size of %d bytes", MAX_HEADERS_SIZE));
+            }
+            if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && lastHeaderName != null)
+            {
+                // Folded header value
+                List<String> values = headers.get(lastHeaderName);
+                int lastIndex = values.size() - 1;
+                values.set(lastIndex, values.get(lastIndex) + " " + line.trim());
+                continue;
+            }
+            int separatorIndex = line.indexOf(':');
+            if (separatorIndex <= 0)
+            {
+                throw new IOException(String.format("Invalid multipart part header '%s'", line));
+            }
+            lastHeaderName = line.substring(0, separatorIndex).trim();
+            List<String> values = headers.get(lastHeaderName);
+            if (values == null)
+            {
+                values = new ArrayList<>(1);
+                headers.put(lastHeaderName, values);
+            }
+            values.add(line.substring(separatorIndex + 1).trim());
+        }
+        return headers;
+    }
+
+    private String readLine() throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (true)
+        {
+            if (!ensureAvailable(1))
+            {
+                throw new IOException("Unexpected end of multipart content while reading part headers");
+            }
+            byte current = buffer[position++];
+            if (current == LF)
+            {
+                break;
+            }
+            if (current != CR)
+            {
+                line.write(current);
+                if (line.size() > MAX_HEADERS_SIZE)
+                {
+                    throw new IOException(String.format("Multipart part headers exceeded the maximum size of %d bytes", MAX_HEADERS_SIZE));
+                }
+            }
+        }
+        return new String(line.toByteArray(), Charsets.UTF_8);
+    }
+
+    /**
+     * Writes to the given output all the content up to the next delimiter, and leaves the position right after it.
+     *
+     * @param output where to write the content, or null to discard it
+     */
+    private void copyUntilDelimiter(OutputStream output) throws IOException
+    {
+        while (true)
+        {
+            int delimiterIndex = indexOfDelimiter();
+            if (delimiterIndex >= 0)
+            {
+                write(output, delimiterIndex - position);
+                position = delimiterIndex + delimiter.length;
+                return;
+            }
+            // Bytes before this index can't be the beginning of a delimiter
+            int safeLimit = limit - delimiter.length + 1;
+            if (safeLimit > position)
+            {
+                write(output, safeLimit - position);
+                position = safeLimit;
+            }
+            if (!fill())
+            {
+                throw new IOException("Unexpected end of multipart content, boundary not found");
+            }
+        }
+    }
+
+    private void write(OutputStream output, int length) throws IOException
+    {
+        if (output != null && length > 0)
+        {
+            output.write(buffer, position, length);
+        }
+    }
+
+    private int indexOfDelimiter()
+    {
+        final int last = delimiter.length - 1;
+        int index = position;
+        while (index + last < limit)
+        {
+            int j = last;
+            while (buffer[index + j] == delimiter[j])
+            {
+                if (j == 0)
+                {
+                    return index;
+                }
+                j--;
+            }
+            index += delimiterShifts[buffer[index + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean ensureAvailable(int length) throws IOException
+    {
+        while (limit - position < length)
+        {
+            if (!fill())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the beginning of the buffer and reads more content after them.
+     *
+     * @return false if the end of the content was reached
+     */
+    private boolean fill() throws IOException
+    {
+        if (position > 0)
+        {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        int read = content.read(buffer, limit, buffer.length - limit);
+        if (read == -1)
+        {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private static String getFirstHeader(Map<String, List<String>> headers, String headerName)
+    {
+        for (Map.Entry<String, List<String>> header : headers.entrySet())
+        {
+            if (header.getKey().equalsIgnoreCase(headerName))
+            {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    static String getHeaderParameter(String headerValue, String parameterName)
+    {
+        if (headerValue == null)
+        {
+            return null;
+        }
+        for (String parameter : headerValue.split(";"))
+        {
+            int separatorIndex = parameter.indexOf('=');
+            if (separatorIndex > 0 && parameter.substring(0, separatorIndex).trim().equalsIgnoreCase(parameterName))
+            {
+                String value = parameter.substring(separatorIndex + 1).trim();
+                if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\""))
+                {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the content of a part, moving it to a temporary file once it goes over the in memory threshold.
+     */
+    private class PartContentCollector extends OutputStream
+    {
+
+        private ByteArrayOutputStream memoryContent = new ByteArrayOutputStream();
+        private File file;
+        private OutputStream fileContent;
+        private long size;
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            size += length;
+            if (maxPartSize != UNLIMITED_PART_SIZE && size > maxPartSize)
+            {
+                throw new IOException(String.format("Multipart part exceeded the maximum size of %d bytes", maxPartSize));
+            }
+            if (fileContent == null && size > inMemoryThreshold)
+            {
+                file = File.createTempFile(SPILL_FILE_PREFIX, SPILL_FILE_SUFFIX);
+                fileContent = new BufferedOutputStream(new FileOutputStream(file));
+                memoryContent.writeTo(fileContent);
+                memoryContent = null;
+            }
+            if (fileContent != null)
+            {
+                fileContent.write(bytes, offset, length);
+            }
+            else
+            {
+                memoryContent.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (fileContent != null)
+            {
+                fileContent.close();
+            }
+        }
+
+        void discard()
+        {
+            try
+            {
+                close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Error closing part content file", e);
+            }
+            if (file != null && !file.delete())
+            {
+                logger.warn("Could not delete part content file {}", file.getAbsolutePath());
+            }
+            file = null;
+        }
+
+        File getFile()
+        {
+            return file;
+        }
+
+        byte[] getContent()
+        {
+            return memoryContent.toByteArray();
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+    }
+}
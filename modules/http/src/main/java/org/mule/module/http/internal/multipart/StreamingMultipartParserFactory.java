@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.multipart;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Creates {@link StreamingMultipartParser}s sharing the same part size limits.
+ */
+public class StreamingMultipartParserFactory
+{
+
+    private final long maxPartSize;
+    private final int inMemoryThreshold;
+
+    /**
+     * @param maxPartSize maximum size in bytes allowed for each part, or {@link StreamingMultipartParser#UNLIMITED_PART_SIZE}
+     * @param inMemoryThreshold maximum size in bytes of a part kept in memory before moving it to a temporary file
+     */
+    public StreamingMultipartParserFactory(long maxPartSize, int inMemoryThreshold)
+    {
+        this.maxPartSize = maxPartSize;
+        this.inMemoryThreshold = inMemoryThreshold;
+    }
+
+    public StreamingMultipartParser create(InputStream content, String contentType) throws IOException
+    {
+        return new StreamingMultipartParser(content, contentType, maxPartSize, inMemoryThreshold);
+    }
+}
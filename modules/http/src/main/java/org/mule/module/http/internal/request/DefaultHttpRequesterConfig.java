@@ -19,6 +19,7 @@ import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.lifecycle.LifecycleUtils;
 import org.mule.api.lifecycle.Startable;
 import org.mule.api.lifecycle.Stoppable;
+import org.mule.api.management.stats.StatisticsMBeanProvider;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.module.http.api.HttpAuthentication;
 import org.mule.module.http.api.HttpConstants;
@@ -35,13 +36,18 @@ import org.mule.transport.tcp.TcpClientSocketProperties;
 import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.net.CookieManager;
+import java.util.Collections;
+import java.util.Map;
 
+import javax.management.ObjectName;
 
-public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implements HttpRequesterConfig, Initialisable, Stoppable, Startable, MuleContextAware
+
+public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implements HttpRequesterConfig, Initialisable, Stoppable, Startable, MuleContextAware, StatisticsMBeanProvider
 {
     private static final int UNLIMITED_CONNECTIONS = -1;
     private static final int DEFAULT_CONNECTION_IDLE_TIMEOUT = 30 * 1000;
     private static final String THREAD_NAME_PREFIX_PATTERN = "%shttp.requester.%s";
+    private static final String CONNECTION_POOL_STATISTICS_KEY_PATTERN = "type=HttpRequesterConnectionPool,name=%s";
 
     private HttpConstants.Protocols protocol = HTTP;
     private String name;
@@ -65,6 +71,11 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
     private int maxConnections = UNLIMITED_CONNECTIONS;
     private boolean usePersistentConnections = true;
     private int connectionIdleTimeout = DEFAULT_CONNECTION_IDLE_TIMEOUT;
+    private int prewarmConnections = 0;
+    private int tlsSessionCacheSize = -1;
+    private int tlsSessionTimeout = -1;
+    private boolean coalesceRequests = false;
+    private final HttpConnectionPoolStatistics connectionPoolStatistics = new HttpConnectionPoolStatistics();
 
     private boolean enableCookies = false;
     private CookieManager cookieManager;
@@ -98,6 +109,11 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
             cookieManager = new CookieManager();
         }
 
+        if (proxyConfig != null)
+        {
+            connectionPoolStatistics.setProxy(proxyConfig.getHost(), proxyConfig.getPort());
+        }
+
         String threadNamePrefix = format(THREAD_NAME_PREFIX_PATTERN, ThreadNameHelper.getPrefix(muleContext), name);
 
         GrizzlyHttpClientConfiguration configuration = new GrizzlyHttpClientConfiguration.Builder()
@@ -109,6 +125,12 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
                 .setConnectionIdleTimeout(connectionIdleTimeout)
                 .setThreadNamePrefix(threadNamePrefix)
                 .setOwnerName(name)
+                .setConnectionPoolStatistics(connectionPoolStatistics)
+                .setPrewarmConnections(prewarmConnections)
+                .setPrewarmUri(resolvePrewarmUri())
+                .setTlsSessionCacheSize(tlsSessionCacheSize)
+                .setTlsSessionTimeout(tlsSessionTimeout)
+                .setCoalesceRequests(coalesceRequests)
                 .build();
 
         httpClient = new GrizzlyHttpClient(configuration);
@@ -116,6 +138,25 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
         httpClient.initialise();
     }
 
+    /**
+     * Connections can only be prewarmed when the target of the requests is known at start, so the URI is
+     * not resolved if any of its parts is an expression.
+     */
+    private String resolvePrewarmUri()
+    {
+        if (prewarmConnections <= 0 || host == null || isExpression(host) || isExpression(port) || isExpression(basePath))
+        {
+            return null;
+        }
+        String path = basePath == null ? "/" : basePath.startsWith("/") ? basePath : "/" + basePath;
+        return format("%s://%s:%s%s", getScheme(), host, port, path);
+    }
+
+    private boolean isExpression(String value)
+    {
+        return value != null && muleContext.getExpressionManager().isExpression(value);
+    }
+
     private void verifyConnectionsParameters() throws InitialisationException
     {
         if (maxConnections < UNLIMITED_CONNECTIONS || maxConnections == 0)
@@ -317,6 +358,7 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
         {
             ((Startable) this.authentication).start();
         }
+        httpClient.start();
     }
 
     public void setMaxConnections(int maxConnections)
@@ -334,6 +376,38 @@ public class DefaultHttpRequesterConfig extends AbstractAnnotatedObject implemen
         this.connectionIdleTimeout = connectionIdleTimeout;
     }
 
+    public void setPrewarmConnections(int prewarmConnections)
+    {
+        this.prewarmConnections = prewarmConnections;
+    }
+
+    public void setTlsSessionCacheSize(int tlsSessionCacheSize)
+    {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public void setTlsSessionTimeout(int tlsSessionTimeout)
+    {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public void setCoalesceRequests(boolean coalesceRequests)
+    {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    public HttpConnectionPoolStatistics getConnectionPoolStatistics()
+    {
+        return connectionPoolStatistics;
+    }
+
+    @Override
+    public Map<String, Object> getStatisticsMBeans()
+    {
+        return Collections.<String, Object>singletonMap(format(CONNECTION_POOL_STATISTICS_KEY_PATTERN, ObjectName.quote(name)),
+                                                        connectionPoolStatistics);
+    }
+
     public boolean isEnableCookies()
     {
         return enableCookies;
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection and request counters of an HTTP requester for a single host. All operations are thread safe
+ * and don't block, so they can be updated from the selector threads.
+ */
+public class HostConnectionPoolStatistics
+{
+
+    private final AtomicLong openConnections = new AtomicLong();
+    private final AtomicLong openedConnections = new AtomicLong();
+    private final AtomicLong closedConnections = new AtomicLong();
+    private final AtomicLong activeRequests = new AtomicLong();
+    private final AtomicLong pendingRequests = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong tlsHandshakeCount = new AtomicLong();
+    private final AtomicLong totalTlsHandshakeTime = new AtomicLong();
+    private final AtomicLong maxTlsHandshakeTime = new AtomicLong();
+
+    void connectionOpened()
+    {
+        openConnections.incrementAndGet();
+        openedConnections.incrementAndGet();
+    }
+
+    void connectionClosed()
+    {
+        openConnections.decrementAndGet();
+        closedConnections.incrementAndGet();
+    }
+
+    void requestStarted()
+    {
+        activeRequests.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+
+    void requestCompleted()
+    {
+        activeRequests.decrementAndGet();
+    }
+
+    void requestCoalesced()
+    {
+        coalescedRequests.incrementAndGet();
+    }
+
+    void waitStarted()
+    {
+        pendingRequests.incrementAndGet();
+    }
+
+    void waitCompleted(long waitTime)
+    {
+        pendingRequests.decrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        updateMax(maxWaitTime, waitTime);
+    }
+
+    void tlsHandshakeCompleted(long handshakeTime)
+    {
+        tlsHandshakeCount.incrementAndGet();
+        totalTlsHandshakeTime.addAndGet(handshakeTime);
+        updateMax(maxTlsHandshakeTime, handshakeTime);
+    }
+
+    void clear()
+    {
+        openedConnections.set(0);
+        closedConnections.set(0);
+        requestCount.set(0);
+        coalescedRequests.set(0);
+        totalWaitTime.set(0);
+        maxWaitTime.set(0);
+        tlsHandshakeCount.set(0);
+        totalTlsHandshakeTime.set(0);
+        maxTlsHandshakeTime.set(0);
+    }
+
+    private static void updateMax(AtomicLong max, long value)
+    {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return the amount of connections currently open
+     */
+    public long getOpenConnections()
+    {
+        return openConnections.get();
+    }
+
+    /**
+     * @return the amount of open connections not being used by a request. As requests are not bound to a
+     *         connection until they are written, this is an approximation.
+     */
+    public long getIdleConnections()
+    {
+        return Math.max(0, openConnections.get() - activeRequests.get());
+    }
+
+    /**
+     * @return the amount of connections opened since the statistics were cleared
+     */
+    public long getOpenedConnections()
+    {
+        return openedConnections.get();
+    }
+
+    /**
+     * @return the amount of connections closed since the statistics were cleared
+     */
+    public long getClosedConnections()
+    {
+        return closedConnections.get();
+    }
+
+    /**
+     * @return the amount of requests currently being executed
+     */
+    public long getActiveRequests()
+    {
+        return activeRequests.get();
+    }
+
+    /**
+     * @return the amount of requests currently waiting for a connection slot
+     */
+    public long getPendingRequests()
+    {
+        return pendingRequests.get();
+    }
+
+    /**
+     * @return the amount of requests sent since the statistics were cleared
+     */
+    public long getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the amount of requests that shared the response of an identical request in progress instead of being sent
+     */
+    public long getCoalescedRequests()
+    {
+        return coalescedRequests.get();
+    }
+
+    /**
+     * @return the average time in milliseconds that requests waited for a connection slot
+     */
+    public long getAverageWaitTime()
+    {
+        long requests = requestCount.get();
+        return requests == 0 ? 0 : totalWaitTime.get() / requests;
+    }
+
+    /**
+     * @return the maximum time in milliseconds that a request waited for a connection slot
+     */
+    public long getMaxWaitTime()
+    {
+        return maxWaitTime.get();
+    }
+
+    /**
+     * @return the amount of TLS handshakes completed
+     */
+    public long getTlsHandshakeCount()
+    {
+        return tlsHandshakeCount.get();
+    }
+
+    /**
+     * @return the average time in milliseconds taken by TLS handshakes
+     */
+    public long getAverageTlsHandshakeTime()
+    {
+        long handshakes = tlsHandshakeCount.get();
+        return handshakes == 0 ? 0 : totalTlsHandshakeTime.get() / handshakes;
+    }
+
+    /**
+     * @return the maximum time in milliseconds taken by a TLS handshake
+     */
+    public long getMaxTlsHandshakeTime()
+    {
+        return maxTlsHandshakeTime.get();
+    }
+
+    /**
+     * @return the fraction of requests that were sent through an already open connection
+     */
+    public double getReuseRatio()
+    {
+        long requests = requestCount.get();
+        if (requests == 0)
+        {
+            return 0;
+        }
+        return Math.max(0, 1 - (double) openedConnections.get() / requests);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps per host statistics of the connections used by an HTTP requester config. Hosts are identified
+ * by {@code host:port}. When a proxy is configured, all connections are opened to the proxy, so both the
+ * connections and the requests are accounted to the proxy address, which keeps them correlated.
+ */
+public class HttpConnectionPoolStatistics implements HttpConnectionPoolStatisticsMXBean
+{
+
+    private static final int DEFAULT_HTTP_PORT = 80;
+    private static final int DEFAULT_HTTPS_PORT = 443;
+
+    private final ConcurrentMap<String, HostConnectionPoolStatistics> hosts = new ConcurrentHashMap<>();
+    private volatile String proxyHostKey;
+
+    /**
+     * @param host the host name or address
+     * @param port the port, or -1 to use the default one of the scheme
+     * @param scheme the URI scheme, used to resolve the default port
+     * @return the key used to identify a host in these statistics
+     */
+    public static String hostKey(String host, int port, String scheme)
+    {
+        if (port < 0)
+        {
+            port = "https".equalsIgnoreCase(scheme) || "wss".equalsIgnoreCase(scheme) ? DEFAULT_HTTPS_PORT : DEFAULT_HTTP_PORT;
+        }
+        return host + ":" + port;
+    }
+
+    /**
+     * @param proxyHost the host of the proxy all the requests are sent through, or null if there is none
+     * @param proxyPort the port of the proxy
+     */
+    public void setProxy(String proxyHost, int proxyPort)
+    {
+        proxyHostKey = proxyHost == null ? null : hostKey(proxyHost, proxyPort, null);
+    }
+
+    /**
+     * @param host the host of the request URI
+     * @param port the port of the request URI, or -1 to use the default one of the scheme
+     * @param scheme the scheme of the request URI
+     * @return the key to account a request to, which is the same as the one of the connection that sends it
+     */
+    public String requestHostKey(String host, int port, String scheme)
+    {
+        String proxy = proxyHostKey;
+        return proxy != null ? proxy : hostKey(host, port, scheme);
+    }
+
+    /**
+     * @param hostKey a key obtained from {@link #hostKey(String, int, String)}
+     * @return the statistics of the host, created if there were none
+     */
+    public HostConnectionPoolStatistics getHost(String hostKey)
+    {
+        HostConnectionPoolStatistics host = hosts.get(hostKey);
+        if (host == null)
+        {
+            host = new HostConnectionPoolStatistics();
+            HostConnectionPoolStatistics existing = hosts.putIfAbsent(hostKey, host);
+            if (existing != null)
+            {
+                host = existing;
+            }
+        }
+        return host;
+    }
+
+    public void connectionOpened(String hostKey)
+    {
+        getHost(hostKey).connectionOpened();
+    }
+
+    public void connectionClosed(String hostKey)
+    {
+        getHost(hostKey).connectionClosed();
+    }
+
+    public void requestStarted(String hostKey)
+    {
+        getHost(hostKey).requestStarted();
+    }
+
+    public void requestCompleted(String hostKey)
+    {
+        getHost(hostKey).requestCompleted();
+    }
+
+    public void requestCoalesced(String hostKey)
+    {
+        getHost(hostKey).requestCoalesced();
+    }
+
+    public void waitStarted(String hostKey)
+    {
+        getHost(hostKey).waitStarted();
+    }
+
+    public void waitCompleted(String hostKey, long waitTime)
+    {
+        getHost(hostKey).waitCompleted(waitTime);
+    }
+
+    public void tlsHandshakeCompleted(String hostKey, long handshakeTime)
+    {
+        getHost(hostKey).tlsHandshakeCompleted(handshakeTime);
+    }
+
+    @Override
+    public Map<String, HostConnectionPoolStatistics> getHosts()
+    {
+        SortedMap<String, HostConnectionPoolStatistics> sortedHosts = new TreeMap<>(hosts);
+        return Collections.unmodifiableMap(sortedHosts);
+    }
+
+    @Override
+    public long getOpenConnections()
+    {
+        long openConnections = 0;
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            openConnections += host.getOpenConnections();
+        }
+        return openConnections;
+    }
+
+    @Override
+    public long getActiveRequests()
+    {
+        long activeRequests = 0;
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            activeRequests += host.getActiveRequests();
+        }
+        return activeRequests;
+    }
+
+    @Override
+    public long getPendingRequests()
+    {
+        long pendingRequests = 0;
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            pendingRequests += host.getPendingRequests();
+        }
+        return pendingRequests;
+    }
+
+    @Override
+    public long getRequestCount()
+    {
+        long requestCount = 0;
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            requestCount += host.getRequestCount();
+        }
+        return requestCount;
+    }
+
+    @Override
+    public long getCoalescedRequests()
+    {
+        long coalescedRequests = 0;
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            coalescedRequests += host.getCoalescedRequests();
+        }
+        return coalescedRequests;
+    }
+
+    @Override
+    public void clear()
+    {
+        for (HostConnectionPoolStatistics host : hosts.values())
+        {
+            host.clear();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request;
+
+import java.util.Map;
+
+/**
+ * JMX view of the connections used by an HTTP requester config.
+ */
+public interface HttpConnectionPoolStatisticsMXBean
+{
+
+    /**
+     * @return the statistics of each host the requester has connected to, keyed by {@code host:port}
+     */
+    Map<String, HostConnectionPoolStatistics> getHosts();
+
+    /**
+     * @return the amount of connections currently open, for all hosts
+     */
+    long getOpenConnections();
+
+    /**
+     * @return the amount of requests currently being executed, for all hosts
+     */
+    long getActiveRequests();
+
+    /**
+     * @return the amount of requests currently waiting for a connection slot, for all hosts
+     */
+    long getPendingRequests();
+
+    /**
+     * @return the amount of requests sent, for all hosts
+     */
+    long getRequestCount();
+
+    /**
+     * @return the amount of requests that shared the response of an identical request in progress, for all hosts
+     */
+    long getCoalescedRequests();
+
+    /**
+     * Resets the statistics of all hosts. Values related to open connections and requests in progress are kept.
+     */
+    void clear();
+}
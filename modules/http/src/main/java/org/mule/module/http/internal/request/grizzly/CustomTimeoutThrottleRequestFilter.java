@@ -7,6 +7,11 @@
 package org.mule.module.http.internal.request.grizzly;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import org.mule.api.MuleException;
+import org.mule.api.context.WorkManager;
+import org.mule.api.context.WorkManagerSource;
+import org.mule.module.http.internal.request.HttpConnectionPoolStatistics;
 
 import com.ning.http.client.AsyncHandler;
 import com.ning.http.client.HttpResponseBodyPart;
@@ -15,6 +20,7 @@ import com.ning.http.client.HttpResponseStatus;
 import com.ning.http.client.filter.FilterContext;
 import com.ning.http.client.filter.FilterException;
 import com.ning.http.client.filter.RequestFilter;
+import com.ning.http.client.uri.Uri;
 
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -27,17 +33,25 @@ import org.slf4j.LoggerFactory;
  * is reached, waiting for the response to arrive before executing the next request.
  *
  * This is based on {@code com.ning.http.client.extra.ThrottleRequestFilter} from Async Http Client, but uses the
- * request timeout from each request.
+ * request timeout from each request. When a {@link HttpConnectionPoolStatistics} is provided, the time each
+ * request waits for a permit is recorded on it.
  */
 public class CustomTimeoutThrottleRequestFilter implements RequestFilter
 {
 
     private final static Logger logger = LoggerFactory.getLogger(CustomTimeoutThrottleRequestFilter.class);
     private final Semaphore available;
+    private final HttpConnectionPoolStatistics statistics;
 
     public CustomTimeoutThrottleRequestFilter(int maxConnections)
+    {
+        this(maxConnections, null);
+    }
+
+    public CustomTimeoutThrottleRequestFilter(int maxConnections, HttpConnectionPoolStatistics statistics)
     {
         available = new Semaphore(maxConnections, true);
+        this.statistics = statistics;
     }
 
     @Override
@@ -49,7 +63,7 @@ public class CustomTimeoutThrottleRequestFilter implements RequestFilter
             {
                 logger.debug("Current Throttling Status {}", available.availablePermits());
             }
-            if (!available.tryAcquire(ctx.getRequest().getRequestTimeout(), MILLISECONDS))
+            if (!acquire(ctx))
             {
                 throw new FilterException(
                         String.format("No slot available for processing Request %s with AsyncHandler %s",
@@ -65,7 +79,28 @@ public class CustomTimeoutThrottleRequestFilter implements RequestFilter
         return new FilterContext.FilterContextBuilder(ctx).asyncHandler(new AsyncHandlerWrapper(ctx.getAsyncHandler())).build();
     }
 
-    private class AsyncHandlerWrapper<T> implements AsyncHandler<T>
+    private boolean acquire(FilterContext ctx) throws InterruptedException
+    {
+        if (statistics == null)
+        {
+            return available.tryAcquire(ctx.getRequest().getRequestTimeout(), MILLISECONDS);
+        }
+
+        Uri uri = ctx.getRequest().getUri();
+        String hostKey = statistics.requestHostKey(uri.getHost(), uri.getPort(), uri.getScheme());
+        long waitStart = System.nanoTime();
+        statistics.waitStarted(hostKey);
+        try
+        {
+            return available.tryAcquire(ctx.getRequest().getRequestTimeout(), MILLISECONDS);
+        }
+        finally
+        {
+            statistics.waitCompleted(hostKey, NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+        }
+    }
+
+    private class AsyncHandlerWrapper<T> implements AsyncHandler<T>, WorkManagerSource
     {
 
         private final AsyncHandler<T> asyncHandler;
@@ -131,5 +166,11 @@ public class CustomTimeoutThrottleRequestFilter implements RequestFilter
                 complete();
             }
         }
+
+        @Override
+        public WorkManager getWorkManager() throws MuleException
+        {
+            return asyncHandler instanceof WorkManagerSource ? ((WorkManagerSource) asyncHandler).getWorkManager() : null;
+        }
     }
 }
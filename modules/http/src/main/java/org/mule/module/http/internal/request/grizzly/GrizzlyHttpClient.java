@@ -7,6 +7,7 @@
 package org.mule.module.http.internal.request.grizzly;
 
 import static com.ning.http.client.Realm.AuthScheme.NTLM;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.mule.module.http.api.HttpHeaders.Names.CONNECTION;
 import static org.mule.module.http.api.HttpHeaders.Values.CLOSE;
 import org.mule.api.CompletionHandler;
@@ -18,6 +19,7 @@ import org.mule.api.lifecycle.LifecycleUtils;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.module.http.api.requester.proxy.ProxyConfig;
 import org.mule.module.http.internal.domain.ByteArrayHttpEntity;
+import org.mule.module.http.internal.domain.EmptyHttpEntity;
 import org.mule.module.http.internal.domain.InputStreamHttpEntity;
 import org.mule.module.http.internal.domain.MultipartHttpEntity;
 import org.mule.module.http.internal.domain.request.DefaultHttpRequest;
@@ -28,6 +30,7 @@ import org.mule.module.http.internal.domain.response.HttpResponseBuilder;
 import org.mule.module.http.internal.multipart.HttpPart;
 import org.mule.module.http.internal.request.HttpAuthenticationType;
 import org.mule.module.http.internal.request.HttpClient;
+import org.mule.module.http.internal.request.HttpConnectionPoolStatistics;
 import org.mule.module.http.internal.request.NtlmProxyConfig;
 import org.mule.transport.ssl.api.TlsContextFactory;
 import org.mule.transport.ssl.api.TlsContextTrustStoreConfiguration;
@@ -48,14 +51,29 @@ import com.ning.http.client.generators.InputStreamBodyGenerator;
 import com.ning.http.client.multipart.ByteArrayPart;
 import com.ning.http.client.providers.grizzly.GrizzlyAsyncHttpProvider;
 import com.ning.http.client.providers.grizzly.GrizzlyAsyncHttpProviderConfig;
+import com.ning.http.client.uri.Uri;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +82,8 @@ public class GrizzlyHttpClient implements HttpClient
 {
 
     private static final int MAX_CONNECTION_LIFETIME = 30 * 60 * 1000;
+    private static final String PREWARM_METHOD = "OPTIONS";
+    private static final Set<String> COALESCABLE_METHODS = new HashSet<>(Arrays.asList("GET", "HEAD", "OPTIONS"));
 
     private static final Logger logger = LoggerFactory.getLogger(GrizzlyHttpClient.class);
 
@@ -76,6 +96,13 @@ public class GrizzlyHttpClient implements HttpClient
     private int connectionIdleTimeout;
     private String threadNamePrefix;
     private String ownerName;
+    private HttpConnectionPoolStatistics connectionPoolStatistics;
+    private int prewarmConnections;
+    private String prewarmUri;
+    private int tlsSessionCacheSize;
+    private int tlsSessionTimeout;
+    private boolean coalesceRequests;
+    private final ConcurrentMap<String, CoalescedRequest> inFlightRequests = new ConcurrentHashMap<>();
 
     private AsyncHttpClient asyncHttpClient;
     private SSLContext sslContext;
@@ -90,6 +117,12 @@ public class GrizzlyHttpClient implements HttpClient
         this.connectionIdleTimeout = config.getConnectionIdleTimeout();
         this.threadNamePrefix = config.getThreadNamePrefix();
         this.ownerName = config.getOwnerName();
+        this.connectionPoolStatistics = config.getConnectionPoolStatistics();
+        this.prewarmConnections = config.getPrewarmConnections();
+        this.prewarmUri = config.getPrewarmUri();
+        this.tlsSessionCacheSize = config.getTlsSessionCacheSize();
+        this.tlsSessionTimeout = config.getTlsSessionTimeout();
+        this.coalesceRequests = config.isCoalesceRequests();
     }
 
     @Override
@@ -125,6 +158,8 @@ public class GrizzlyHttpClient implements HttpClient
                 throw new InitialisationException(CoreMessages.createStaticMessage("Cannot initialize SSL context"), e, this);
             }
 
+            configureTlsSessionCache();
+
             // This sets all the TLS configuration needed, except for the enabled protocols and cipher suites.
             builder.setSSLContext(sslContext);
             //These complete the set up
@@ -146,6 +181,24 @@ public class GrizzlyHttpClient implements HttpClient
         }
     }
 
+    private void configureTlsSessionCache()
+    {
+        // Sessions are cached per host and port, so new connections to a known host resume the session instead
+        // of going through a full handshake. Negative values keep the JVM defaults.
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null)
+        {
+            if (tlsSessionCacheSize >= 0)
+            {
+                sessionContext.setSessionCacheSize(tlsSessionCacheSize);
+            }
+            if (tlsSessionTimeout >= 0)
+            {
+                sessionContext.setSessionTimeout(tlsSessionTimeout);
+            }
+        }
+    }
+
     private void configureProxy(AsyncHttpClientConfig.Builder builder)
     {
         if (proxyConfig != null)
@@ -193,6 +246,11 @@ public class GrizzlyHttpClient implements HttpClient
             compositeTransportCustomizer.addTransportCustomizer(new SocketConfigTransportCustomizer(clientSocketProperties));
         }
 
+        if (connectionPoolStatistics != null)
+        {
+            compositeTransportCustomizer.addTransportCustomizer(new StatisticsTransportCustomizer(connectionPoolStatistics));
+        }
+
         providerConfig.addProperty(GrizzlyAsyncHttpProviderConfig.Property.TRANSPORT_CUSTOMIZER, compositeTransportCustomizer);
         //Grizzly now decompresses encoded responses, this flag maintains the previous behaviour
         providerConfig.addProperty(GrizzlyAsyncHttpProviderConfig.Property.DECOMPRESS_RESPONSE, Boolean.FALSE);
@@ -203,7 +261,12 @@ public class GrizzlyHttpClient implements HttpClient
     {
         if (maxConnections > 0)
         {
-            builder.addRequestFilter(new CustomTimeoutThrottleRequestFilter(maxConnections));
+            builder.addRequestFilter(new CustomTimeoutThrottleRequestFilter(maxConnections, connectionPoolStatistics));
+        }
+
+        if (connectionPoolStatistics != null)
+        {
+            builder.addRequestFilter(new StatisticsRequestFilter(connectionPoolStatistics));
         }
 
         builder.setMaxConnections(maxConnections);
@@ -218,9 +281,62 @@ public class GrizzlyHttpClient implements HttpClient
         builder.setIOThreadMultiplier(1);
     }
 
+    /**
+     * Opens the configured amount of connections to the prewarm URI, so the first requests after start don't pay for
+     * the TCP and TLS handshakes. Requests are sent concurrently, to force a new connection for each one, and failures
+     * are only logged since the requester can still work without them.
+     */
+    @Override
+    public void start() throws MuleException
+    {
+        if (prewarmConnections <= 0 || prewarmUri == null || !usePersistentConnections)
+        {
+            return;
+        }
+
+        // Prewarming sends real requests to the target, so it's always logged
+        logger.info("Prewarming {} connections for requester {} with {} requests to {}", prewarmConnections, ownerName, PREWARM_METHOD, prewarmUri);
+
+        // Going over the max connections would block start until the throttling filter times out
+        int connections = maxConnections > 0 ? Math.min(prewarmConnections, maxConnections) : prewarmConnections;
+        for (int i = 0; i < connections; i++)
+        {
+            Request prewarmRequest = new RequestBuilder(PREWARM_METHOD).setUrl(prewarmUri).build();
+            try
+            {
+                asyncHttpClient.executeRequest(prewarmRequest, new AsyncCompletionHandler<Response>()
+                {
+                    @Override
+                    public Response onCompleted(Response response) throws Exception
+                    {
+                        return response;
+                    }
+
+                    @Override
+                    public void onThrowable(Throwable t)
+                    {
+                        logger.warn(String.format("Could not prewarm connection to %s for requester %s: %s", prewarmUri, ownerName, t.getMessage()));
+                    }
+                });
+            }
+            catch (Exception e)
+            {
+                logger.warn(String.format("Could not prewarm connections to %s for requester %s", prewarmUri, ownerName), e);
+                return;
+            }
+        }
+    }
+
     @Override
     public HttpResponse send(HttpRequest request, int responseTimeout, boolean followRedirects, HttpRequestAuthentication authentication) throws IOException, TimeoutException
     {
+        String coalescingKey = getCoalescingKey(request, responseTimeout, followRedirects, authentication);
+        if (coalescingKey != null)
+        {
+            BlockingCompletionHandler completionHandler = new BlockingCompletionHandler();
+            sendCoalesced(coalescingKey, request, responseTimeout, followRedirects, completionHandler, null);
+            return completionHandler.getResponse(responseTimeout);
+        }
 
         Request grizzlyRequest= createGrizzlyRequest(request, responseTimeout, followRedirects, authentication);
         ListenableFuture<Response> future = asyncHttpClient.executeRequest(grizzlyRequest);
@@ -262,6 +378,13 @@ public class GrizzlyHttpClient implements HttpClient
     public void send(HttpRequest request, int responseTimeout, boolean followRedirects, HttpRequestAuthentication
             authentication, final CompletionHandler<HttpResponse, Exception> completionHandler, WorkManager workManager)
     {
+        String coalescingKey = getCoalescingKey(request, responseTimeout, followRedirects, authentication);
+        if (coalescingKey != null)
+        {
+            sendCoalesced(coalescingKey, request, responseTimeout, followRedirects, completionHandler, workManager);
+            return;
+        }
+
         try
         {
             asyncHttpClient.executeRequest(createGrizzlyRequest(request, responseTimeout, followRedirects, authentication),
@@ -273,6 +396,258 @@ public class GrizzlyHttpClient implements HttpClient
         }
     }
 
+    /**
+     * Only requests without body and side effects are coalesced. Requests with authentication are never coalesced,
+     * since credentials are not part of the key, nor requests other than {@link DefaultHttpRequest}, since the query
+     * parameters of other requests are not known.
+     *
+     * @return a key that identifies requests that can share a response, or null if the request must be sent on its own
+     */
+    private String getCoalescingKey(HttpRequest request, int responseTimeout, boolean followRedirects, HttpRequestAuthentication authentication)
+    {
+        if (!coalesceRequests || authentication != null || !(request instanceof DefaultHttpRequest)
+            || !COALESCABLE_METHODS.contains(request.getMethod())
+            || !(request.getEntity() == null || request.getEntity() instanceof EmptyHttpEntity))
+        {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder(request.getMethod()).append(' ').append(request.getUri()).append(' ')
+                .append(followRedirects).append(' ').append(responseTimeout);
+        DefaultHttpRequest defaultHttpRequest = (DefaultHttpRequest) request;
+        for (String queryParamName : new TreeMap<>(defaultHttpRequest.getQueryParams()).keySet())
+        {
+            for (String queryParamValue : defaultHttpRequest.getQueryParams().getAll(queryParamName))
+            {
+                key.append('\n').append(queryParamName).append('=').append(queryParamValue);
+            }
+        }
+        Map<String, String> sortedHeaderNames = new TreeMap<>();
+        for (String headerName : request.getHeaderNames())
+        {
+            sortedHeaderNames.put(headerName.toLowerCase(), headerName);
+        }
+        for (Map.Entry<String, String> headerName : sortedHeaderNames.entrySet())
+        {
+            for (String headerValue : request.getHeaderValues(headerName.getValue()))
+            {
+                key.append('\n').append(headerName.getKey()).append(':').append(headerValue);
+            }
+        }
+        return key.toString();
+    }
+
+    private void sendCoalesced(String coalescingKey, HttpRequest request, int responseTimeout, boolean followRedirects,
+                               CompletionHandler<HttpResponse, Exception> completionHandler, WorkManager workManager)
+    {
+        while (true)
+        {
+            CoalescedRequest coalescedRequest = new CoalescedRequest(coalescingKey, workManager);
+            CoalescedRequest inFlightRequest = inFlightRequests.putIfAbsent(coalescingKey, coalescedRequest);
+            if (inFlightRequest == null)
+            {
+                coalescedRequest.subscribe(completionHandler, workManager);
+                try
+                {
+                    asyncHttpClient.executeRequest(createGrizzlyRequest(request, responseTimeout, followRedirects, null), coalescedRequest);
+                }
+                catch (Exception e)
+                {
+                    coalescedRequest.onThrowable(e);
+                }
+                return;
+            }
+            // The in flight request may complete before this one is subscribed, a new one is sent in that case
+            if (inFlightRequest.subscribe(completionHandler, workManager))
+            {
+                if (connectionPoolStatistics != null)
+                {
+                    Uri uri = Uri.create(request.getUri());
+                    connectionPoolStatistics.requestCoalesced(connectionPoolStatistics.requestHostKey(uri.getHost(), uri.getPort(), uri.getScheme()));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Request whose response is shared by all the identical requests made while it is in flight. The response body is
+     * buffered, so each subscriber gets its own stream.
+     */
+    private class CoalescedRequest extends AsyncCompletionHandler<Response> implements WorkManagerSource
+    {
+
+        private final String key;
+        private final WorkManager workManager;
+        private final List<CoalescedRequestSubscriber> subscribers = new ArrayList<>();
+        private boolean completed;
+
+        CoalescedRequest(String key, WorkManager workManager)
+        {
+            this.key = key;
+            this.workManager = workManager;
+        }
+
+        synchronized boolean subscribe(CompletionHandler<HttpResponse, Exception> completionHandler, WorkManager workManager)
+        {
+            if (completed)
+            {
+                return false;
+            }
+            subscribers.add(new CoalescedRequestSubscriber(completionHandler, workManager));
+            return true;
+        }
+
+        private synchronized List<CoalescedRequestSubscriber> complete()
+        {
+            inFlightRequests.remove(key, this);
+            completed = true;
+            return subscribers;
+        }
+
+        @Override
+        public Response onCompleted(Response response) throws Exception
+        {
+            List<CoalescedRequestSubscriber> completedSubscribers = complete();
+            byte[] body;
+            try
+            {
+                body = response.getResponseBodyAsBytes();
+            }
+            catch (IOException e)
+            {
+                notifyFailure(completedSubscribers, e);
+                return null;
+            }
+            for (int i = 0; i < completedSubscribers.size(); i++)
+            {
+                completedSubscribers.get(i).deliver(i == 0, createMuleResponse(response, new ByteArrayInputStream(body)), null);
+            }
+            return null;
+        }
+
+        @Override
+        public void onThrowable(Throwable t)
+        {
+            notifyFailure(complete(), t instanceof Exception ? (Exception) t : new IOException(t));
+        }
+
+        private void notifyFailure(List<CoalescedRequestSubscriber> completedSubscribers, Exception exception)
+        {
+            for (int i = 0; i < completedSubscribers.size(); i++)
+            {
+                completedSubscribers.get(i).deliver(i == 0, null, exception);
+            }
+        }
+
+        @Override
+        public WorkManager getWorkManager() throws MuleException
+        {
+            return workManager;
+        }
+    }
+
+    private static class CoalescedRequestSubscriber
+    {
+
+        private final CompletionHandler<HttpResponse, Exception> completionHandler;
+        private final WorkManager workManager;
+
+        CoalescedRequestSubscriber(CompletionHandler<HttpResponse, Exception> completionHandler, WorkManager workManager)
+        {
+            this.completionHandler = completionHandler;
+            this.workManager = workManager;
+        }
+
+        /**
+         * The subscriber that sent the request is notified in the current thread, which was already selected using its
+         * work manager. The rest are dispatched to their own work manager, so their flows don't run one after the other.
+         */
+        void deliver(boolean sender, final HttpResponse response, final Exception exception)
+        {
+            Runnable notification = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (exception != null)
+                    {
+                        completionHandler.onFailure(exception);
+                    }
+                    else
+                    {
+                        completionHandler.onCompletion(response);
+                    }
+                }
+            };
+
+            if (sender || workManager == null)
+            {
+                notification.run();
+                return;
+            }
+            try
+            {
+                workManager.execute(notification);
+            }
+            catch (RejectedExecutionException e)
+            {
+                notification.run();
+            }
+        }
+    }
+
+    private static class BlockingCompletionHandler implements CompletionHandler<HttpResponse, Exception>
+    {
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile HttpResponse response;
+        private volatile Exception exception;
+
+        @Override
+        public void onCompletion(HttpResponse response)
+        {
+            this.response = response;
+            completed.countDown();
+        }
+
+        @Override
+        public void onFailure(Exception exception)
+        {
+            this.exception = exception;
+            completed.countDown();
+        }
+
+        HttpResponse getResponse(int responseTimeout) throws IOException, TimeoutException
+        {
+            try
+            {
+                if (!completed.await(responseTimeout, MILLISECONDS))
+                {
+                    throw new TimeoutException(String.format("No response received after %d milliseconds", responseTimeout));
+                }
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+
+            if (exception instanceof TimeoutException)
+            {
+                throw (TimeoutException) exception;
+            }
+            else if (exception instanceof IOException)
+            {
+                throw (IOException) exception;
+            }
+            else if (exception != null)
+            {
+                throw new IOException(exception);
+            }
+            return response;
+        }
+    }
+
     private class WorkManagerSourceAsyncCompletionHandler extends AsyncCompletionHandler<Response> implements WorkManagerSource
     {
 
@@ -307,11 +682,16 @@ public class GrizzlyHttpClient implements HttpClient
     }
 
     private HttpResponse createMuleResponse(Response response) throws IOException
+    {
+        return createMuleResponse(response, response.getResponseBodyAsStream());
+    }
+
+    private HttpResponse createMuleResponse(Response response, InputStream body)
     {
         HttpResponseBuilder responseBuilder = new HttpResponseBuilder();
         responseBuilder.setStatusCode(response.getStatusCode());
         responseBuilder.setReasonPhrase(response.getStatusText());
-        responseBuilder.setEntity(new InputStreamHttpEntity(response.getResponseBodyAsStream()));
+        responseBuilder.setEntity(new InputStreamHttpEntity(body));
 
         if (response.hasResponseHeaders())
         {
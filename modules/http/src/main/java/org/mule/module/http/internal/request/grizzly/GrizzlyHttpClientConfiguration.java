@@ -7,6 +7,7 @@
 package org.mule.module.http.internal.request.grizzly;
 
 import org.mule.module.http.api.requester.proxy.ProxyConfig;
+import org.mule.module.http.internal.request.HttpConnectionPoolStatistics;
 import org.mule.transport.ssl.api.TlsContextFactory;
 import org.mule.transport.tcp.TcpClientSocketProperties;
 
@@ -21,9 +22,17 @@ public class GrizzlyHttpClientConfiguration
     private final int connectionIdleTimeout;
     private final String threadNamePrefix;
     private final String ownerName;
+    private final HttpConnectionPoolStatistics connectionPoolStatistics;
+    private final int prewarmConnections;
+    private final String prewarmUri;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeout;
+    private final boolean coalesceRequests;
 
     private GrizzlyHttpClientConfiguration(TlsContextFactory tlsContextFactory, ProxyConfig proxyConfig, TcpClientSocketProperties clientSocketProperties,
-                                           int maxConnections, boolean usePersistentConnections, int connectionIdleTimeout, String threadNamePrefix, String ownerName)
+                                           int maxConnections, boolean usePersistentConnections, int connectionIdleTimeout, String threadNamePrefix, String ownerName,
+                                           HttpConnectionPoolStatistics connectionPoolStatistics, int prewarmConnections, String prewarmUri,
+                                           int tlsSessionCacheSize, int tlsSessionTimeout, boolean coalesceRequests)
     {
         this.tlsContextFactory = tlsContextFactory;
         this.proxyConfig = proxyConfig;
@@ -33,6 +42,12 @@ public class GrizzlyHttpClientConfiguration
         this.connectionIdleTimeout = connectionIdleTimeout;
         this.threadNamePrefix = threadNamePrefix;
         this.ownerName = ownerName;
+        this.connectionPoolStatistics = connectionPoolStatistics;
+        this.prewarmConnections = prewarmConnections;
+        this.prewarmUri = prewarmUri;
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        this.tlsSessionTimeout = tlsSessionTimeout;
+        this.coalesceRequests = coalesceRequests;
     }
 
     public TlsContextFactory getTlsContextFactory()
@@ -75,6 +90,36 @@ public class GrizzlyHttpClientConfiguration
         return ownerName;
     }
 
+    public HttpConnectionPoolStatistics getConnectionPoolStatistics()
+    {
+        return connectionPoolStatistics;
+    }
+
+    public int getPrewarmConnections()
+    {
+        return prewarmConnections;
+    }
+
+    public String getPrewarmUri()
+    {
+        return prewarmUri;
+    }
+
+    public int getTlsSessionCacheSize()
+    {
+        return tlsSessionCacheSize;
+    }
+
+    public int getTlsSessionTimeout()
+    {
+        return tlsSessionTimeout;
+    }
+
+    public boolean isCoalesceRequests()
+    {
+        return coalesceRequests;
+    }
+
     public static class Builder
     {
         private TlsContextFactory tlsContextFactory;
@@ -85,6 +130,12 @@ public class GrizzlyHttpClientConfiguration
         private int connectionIdleTimeout;
         private String threadNamePrefix;
         private String ownerName;
+        private HttpConnectionPoolStatistics connectionPoolStatistics;
+        private int prewarmConnections;
+        private String prewarmUri;
+        private int tlsSessionCacheSize = -1;
+        private int tlsSessionTimeout = -1;
+        private boolean coalesceRequests;
 
         public Builder setTlsContextFactory(TlsContextFactory tlsContextFactory)
         {
@@ -134,10 +185,48 @@ public class GrizzlyHttpClientConfiguration
             return this;
         }
 
+        public Builder setConnectionPoolStatistics(HttpConnectionPoolStatistics connectionPoolStatistics)
+        {
+            this.connectionPoolStatistics = connectionPoolStatistics;
+            return this;
+        }
+
+        public Builder setPrewarmConnections(int prewarmConnections)
+        {
+            this.prewarmConnections = prewarmConnections;
+            return this;
+        }
+
+        public Builder setPrewarmUri(String prewarmUri)
+        {
+            this.prewarmUri = prewarmUri;
+            return this;
+        }
+
+        public Builder setTlsSessionCacheSize(int tlsSessionCacheSize)
+        {
+            this.tlsSessionCacheSize = tlsSessionCacheSize;
+            return this;
+        }
+
+        public Builder setTlsSessionTimeout(int tlsSessionTimeout)
+        {
+            this.tlsSessionTimeout = tlsSessionTimeout;
+            return this;
+        }
+
+        public Builder setCoalesceRequests(boolean coalesceRequests)
+        {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
         public GrizzlyHttpClientConfiguration build()
         {
             return new GrizzlyHttpClientConfiguration(tlsContextFactory, proxyConfig, clientSocketProperties, maxConnections,
-                                                      usePersistentConnections, connectionIdleTimeout, threadNamePrefix, ownerName);
+                                                      usePersistentConnections, connectionIdleTimeout, threadNamePrefix, ownerName,
+                                                      connectionPoolStatistics, prewarmConnections, prewarmUri, tlsSessionCacheSize,
+                                                      tlsSessionTimeout, coalesceRequests);
         }
     }
 }
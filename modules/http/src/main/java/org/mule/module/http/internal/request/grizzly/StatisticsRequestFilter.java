@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request.grizzly;
+
+import org.mule.api.MuleException;
+import org.mule.api.context.WorkManager;
+import org.mule.api.context.WorkManagerSource;
+import org.mule.module.http.internal.request.HttpConnectionPoolStatistics;
+
+import com.ning.http.client.AsyncHandler;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
+import com.ning.http.client.filter.FilterContext;
+import com.ning.http.client.filter.FilterException;
+import com.ning.http.client.filter.RequestFilter;
+import com.ning.http.client.uri.Uri;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link RequestFilter} that keeps track of the requests sent to each host in a {@link HttpConnectionPoolStatistics}.
+ */
+public class StatisticsRequestFilter implements RequestFilter
+{
+
+    private final HttpConnectionPoolStatistics statistics;
+
+    public StatisticsRequestFilter(HttpConnectionPoolStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public FilterContext filter(FilterContext ctx) throws FilterException
+    {
+        Uri uri = ctx.getRequest().getUri();
+        String hostKey = statistics.requestHostKey(uri.getHost(), uri.getPort(), uri.getScheme());
+        statistics.requestStarted(hostKey);
+        return new FilterContext.FilterContextBuilder(ctx).asyncHandler(new AsyncHandlerWrapper(ctx.getAsyncHandler(), hostKey)).build();
+    }
+
+    private class AsyncHandlerWrapper<T> implements AsyncHandler<T>, WorkManagerSource
+    {
+
+        private final AsyncHandler<T> asyncHandler;
+        private final String hostKey;
+        private final AtomicBoolean complete = new AtomicBoolean(false);
+
+        public AsyncHandlerWrapper(AsyncHandler<T> asyncHandler, String hostKey)
+        {
+            this.asyncHandler = asyncHandler;
+            this.hostKey = hostKey;
+        }
+
+        private void complete()
+        {
+            if (complete.compareAndSet(false, true))
+            {
+                statistics.requestCompleted(hostKey);
+            }
+        }
+
+        @Override
+        public void onThrowable(Throwable t)
+        {
+            try
+            {
+                asyncHandler.onThrowable(t);
+            }
+            finally
+            {
+                complete();
+            }
+        }
+
+        @Override
+        public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception
+        {
+            return asyncHandler.onBodyPartReceived(bodyPart);
+        }
+
+        @Override
+        public STATE onStatusReceived(HttpResponseStatus responseStatus) throws Exception
+        {
+            return asyncHandler.onStatusReceived(responseStatus);
+        }
+
+        @Override
+        public STATE onHeadersReceived(HttpResponseHeaders headers) throws Exception
+        {
+            return asyncHandler.onHeadersReceived(headers);
+        }
+
+        @Override
+        public T onCompleted() throws Exception
+        {
+            try
+            {
+                return asyncHandler.onCompleted();
+            }
+            finally
+            {
+                complete();
+            }
+        }
+
+        @Override
+        public WorkManager getWorkManager() throws MuleException
+        {
+            return asyncHandler instanceof WorkManagerSource ? ((WorkManagerSource) asyncHandler).getWorkManager() : null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request.grizzly;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import org.mule.module.http.internal.request.HttpConnectionPoolStatistics;
+
+import com.ning.http.client.providers.grizzly.TransportCustomizer;
+
+import java.net.InetSocketAddress;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.ConnectionProbe;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.ssl.SSLBaseFilter;
+
+/**
+ * Transport customizer that adds probes to account the connections opened to each host and the time taken
+ * by their TLS handshakes in a {@link HttpConnectionPoolStatistics}.
+ */
+public class StatisticsTransportCustomizer implements TransportCustomizer
+{
+
+    private static final Attribute<String> HOST_KEY_ATTRIBUTE = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            StatisticsTransportCustomizer.class.getName() + ".hostKey");
+    private static final Attribute<Long> HANDSHAKE_START_ATTRIBUTE = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            StatisticsTransportCustomizer.class.getName() + ".handshakeStart");
+
+    private final HttpConnectionPoolStatistics statistics;
+
+    public StatisticsTransportCustomizer(HttpConnectionPoolStatistics statistics)
+    {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void customize(TCPNIOTransport transport, FilterChainBuilder filterChainBuilder)
+    {
+        transport.getConnectionMonitoringConfig().addProbes(new ConnectionStatisticsProbe());
+
+        int sslFilterIndex = filterChainBuilder.indexOfType(SSLBaseFilter.class);
+        if (sslFilterIndex >= 0)
+        {
+            ((SSLBaseFilter) filterChainBuilder.get(sslFilterIndex)).addHandshakeListener(new HandshakeStatisticsListener());
+        }
+    }
+
+    private static String getHostKey(Connection connection)
+    {
+        String hostKey = HOST_KEY_ATTRIBUTE.get(connection);
+        if (hostKey == null && connection.getPeerAddress() instanceof InetSocketAddress)
+        {
+            InetSocketAddress address = (InetSocketAddress) connection.getPeerAddress();
+            hostKey = HttpConnectionPoolStatistics.hostKey(address.getHostString(), address.getPort(), null);
+            HOST_KEY_ATTRIBUTE.set(connection, hostKey);
+        }
+        return hostKey;
+    }
+
+    private class ConnectionStatisticsProbe extends ConnectionProbe.Adapter
+    {
+
+        @Override
+        public void onConnectEvent(Connection connection)
+        {
+            String hostKey = getHostKey(connection);
+            if (hostKey != null)
+            {
+                statistics.connectionOpened(hostKey);
+            }
+        }
+
+        @Override
+        public void onCloseEvent(Connection connection)
+        {
+            // The peer address is resolved when connecting, so connections that never connected have no key.
+            String hostKey = HOST_KEY_ATTRIBUTE.get(connection);
+            if (hostKey != null)
+            {
+                statistics.connectionClosed(hostKey);
+            }
+        }
+    }
+
+    private class HandshakeStatisticsListener implements SSLBaseFilter.HandshakeListener
+    {
+
+        @Override
+        public void onStart(Connection connection)
+        {
+            HANDSHAKE_START_ATTRIBUTE.set(connection, System.nanoTime());
+        }
+
+        @Override
+        public void onComplete(Connection connection)
+        {
+            Long handshakeStart = HANDSHAKE_START_ATTRIBUTE.remove(connection);
+            String hostKey = getHostKey(connection);
+            if (handshakeStart != null && hostKey != null)
+            {
+                statistics.tlsHandshakeCompleted(hostKey, NANOSECONDS.toMillis(System.nanoTime() - handshakeStart));
+            }
+        }
+    }
+}
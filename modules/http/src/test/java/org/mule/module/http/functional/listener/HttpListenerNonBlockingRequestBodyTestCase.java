@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.functional.listener;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mule.module.http.api.HttpConstants.HttpStatus.OK;
+import static org.mule.module.http.internal.listener.grizzly.GrizzlyServerManager.NON_BLOCKING_REQUEST_BODY_PROPERTY_KEY;
+import static org.mule.module.http.internal.listener.grizzly.GrizzlyServerManager.REQUEST_BODY_MAX_SIZE_PROPERTY_KEY;
+import static org.mule.module.http.internal.listener.grizzly.GrizzlyServerManager.REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.tck.junit4.rule.SystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.fluent.Request;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Verifies that slow clients sending chunked request bodies don't hold listener worker threads
+ * while their bodies are still being received.
+ */
+public class HttpListenerNonBlockingRequestBodyTestCase extends FunctionalTestCase
+{
+
+    private static final int MAX_THREADS_ACTIVE = 2;
+    private static final int SLOW_CLIENTS = MAX_THREADS_ACTIVE * 4;
+    private static final String FIRST_CHUNK = "slow";
+    private static final String LAST_CHUNK = "loris";
+    private static final int REQUEST_BODY_MAX_SIZE = 64;
+
+    @Rule
+    public DynamicPort listenPort = new DynamicPort("port");
+    @Rule
+    public SystemProperty maxThreadsActive = new SystemProperty("max.threads.active", String.valueOf(MAX_THREADS_ACTIVE));
+    @Rule
+    public SystemProperty nonBlockingRequestBody = new SystemProperty(NON_BLOCKING_REQUEST_BODY_PROPERTY_KEY, "true");
+    @Rule
+    public SystemProperty requestBodySpillThreshold = new SystemProperty(REQUEST_BODY_SPILL_THRESHOLD_PROPERTY_KEY, "2");
+    @Rule
+    public SystemProperty requestBodyMaxSize = new SystemProperty(REQUEST_BODY_MAX_SIZE_PROPERTY_KEY, String.valueOf(REQUEST_BODY_MAX_SIZE));
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "http-listener-non-blocking-request-body-config.xml";
+    }
+
+    @Test
+    public void slowClientsDoNotConsumeWorkerThreads() throws Exception
+    {
+        List<Socket> slowClients = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < SLOW_CLIENTS; i++)
+            {
+                Socket socket = new Socket("localhost", listenPort.getNumber());
+                sendIncompleteChunkedRequest(socket.getOutputStream());
+                slowClients.add(socket);
+            }
+
+            HttpResponse response = Request.Post(getUrl()).bodyByteArray(TEST_MESSAGE.getBytes())
+                    .connectTimeout(RECEIVE_TIMEOUT).socketTimeout(RECEIVE_TIMEOUT).execute().returnResponse();
+            assertThat(response.getStatusLine().getStatusCode(), is(OK.getStatusCode()));
+            assertThat(IOUtils.toString(response.getEntity().getContent()), is(TEST_MESSAGE));
+
+            for (Socket socket : slowClients)
+            {
+                completeChunkedRequest(socket.getOutputStream());
+                socket.setSoTimeout(RECEIVE_TIMEOUT);
+                assertThat(readResponse(socket.getInputStream()), containsString(FIRST_CHUNK + LAST_CHUNK));
+            }
+        }
+        finally
+        {
+            for (Socket socket : slowClients)
+            {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void chunkedBodyOverMaxSizeIsRejected() throws Exception
+    {
+        Socket socket = new Socket("localhost", listenPort.getNumber());
+        try
+        {
+            socket.setSoTimeout(RECEIVE_TIMEOUT);
+            sendIncompleteChunkedRequest(socket.getOutputStream());
+            socket.getOutputStream().write(chunk(StringUtils.repeat('x', REQUEST_BODY_MAX_SIZE)).getBytes());
+            socket.getOutputStream().flush();
+
+            assertThat(readResponse(socket.getInputStream()), startsWith("HTTP/1.1 413"));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void contentLengthOverMaxSizeIsRejectedBeforeContinue() throws Exception
+    {
+        Socket socket = new Socket("localhost", listenPort.getNumber());
+        try
+        {
+            socket.setSoTimeout(RECEIVE_TIMEOUT);
+            sendExpectContinueRequest(socket.getOutputStream(), REQUEST_BODY_MAX_SIZE + 1);
+
+            assertThat(readResponse(socket.getInputStream()), startsWith("HTTP/1.1 413"));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void expectContinueBodyIsCollected() throws Exception
+    {
+        Socket socket = new Socket("localhost", listenPort.getNumber());
+        try
+        {
+            socket.setSoTimeout(RECEIVE_TIMEOUT);
+            String body = FIRST_CHUNK + LAST_CHUNK;
+            sendExpectContinueRequest(socket.getOutputStream(), body.length());
+            assertThat(readLine(socket.getInputStream()), startsWith("HTTP/1.1 100"));
+
+            socket.getOutputStream().write(FIRST_CHUNK.getBytes());
+            socket.getOutputStream().flush();
+            socket.getOutputStream().write(LAST_CHUNK.getBytes());
+            socket.getOutputStream().flush();
+
+            assertThat(readResponse(socket.getInputStream()), containsString(body));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    private void sendExpectContinueRequest(OutputStream outputStream, int contentLength) throws IOException
+    {
+        String request = "POST / HTTP/1.1\r\n" +
+                         "Host: localhost\r\n" +
+                         "Connection: close\r\n" +
+                         "Expect: 100-continue\r\n" +
+                         "Content-Length: " + contentLength + "\r\n\r\n";
+        outputStream.write(request.getBytes());
+        outputStream.flush();
+    }
+
+    private String readLine(InputStream inputStream) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int read;
+        while ((read = inputStream.read()) != -1 && read != '\n')
+        {
+            line.append((char) read);
+        }
+        return line.toString();
+    }
+
+    private void sendIncompleteChunkedRequest(OutputStream outputStream) throws IOException
+    {
+        String request = "POST / HTTP/1.1\r\n" +
+                         "Host: localhost\r\n" +
+                         "Connection: close\r\n" +
+                         "Transfer-Encoding: chunked\r\n\r\n" +
+                         chunk(FIRST_CHUNK);
+        outputStream.write(request.getBytes());
+        outputStream.flush();
+    }
+
+    private void completeChunkedRequest(OutputStream outputStream) throws IOException
+    {
+        outputStream.write((chunk(LAST_CHUNK) + "0\r\n\r\n").getBytes());
+        outputStream.flush();
+    }
+
+    private String chunk(String content)
+    {
+        return Integer.toHexString(content.length()) + "\r\n" + content + "\r\n";
+    }
+
+    private String readResponse(InputStream inputStream) throws IOException
+    {
+        return IOUtils.toString(inputStream);
+    }
+
+    private String getUrl()
+    {
+        return String.format("http://localhost:%s/", listenPort.getNumber());
+    }
+}
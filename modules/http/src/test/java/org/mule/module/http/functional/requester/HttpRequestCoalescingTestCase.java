@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.functional.requester;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.mule.api.MuleEvent;
+import org.mule.construct.Flow;
+import org.mule.module.http.internal.request.DefaultHttpRequesterConfig;
+import org.mule.tck.probe.JUnitProbe;
+import org.mule.tck.probe.PollingProber;
+import org.mule.util.concurrent.Latch;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.junit.Test;
+
+public class HttpRequestCoalescingTestCase extends AbstractHttpRequestTestCase
+{
+
+    private final AtomicInteger receivedRequests = new AtomicInteger();
+    private final Latch messageArrived = new Latch();
+    private final Latch messageHold = new Latch();
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "http-request-coalescing-config.xml";
+    }
+
+    @Test
+    public void identicalRequestsInFlightAreSentOnce() throws Exception
+    {
+        Flow flow = (Flow) getFlowConstruct("coalescedRequest");
+        final DefaultHttpRequesterConfig requestConfig = muleContext.getRegistry().get("requestConfig");
+
+        AtomicReference<Object> firstResponse = new AtomicReference<>();
+        AtomicReference<Object> secondResponse = new AtomicReference<>();
+        Thread first = processAsynchronously(flow, firstResponse);
+        messageArrived.await();
+        Thread second = processAsynchronously(flow, secondResponse);
+
+        new PollingProber(RECEIVE_TIMEOUT, 50).check(new JUnitProbe()
+        {
+            @Override
+            protected boolean test() throws Exception
+            {
+                assertThat(requestConfig.getConnectionPoolStatistics().getCoalescedRequests(), is(1L));
+                return true;
+            }
+        });
+        messageHold.release();
+        first.join(RECEIVE_TIMEOUT);
+        second.join(RECEIVE_TIMEOUT);
+
+        assertThat(receivedRequests.get(), is(1));
+        assertThat(firstResponse.get(), is((Object) DEFAULT_RESPONSE));
+        assertThat(secondResponse.get(), is((Object) DEFAULT_RESPONSE));
+    }
+
+    @Test
+    public void completedRequestsAreNotShared() throws Exception
+    {
+        messageHold.release();
+        Flow flow = (Flow) getFlowConstruct("coalescedRequest");
+
+        assertThat(flow.process(getTestEvent(TEST_MESSAGE)).getMessage().getPayload(), is((Object) DEFAULT_RESPONSE));
+        assertThat(flow.process(getTestEvent(TEST_MESSAGE)).getMessage().getPayload(), is((Object) DEFAULT_RESPONSE));
+
+        assertThat(receivedRequests.get(), is(2));
+    }
+
+    private Thread processAsynchronously(final Flow flow, final AtomicReference<Object> response)
+    {
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    MuleEvent result = flow.process(getTestEvent(TEST_MESSAGE));
+                    response.set(result.getMessage().getPayload());
+                }
+                catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Override
+    protected void handleRequest(Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+    {
+        receivedRequests.incrementAndGet();
+        messageArrived.release();
+        try
+        {
+            messageHold.await();
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        super.handleRequest(baseRequest, request, response);
+    }
+}
@@ -8,6 +8,7 @@ package org.mule.module.http.internal;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.mule.module.http.internal.HttpParser.isMultipart;
 import static org.mule.module.http.internal.HttpParser.normalizePathWithSpacesOrEncodedSpaces;
 
 import org.mule.tck.junit4.AbstractMuleTestCase;
@@ -30,4 +31,15 @@ public class HttpParserTestCase extends AbstractMuleTestCase
         assertThat(normalizePathWithSpacesOrEncodedSpaces("+some%20path"), is(expectedNormalizedPath));
     }
 
+    @Test
+    public void multipartMediaTypeIgnoresCase()
+    {
+        assertThat(isMultipart("multipart/form-data; boundary=abc"), is(true));
+        assertThat(isMultipart("Multipart/Form-Data; boundary=abc"), is(true));
+        assertThat(isMultipart("MULTIPART/mixed"), is(true));
+        assertThat(isMultipart("application/x-multipart"), is(false));
+        assertThat(isMultipart("text/plain"), is(false));
+        assertThat(isMultipart(null), is(false));
+    }
+
 }
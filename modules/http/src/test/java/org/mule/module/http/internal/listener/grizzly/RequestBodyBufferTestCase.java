@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.listener.grizzly;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+
+import java.io.File;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+public class RequestBodyBufferTestCase extends AbstractMuleTestCase
+{
+
+    private static final String FIRST_CHUNK = "first chunk,";
+    private static final String SECOND_CHUNK = "second chunk";
+
+    @Test
+    public void keepsContentInMemoryUnderThreshold() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(1024);
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        requestBodyBuffer.append(wrap(SECOND_CHUNK));
+
+        assertThat(requestBodyBuffer.isSpilled(), is(false));
+        assertThat(requestBodyBuffer.getSize(), is((long) (FIRST_CHUNK.length() + SECOND_CHUNK.length())));
+        assertThat(IOUtils.toString(requestBodyBuffer.getInputStream()), is(FIRST_CHUNK + SECOND_CHUNK));
+    }
+
+    @Test
+    public void spillsContentToFileOverThreshold() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(FIRST_CHUNK.length());
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        assertThat(requestBodyBuffer.isSpilled(), is(false));
+        requestBodyBuffer.append(wrap(SECOND_CHUNK));
+        assertThat(requestBodyBuffer.isSpilled(), is(true));
+
+        InputStream inputStream = requestBodyBuffer.getInputStream();
+        try
+        {
+            assertThat(IOUtils.toString(inputStream), is(FIRST_CHUNK + SECOND_CHUNK));
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    @Test
+    public void negativeThresholdNeverSpills() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(-1);
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        requestBodyBuffer.append(wrap(SECOND_CHUNK));
+
+        assertThat(requestBodyBuffer.isSpilled(), is(false));
+        assertThat(IOUtils.toString(requestBodyBuffer.getInputStream()), is(FIRST_CHUNK + SECOND_CHUNK));
+    }
+
+    @Test
+    public void emptyChunksAreIgnored() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(0);
+        requestBodyBuffer.append(wrap(""));
+
+        assertThat(requestBodyBuffer.isSpilled(), is(false));
+        assertThat(requestBodyBuffer.getSize(), is(0L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotAppendAfterCompletion() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(1024);
+        requestBodyBuffer.getInputStream();
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+    }
+
+    @Test(expected = RequestBodyBuffer.RequestBodyTooLargeException.class)
+    public void rejectsContentOverMaxSize() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(1024, FIRST_CHUNK.length());
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        requestBodyBuffer.append(wrap(SECOND_CHUNK));
+    }
+
+    @Test
+    public void discardDeletesUnreadSpillFile() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(0);
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        File spillFile = getSpillFile(requestBodyBuffer);
+        requestBodyBuffer.getInputStream();
+
+        requestBodyBuffer.discard();
+
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    @Test
+    public void discardDeletesIncompleteSpillFile() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(0);
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        File spillFile = getSpillFile(requestBodyBuffer);
+
+        requestBodyBuffer.discard();
+
+        assertThat(spillFile.exists(), is(false));
+    }
+
+    @Test
+    public void discardAfterStreamIsClosed() throws Exception
+    {
+        RequestBodyBuffer requestBodyBuffer = new RequestBodyBuffer(0);
+        requestBodyBuffer.append(wrap(FIRST_CHUNK));
+        File spillFile = getSpillFile(requestBodyBuffer);
+        requestBodyBuffer.getInputStream().close();
+        assertThat(spillFile.exists(), is(false));
+
+        requestBodyBuffer.discard();
+    }
+
+    private File getSpillFile(RequestBodyBuffer requestBodyBuffer)
+    {
+        File spillFile = requestBodyBuffer.getSpillFile();
+        assertThat(spillFile.exists(), is(true));
+        return spillFile;
+    }
+
+    private Buffer wrap(String content)
+    {
+        return Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, content.getBytes());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.multipart;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mule.module.http.internal.multipart.StreamingMultipartParser.UNLIMITED_PART_SIZE;
+import org.mule.api.MuleRuntimeException;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.RandomStringUtils;
+import org.junit.Test;
+
+@SmallTest
+public class StreamingMultipartParserTestCase extends AbstractMuleTestCase
+{
+
+    private static final String BOUNDARY = "bOuNdArY";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+    private static final int IN_MEMORY_THRESHOLD = 1024;
+
+    @Test
+    public void parsesPartsLazily() throws Exception
+    {
+        String content = "preamble\r\n" +
+                         "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"field\"\r\n\r\n" +
+                         "value\r\n" +
+                         "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n" +
+                         "Content-Type: application/octet-stream\r\n\r\n" +
+                         "line 1\r\nline 2\r\n" +
+                         "--" + BOUNDARY + "--\r\n" +
+                         "epilogue";
+
+        StreamingMultipartParser parser = createParser(content, UNLIMITED_PART_SIZE);
+
+        HttpPart field = parser.next();
+        assertThat(field.getName(), is("field"));
+        assertThat(field.getFileName(), is(nullValue()));
+        assertThat(field.getContentType(), is("text/plain"));
+        assertThat(IOUtils.toString(field.getInputStream()), is("value"));
+
+        HttpPart file = parser.next();
+        assertThat(file.getName(), is("file"));
+        assertThat(file.getFileName(), is("file.txt"));
+        assertThat(file.getContentType(), is("application/octet-stream"));
+        assertThat(file.getHeader("Content-Type"), is("application/octet-stream"));
+        assertThat(IOUtils.toString(file.getInputStream()), is("line 1\r\nline 2"));
+
+        assertThat(parser.hasNext(), is(false));
+    }
+
+    @Test
+    public void contentSimilarToBoundaryIsNotSplit() throws Exception
+    {
+        String partContent = "\r\n--" + BOUNDARY.substring(0, 4) + "\r\n--bOuNd";
+        String content = "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"field\"\r\n\r\n" +
+                         partContent + "\r\n" +
+                         "--" + BOUNDARY + "--";
+
+        StreamingMultipartParser parser = createParser(content, UNLIMITED_PART_SIZE);
+
+        assertThat(IOUtils.toString(parser.next().getInputStream()), is(partContent));
+        assertThat(parser.hasNext(), is(false));
+    }
+
+    @Test
+    public void bigPartIsStoredInFile() throws Exception
+    {
+        String partContent = RandomStringUtils.randomAlphanumeric(IN_MEMORY_THRESHOLD * 20);
+        String content = "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"big\"\r\n\r\n" +
+                         partContent + "\r\n" +
+                         "--" + BOUNDARY + "--";
+
+        StreamingMultipartParser parser = createParser(content, UNLIMITED_PART_SIZE);
+        StreamedHttpPart part = (StreamedHttpPart) parser.next();
+
+        assertThat(part.isStoredInFile(), is(true));
+        assertThat(part.getSize(), is((long) partContent.length()));
+        assertThat(IOUtils.toString(part.getInputStream()), is(partContent));
+        parser.close();
+    }
+
+    @Test(expected = MuleRuntimeException.class)
+    public void partOverMaxSizeFails() throws Exception
+    {
+        String content = "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"big\"\r\n\r\n" +
+                         RandomStringUtils.randomAlphanumeric(100) + "\r\n" +
+                         "--" + BOUNDARY + "--";
+
+        createParser(content, 10).next();
+    }
+
+    @Test(expected = MuleRuntimeException.class)
+    public void missingCloseDelimiterFails() throws Exception
+    {
+        String content = "--" + BOUNDARY + "\r\n" +
+                         "Content-Disposition: form-data; name=\"field\"\r\n\r\n" +
+                         "value";
+
+        createParser(content, UNLIMITED_PART_SIZE).next();
+    }
+
+    @Test(expected = IOException.class)
+    public void missingBoundaryParameterFails() throws Exception
+    {
+        new StreamingMultipartParser(new ByteArrayInputStream(new byte[0]), "multipart/form-data", UNLIMITED_PART_SIZE, IN_MEMORY_THRESHOLD);
+    }
+
+    @Test
+    public void quotedAndUnquotedHeaderParameters()
+    {
+        String contentDisposition = "form-data; name=field; filename=\"some file.txt\"";
+        assertThat(StreamingMultipartParser.getHeaderParameter(contentDisposition, "name"), is("field"));
+        assertThat(StreamingMultipartParser.getHeaderParameter(contentDisposition, "filename"), is("some file.txt"));
+    }
+
+    private StreamingMultipartParser createParser(String content, long maxPartSize) throws IOException
+    {
+        return new StreamingMultipartParser(new ByteArrayInputStream(content.getBytes()), CONTENT_TYPE, maxPartSize, IN_MEMORY_THRESHOLD);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.module.http.internal.request;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+@SmallTest
+public class HttpConnectionPoolStatisticsTestCase extends AbstractMuleTestCase
+{
+
+    private static final String HOST = "localhost:8081";
+    private static final String OTHER_HOST = "localhost:8082";
+
+    private final HttpConnectionPoolStatistics statistics = new HttpConnectionPoolStatistics();
+
+    @Test
+    public void hostKeyUsesSchemeDefaultPort()
+    {
+        assertThat(HttpConnectionPoolStatistics.hostKey("localhost", -1, "http"), is("localhost:80"));
+        assertThat(HttpConnectionPoolStatistics.hostKey("localhost", -1, "https"), is("localhost:443"));
+        assertThat(HttpConnectionPoolStatistics.hostKey("localhost", 8081, "https"), is(HOST));
+    }
+
+    @Test
+    public void requestsAreAccountedToTheirHostWithoutProxy()
+    {
+        assertThat(statistics.requestHostKey("localhost", 8081, "http"), is(HOST));
+        assertThat(statistics.requestHostKey("localhost", 8082, "http"), is(OTHER_HOST));
+    }
+
+    @Test
+    public void requestsAreAccountedToTheProxyLikeTheirConnections()
+    {
+        statistics.setProxy("localhost", 8082);
+
+        assertThat(statistics.requestHostKey("example.com", -1, "http"), is(OTHER_HOST));
+        assertThat(statistics.requestHostKey("localhost", 8081, "https"), is(OTHER_HOST));
+    }
+
+    @Test
+    public void connectionsAndRequestsArePerHost()
+    {
+        statistics.connectionOpened(HOST);
+        statistics.requestStarted(HOST);
+        statistics.requestCompleted(HOST);
+        statistics.requestStarted(HOST);
+        statistics.connectionOpened(OTHER_HOST);
+        statistics.requestStarted(OTHER_HOST);
+
+        HostConnectionPoolStatistics host = statistics.getHost(HOST);
+        assertThat(host.getOpenConnections(), is(1L));
+        assertThat(host.getActiveRequests(), is(1L));
+        assertThat(host.getIdleConnections(), is(0L));
+        assertThat(host.getRequestCount(), is(2L));
+        assertThat(host.getReuseRatio(), closeTo(0.5, 0.001));
+
+        assertThat(statistics.getHosts().size(), is(2));
+        assertThat(statistics.getOpenConnections(), is(2L));
+        assertThat(statistics.getActiveRequests(), is(2L));
+        assertThat(statistics.getRequestCount(), is(3L));
+    }
+
+    @Test
+    public void waitAndHandshakeTimes()
+    {
+        statistics.requestStarted(HOST);
+        statistics.waitStarted(HOST);
+        assertThat(statistics.getPendingRequests(), is(1L));
+        statistics.waitCompleted(HOST, 30);
+        statistics.requestStarted(HOST);
+        statistics.waitStarted(HOST);
+        statistics.waitCompleted(HOST, 10);
+        statistics.tlsHandshakeCompleted(HOST, 20);
+        statistics.tlsHandshakeCompleted(HOST, 40);
+
+        HostConnectionPoolStatistics host = statistics.getHost(HOST);
+        assertThat(host.getPendingRequests(), is(0L));
+        assertThat(host.getAverageWaitTime(), is(20L));
+        assertThat(host.getMaxWaitTime(), is(30L));
+        assertThat(host.getTlsHandshakeCount(), is(2L));
+        assertThat(host.getAverageTlsHandshakeTime(), is(30L));
+        assertThat(host.getMaxTlsHandshakeTime(), is(40L));
+    }
+
+    @Test
+    public void clearKeepsOpenConnections()
+    {
+        statistics.connectionOpened(HOST);
+        statistics.requestStarted(HOST);
+        statistics.clear();
+
+        HostConnectionPoolStatistics host = statistics.getHost(HOST);
+        assertThat(host.getOpenConnections(), is(1L));
+        assertThat(host.getActiveRequests(), is(1L));
+        assertThat(host.getOpenedConnections(), is(0L));
+        assertThat(host.getRequestCount(), is(0L));
+    }
+
+    @Test
+    public void isCompliantMXBean() throws Exception
+    {
+        statistics.connectionOpened(HOST);
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("Mule.test:type=HttpRequesterConnectionPool,name=test");
+        mBeanServer.registerMBean(statistics, objectName);
+        try
+        {
+            assertThat((Long) mBeanServer.getAttribute(objectName, "OpenConnections"), is(1L));
+            assertThat(((TabularData) mBeanServer.getAttribute(objectName, "Hosts")).size(), is(1));
+        }
+        finally
+        {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.mule.api.MuleException;
 import org.mule.api.MuleRuntimeException;
 import org.mule.api.context.notification.MuleContextNotificationListener;
 import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.management.stats.StatisticsMBeanProvider;
 import org.mule.api.model.Model;
 import org.mule.api.service.Service;
 import org.mule.api.transport.Connector;
@@ -509,6 +510,25 @@ public abstract class AbstractJmxAgent extends AbstractAgent
         return fullName.toString();
     }
 
+    protected void registerStatisticsMBeanProviders() throws MalformedObjectNameException,
+        NotCompliantMBeanException, MBeanRegistrationException, InstanceAlreadyExistsException
+    {
+        for (StatisticsMBeanProvider provider : muleContext.getRegistry().lookupLocalObjects(StatisticsMBeanProvider.class))
+        {
+            for (Map.Entry<String, Object> statisticsMBean : provider.getStatisticsMBeans().entrySet())
+            {
+                final String jmxName = String.format("%s:%s", jmxSupport.getDomainName(muleContext, !containerMode), statisticsMBean.getKey());
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Attempting to register statistics with name: " + jmxName);
+                }
+                ObjectName oName = jmxSupport.getObjectName(jmxName);
+                mBeanServer.registerMBean(statisticsMBean.getValue(), oName);
+                logger.info("Registered statistics with name " + oName);
+            }
+        }
+    }
+
     protected void registerConnectorServices() throws MalformedObjectNameException,
         NotCompliantMBeanException, MBeanRegistrationException, InstanceAlreadyExistsException
     {
@@ -24,6 +24,7 @@ public class JmxDomainAgent extends AbstractJmxAgent
         registerWrapperService();
         registerMuleService();
         registerConnectorServices();
+        registerStatisticsMBeanProviders();
         registerConfigurationService();
     }
 
@@ -10,6 +10,8 @@ import org.mule.api.config.MuleProperties;
 import org.mule.api.config.ThreadingProfile;
 import org.mule.api.processor.LoggerMessageProcessor;
 import org.mule.api.source.MessageSource;
+import org.mule.cache.CacheMessageProcessor;
+import org.mule.cache.ObjectStoreCachingStrategy;
 import org.mule.component.DefaultInterfaceBinding;
 import org.mule.component.DefaultJavaComponent;
 import org.mule.component.PooledJavaComponent;
@@ -111,6 +113,7 @@ import org.mule.routing.MapSplitter;
 import org.mule.routing.MessageChunkAggregator;
 import org.mule.routing.MessageChunkSplitter;
 import org.mule.routing.MessageFilter;
+import org.mule.routing.RecordSplitter;
 import org.mule.routing.Resequencer;
 import org.mule.routing.RoundRobin;
 import org.mule.routing.SimpleCollectionAggregator;
@@ -464,6 +467,9 @@ public class MuleNamespaceHandler extends AbstractMuleNamespaceHandler
         registerBeanDefinitionParser("spring-object-store",(BeanDefinitionParser)new ParentDefinitionParser().addAlias("ref", "store"));
         registerBeanDefinitionParser("managed-store", new ChildDefinitionParser("store",ManagedObjectStore.class));
 
+        // Caching strategies
+        registerBeanDefinitionParser("object-store-caching-strategy", new MuleOrphanDefinitionParser(ObjectStoreCachingStrategy.class, true));
+
         //Routers
         registerBeanDefinitionParser("inbound", new ChildDefinitionParser("messageSource", ServiceCompositeMessageSource.class, true));
         registerBeanDefinitionParser("outbound", new ChildDefinitionParser("outboundMessageProcessor", DefaultOutboundRouterCollection.class, true));
@@ -516,8 +522,10 @@ public class MuleNamespaceHandler extends AbstractMuleNamespaceHandler
         registerBeanDefinitionParser("collection-splitter", new SplitterDefinitionParser(CollectionSplitter.class));
         registerBeanDefinitionParser("map-splitter", new SplitterDefinitionParser(MapSplitter.class));
         registerBeanDefinitionParser("message-chunk-splitter", new SplitterDefinitionParser(MessageChunkSplitter.class));
+        registerBeanDefinitionParser("record-splitter", new SplitterDefinitionParser(RecordSplitter.class));
         registerBeanDefinitionParser("custom-splitter", new SplitterDefinitionParser());
         registerMuleBeanDefinitionParser("foreach", new ChildDefinitionParser("messageProcessor", Foreach.class)).addAlias("collection", "collectionExpression");
+        registerBeanDefinitionParser("cache", new ChildDefinitionParser("messageProcessor", CacheMessageProcessor.class));
 
         // Routing: Routing Message Processors
 
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.util.queue;
+
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.concurrent.RingBufferQueue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Compares offering and polling messages on a non persistent queue of the queue
+ * manager, as non transactional VM endpoints used to, with the transient ring buffer
+ * queue that replaces it
+ */
+public class TransientQueuePerformanceTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final int BATCH = 100;
+    private static final String QUEUE_NAME = "performance";
+
+    @Rule
+    public ContiPerfRule rule = new ContiPerfRule();
+
+    private final RingBufferQueue<Serializable> ringBufferQueue = new RingBufferQueue<Serializable>(16 * 1024);
+
+    public TransientQueuePerformanceTestCase()
+    {
+        setStartContext(true);
+    }
+
+    @Override
+    public int getTestTimeoutSecs()
+    {
+        return 120;
+    }
+
+    @Before
+    public void before() throws Exception
+    {
+        muleContext.getQueueManager().setQueueConfiguration(QUEUE_NAME, new DefaultQueueConfiguration(0, false));
+    }
+
+    @Test
+    @PerfTest(duration = 15000, threads = 1, warmUp = 5000)
+    public void queueManagerSingleThread() throws Exception
+    {
+        offerAndPollQueueManager();
+    }
+
+    @Test
+    @PerfTest(duration = 15000, threads = 10, warmUp = 5000)
+    public void queueManagerTenThreads() throws Exception
+    {
+        offerAndPollQueueManager();
+    }
+
+    @Test
+    @PerfTest(duration = 15000, threads = 1, warmUp = 5000)
+    public void ringBufferSingleThread() throws Exception
+    {
+        offerAndDrainRingBuffer();
+    }
+
+    @Test
+    @PerfTest(duration = 15000, threads = 10, warmUp = 5000)
+    public void ringBufferTenThreads() throws Exception
+    {
+        offerAndDrainRingBuffer();
+    }
+
+    private void offerAndPollQueueManager() throws Exception
+    {
+        Queue queue = muleContext.getQueueManager().getQueueSession().getQueue(QUEUE_NAME);
+        for (int i = 0; i < BATCH; i++)
+        {
+            queue.offer(TEST_MESSAGE, 0);
+        }
+        for (int i = 0; i < BATCH; i++)
+        {
+            queue.poll(0);
+        }
+    }
+
+    private void offerAndDrainRingBuffer() throws Exception
+    {
+        for (int i = 0; i < BATCH; i++)
+        {
+            ringBufferQueue.offer(TEST_MESSAGE);
+        }
+        List<Serializable> drained = new ArrayList<Serializable>(BATCH);
+        ringBufferQueue.drainTo(drained, BATCH);
+    }
+}
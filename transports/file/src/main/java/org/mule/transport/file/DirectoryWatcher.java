@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Watches a directory using a {@link WatchService}, keeping a {@link PendingFileIndex}
+ * updated with the files created or modified in it.
+ * <p/>
+ * The {@link Listener} is notified every time the index may contain files ready to be
+ * processed, which happens after each batch of events and periodically while there are
+ * files waiting to become stable. When the watch service loses events, the listener is
+ * asked to rescan the directory.
+ */
+public class DirectoryWatcher
+{
+
+    /**
+     * Minimum time in milliseconds between checks of the files waiting to become stable
+     */
+    private static final long MIN_RECHECK_INTERVAL = 10;
+
+    private static final Log logger = LogFactory.getLog(DirectoryWatcher.class);
+
+    private final File directory;
+    private final boolean recursive;
+    private final FileFilter fileFilter;
+    private final PendingFileIndex index;
+    private final Listener listener;
+    private final long recheckInterval;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<WatchKey, Path>();
+    private volatile WatchService watchService;
+    private Thread watcherThread;
+
+    /**
+     * @param directory directory to watch
+     * @param recursive whether subdirectories must be watched too
+     * @param fileFilter accepts the files that must be added to the index
+     * @param index index updated with the changes in the directory
+     * @param listener notified when the index may have files ready to be processed
+     * @param stabilityPeriod stability period of the index, used to check again the
+     *            files waiting to become stable
+     */
+    public DirectoryWatcher(File directory, boolean recursive, FileFilter fileFilter, PendingFileIndex index,
+                            Listener listener, long stabilityPeriod)
+    {
+        this.directory = directory;
+        this.recursive = recursive;
+        this.fileFilter = fileFilter;
+        this.index = index;
+        this.listener = listener;
+        this.recheckInterval = Math.max(stabilityPeriod, MIN_RECHECK_INTERVAL);
+    }
+
+    public synchronized void start(ThreadFactory threadFactory) throws IOException
+    {
+        if (watchService != null)
+        {
+            return;
+        }
+
+        watchService = directory.toPath().getFileSystem().newWatchService();
+        register(watchService, directory.toPath());
+
+        watcherThread = threadFactory.newThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                watch();
+            }
+        });
+        watcherThread.start();
+    }
+
+    public synchronized void stop()
+    {
+        if (watchService == null)
+        {
+            return;
+        }
+
+        try
+        {
+            watchService.close();
+        }
+        catch (IOException e)
+        {
+            logger.warn("Error closing watch service for " + directory, e);
+        }
+        watchService = null;
+        watchedDirectories.clear();
+
+        if (watcherThread != null)
+        {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    }
+
+    public boolean isStarted()
+    {
+        return watchService != null;
+    }
+
+    private void register(WatchService service, Path path) throws IOException
+    {
+        WatchKey key = path.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        watchedDirectories.put(key, path);
+
+        if (recursive)
+        {
+            File[] children = path.toFile().listFiles();
+            if (children != null)
+            {
+                for (File child : children)
+                {
+                    if (child.isDirectory())
+                    {
+                        register(service, child.toPath());
+                    }
+                }
+            }
+        }
+    }
+
+    private void watch()
+    {
+        WatchService service = watchService;
+
+        try
+        {
+            while (service != null && service == watchService)
+            {
+                WatchKey key = index.isEmpty() ? service.take() : service.poll(recheckInterval, TimeUnit.MILLISECONDS);
+
+                boolean overflow = false;
+                while (key != null)
+                {
+                    overflow |= processEvents(service, key);
+                    key = service.poll();
+                }
+
+                try
+                {
+                    if (overflow)
+                    {
+                        listener.onOverflow();
+                    }
+                    else if (!index.isEmpty())
+                    {
+                        listener.onPendingFiles();
+                    }
+                }
+                catch (RuntimeException e)
+                {
+                    logger.error("Error notifying changes in directory " + directory, e);
+                }
+            }
+        }
+        catch (ClosedWatchServiceException e)
+        {
+            // Watcher was stopped
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean processEvents(WatchService service, WatchKey key)
+    {
+        Path parent = watchedDirectories.get(key);
+        boolean overflow = false;
+
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == OVERFLOW)
+            {
+                overflow = true;
+                continue;
+            }
+            if (parent == null)
+            {
+                continue;
+            }
+
+            File file = parent.resolve((Path) event.context()).toFile();
+            if (event.kind() == ENTRY_DELETE)
+            {
+                index.remove(file);
+            }
+            else if (file.isDirectory())
+            {
+                if (recursive && event.kind() == ENTRY_CREATE)
+                {
+                    try
+                    {
+                        register(service, file.toPath());
+                    }
+                    catch (IOException e)
+                    {
+                        logger.warn("Unable to watch directory " + file, e);
+                    }
+                    // Files created before the directory was registered are only found by a scan
+                    overflow = true;
+                }
+            }
+            else if (fileFilter == null || fileFilter.accept(file))
+            {
+                index.add(file);
+            }
+        }
+
+        if (!key.reset())
+        {
+            watchedDirectories.remove(key);
+        }
+
+        return overflow;
+    }
+
+    /**
+     * Receives the notifications of a {@link DirectoryWatcher}
+     */
+    public interface Listener
+    {
+
+        /**
+         * Invoked when the index may contain files ready to be processed
+         */
+        void onPendingFiles();
+
+        /**
+         * Invoked when the watcher may have missed changes in the directory, so
+         * the index must be reconciled with a directory scan
+         */
+        void onOverflow();
+    }
+}
@@ -73,6 +73,8 @@ public class FileConnector extends AbstractConnector
     public static final String PROPERTY_FILE_TIMESTAMP = "timestamp";
 
     public static final long DEFAULT_POLLING_FREQUENCY = 1000;
+    public static final long DEFAULT_FILE_STABILITY_PERIOD = 500;
+    public static final long DEFAULT_WATCH_RECONCILE_INTERVAL = 300000;
 
     /**
      * Time in milliseconds to poll. On each poll the poll() method is called
@@ -111,6 +113,14 @@ public class FileConnector extends AbstractConnector
 
     private boolean recursive = false;
 
+    private boolean watchDirectory = false;
+
+    private long fileStabilityPeriod = DEFAULT_FILE_STABILITY_PERIOD;
+
+    private long watchReconcileInterval = DEFAULT_WATCH_RECONCILE_INTERVAL;
+
+    private boolean syncWrites = false;
+
     public FileConnector(MuleContext context)
     {
         super(context);
@@ -628,4 +638,44 @@ public class FileConnector extends AbstractConnector
     {
         this.recursive = recursive;
     }
+
+    public boolean isWatchDirectory()
+    {
+        return watchDirectory;
+    }
+
+    public void setWatchDirectory(boolean watchDirectory)
+    {
+        this.watchDirectory = watchDirectory;
+    }
+
+    public long getFileStabilityPeriod()
+    {
+        return fileStabilityPeriod;
+    }
+
+    public void setFileStabilityPeriod(long fileStabilityPeriod)
+    {
+        this.fileStabilityPeriod = fileStabilityPeriod;
+    }
+
+    public boolean isSyncWrites()
+    {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(boolean syncWrites)
+    {
+        this.syncWrites = syncWrites;
+    }
+
+    public long getWatchReconcileInterval()
+    {
+        return watchReconcileInterval;
+    }
+
+    public void setWatchReconcileInterval(long watchReconcileInterval)
+    {
+        this.watchReconcileInterval = watchReconcileInterval;
+    }
 }
@@ -21,17 +21,25 @@ import org.mule.util.FileUtils;
 import org.mule.util.IOUtils;
 import org.mule.util.StringUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * <code>FileMessageDispatcher</code> is used to read/write files to the filesystem
  */
 public class FileMessageDispatcher extends AbstractMessageDispatcher
 {
+    /**
+     * Size of the buffer used to write {@link OutputHandler} payloads
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     private final FileConnector connector;
 
     public FileMessageDispatcher(OutboundEndpoint endpoint)
@@ -70,9 +78,37 @@ public class FileMessageDispatcher extends AbstractMessageDispatcher
             {
                 fos.write(data.toString().getBytes(event.getEncoding()));
             }
+            else if (data instanceof File)
+            {
+                // Let the file system copy the contents instead of reading them into memory
+                FileInputStream fis = new FileInputStream((File) data);
+                try
+                {
+                    FileTransferUtils.transfer(fis.getChannel(), fos.getChannel());
+                }
+                finally
+                {
+                    fis.close();
+                }
+            }
+            else if (data instanceof FileInputStream)
+            {
+                // Covers the streams of received files, which are moved or deleted when closed
+                FileInputStream fis = (FileInputStream) data;
+                try
+                {
+                    FileTransferUtils.transfer(fis.getChannel(), fos.getChannel());
+                }
+                finally
+                {
+                    fis.close();
+                }
+            }
             else if (data instanceof OutputHandler)
             {
-                ((OutputHandler) data).write(event, fos);
+                OutputStream bos = new BufferedOutputStream(fos, WRITE_BUFFER_SIZE);
+                ((OutputHandler) data).write(event, bos);
+                bos.flush();
             }
             else
             {
@@ -80,6 +116,11 @@ public class FileMessageDispatcher extends AbstractMessageDispatcher
                 IOUtils.copyLarge(is, fos);
                 is.close();
             }
+
+            if (connector.isSyncWrites())
+            {
+                fos.getChannel().force(true);
+            }
         }
         finally
         {
@@ -33,6 +33,8 @@ import org.mule.transport.AbstractPollingMessageReceiver;
 import org.mule.transport.ConnectException;
 import org.mule.transport.file.i18n.FileMessages;
 import org.mule.util.FileUtils;
+import org.mule.util.concurrent.NamedThreadFactory;
+import org.mule.util.concurrent.ThreadNameHelper;
 import org.mule.util.lock.LockFactory;
 
 import java.io.File;
@@ -50,11 +52,19 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+
 import org.apache.commons.collections.comparators.ReverseComparator;
 
 /**
  * <code>FileMessageReceiver</code> is a polling listener that reads files from a
  * directory.
+ * <p/>
+ * When the connector watches the directory, new files are found through a
+ * {@link DirectoryWatcher} and kept in a {@link PendingFileIndex} until they are stable.
+ * The directory is only listed to reconcile the index with its contents when the
+ * watcher loses events and every watch reconcile interval of the connector.
  */
 
 public class FileMessageReceiver extends AbstractPollingMessageReceiver
@@ -79,6 +89,13 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
     private LockFactory lockFactory;
     private boolean poolOnPrimaryInstanceOnly;
     private ObjectStore<String> filesBeingProcessingObjectStore;
+    private volatile PendingFileIndex pendingFileIndex;
+    private DirectoryWatcher directoryWatcher;
+    private final AtomicBoolean pendingFilesScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean processingPendingFiles = new AtomicBoolean(false);
+    private final AtomicBoolean pendingFilesChanged = new AtomicBoolean(false);
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean(false);
+    private volatile long lastReconcile;
 
     public FileMessageReceiver(Connector connector,
                                FlowConstruct flowConstruct,
@@ -179,6 +196,71 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
         // template method
     }
 
+    @Override
+    protected void doStart() throws MuleException
+    {
+        if (fileConnector.isWatchDirectory() && readDirectory != null)
+        {
+            startWatching();
+        }
+
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws MuleException
+    {
+        super.doStop();
+
+        if (directoryWatcher != null)
+        {
+            directoryWatcher.stop();
+            directoryWatcher = null;
+            pendingFileIndex = null;
+        }
+    }
+
+    private void startWatching()
+    {
+        PendingFileIndex index = new PendingFileIndex(fileConnector.getFileStabilityPeriod());
+        DirectoryWatcher watcher = new DirectoryWatcher(readDirectory, fileConnector.isRecursive(), new FileFilter()
+        {
+            @Override
+            public boolean accept(File file)
+            {
+                return acceptFile(file.getParentFile(), file);
+            }
+        }, index, new DirectoryWatcher.Listener()
+        {
+            @Override
+            public void onPendingFiles()
+            {
+                schedulePendingFiles();
+            }
+
+            @Override
+            public void onOverflow()
+            {
+                reconcileRequested.set(true);
+                schedulePendingFiles();
+            }
+        }, fileConnector.getFileStabilityPeriod());
+
+        try
+        {
+            watcher.start(new NamedThreadFactory(ThreadNameHelper.receiver(getEndpoint().getMuleContext(), connector.getName()) + ".watcher"));
+            pendingFileIndex = index;
+            directoryWatcher = watcher;
+            // Finds the files already in the directory on the first poll
+            reconcileRequested.set(true);
+        }
+        catch (IOException e)
+        {
+            logger.warn(String.format("Unable to watch directory '%s', it will be polled instead", readDirectory.getAbsolutePath()), e);
+            pendingFileIndex = null;
+        }
+    }
+
     @Override
     protected void doDispose()
     {
@@ -190,65 +272,174 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
     {
         try
         {
+            if (pendingFileIndex != null)
+            {
+                // Safety net for the files that the directory watcher may have missed
+                // without reporting an overflow, or that failed to be processed
+                if (System.currentTimeMillis() - lastReconcile >= fileConnector.getWatchReconcileInterval())
+                {
+                    reconcileRequested.set(true);
+                }
+                processPendingFiles();
+                return;
+            }
+
             List<File> files = this.listFiles();
             if (logger.isDebugEnabled())
             {
                 logger.debug("Files: " + files.toString());
             }
-            Comparator<File> comparator = getComparator();
-            if (comparator != null)
+            processFiles(files);
+        }
+        catch (Exception e)
+        {
+            getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+        }
+    }
+
+    /**
+     * Schedules the processing of the stable files of the pending file index, unless
+     * it is already scheduled.
+     */
+    private void schedulePendingFiles()
+    {
+        if (pollOnPrimaryInstanceOnly() && !getEndpoint().getMuleContext().isPrimaryPollingInstance())
+        {
+            return;
+        }
+        if (!pendingFilesScheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            getWorkManager().scheduleWork(new Work()
             {
-                Collections.sort(files, comparator);
-            }
-            for (File file : files)
+                @Override
+                public void run()
+                {
+                    pendingFilesScheduled.set(false);
+                    try
+                    {
+                        processPendingFiles();
+                    }
+                    catch (Exception e)
+                    {
+                        getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                    }
+                }
+
+                @Override
+                public void release()
+                {
+                    // nothing to do
+                }
+            });
+        }
+        catch (WorkException e)
+        {
+            pendingFilesScheduled.set(false);
+            getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+        }
+    }
+
+    /**
+     * Processes the stable files of the pending file index. Only one thread processes
+     * them at a time, the others just ask it to check the index again once it is done.
+     */
+    protected void processPendingFiles() throws Exception
+    {
+        PendingFileIndex index = pendingFileIndex;
+        if (index == null)
+        {
+            return;
+        }
+
+        pendingFilesChanged.set(true);
+        while (pendingFilesChanged.get() && processingPendingFiles.compareAndSet(false, true))
+        {
+            try
             {
-                if (getLifecycleState().isStopping())
+                pendingFilesChanged.set(false);
+                if (reconcileRequested.getAndSet(false))
                 {
-                    break;
+                    lastReconcile = System.currentTimeMillis();
+                    index.reconcile(listFiles());
                 }
-                // don't process directories
-                if (file.isFile())
+
+                List<File> files = index.getStableFiles();
+                if (logger.isDebugEnabled() && !files.isEmpty())
                 {
-                    Lock fileLock = lockFactory.createLock(file.getName());
-                    if (fileLock.tryLock())
+                    logger.debug("Stable files: " + files.toString());
+                }
+                processFiles(files);
+            }
+            finally
+            {
+                processingPendingFiles.set(false);
+            }
+        }
+    }
+
+    private void processFiles(List<File> files) throws Exception
+    {
+        Comparator<File> comparator = getComparator();
+        if (comparator != null)
+        {
+            Collections.sort(files, comparator);
+        }
+        for (File file : files)
+        {
+            if (getLifecycleState().isStopping())
+            {
+                break;
+            }
+            PendingFileIndex index = pendingFileIndex;
+            if (index != null)
+            {
+                // Files still in the read directory after processing are found by the next
+                // reconciliation or when they receive a new event
+                index.remove(file);
+            }
+            // don't process directories
+            if (file.isFile())
+            {
+                Lock fileLock = lockFactory.createLock(file.getName());
+                if (fileLock.tryLock())
+                {
+                    try
                     {
+                        String fileAbsolutePath = file.getAbsolutePath();
                         try
                         {
-                            String fileAbsolutePath = file.getAbsolutePath();
-                            try
-                            {
-                                filesBeingProcessingObjectStore.store(fileAbsolutePath, fileAbsolutePath);
+                            filesBeingProcessingObjectStore.store(fileAbsolutePath, fileAbsolutePath);
 
-                                if (logger.isDebugEnabled())
-                                {
-                                    logger.debug(String.format("Flag for '%s' stored successfully.", fileAbsolutePath));
-                                }
-                            }
-                            catch (ObjectAlreadyExistsException e)
+                            if (logger.isDebugEnabled())
                             {
-                                if (logger.isDebugEnabled())
-                                {
-                                    logger.debug(String.format("Flag for '%s' being processed is on. Skipping file.", fileAbsolutePath));
-                                }
-                                continue;
+                                logger.debug(String.format("Flag for '%s' stored successfully.", fileAbsolutePath));
                             }
-                            if (file.exists())
+                        }
+                        catch (ObjectAlreadyExistsException e)
+                        {
+                            if (logger.isDebugEnabled())
                             {
-                                processFile(file);
+                                logger.debug(String.format("Flag for '%s' being processed is on. Skipping file.", fileAbsolutePath));
                             }
+                            continue;
                         }
-                        finally
+                        if (file.exists())
                         {
-                            fileLock.unlock();
+                            processFile(file);
                         }
                     }
+                    finally
+                    {
+                        fileLock.unlock();
+                    }
                 }
             }
         }
-        catch (Exception e)
-        {
-            getEndpoint().getMuleContext().getExceptionListener().handleException(e);
-        }
     }
 
     @Override
@@ -275,14 +466,18 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
             throw new DefaultMuleException(FileMessages.fileDoesNotExist(file.getName()));
         }
 
-        // don't process a file that is locked by another process (probably still being written)
-        if (!attemptFileLock(file))
-        {
-            return;
-        }
-        else if(logger.isInfoEnabled())
+        // don't process a file that is locked by another process (probably still being written),
+        // unless the pending file index already found it to be stable
+        if (pendingFileIndex == null)
         {
-            logger.info("Lock obtained on file: " + file.getAbsolutePath());
+            if (!attemptFileLock(file))
+            {
+                return;
+            }
+            else if(logger.isInfoEnabled())
+            {
+                logger.info("Lock obtained on file: " + file.getAbsolutePath());
+            }
         }
 
         // The file may get moved/renamed here so store the original file info.
@@ -560,7 +755,7 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
             // move sourceFile to new destination
             try
             {
-                FileUtils.moveFile(sourceFile, destinationFile);
+                FileTransferUtils.moveFile(sourceFile, destinationFile, false, fileConnector.isSyncWrites());
             }
             catch (IOException e)
             {
@@ -718,27 +913,30 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
                     basicListFiles(file, discoveredFiles);
                 }
             }
-            else
+            else if (acceptFile(currentDirectory, file))
             {
-                boolean addFile = true;
-
-                if (fileFilter != null)
-                {
-                    addFile = fileFilter.accept(file);
-                }
-                else if (filenameFilter != null)
-                {
-                    addFile = filenameFilter.accept(currentDirectory, file.getName());
-                }
-
-                if (addFile)
-                {
-                    discoveredFiles.add(file);
-                }
+                discoveredFiles.add(file);
             }
         }
     }
 
+    /**
+     * Checks whether a file found in a directory passes the endpoint filter
+     */
+    protected boolean acceptFile(File directory, File file)
+    {
+        if (fileFilter != null)
+        {
+            return fileFilter.accept(file);
+        }
+        else if (filenameFilter != null)
+        {
+            return filenameFilter.accept(directory, file.getName());
+        }
+
+        return true;
+    }
+
     /**
      * Exception tolerant roll back method
      *
@@ -748,7 +946,7 @@ public class FileMessageReceiver extends AbstractPollingMessageReceiver
     {
         try
         {
-            FileUtils.moveFile(sourceFile, FileUtils.newFile(destinationFilePath));
+            FileTransferUtils.moveFile(sourceFile, FileUtils.newFile(destinationFilePath), false, fileConnector.isSyncWrites());
         }
         catch (IOException t)
         {
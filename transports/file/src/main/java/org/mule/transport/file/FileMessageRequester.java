@@ -215,7 +215,7 @@ public class FileMessageRequester extends AbstractMessageRequester
             // move sourceFile to new destination
             try
             {
-                FileUtils.moveFile(sourceFile, destinationFile);
+                FileTransferUtils.moveFile(sourceFile, destinationFile, false, fileConnector.isSyncWrites());
             }
             catch (IOException e)
             {
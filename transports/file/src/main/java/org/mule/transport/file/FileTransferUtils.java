@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Moves and copies files using {@link FileChannel} transfers, so the file contents are
+ * copied by the operating system instead of going through the heap.
+ */
+public class FileTransferUtils
+{
+
+    /**
+     * Maximum number of bytes transferred on each {@link FileChannel#transferTo} call.
+     * Some platforms fail or transfer nothing when asked for larger chunks.
+     */
+    private static final long MAX_TRANSFER_SIZE = 64L * 1024 * 1024;
+
+    private static final Log logger = LogFactory.getLog(FileTransferUtils.class);
+
+    private FileTransferUtils()
+    {
+        // empty, just to restrict instanciation
+    }
+
+    /**
+     * Moves a file using an atomic rename whenever the file system supports it.
+     * When both files are on different file systems, the source is copied to a temporary
+     * file next to the destination that is then renamed to the destination, so the
+     * destination is never seen partially written.
+     *
+     * @param sourceFile file to move
+     * @param destinationFile new location of the file
+     * @param replaceExisting whether an existing destination file must be replaced
+     * @param sync whether to force the copied contents to the storage device before
+     *            renaming them to the destination
+     * @throws IOException if the file cannot be moved
+     */
+    public static void moveFile(File sourceFile, File destinationFile, boolean replaceExisting, boolean sync) throws IOException
+    {
+        if (!replaceExisting && destinationFile.exists())
+        {
+            throw new IOException(String.format("Destination file '%s' already exists", destinationFile));
+        }
+
+        File destinationDirectory = destinationFile.getAbsoluteFile().getParentFile();
+        if (destinationDirectory != null && !destinationDirectory.exists() && !destinationDirectory.mkdirs())
+        {
+            throw new IOException(String.format("Unable to create directory '%s'", destinationDirectory));
+        }
+
+        try
+        {
+            Files.move(sourceFile.toPath(), destinationFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(String.format("Unable to rename '%s' to '%s', copying it instead", sourceFile, destinationFile));
+            }
+        }
+
+        File tempFile = File.createTempFile("." + destinationFile.getName(), ".tmp", destinationDirectory);
+        try
+        {
+            copyFile(sourceFile, tempFile, sync);
+            Files.move(tempFile.toPath(), destinationFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            if (tempFile.exists() && !tempFile.delete())
+            {
+                logger.warn(String.format("Unable to delete temporary file '%s'", tempFile));
+            }
+        }
+
+        if (!sourceFile.delete())
+        {
+            throw new IOException(String.format("File '%s' was copied to '%s' but could not be deleted", sourceFile, destinationFile));
+        }
+    }
+
+    /**
+     * Copies the contents of a file into another one, replacing its contents.
+     *
+     * @param sourceFile file to copy
+     * @param destinationFile file to write
+     * @param sync whether to force the copied contents to the storage device
+     * @throws IOException if the file cannot be copied
+     */
+    public static void copyFile(File sourceFile, File destinationFile, boolean sync) throws IOException
+    {
+        FileInputStream input = new FileInputStream(sourceFile);
+        try
+        {
+            FileOutputStream output = new FileOutputStream(destinationFile);
+            try
+            {
+                transfer(input.getChannel(), output.getChannel());
+                if (sync)
+                {
+                    output.getChannel().force(true);
+                }
+            }
+            finally
+            {
+                output.close();
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+
+        destinationFile.setLastModified(sourceFile.lastModified());
+    }
+
+    /**
+     * Transfers the remaining contents of a file channel, starting at its current position,
+     * to another channel. The position of the source channel is moved to its end.
+     *
+     * @param source channel to read
+     * @param target channel to write
+     * @return the number of transferred bytes
+     * @throws IOException if the contents cannot be transferred
+     */
+    public static long transfer(FileChannel source, WritableByteChannel target) throws IOException
+    {
+        long position = source.position();
+        long size = source.size();
+        long transferred = 0;
+
+        while (position + transferred < size)
+        {
+            long count = source.transferTo(position + transferred, Math.min(MAX_TRANSFER_SIZE, size - position - transferred), target);
+            if (count <= 0)
+            {
+                // File was truncated while it was being transferred
+                break;
+            }
+            transferred += count;
+        }
+
+        source.position(position + transferred);
+
+        return transferred;
+    }
+}
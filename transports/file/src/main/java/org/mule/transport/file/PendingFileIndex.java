@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the files found in a directory that are pending to be processed.
+ * <p/>
+ * Instead of trying to lock a file to find out whether it is still being written, the
+ * index records the size and the last modification time of each file and considers a
+ * file stable once both have not changed during the stability period. The state of a
+ * file is only read again when it receives an event or when its stability period
+ * elapses, so files waiting to become stable are not checked on every lookup.
+ */
+public class PendingFileIndex
+{
+
+    private final ConcurrentMap<String, PendingFile> pendingFiles = new ConcurrentHashMap<String, PendingFile>();
+    private final long stabilityPeriod;
+
+    /**
+     * @param stabilityPeriod time in milliseconds during which the size and the last
+     *            modification time of a file must not change before processing it
+     */
+    public PendingFileIndex(long stabilityPeriod)
+    {
+        this.stabilityPeriod = stabilityPeriod;
+    }
+
+    /**
+     * Adds a file to the index or refreshes its state if it was already indexed. Used
+     * for the files that received an event.
+     */
+    public void add(File file)
+    {
+        long now = System.currentTimeMillis();
+        String path = file.getAbsolutePath();
+        PendingFile pendingFile = pendingFiles.get(path);
+        if (pendingFile == null)
+        {
+            pendingFile = pendingFiles.putIfAbsent(path, new PendingFile(file, now));
+        }
+        if (pendingFile != null)
+        {
+            pendingFile.refresh(now);
+        }
+    }
+
+    public void remove(File file)
+    {
+        pendingFiles.remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Replaces the indexed files with the result of a full directory scan. The files
+     * that were already indexed keep their state and are not checked again.
+     */
+    public void reconcile(Collection<File> files)
+    {
+        long now = System.currentTimeMillis();
+        Set<String> listedPaths = new HashSet<String>();
+        for (File file : files)
+        {
+            String path = file.getAbsolutePath();
+            listedPaths.add(path);
+            if (!pendingFiles.containsKey(path))
+            {
+                pendingFiles.putIfAbsent(path, new PendingFile(file, now));
+            }
+        }
+
+        pendingFiles.keySet().retainAll(listedPaths);
+    }
+
+    /**
+     * Returns the indexed files that did not change during the stability period,
+     * dropping the ones that no longer exist. Only the files whose stability period
+     * elapsed are checked, in case they changed without an event.
+     */
+    public List<File> getStableFiles()
+    {
+        long now = System.currentTimeMillis();
+        List<File> stableFiles = new ArrayList<File>();
+
+        for (Iterator<PendingFile> it = pendingFiles.values().iterator(); it.hasNext(); )
+        {
+            PendingFile pendingFile = it.next();
+            if (!pendingFile.isStable(now, stabilityPeriod))
+            {
+                continue;
+            }
+            if (!pendingFile.refresh(now))
+            {
+                it.remove();
+            }
+            else if (pendingFile.isStable(now, stabilityPeriod))
+            {
+                stableFiles.add(pendingFile.file);
+            }
+        }
+
+        return stableFiles;
+    }
+
+    public boolean isEmpty()
+    {
+        return pendingFiles.isEmpty();
+    }
+
+    public int size()
+    {
+        return pendingFiles.size();
+    }
+
+    public void clear()
+    {
+        pendingFiles.clear();
+    }
+
+    private static class PendingFile
+    {
+
+        private final File file;
+        private long length;
+        private long lastModified;
+        private long lastChange;
+
+        private PendingFile(File file, long now)
+        {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.lastChange = now;
+        }
+
+        /**
+         * Updates the observed state of the file
+         *
+         * @return false if the file does not exist anymore
+         */
+        synchronized boolean refresh(long now)
+        {
+            long currentLastModified = file.lastModified();
+            if (currentLastModified == 0L && !file.exists())
+            {
+                return false;
+            }
+
+            long currentLength = file.length();
+            if (currentLength != length || currentLastModified != lastModified)
+            {
+                length = currentLength;
+                lastModified = currentLastModified;
+                lastChange = now;
+            }
+
+            return true;
+        }
+
+        synchronized boolean isStable(long now, long stabilityPeriod)
+        {
+            return now - lastChange >= stabilityPeriod;
+        }
+    }
+}
@@ -8,7 +8,6 @@ package org.mule.transport.file;
 
 import org.mule.api.DefaultMuleException;
 import org.mule.transport.file.i18n.FileMessages;
-import org.mule.util.FileUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -59,9 +58,17 @@ class ReceiverFileInputStream extends FileInputStream
         {
             if (moveToOnClose != null)
             {
-                if (!FileUtils.moveFileWithCopyFallback(currentFile, moveToOnClose))
+                // try fast file-system-level move/rename first
+                if (!currentFile.renameTo(moveToOnClose))
                 {
-                    logger.warn(String.format("Failed to move file from %s to %s\n", currentFile.getPath(), moveToOnClose.getPath()));
+                    try
+                    {
+                        FileTransferUtils.moveFile(currentFile, moveToOnClose, true, false);
+                    }
+                    catch (IOException e)
+                    {
+                        logger.warn(String.format("Failed to move file from %s to %s\n", currentFile.getPath(), moveToOnClose.getPath()), e);
+                    }
                 }
             }
             else if (deleteOnClose)
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SmallTest
+public class FileTransferUtilsTestCase extends AbstractMuleTestCase
+{
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void movesFileToNewDirectory() throws Exception
+    {
+        File source = createFile("source.txt");
+        File destination = new File(temporaryFolder.getRoot(), "moved/destination.txt");
+
+        FileTransferUtils.moveFile(source, destination, false, false);
+
+        assertThat(source.exists(), is(false));
+        assertThat(FileUtils.readFileToString(destination), equalTo(TEST_MESSAGE));
+    }
+
+    @Test(expected = IOException.class)
+    public void doesNotReplaceExistingFile() throws Exception
+    {
+        File source = createFile("source.txt");
+        File destination = temporaryFolder.newFile("destination.txt");
+
+        FileTransferUtils.moveFile(source, destination, false, false);
+    }
+
+    @Test
+    public void replacesExistingFile() throws Exception
+    {
+        File source = createFile("source.txt");
+        File destination = temporaryFolder.newFile("destination.txt");
+
+        FileTransferUtils.moveFile(source, destination, true, true);
+
+        assertThat(source.exists(), is(false));
+        assertThat(FileUtils.readFileToString(destination), equalTo(TEST_MESSAGE));
+    }
+
+    @Test
+    public void copiesFile() throws Exception
+    {
+        File source = createFile("source.txt");
+        File destination = new File(temporaryFolder.getRoot(), "destination.txt");
+
+        FileTransferUtils.copyFile(source, destination, true);
+
+        assertThat(FileUtils.readFileToString(source), equalTo(TEST_MESSAGE));
+        assertThat(FileUtils.readFileToString(destination), equalTo(TEST_MESSAGE));
+    }
+
+    @Test
+    public void transfersFromCurrentPosition() throws Exception
+    {
+        File source = createFile("source.txt");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        FileInputStream input = new FileInputStream(source);
+        try
+        {
+            input.getChannel().position(5);
+            long transferred = FileTransferUtils.transfer(input.getChannel(), Channels.newChannel(output));
+
+            assertThat(transferred, equalTo((long) TEST_MESSAGE.length() - 5));
+            assertThat(input.getChannel().position(), equalTo((long) TEST_MESSAGE.length()));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertThat(output.toString(), equalTo(TEST_MESSAGE.substring(5)));
+    }
+
+    private File createFile(String name) throws IOException
+    {
+        File file = temporaryFolder.newFile(name);
+        FileUtils.writeStringToFile(file, TEST_MESSAGE);
+        return file;
+    }
+}
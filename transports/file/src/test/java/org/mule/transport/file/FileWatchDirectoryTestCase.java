@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mule.transport.file.FileTestUtils.createDataFile;
+
+import org.mule.api.MuleMessage;
+import org.mule.tck.junit4.FunctionalTestCase;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class FileWatchDirectoryTestCase extends FunctionalTestCase
+{
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "file-watch-directory-config.xml";
+    }
+
+    @Test
+    public void processesFilesCreatedAfterStart() throws Exception
+    {
+        File inDirectory = getFileInsideWorkingDirectory("in");
+
+        for (int i = 0; i < 3; i++)
+        {
+            createDataFile(inDirectory, TEST_MESSAGE + i, "UTF-8");
+        }
+
+        for (int i = 0; i < 3; i++)
+        {
+            MuleMessage response = muleContext.getClient().request("vm://testOut", RECEIVE_TIMEOUT);
+            assertNotNull("File was not processed", response);
+            assertEquals(TEST_MESSAGE.length() + 1, response.getPayloadAsString().length());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.file;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.FileUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SmallTest
+public class PendingFileIndexTestCase extends AbstractMuleTestCase
+{
+
+    private static final long STABILITY_PERIOD = 60000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void returnsFilesOnceStable() throws Exception
+    {
+        File file = temporaryFolder.newFile("stable.txt");
+        PendingFileIndex index = new PendingFileIndex(0);
+
+        index.add(file);
+
+        assertThat(index.getStableFiles(), equalTo(Collections.singletonList(file)));
+    }
+
+    @Test
+    public void doesNotReturnFilesStillChanging() throws Exception
+    {
+        File file = temporaryFolder.newFile("changing.txt");
+        PendingFileIndex index = new PendingFileIndex(STABILITY_PERIOD);
+
+        index.add(file);
+        FileUtils.writeStringToFile(file, TEST_MESSAGE);
+
+        assertThat(index.getStableFiles().isEmpty(), is(true));
+        assertThat(index.size(), equalTo(1));
+    }
+
+    @Test
+    public void checksFileChangedWithoutEventOnceStabilityPeriodElapses() throws Exception
+    {
+        File file = temporaryFolder.newFile("missedEvent.txt");
+        PendingFileIndex index = new PendingFileIndex(50);
+
+        index.add(file);
+        FileUtils.writeStringToFile(file, TEST_MESSAGE);
+        Thread.sleep(100);
+
+        assertThat(index.getStableFiles().isEmpty(), is(true));
+        Thread.sleep(100);
+        assertThat(index.getStableFiles(), equalTo(Collections.singletonList(file)));
+    }
+
+    @Test
+    public void dropsDeletedFiles() throws Exception
+    {
+        File file = temporaryFolder.newFile("deleted.txt");
+        PendingFileIndex index = new PendingFileIndex(0);
+
+        index.add(file);
+        file.delete();
+
+        assertThat(index.getStableFiles().isEmpty(), is(true));
+        assertThat(index.isEmpty(), is(true));
+    }
+
+    @Test
+    public void reconcilesWithDirectoryContents() throws Exception
+    {
+        File removed = temporaryFolder.newFile("removed.txt");
+        File kept = temporaryFolder.newFile("kept.txt");
+        File missed = temporaryFolder.newFile("missed.txt");
+        PendingFileIndex index = new PendingFileIndex(0);
+        index.add(removed);
+        index.add(kept);
+
+        index.reconcile(Arrays.asList(kept, missed));
+
+        assertThat(index.size(), equalTo(2));
+        index.remove(kept);
+        assertThat(index.getStableFiles(), equalTo(Collections.singletonList(missed)));
+    }
+}
@@ -25,23 +25,29 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.config.i18n.MessageFactory;
 import org.mule.model.streaming.CallbackOutputStream;
 import org.mule.transport.AbstractConnector;
+import org.mule.transport.ConcurrentKeyedObjectPool;
+import org.mule.transport.ConfigurableKeyedObjectPool;
 import org.mule.transport.ConnectException;
 import org.mule.transport.file.ExpressionFilenameParser;
 import org.mule.transport.file.FilenameParser;
 import org.mule.util.ClassUtils;
 import org.mule.util.StringUtils;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.pool.KeyedPoolableObjectFactory;
 import org.apache.commons.pool.ObjectPool;
+import org.apache.commons.pool.PoolUtils;
 import org.apache.commons.pool.impl.GenericObjectPool;
 
 public class FtpConnector extends AbstractConnector
@@ -65,6 +71,8 @@ public class FtpConnector extends AbstractConnector
      */
     public static final String DEFAULT_FTP_CONNECTION_FACTORY_CLASS = "org.mule.transport.ftp.FtpConnectionFactory";
 
+    public static final long DEFAULT_IDLE_VALIDATION_INTERVAL = 30000;
+
     /**
      * Time in milliseconds to poll. On each poll the poll() method is called
      */
@@ -83,7 +91,15 @@ public class FtpConnector extends AbstractConnector
 
     private int connectionTimeout = 0;
 
-    private Map<String, ObjectPool> pools;
+    /**
+     * Time in milliseconds between validations of the idle connections, when
+     * connections are validated
+     */
+    private long idleValidationInterval = DEFAULT_IDLE_VALIDATION_INTERVAL;
+
+    private volatile ConcurrentKeyedObjectPool pools;
+
+    private final ConcurrentMap<String, FtpConnectionFactory> connectionFactories = new ConcurrentHashMap<String, FtpConnectionFactory>();
 
     private String connectionFactoryClass = DEFAULT_FTP_CONNECTION_FACTORY_CLASS;
 
@@ -165,13 +181,35 @@ public class FtpConnector extends AbstractConnector
         this.connectionFactoryClass = connectionFactoryClass;
     }
 
+    public long getIdleValidationInterval()
+    {
+        return idleValidationInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds between validations of the idle connections. Only
+     * used when the connector validates its connections.
+     */
+    public void setIdleValidationInterval(long idleValidationInterval)
+    {
+        this.idleValidationInterval = idleValidationInterval;
+    }
+
+    /**
+     * @return the pool of the connections of every endpoint of this connector
+     */
+    protected ConcurrentKeyedObjectPool getFtpPools()
+    {
+        return pools;
+    }
+
     public FTPClient getFtp(EndpointURI uri) throws Exception
     {
         if (logger.isDebugEnabled())
         {
             logger.debug(">>> retrieving client for " + uri);
         }
-        return (FTPClient) getFtpPool(uri).borrowObject();
+        return (FTPClient) pools.borrowObject(getPoolKey(uri));
     }
 
     public void releaseFtp(EndpointURI uri, FTPClient client) throws Exception
@@ -186,7 +224,7 @@ public class FtpConnector extends AbstractConnector
         }
         else
         {
-            getFtpPool(uri).returnObject(client);
+            pools.returnObject(getPoolKey(uri), client);
         }
     }
 
@@ -198,7 +236,7 @@ public class FtpConnector extends AbstractConnector
         }
         try
         {
-            getFtpPool(uri).invalidateObject(client);
+            pools.invalidateObject(getPoolKey(uri), client);
         }
         catch (Exception e)
         {
@@ -207,15 +245,23 @@ public class FtpConnector extends AbstractConnector
         }
     }
 
-    protected synchronized ObjectPool getFtpPool(EndpointURI uri)
+    protected ObjectPool getFtpPool(EndpointURI uri)
     {
         if (logger.isDebugEnabled())
         {
             logger.debug("=== get pool for " + uri);
         }
+        return PoolUtils.adapt(pools, getPoolKey(uri));
+    }
+
+    /**
+     * Returns the key of the pooled connections to the given URI, registering the
+     * factory of those connections the first time the key is used.
+     */
+    private String getPoolKey(EndpointURI uri)
+    {
         String key = uri.getUser() + ":" + uri.getPassword() + "@" + uri.getHost() + ":" + uri.getPort();
-        ObjectPool pool = pools.get(key);
-        if (pool == null)
+        if (!connectionFactories.containsKey(key))
         {
             try
             {
@@ -223,9 +269,7 @@ public class FtpConnector extends AbstractConnector
                         (FtpConnectionFactory) ClassUtils.instanciateClass(getConnectionFactoryClass(),
                                                                             new Object[] {uri}, getClass());
                 connectionFactory.setConnectionTimeout(connectionTimeout);
-                GenericObjectPool genericPool = createPool(connectionFactory);
-                pools.put(key, genericPool);
-                pool = genericPool;
+                connectionFactories.putIfAbsent(key, connectionFactory);
             }
             catch (Exception ex)
             {
@@ -233,12 +277,44 @@ public class FtpConnector extends AbstractConnector
                         MessageFactory.createStaticMessage("Hmm, couldn't instanciate FTP connection factory."), ex);
             }
         }
+        return key;
+    }
+
+    /**
+     * Creates the pool of the connections of every endpoint of this connector. The pool
+     * never blocks threads borrowing or returning connections, and connections are
+     * validated while they are idle instead of every time they are borrowed.
+     */
+    protected ConcurrentKeyedObjectPool createPool()
+    {
+        ConcurrentKeyedObjectPool pool = new ConcurrentKeyedObjectPool(ThreadNameHelper.getPrefix(muleContext) + "ftp.pool." + getName());
+        pool.setFactory(new PooledConnectionFactory());
+        pool.setWhenExhaustedAction(getPoolExhaustedAction());
+        pool.setTestOnReturn(false);
+        if (isValidateConnections())
+        {
+            pool.setTestWhileIdle(true);
+            pool.setTimeBetweenEvictionRunsMillis(idleValidationInterval);
+        }
         return pool;
     }
 
+    /**
+     * @deprecated the connections of every endpoint are kept in the pool created by
+     *             {@link #createPool()}, so this method is no longer used by the
+     *             connector
+     */
+    @Deprecated
     protected GenericObjectPool createPool(FtpConnectionFactory connectionFactory)
     {
         GenericObjectPool genericPool = new GenericObjectPool(connectionFactory);
+        genericPool.setWhenExhaustedAction(getPoolExhaustedAction());
+        genericPool.setTestOnBorrow(isValidateConnections());
+        return genericPool;
+    }
+
+    private byte getPoolExhaustedAction()
+    {
         byte poolExhaustedAction = ThreadingProfile.DEFAULT_POOL_EXHAUST_ACTION;
 
         ThreadingProfile receiverThreadingProfile = this.getReceiverThreadingProfile();
@@ -247,21 +323,51 @@ public class FtpConnector extends AbstractConnector
             int threadingProfilePoolExhaustedAction = receiverThreadingProfile.getPoolExhaustedAction();
             if (threadingProfilePoolExhaustedAction == ThreadingProfile.WHEN_EXHAUSTED_WAIT)
             {
-                poolExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_BLOCK;
+                poolExhaustedAction = ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_BLOCK;
             }
             else if (threadingProfilePoolExhaustedAction == ThreadingProfile.WHEN_EXHAUSTED_ABORT)
             {
-                poolExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_FAIL;
+                poolExhaustedAction = ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_FAIL;
             }
             else if (threadingProfilePoolExhaustedAction == ThreadingProfile.WHEN_EXHAUSTED_RUN)
             {
-                poolExhaustedAction = GenericObjectPool.WHEN_EXHAUSTED_GROW;
+                poolExhaustedAction = ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_GROW;
             }
         }
+        return poolExhaustedAction;
+    }
 
-        genericPool.setWhenExhaustedAction(poolExhaustedAction);
-        genericPool.setTestOnBorrow(isValidateConnections());
-        return genericPool;
+    /**
+     * Creates the connections of each key using the {@link FtpConnectionFactory}
+     * registered for that key
+     */
+    private class PooledConnectionFactory implements KeyedPoolableObjectFactory
+    {
+
+        public Object makeObject(Object key) throws Exception
+        {
+            return connectionFactories.get(key).makeObject();
+        }
+
+        public void destroyObject(Object key, Object obj) throws Exception
+        {
+            connectionFactories.get(key).destroyObject(obj);
+        }
+
+        public boolean validateObject(Object key, Object obj)
+        {
+            return connectionFactories.get(key).validateObject(obj);
+        }
+
+        public void activateObject(Object key, Object obj) throws Exception
+        {
+            connectionFactories.get(key).activateObject(obj);
+        }
+
+        public void passivateObject(Object key, Object obj) throws Exception
+        {
+            connectionFactories.get(key).passivateObject(obj);
+        }
     }
 
     @Override
@@ -287,13 +393,20 @@ public class FtpConnector extends AbstractConnector
             throw new InitialisationException(e, this);
         }
 
-        pools = new HashMap<String, ObjectPool>();
+        pools = createPool();
     }
 
     @Override
     protected void doDispose()
     {
-        // template method
+        try
+        {
+            pools.close();
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to close FTP connection pool", e);
+        }
     }
 
     @Override
@@ -321,21 +434,19 @@ public class FtpConnector extends AbstractConnector
         {
             logger.debug("Stopping all pools");
         }
+        // The connector gets a new pool in case it is restarted. Connections borrowed
+        // before stopping are destroyed when released, as they were not borrowed from
+        // the new pool
+        ConcurrentKeyedObjectPool stoppedPools = pools;
+        pools = createPool();
         try
         {
-            for (ObjectPool pool : pools.values())
-            {
-                pool.close();
-            }
+            stoppedPools.close();
         }
         catch (Exception e)
         {
             throw new ConnectorException(CoreMessages.failedToStop("FTP Connector"), this, e);
         }
-        finally
-        {
-            pools.clear();
-        }
     }
 
     /**
@@ -13,10 +13,11 @@ import static org.junit.Assert.assertTrue;
 import org.mule.api.endpoint.EndpointException;
 import org.mule.endpoint.MuleEndpointURI;
 import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.transport.ConcurrentKeyedObjectPool;
+import org.mule.transport.ConfigurableKeyedObjectPool;
 import org.mule.transport.file.DummyFilenameParser;
 import org.mule.transport.file.FilenameParser;
 
-import org.apache.commons.pool.impl.GenericObjectPool;
 import org.junit.Test;
 
 /**
@@ -57,7 +58,11 @@ public class FtpNamespaceHandlerTestCase extends FunctionalTestCase
         assertNotNull(c);
         
         MuleEndpointURI uri = new MuleEndpointURI("http://localhost", null);
-        GenericObjectPool objectPool = (GenericObjectPool) c.getFtpPool(uri);
-        assertEquals(GenericObjectPool.WHEN_EXHAUSTED_FAIL, objectPool.getWhenExhaustedAction());
+        assertNotNull(c.getFtpPool(uri));
+
+        ConcurrentKeyedObjectPool objectPool = c.getFtpPools();
+        assertEquals(ConfigurableKeyedObjectPool.WHEN_EXHAUSTED_FAIL, objectPool.getWhenExhaustedAction());
+        assertEquals(true, objectPool.getTestWhileIdle());
+        assertEquals(10000, objectPool.getTimeBetweenEvictionRunsMillis());
     }
 }
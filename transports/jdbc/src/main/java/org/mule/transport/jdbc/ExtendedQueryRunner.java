@@ -15,18 +15,34 @@ import javax.sql.DataSource;
 import org.apache.commons.dbutils.QueryRunner;
 
 /**
- * An extended version of the Query runner that supports query timeouts
+ * An extended version of the Query runner that supports query timeouts, fetch sizes
+ * and a limit on the number of rows returned by a query
  * 
  * @since 2.2.6
  */
 public class ExtendedQueryRunner extends QueryRunner
 {
     private int queryTimeout;
+    private int fetchSize;
+    private int maxRows;
 
     public ExtendedQueryRunner(DataSource ds, int queryTimeout)
+    {
+        this(ds, queryTimeout, 0, 0);
+    }
+
+    /**
+     * @param ds data source used when no connection is provided
+     * @param queryTimeout timeout in seconds for each statement. Negative to use the driver default
+     * @param fetchSize number of rows fetched from the database in each round trip. 0 to use the driver default
+     * @param maxRows maximum number of rows returned by a query. 0 for no limit
+     */
+    public ExtendedQueryRunner(DataSource ds, int queryTimeout, int fetchSize, int maxRows)
     {
         super (ds);
         this.queryTimeout = queryTimeout;
+        this.fetchSize = fetchSize;
+        this.maxRows = maxRows;
     }
 
     @Override
@@ -37,6 +53,14 @@ public class ExtendedQueryRunner extends QueryRunner
         {
             statement.setQueryTimeout(this.queryTimeout);
         }
+        if (this.fetchSize > 0)
+        {
+            statement.setFetchSize(this.fetchSize);
+        }
+        if (this.maxRows > 0)
+        {
+            statement.setMaxRows(this.maxRows);
+        }
         return statement;
     }
 
@@ -44,4 +68,14 @@ public class ExtendedQueryRunner extends QueryRunner
     {
         return this.queryTimeout;
     }
+
+    public int getFetchSize()
+    {
+        return this.fetchSize;
+    }
+
+    public int getMaxRows()
+    {
+        return this.maxRows;
+    }
 }
@@ -64,6 +64,15 @@ public class JdbcConnector extends AbstractConnector implements Testable
     // declaration
     public static final String PROPERTY_POLLING_FREQUENCY = "pollingFrequency";
     public static final long DEFAULT_POLLING_FREQUENCY = 1000;
+    public static final String PROPERTY_QUERY_TIMEOUT = "queryTimeout";
+    /**
+     * Number of rows the driver fetches in each round trip while reading a result set
+     */
+    public static final String PROPERTY_FETCH_SIZE = "fetchSize";
+    /**
+     * Maximum number of rows read by a select statement, limits the rows received on each poll
+     */
+    public static final String PROPERTY_MAX_ROWS_PER_POLL = "maxRowsPerPoll";
 
     private static final Pattern STATEMENT_ARGS = TemplateParser.WIGGLY_MULE_TEMPLATE_PATTERN;
 
@@ -483,22 +492,18 @@ public class JdbcConnector extends AbstractConnector implements Testable
 
     public QueryRunner getQueryRunnerFor(ImmutableEndpoint endpoint)
     {
-        String queryTimeoutAsString = (String) endpoint.getProperty("queryTimeout");
-        Integer queryTimeout = -1;
+        int queryTimeout = getIntProperty(endpoint, PROPERTY_QUERY_TIMEOUT, -1);
+        int fetchSize = getIntProperty(endpoint, PROPERTY_FETCH_SIZE, 0);
+        int maxRows = getIntProperty(endpoint, PROPERTY_MAX_ROWS_PER_POLL, 0);
 
-        try
-        {
-            queryTimeout = Integer.valueOf(queryTimeoutAsString);
-        }
-        catch (NumberFormatException e)
-        {
-
-        }
-
-        if (queryTimeout >= 0)
+        if (queryTimeout >= 0 || fetchSize > 0 || maxRows > 0)
         {
+            if (queryTimeout < 0 && queryRunner instanceof ExtendedQueryRunner)
+            {
+                queryTimeout = ((ExtendedQueryRunner) queryRunner).getQueryTimeout();
+            }
             ExtendedQueryRunner extendedQueryRunner = new ExtendedQueryRunner(
-                    this.queryRunner.getDataSource(), queryTimeout);
+                    this.queryRunner.getDataSource(), queryTimeout, fetchSize, maxRows);
             return extendedQueryRunner;
         }
         else
@@ -507,6 +512,25 @@ public class JdbcConnector extends AbstractConnector implements Testable
         }
     }
 
+    private int getIntProperty(ImmutableEndpoint endpoint, String name, int defaultValue)
+    {
+        Object value = endpoint.getProperty(name);
+
+        if (value != null)
+        {
+            try
+            {
+                return Integer.parseInt(value.toString().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("Ignoring invalid value for endpoint property " + name + ": " + value);
+            }
+        }
+
+        return defaultValue;
+    }
+
     public QueryRunner getQueryRunner()
     {
         return queryRunner;
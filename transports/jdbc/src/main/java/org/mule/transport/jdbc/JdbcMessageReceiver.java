@@ -8,9 +8,12 @@ package org.mule.transport.jdbc;
 
 import org.mule.DefaultMuleMessage;
 import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.execution.ExecutionCallback;
+import org.mule.api.execution.ExecutionTemplate;
 import org.mule.api.lifecycle.CreateException;
 import org.mule.api.transaction.Transaction;
 import org.mule.api.transport.Connector;
@@ -23,17 +26,43 @@ import org.mule.util.MapUtils;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * Implements {@link TransactedPollingMessageReceiver} reading data from a database.
  * Provides a way to acknowledge each read data using a SQL statement.
+ * <p/>
+ * Large backlogs can be consumed incrementally: the <code>fetchSize</code> and
+ * <code>maxRowsPerPoll</code> endpoint properties limit the rows read on each poll,
+ * the <code>watermarkColumn</code> property makes the read statement parameter
+ * <code>#[watermark]</code> resolve to the greatest value of that column received so far,
+ * and the <code>ackBatchSize</code> property groups the acknowledge statements of the rows
+ * received outside of a transaction. When the acknowledge statement has a single
+ * <code>IN (#[...])</code> parameter, the grouped rows are acknowledged with statements
+ * listing up to {@link #MAX_IN_LIST_SIZE} of their values, otherwise they are acknowledged
+ * using a JDBC batch.
+ * <p/>
+ * The watermark only advances past the rows of a poll that were processed without interruption
+ * from the first one, so a row that failed, and the ones after it, are read again by the next
+ * poll even when rows are processed concurrently. In a transaction it only advances once the
+ * transaction of the poll commits. Pending acknowledges are kept until their
+ * statement succeeds and are flushed when the receiver stops.
  */
 public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
 {
     public static final String RECEIVE_MESSAGE_IN_TRANSCTION = "receiveMessageInTransaction";
     public static final String RECEIVE_MESSAGES_IN_XA_TRANSCTION = "receiveMessagesInXaTransaction";
+    public static final String ACK_BATCH_SIZE = "ackBatchSize";
+    public static final String WATERMARK_COLUMN = "watermarkColumn";
+    public static final String INITIAL_WATERMARK = "initialWatermark";
+    public static final String WATERMARK_PARAM = "#[watermark]";
+    public static final int MAX_IN_LIST_SIZE = 1000;
+
+    private static final Pattern IN_SINGLE_PARAM = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?\\s*\\)");
 
     protected JdbcConnector connector;
     protected String readStmt;
@@ -42,6 +71,13 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
     protected List<String> ackParams;
     public boolean receiveMessagesInXaTransaction = false;
     private volatile boolean aggregateResult;
+    private int ackBatchSize;
+    private boolean ackWithInList;
+    private final List<Object[]> pendingAcks = new ArrayList<Object[]>();
+    private final Object flushLock = new Object();
+    private String watermarkColumn;
+    private Object watermark;
+    private volatile PolledRecords polledRecords;
 
     public JdbcMessageReceiver(Connector connector,
                                FlowConstruct flowConstruct,
@@ -83,6 +119,18 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
             && !this.connector.isTransactionPerMessage());
 
         parseStatements(readStmt, ackStmt);
+
+        watermarkColumn = MapUtils.getString(endpoint.getProperties(), WATERMARK_COLUMN);
+        watermark = MapUtils.getObject(endpoint.getProperties(), INITIAL_WATERMARK);
+
+        ackBatchSize = MapUtils.getIntValue(endpoint.getProperties(), ACK_BATCH_SIZE, 0);
+        if (ackBatchSize > 1 && isReceiveMessagesInTransaction())
+        {
+            logger.warn(JdbcMessages.ignorePropertyInTransaction(ACK_BATCH_SIZE));
+            ackBatchSize = 0;
+        }
+        ackWithInList = isAckBatched() && this.ackParams.size() == 1
+                        && IN_SINGLE_PARAM.matcher(this.ackStmt).find();
     }
 
     /**
@@ -102,6 +150,24 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         // template method
     }
 
+    @Override
+    protected void doStop() throws MuleException
+    {
+        super.doStop();
+
+        if (isAckBatched())
+        {
+            try
+            {
+                flushAcks();
+            }
+            catch (Exception e)
+            {
+                logger.warn("Unable to acknowledge pending rows while stopping the receiver", e);
+            }
+        }
+    }
+
     @Override
     protected void doConnect() throws Exception
     {
@@ -114,6 +180,54 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         // noop
     }
 
+    @Override
+    public void poll() throws Exception
+    {
+        super.poll();
+
+        advanceWatermark();
+
+        if (isAckBatched())
+        {
+            try
+            {
+                flushAcks();
+            }
+            catch (Exception e)
+            {
+                getEndpoint().getMuleContext().handleException(e);
+            }
+        }
+    }
+
+    /**
+     * In a transaction, the rows of a poll are marked as committed once the execution
+     * template returns, as it fails when the transaction is not committed.
+     */
+    @Override
+    protected ExecutionTemplate<MuleEvent> createExecutionTemplate()
+    {
+        final ExecutionTemplate<MuleEvent> executionTemplate = super.createExecutionTemplate();
+        if (watermarkColumn == null || !isReceiveMessagesInTransaction())
+        {
+            return executionTemplate;
+        }
+        return new ExecutionTemplate<MuleEvent>()
+        {
+            @Override
+            public MuleEvent execute(ExecutionCallback<MuleEvent> callback) throws Exception
+            {
+                MuleEvent result = executionTemplate.execute(callback);
+                PolledRecords records = polledRecords;
+                if (records != null)
+                {
+                    records.committed();
+                }
+                return result;
+            }
+        };
+    }
+
     @Override
     public MuleEvent processMessage(Object message) throws Exception
     {
@@ -123,7 +237,11 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         {
             MuleMessage muleMessage = createMuleMessage(message, endpoint.getEncoding());
             MuleEvent result = routeMessage(muleMessage);
-            if (hasAckStatement())
+            if (isAckBatched())
+            {
+                addPendingAck(muleMessage);
+            }
+            else if (hasAckStatement())
             {
                 con = this.connector.getConnection();
 
@@ -148,6 +266,7 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
                     }
                 }
             }
+            recordProcessed(message);
             return result;
         }
         catch (Exception ex)
@@ -177,6 +296,214 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
         return this.ackStmt != null;
     }
 
+    protected boolean isAckBatched()
+    {
+        return hasAckStatement() && ackBatchSize > 1;
+    }
+
+    /**
+     * Registers the acknowledge of a routed message, executing the pending acknowledges
+     * once there are <code>ackBatchSize</code> of them.
+     */
+    protected void addPendingAck(MuleMessage muleMessage) throws Exception
+    {
+        Object[] paramValues = connector.getParams(endpoint, this.ackParams, muleMessage, this.endpoint.getEndpointURI().getAddress());
+
+        boolean flush;
+        synchronized (pendingAcks)
+        {
+            pendingAcks.add(paramValues);
+            flush = pendingAcks.size() >= ackBatchSize;
+        }
+
+        if (flush)
+        {
+            flushAcks();
+        }
+    }
+
+    /**
+     * Executes the acknowledge statement for all the pending acknowledges. They are only discarded
+     * once the statement succeeds, so a failed flush is retried by the next one.
+     */
+    protected void flushAcks() throws Exception
+    {
+        synchronized (flushLock)
+        {
+            List<Object[]> acks;
+            synchronized (pendingAcks)
+            {
+                if (pendingAcks.isEmpty())
+                {
+                    return;
+                }
+                acks = new ArrayList<Object[]>(pendingAcks);
+            }
+
+            executeAcks(acks);
+
+            // Acks are only added at the end and only removed here, so the flushed ones are still the first ones
+            synchronized (pendingAcks)
+            {
+                pendingAcks.subList(0, acks.size()).clear();
+            }
+        }
+    }
+
+    private void executeAcks(List<Object[]> acks) throws Exception
+    {
+        Connection con = null;
+        try
+        {
+            con = this.connector.getConnection();
+
+            int nbRows = 0;
+            if (ackWithInList)
+            {
+                nbRows = executeInListAckStatement(con, acks);
+            }
+            else
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("SQL UPDATE: " + ackStmt + ", batch size = " + acks.size());
+                }
+                for (int rows : connector.getQueryRunnerFor(endpoint).batch(con, this.ackStmt, acks.toArray(new Object[acks.size()][])))
+                {
+                    nbRows += rows;
+                }
+            }
+
+            if (nbRows == 0)
+            {
+                logger.warn(".ack statement did not update any rows");
+            }
+        }
+        finally
+        {
+            JdbcUtils.close(con);
+        }
+    }
+
+    /**
+     * Executes the acknowledge statement with the values of all the given acknowledges in its
+     * <code>IN</code> list, using one statement per {@link #MAX_IN_LIST_SIZE} values as some
+     * databases limit the size of the list.
+     *
+     * @param con database connection to execute the statement
+     * @param acks parameter values of each acknowledge, containing a single value each
+     * @return the number of updated rows
+     * @throws Exception
+     */
+    protected int executeInListAckStatement(Connection con, List<Object[]> acks) throws Exception
+    {
+        int nbRows = 0;
+
+        for (int start = 0; start < acks.size(); start += MAX_IN_LIST_SIZE)
+        {
+            List<Object[]> chunk = acks.subList(start, Math.min(start + MAX_IN_LIST_SIZE, acks.size()));
+
+            StringBuilder placeholders = new StringBuilder("IN (");
+            Object[] paramValues = new Object[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                placeholders.append(i == 0 ? "?" : ", ?");
+                paramValues[i] = chunk.get(i)[0];
+            }
+            placeholders.append(")");
+
+            String stmt = IN_SINGLE_PARAM.matcher(this.ackStmt).replaceFirst(placeholders.toString());
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("SQL UPDATE: " + stmt + ", params = " + ArrayUtils.toString(paramValues));
+            }
+
+            nbRows += connector.getQueryRunnerFor(endpoint).update(con, stmt, paramValues);
+        }
+
+        return nbRows;
+    }
+
+    /**
+     * Registers a record of the current poll as processed, so the watermark can advance past it.
+     * Records that are not part of a poll update the watermark right away.
+     */
+    protected void recordProcessed(Object message)
+    {
+        if (watermarkColumn == null)
+        {
+            return;
+        }
+
+        PolledRecords records = polledRecords;
+        if (records == null || !records.processed(message))
+        {
+            updateWatermark(message);
+        }
+    }
+
+    /**
+     * Advances the watermark past the records of the last poll that were processed without
+     * interruption from the first one. In a transaction, all the records must have been processed
+     * and the transaction committed.
+     */
+    protected void advanceWatermark()
+    {
+        PolledRecords records = polledRecords;
+        polledRecords = null;
+
+        if (records != null)
+        {
+            if (isReceiveMessagesInTransaction() && !records.isCommitted())
+            {
+                return;
+            }
+            for (Object record : records.getContiguousProcessed(isReceiveMessagesInTransaction()))
+            {
+                updateWatermark(record);
+            }
+        }
+    }
+
+    /**
+     * Keeps the greatest value of the watermark column from the received records.
+     */
+    protected void updateWatermark(Object message)
+    {
+        if (watermarkColumn == null)
+        {
+            return;
+        }
+
+        if (message instanceof List)
+        {
+            for (Object record : (List) message)
+            {
+                updateWatermark(record);
+            }
+        }
+        else if (message instanceof Map)
+        {
+            Object value = ((Map) message).get(watermarkColumn);
+            if (value instanceof Comparable)
+            {
+                synchronized (this)
+                {
+                    if (!(watermark instanceof Comparable) || !watermark.getClass().isInstance(value)
+                        || ((Comparable) value).compareTo(watermark) > 0)
+                    {
+                        watermark = value;
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized Object getWatermark()
+    {
+        return watermark;
+    }
+
     /**
      * Creates a mule message per each data record.
      *
@@ -262,7 +589,12 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
                 logger.warn(JdbcMessages.moreThanOneMessageInTransaction(RECEIVE_MESSAGE_IN_TRANSCTION, RECEIVE_MESSAGES_IN_XA_TRANSCTION));
                 List singleResultList = new ArrayList(1);
                 singleResultList.add(resultList);
-                return singleResultList;
+                resultList = singleResultList;
+            }
+
+            if (watermarkColumn != null && resultList != null)
+            {
+                polledRecords = new PolledRecords(resultList);
             }
 
             return resultList;
@@ -285,7 +617,20 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
      */
     protected List executeReadStatement(Connection con) throws Exception
     {
-        Object[] readParams = connector.getParams(endpoint, this.readParams, null, this.endpoint.getEndpointURI().getAddress());
+        Object[] readParams;
+        if (watermarkColumn == null)
+        {
+            readParams = connector.getParams(endpoint, this.readParams, null, this.endpoint.getEndpointURI().getAddress());
+        }
+        else
+        {
+            readParams = new Object[this.readParams.size()];
+            for (int i = 0; i < readParams.length; i++)
+            {
+                String param = this.readParams.get(i);
+                readParams[i] = WATERMARK_PARAM.equals(param) ? getWatermark() : connector.getParamValue(endpoint, null, param);
+            }
+        }
         if (logger.isDebugEnabled())
         {
             logger.debug("SQL QUERY: " + readStmt + ", params = " + ArrayUtils.toString(readParams));
@@ -295,4 +640,67 @@ public class JdbcMessageReceiver extends TransactedPollingMessageReceiver
 
         return (List) results;
     }
+
+    /**
+     * Records read by a poll, in the order they were read, and whether they were processed
+     */
+    private static class PolledRecords
+    {
+
+        private final List<?> records;
+        private final boolean[] processed;
+        private final Map<Object, Integer> indexes = new IdentityHashMap<Object, Integer>();
+        private volatile boolean committed;
+
+        private PolledRecords(List<?> records)
+        {
+            this.records = records;
+            this.processed = new boolean[records.size()];
+            for (int i = 0; i < records.size(); i++)
+            {
+                indexes.put(records.get(i), i);
+            }
+        }
+
+        /**
+         * @return false if the record is not part of the poll
+         */
+        synchronized boolean processed(Object record)
+        {
+            Integer index = indexes.get(record);
+            if (index == null)
+            {
+                return false;
+            }
+
+            processed[index] = true;
+            return true;
+        }
+
+        void committed()
+        {
+            committed = true;
+        }
+
+        boolean isCommitted()
+        {
+            return committed;
+        }
+
+        synchronized List<?> getContiguousProcessed(boolean requireAll)
+        {
+            int count = 0;
+            while (count < processed.length && processed[count])
+            {
+                count++;
+            }
+
+            if (requireAll && count < processed.length)
+            {
+                count = 0;
+            }
+
+            return records.subList(0, count);
+        }
+    }
 }
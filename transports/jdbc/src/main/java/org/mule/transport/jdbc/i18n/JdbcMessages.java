@@ -40,6 +40,11 @@ public class JdbcMessages extends MessageFactory
         return factory.createMessage(BUNDLE_PATH, 5, property1, property2);
     }
 
+    public static Message ignorePropertyInTransaction(String property)
+    {
+        return factory.createMessage(BUNDLE_PATH, 6, property);
+    }
+
 }
 
 
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jdbc;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import org.mule.DefaultMuleMessage;
+import org.mule.api.MuleEvent;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.execution.ExecutionCallback;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.transport.jdbc.test.TestDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.junit.Test;
+
+public class JdbcMessageReceiverTestCase extends AbstractMuleContextTestCase
+{
+
+    private final RecordingQueryRunner queryRunner = new RecordingQueryRunner();
+    private final Connection connection = mock(Connection.class);
+    private JdbcConnector connector;
+
+    @Override
+    protected void doSetUp() throws Exception
+    {
+        connector = new JdbcConnector(muleContext);
+        connector.setQueryRunner(queryRunner);
+        connector.setDataSource(new TestDataSource());
+        muleContext.getRegistry().registerConnector(connector);
+    }
+
+    @Test
+    public void readsRowsAfterWatermark() throws Exception
+    {
+        JdbcMessageReceiver receiver = createReceiver("select * from test where id > #[watermark] order by id", null,
+                                                      "?watermarkColumn=ID&initialWatermark=0");
+
+        receiver.executeReadStatement(connection);
+        assertThat(queryRunner.queryParams.get(0), equalTo(new Object[] {"0"}));
+
+        receiver.updateWatermark(Arrays.asList(createRow(3), createRow(5)));
+        receiver.updateWatermark(createRow(4));
+
+        receiver.executeReadStatement(connection);
+        assertThat(queryRunner.queryParams.get(1), equalTo(new Object[] {5}));
+    }
+
+    @Test
+    public void advancesWatermarkPastContiguousProcessedRows() throws Exception
+    {
+        JdbcMessageReceiver receiver = createReceiver("select * from test where id > #[watermark] order by id", null,
+                                                      "?watermarkColumn=ID&initialWatermark=0");
+        queryRunner.rows = Arrays.<Object>asList(createRow(1), createRow(2), createRow(3));
+
+        List<?> rows = receiver.getMessages();
+        receiver.recordProcessed(rows.get(0));
+        receiver.recordProcessed(rows.get(2));
+        receiver.advanceWatermark();
+        assertThat(receiver.getWatermark(), equalTo((Object) 1));
+
+        rows = receiver.getMessages();
+        for (Object row : rows)
+        {
+            receiver.recordProcessed(row);
+        }
+        receiver.advanceWatermark();
+        assertThat(receiver.getWatermark(), equalTo((Object) 3));
+    }
+
+    @Test
+    public void advancesWatermarkInTransactionOnlyOnceCommitted() throws Exception
+    {
+        final JdbcMessageReceiver receiver = createReceiver("select * from test where id > #[watermark] order by id", null,
+                                                            "?watermarkColumn=ID&initialWatermark=0");
+        receiver.setReceiveMessagesInTransaction(true);
+        queryRunner.rows = Arrays.<Object>asList(createRow(1), createRow(2));
+
+        // Processed but the transaction failed to commit
+        recordAllProcessed(receiver, receiver.getMessages());
+        receiver.advanceWatermark();
+        assertThat(receiver.getWatermark(), equalTo((Object) "0"));
+
+        receiver.createExecutionTemplate().execute(new ExecutionCallback<MuleEvent>()
+        {
+            @Override
+            public MuleEvent process() throws Exception
+            {
+                recordAllProcessed(receiver, receiver.getMessages());
+                return null;
+            }
+        });
+        receiver.advanceWatermark();
+        assertThat(receiver.getWatermark(), equalTo((Object) 2));
+    }
+
+    @Test
+    public void acknowledgesBatchWithInList() throws Exception
+    {
+        JdbcMessageReceiver receiver = createReceiver("select * from test", "update test set acked = 1 where id in (#[message.payload.ID])",
+                                                      "?ackBatchSize=2");
+
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(1), muleContext));
+        assertThat(queryRunner.updateStatements.size(), equalTo(0));
+
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(2), muleContext));
+        assertThat(queryRunner.updateStatements, equalTo(Arrays.asList("update test set acked = 1 where id IN (?, ?)")));
+        assertThat(queryRunner.updateParams.get(0), equalTo(new Object[] {1, 2}));
+    }
+
+    @Test
+    public void acknowledgesPendingRowsWithJdbcBatch() throws Exception
+    {
+        JdbcMessageReceiver receiver = createReceiver("select * from test", "update test set acked = #[message.payload.ID] where id = #[message.payload.ID]",
+                                                      "?ackBatchSize=10");
+
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(1), muleContext));
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(2), muleContext));
+        assertThat(queryRunner.batchParams.size(), equalTo(0));
+
+        receiver.flushAcks();
+        assertThat(queryRunner.batchParams.size(), equalTo(1));
+        assertThat(queryRunner.batchParams.get(0), equalTo(new Object[][] {{1, 1}, {2, 2}}));
+
+        receiver.flushAcks();
+        assertThat(queryRunner.batchParams.size(), equalTo(1));
+    }
+
+    @Test
+    public void splitsInListInChunks() throws Exception
+    {
+        int rows = JdbcMessageReceiver.MAX_IN_LIST_SIZE + 1;
+        JdbcMessageReceiver receiver = createReceiver("select * from test", "update test set acked = 1 where id in (#[message.payload.ID])",
+                                                      "?ackBatchSize=" + (rows + 1));
+
+        for (int i = 0; i < rows; i++)
+        {
+            receiver.addPendingAck(new DefaultMuleMessage(createRow(i), muleContext));
+        }
+        receiver.flushAcks();
+
+        assertThat(queryRunner.updateParams.size(), equalTo(2));
+        assertThat(queryRunner.updateParams.get(0).length, equalTo(JdbcMessageReceiver.MAX_IN_LIST_SIZE));
+        assertThat(queryRunner.updateParams.get(1), equalTo(new Object[] {JdbcMessageReceiver.MAX_IN_LIST_SIZE}));
+    }
+
+    @Test
+    public void keepsPendingAcksUntilTheyAreFlushed() throws Exception
+    {
+        JdbcMessageReceiver receiver = createReceiver("select * from test", "update test set acked = #[message.payload.ID] where id = #[message.payload.ID]",
+                                                      "?ackBatchSize=10");
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(1), muleContext));
+        queryRunner.failBatch = true;
+
+        try
+        {
+            receiver.flushAcks();
+            fail("Expected the ack statement to fail");
+        }
+        catch (SQLException e)
+        {
+            // Expected
+        }
+
+        queryRunner.failBatch = false;
+        receiver.addPendingAck(new DefaultMuleMessage(createRow(2), muleContext));
+        receiver.flushAcks();
+
+        assertThat(queryRunner.batchParams.size(), equalTo(1));
+        assertThat(queryRunner.batchParams.get(0), equalTo(new Object[][] {{1, 1}, {2, 2}}));
+    }
+
+    private JdbcMessageReceiver createReceiver(String readStmt, String ackStmt, String params) throws Exception
+    {
+        Map<String, String> queries = new HashMap<String, String>();
+        queries.put("read", readStmt);
+        if (ackStmt != null)
+        {
+            queries.put("read.ack", ackStmt);
+        }
+        connector.setQueries(queries);
+
+        InboundEndpoint endpoint = muleContext.getEndpointFactory().getInboundEndpoint("jdbc://read" + params);
+        String[] stmts = connector.getReadAndAckStatements(endpoint);
+
+        return new JdbcMessageReceiver(connector, getTestService(), endpoint, stmts[0], stmts[1]);
+    }
+
+    private void recordAllProcessed(JdbcMessageReceiver receiver, List<?> rows)
+    {
+        for (Object row : rows)
+        {
+            receiver.recordProcessed(row);
+        }
+    }
+
+    private Map<String, Object> createRow(int id)
+    {
+        Map<String, Object> row = new HashMap<String, Object>();
+        row.put("ID", id);
+        return row;
+    }
+
+    private static class RecordingQueryRunner extends QueryRunner
+    {
+
+        private final List<Object[]> queryParams = new ArrayList<Object[]>();
+        private final List<String> updateStatements = new ArrayList<String>();
+        private final List<Object[]> updateParams = new ArrayList<Object[]>();
+        private final List<Object[][]> batchParams = new ArrayList<Object[][]>();
+        private List<Object> rows = new ArrayList<Object>();
+        private boolean failBatch;
+
+        @Override
+        public Object query(Connection conn, String sql, Object[] params, ResultSetHandler rsh) throws SQLException
+        {
+            queryParams.add(params);
+            return new ArrayList<Object>(rows);
+        }
+
+        @Override
+        public int update(Connection conn, String sql, Object[] params) throws SQLException
+        {
+            updateStatements.add(sql);
+            updateParams.add(params);
+            return params.length;
+        }
+
+        @Override
+        public int[] batch(Connection conn, String sql, Object[][] params) throws SQLException
+        {
+            if (failBatch)
+            {
+                throw new SQLException("Connection lost");
+            }
+            batchParams.add(params);
+            int[] rows = new int[params.length];
+            Arrays.fill(rows, 1);
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+/**
+ * Decides how many consumers a receiver needs from the load measured during the
+ * last scaling interval.
+ * <p/>
+ * The load is given by the busy ratio, the fraction of the interval the consumers
+ * spent processing messages (the processing latency multiplied by the number of
+ * messages processed, divided by the time available to the consumers), and, when
+ * the broker lets queues be browsed, the number of messages waiting in the queue.
+ * <p/>
+ * A consumer is added as soon as the consumers are busy for most of the interval
+ * or the backlog grows beyond what the current consumers can take, while a
+ * consumer is only removed after the consumers were mostly idle, with no backlog,
+ * for several consecutive intervals. The gap between both ratios and the number of
+ * idle intervals required keep the number of consumers from flapping when the load
+ * stays around a threshold.
+ */
+public class ConsumerScalingPolicy
+{
+
+    public static final long UNKNOWN_BACKLOG = -1;
+
+    /**
+     * Busy ratio from which a consumer is added
+     */
+    public static final double SCALE_UP_BUSY_RATIO = 0.8;
+
+    /**
+     * Busy ratio under which an interval counts as idle
+     */
+    public static final double SCALE_DOWN_BUSY_RATIO = 0.3;
+
+    /**
+     * Number of consecutive idle intervals after which a consumer is removed
+     */
+    public static final int SCALE_DOWN_IDLE_INTERVALS = 3;
+
+    /**
+     * Number of waiting messages per consumer from which a consumer is added
+     */
+    public static final int BACKLOG_PER_CONSUMER = 10;
+
+    private final int minConsumers;
+    private final int maxConsumers;
+    private int idleIntervals;
+
+    public ConsumerScalingPolicy(int minConsumers, int maxConsumers)
+    {
+        if (minConsumers < 1 || maxConsumers < minConsumers)
+        {
+            throw new IllegalArgumentException("Invalid number of consumers, min: " + minConsumers + ", max: "
+                                               + maxConsumers);
+        }
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+    }
+
+    /**
+     * @param consumers number of consumers during the interval
+     * @param busyRatio fraction of the interval the consumers spent processing
+     *            messages
+     * @param backlog number of messages waiting to be consumed, or
+     *            {@link #UNKNOWN_BACKLOG} if it cannot be measured
+     * @return the number of consumers to use during the next interval
+     */
+    public synchronized int evaluate(int consumers, double busyRatio, long backlog)
+    {
+        if (consumers < maxConsumers
+            && (busyRatio >= SCALE_UP_BUSY_RATIO || backlog > (long) consumers * BACKLOG_PER_CONSUMER))
+        {
+            idleIntervals = 0;
+            return consumers + 1;
+        }
+
+        if (busyRatio < SCALE_DOWN_BUSY_RATIO && backlog <= 0)
+        {
+            idleIntervals++;
+        }
+        else
+        {
+            idleIntervals = 0;
+        }
+
+        if (consumers > minConsumers && idleIntervals >= SCALE_DOWN_IDLE_INTERVALS)
+        {
+            idleIntervals = 0;
+            return consumers - 1;
+        }
+        return consumers;
+    }
+
+    public int getMinConsumers()
+    {
+        return minConsumers;
+    }
+
+    public int getMaxConsumers()
+    {
+        return maxConsumers;
+    }
+}
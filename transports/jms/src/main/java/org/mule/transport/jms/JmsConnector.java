@@ -44,17 +44,24 @@ import org.mule.util.BeanUtils;
 
 import java.text.MessageFormat;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
 import javax.jms.ExceptionListener;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageProducer;
+import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.TemporaryQueue;
 import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
 import javax.naming.CommunicationException;
 import javax.naming.NamingException;
 
@@ -167,6 +174,49 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
      */
     private boolean returnOriginalMessageAsReply = false;
 
+    /**
+     * Whether request-response dispatches wait for their reply through a consumer shared by
+     * every request for the same reply destination, instead of creating a consumer (and usually
+     * a temporary destination) for each request.
+     */
+    private boolean sharedReplyToConsumer = false;
+
+    private final ConcurrentMap<String, SharedReplyToConsumer> replyToConsumers = new ConcurrentHashMap<String, SharedReplyToConsumer>();
+
+    /**
+     * Maximum number of idle sessions, with their producers, kept for non transacted dispatches.
+     * 0 disables the cache so every dispatch creates and closes its own session and producer.
+     */
+    private int producerSessionCacheSize = 0;
+
+    /**
+     * Number of messages sent by a cached session before committing them, 0 to send every message
+     * synchronously. Only applies when the producer session cache is enabled.
+     */
+    private int asyncSendWindow = 0;
+
+    /**
+     * Time in milliseconds between commits of the messages of idle sessions that did not fill their
+     * send window
+     */
+    private long asyncSendFlushInterval = 100;
+
+    private volatile ProducerSessionCache producerSessionCache;
+
+    private ScheduledFuture<?> producerSessionFlushTask;
+
+    /**
+     * Maximum number of consumers a receiver scales up to when its destination is
+     * under load, 0 disables scaling so receivers always use {@link #numberOfConcurrentTransactedReceivers}.
+     * When enabled, {@link #numberOfConcurrentTransactedReceivers} is the minimum number of consumers.
+     */
+    private int maxNumberOfConsumers = 0;
+
+    /**
+     * Time in milliseconds between evaluations of the load of a receiver when scaling its consumers
+     */
+    private long consumerScalingInterval = 5000;
+
     /**
      * In-container embedded mode disables some features for strict Java EE compliance.
      */
@@ -360,6 +410,9 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
     @Override
     protected void doDispose()
     {
+        closeSharedReplyToConsumers();
+        closeProducerSessionCache();
+
         if (connection != null)
         {
             try
@@ -560,11 +613,15 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
                 throw e;
             }
         }
+        createProducerSessionCache();
     }
 
     @Override
     protected void doDisconnect() throws Exception
     {
+        closeSharedReplyToConsumers();
+        closeProducerSessionCache();
+
         try
         {
             if (connection != null)
@@ -689,8 +746,136 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
         {
             jndiNameResolver.start();
         }
+        startProducerSessionFlush();
+    }
+
+
+    /**
+     * Returns the consumer shared by request-response dispatches waiting for replies on the
+     * given destination, creating it if there is none yet.
+     *
+     * @param destination the reply destination, or null to use a temporary destination owned
+     *            by the consumer
+     * @param topic whether the destination is a topic
+     * @param endpoint the endpoint the reply is requested for
+     */
+    public SharedReplyToConsumer getSharedReplyToConsumer(Destination destination, boolean topic,
+                                                          ImmutableEndpoint endpoint) throws JMSException
+    {
+        String key = getReplyToConsumerKey(destination, topic);
+        SharedReplyToConsumer replyToConsumer = replyToConsumers.get(key);
+        if (replyToConsumer != null && !replyToConsumer.isClosed())
+        {
+            return replyToConsumer;
+        }
+
+        synchronized (replyToConsumers)
+        {
+            replyToConsumer = replyToConsumers.get(key);
+            if (replyToConsumer == null || replyToConsumer.isClosed())
+            {
+                replyToConsumer = new SharedReplyToConsumer(this, destination, topic, endpoint,
+                    muleContext.getConfiguration().getDefaultResponseTimeout());
+                replyToConsumers.put(key, replyToConsumer);
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Created shared reply consumer for " + replyToConsumer.getDestination());
+                }
+            }
+            return replyToConsumer;
+        }
+    }
+
+    private String getReplyToConsumerKey(Destination destination, boolean topic) throws JMSException
+    {
+        if (destination == null)
+        {
+            return topic ? "temporary:topic" : "temporary:queue";
+        }
+        else if (destination instanceof Queue)
+        {
+            return "queue:" + ((Queue) destination).getQueueName();
+        }
+        else if (destination instanceof Topic)
+        {
+            return "topic:" + ((Topic) destination).getTopicName();
+        }
+        return destination.toString();
+    }
+
+    protected void closeSharedReplyToConsumers()
+    {
+        synchronized (replyToConsumers)
+        {
+            for (SharedReplyToConsumer replyToConsumer : replyToConsumers.values())
+            {
+                replyToConsumer.close();
+            }
+            replyToConsumers.clear();
+        }
+    }
+
+    protected void createProducerSessionCache()
+    {
+        if (producerSessionCacheSize <= 0)
+        {
+            return;
+        }
+        producerSessionCache = new ProducerSessionCache(this, producerSessionCacheSize, asyncSendWindow);
+    }
+
+    protected synchronized void startProducerSessionFlush()
+    {
+        if (producerSessionCacheSize <= 0 || asyncSendWindow <= 0 || producerSessionFlushTask != null)
+        {
+            return;
+        }
+        producerSessionFlushTask = getScheduler().scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ProducerSessionCache cache = producerSessionCache;
+                if (cache != null)
+                {
+                    cache.flushIdleSessions();
+                }
+            }
+        }, asyncSendFlushInterval, asyncSendFlushInterval, TimeUnit.MILLISECONDS);
     }
 
+    protected synchronized void stopProducerSessionFlush()
+    {
+        if (producerSessionFlushTask != null)
+        {
+            producerSessionFlushTask.cancel(false);
+            producerSessionFlushTask = null;
+        }
+        ProducerSessionCache cache = producerSessionCache;
+        if (cache != null)
+        {
+            cache.flushIdleSessions();
+        }
+    }
+
+    protected void closeProducerSessionCache()
+    {
+        ProducerSessionCache cache = producerSessionCache;
+        producerSessionCache = null;
+        if (cache != null)
+        {
+            cache.close();
+        }
+    }
+
+    /**
+     * @return the cache of sessions used by non transacted dispatches, or null if it is
+     *         disabled or the connector is not connected
+     */
+    public ProducerSessionCache getProducerSessionCache()
+    {
+        return producerSessionCache;
+    }
 
     /**
      * Closes a session if there is no active transaction in the current thread, otherwise the
@@ -718,6 +903,8 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
     @Override
     protected void doStop() throws MuleException
     {
+        stopProducerSessionFlush();
+
         if (connection != null)
         {
             try
@@ -1359,6 +1546,16 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
         this.disableTemporaryReplyToDestinations = disableTemporaryReplyToDestinations;
     }
 
+    public boolean isSharedReplyToConsumer()
+    {
+        return sharedReplyToConsumer;
+    }
+
+    public void setSharedReplyToConsumer(boolean sharedReplyToConsumer)
+    {
+        this.sharedReplyToConsumer = sharedReplyToConsumer;
+    }
+
     public boolean isReturnOriginalMessageAsReply()
     {
         return returnOriginalMessageAsReply;
@@ -1407,6 +1604,56 @@ public class JmsConnector extends AbstractConnector implements ExceptionListener
         return this.numberOfConcurrentTransactedReceivers;
     }
 
+    public int getProducerSessionCacheSize()
+    {
+        return producerSessionCacheSize;
+    }
+
+    public void setProducerSessionCacheSize(int producerSessionCacheSize)
+    {
+        this.producerSessionCacheSize = producerSessionCacheSize;
+    }
+
+    public int getAsyncSendWindow()
+    {
+        return asyncSendWindow;
+    }
+
+    public void setAsyncSendWindow(int asyncSendWindow)
+    {
+        this.asyncSendWindow = asyncSendWindow;
+    }
+
+    public long getAsyncSendFlushInterval()
+    {
+        return asyncSendFlushInterval;
+    }
+
+    public void setAsyncSendFlushInterval(long asyncSendFlushInterval)
+    {
+        this.asyncSendFlushInterval = asyncSendFlushInterval;
+    }
+
+    public int getMaxNumberOfConsumers()
+    {
+        return maxNumberOfConsumers;
+    }
+
+    public void setMaxNumberOfConsumers(int maxNumberOfConsumers)
+    {
+        this.maxNumberOfConsumers = maxNumberOfConsumers;
+    }
+
+    public long getConsumerScalingInterval()
+    {
+        return consumerScalingInterval;
+    }
+
+    public void setConsumerScalingInterval(long consumerScalingInterval)
+    {
+        this.consumerScalingInterval = consumerScalingInterval;
+    }
+
     public boolean isEmbeddedMode()
     {
         return embeddedMode;
@@ -44,6 +44,11 @@ public class JmsConstants
     public static final String DISABLE_TEMP_DESTINATIONS_PROPERTY = "disableTemporaryReplyToDestinations";
     public static final String RETURN_ORIGINAL_MESSAGE_PROPERTY = "returnOriginalMessageAsReply";
 
+    // batch consumption properties
+    public static final String BATCH_SIZE_PROPERTY = "batchSize";
+    public static final String BATCH_TIMEOUT_PROPERTY = "batchTimeout";
+    public static final String BATCH_REDELIVERY_PROPERTY = "batchRedelivery";
+
     public static final Set JMS_PROPERTY_NAMES = Collections.unmodifiableSet(new HashSet(
         Arrays.asList(new String[]{JMS_SPECIFICATION_102B, JMS_SPECIFICATION_11, JMS_CORRELATION_ID,
             JMS_DELIVERY_MODE, JMS_DELIVERY_MODE, JMS_DESTINATION, JMS_EXPIRATION, JMS_MESSAGE_ID,
@@ -38,6 +38,7 @@ import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.TemporaryQueue;
 import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
 
 /**
  * <code>JmsMessageDispatcher</code> is responsible for dispatching messages to JMS
@@ -100,6 +101,10 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
         MessageProducer producer = null;
         MessageConsumer consumer = null;
         Destination replyTo = null;
+        SharedReplyToConsumer sharedReplyToConsumer = null;
+        SharedReplyToConsumer.PendingReply pendingReply = null;
+        ProducerSessionCache producerSessionCache = null;
+        ProducerSessionCache.CachedSession cachedSession = null;
         boolean transacted = false;
         boolean cached = false;
         boolean useReplyToDestination;
@@ -115,18 +120,38 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
 
         try
         {
-            session = connector.getTransactionalResource(endpoint);
+            boolean topic = connector.getTopicResolver().isTopic(endpoint, true);
 
-            transacted = (muleTx != null && muleTx.hasResource(connector.getConnection()) || endpoint.getTransactionConfig().isTransacted());
+            // Sessions of non transacted dispatches that do not wait for a reply are reused
+            if (muleTx == null && !endpoint.getTransactionConfig().isTransacted() && !returnResponse(event, doSend))
+            {
+                producerSessionCache = connector.getProducerSessionCache();
+                if (producerSessionCache != null)
+                {
+                    cachedSession = producerSessionCache.acquire(topic);
+                }
+            }
 
-            // If a transaction is running, we can not receive any messages
-            // in the same transaction using a replyTo destination
-            useReplyToDestination = returnResponse(event, doSend) && !transacted;
+            if (cachedSession != null)
+            {
+                cached = true;
+                session = cachedSession.getSession();
+                useReplyToDestination = false;
+                producer = cachedSession.getProducer(endpoint, topic);
+            }
+            else
+            {
+                session = connector.getTransactionalResource(endpoint);
 
-            boolean topic = connector.getTopicResolver().isTopic(endpoint, true);
+                transacted = (muleTx != null && muleTx.hasResource(connector.getConnection()) || endpoint.getTransactionConfig().isTransacted());
 
-            Destination dest = connector.getJmsSupport().createDestination(session, endpoint);
-            producer = connector.getJmsSupport().createProducer(session, dest, topic);
+                // If a transaction is running, we can not receive any messages
+                // in the same transaction using a replyTo destination
+                useReplyToDestination = returnResponse(event, doSend) && !transacted;
+
+                Destination dest = connector.getJmsSupport().createDestination(session, endpoint);
+                producer = connector.getJmsSupport().createProducer(session, dest, topic);
+            }
 
             Object message = event.getMessage().getPayload();
             if (!(message instanceof Message))
@@ -140,7 +165,29 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
 
             MuleMessage eventMsg = event.getMessage();
 
-            replyTo = getReplyToDestination(msg, session, event, useReplyToDestination, topic);
+            boolean shareReplyTo = useReplyToDestination && connector.isSharedReplyToConsumer();
+            replyTo = getReplyToDestination(msg, session, event, useReplyToDestination && !shareReplyTo, topic);
+            if (shareReplyTo && (replyTo != null || (!disableTemporaryDestinations && isHandleReplyTo(msg, event))))
+            {
+                sharedReplyToConsumer = connector.getSharedReplyToConsumer(replyTo,
+                    replyTo == null ? topic : replyTo instanceof Topic, endpoint);
+                replyTo = sharedReplyToConsumer.getDestination();
+                if (msg.getJMSCorrelationID() != null)
+                {
+                    pendingReply = sharedReplyToConsumer.register(msg.getJMSCorrelationID());
+                    if (pendingReply == null)
+                    {
+                        // Another request with the same correlation ID is waiting on the shared consumer
+                        if (logger.isDebugEnabled())
+                        {
+                            logger.debug("A reply for correlation ID " + msg.getJMSCorrelationID()
+                                         + " is already awaited, using a dedicated reply consumer");
+                        }
+                        sharedReplyToConsumer = null;
+                        replyTo = getReplyToDestination(msg, session, event, true, topic);
+                    }
+                }
+            }
 
             // Set the replyTo property
             if (replyTo != null)
@@ -182,9 +229,40 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
                        "\n  JMSPriority=" + priority +
                        "\n  JMSReplyTo=" + msg.getJMSReplyTo());
             }
-            connector.getJmsSupport().send(producer, msg, persistent, priority, ttl, topic, endpoint);
+            if (cachedSession != null)
+            {
+                cachedSession.send(producer, msg, persistent, priority, ttl, topic, endpoint);
+            }
+            else
+            {
+                connector.getJmsSupport().send(producer, msg, persistent, priority, ttl, topic, endpoint);
+            }
 
-            if (useReplyToDestination && replyTo != null)
+            if (sharedReplyToConsumer != null)
+            {
+                if (pendingReply == null)
+                {
+                    pendingReply = sharedReplyToConsumer.register(msg.getJMSMessageID());
+                }
+                int timeout = event.getTimeout();
+
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Waiting for return event for: " + timeout + " ms on shared consumer of " + replyTo);
+                }
+
+                Message result = pendingReply == null ? null : pendingReply.await(timeout);
+                if (result == null)
+                {
+                    logger.debug("No message was returned via replyTo destination " + replyTo);
+                    return createNullMuleMessage();
+                }
+                else
+                {
+                    return createMessageWithJmsMessagePayload(result);
+                }
+            }
+            else if (useReplyToDestination && replyTo != null)
             {
                 consumer = createReplyToConsumer(msg, event, session, replyTo, topic);
 
@@ -247,13 +325,35 @@ public class JmsMessageDispatcher extends AbstractMessageDispatcher
                 return returnOriginalMessageAsReply ? createMuleMessage(msg) : null;
             }
         }
+        catch (JMSException e)
+        {
+            if (cachedSession != null)
+            {
+                // Do not reuse a session that may be left in an inconsistent state
+                cachedSession.invalidate(e);
+            }
+            throw e;
+        }
         finally
         {
-            connector.closeQuietly(producer);
+            if (pendingReply != null)
+            {
+                pendingReply.cancel();
+            }
+            if (cachedSession != null)
+            {
+                // Cached producers are closed along with their session
+                producerSessionCache.release(cachedSession);
+            }
+            else
+            {
+                connector.closeQuietly(producer);
+            }
             connector.closeQuietly(consumer);
 
             // TODO AP check if TopicResolver is to be utilized for temp destinations as well
-            if (replyTo != null && (replyTo instanceof TemporaryQueue || replyTo instanceof TemporaryTopic))
+            // Shared reply destinations are owned by their consumer
+            if (sharedReplyToConsumer == null && replyTo != null && (replyTo instanceof TemporaryQueue || replyTo instanceof TemporaryTopic))
             {
                 if (replyTo instanceof TemporaryQueue)
                 {
@@ -19,26 +19,39 @@ import org.mule.api.retry.RetryContext;
 import org.mule.api.transaction.Transaction;
 import org.mule.api.transaction.TransactionException;
 import org.mule.api.transport.Connector;
+import org.mule.config.i18n.CoreMessages;
 import org.mule.transaction.TransactionCollection;
 import org.mule.transport.AbstractMessageReceiver;
 import org.mule.transport.AbstractReceiverWorker;
 import org.mule.transport.ConnectException;
 import org.mule.transport.jms.filters.JmsSelectorFilter;
+import org.mule.transport.jms.notification.JmsConsumerScalingNotification;
 import org.mule.transport.jms.reconnect.ReconnectWorkManager;
 import org.mule.transport.jms.redelivery.RedeliveryHandler;
 import org.mule.util.ClassUtils;
+import org.mule.util.MapUtils;
 
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
 import javax.jms.Session;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -46,14 +59,50 @@ import org.apache.commons.logging.LogFactory;
 /**
  * In Mule an endpoint corresponds to a single receiver. It's up to the receiver to do multithreaded consumption and
  * resource allocation, if needed. This class honors the <code>numberOfConcurrentTransactedReceivers</code> strictly
- * and will create exactly this number of consumers.
+ * and will create exactly this number of consumers, unless consumer scaling is enabled.
+ * <p/>
+ * When the endpoint has a <code>batchSize</code> greater than one, each consumer receives up to that number of
+ * messages, waiting at most <code>batchTimeout</code> milliseconds after the first one, and processes them in a
+ * single transaction (or acknowledges them at once with CLIENT_ACKNOWLEDGE), so the commit round trip is paid once
+ * per batch. A failure that rolls back the transaction causes the whole batch to be redelivered. With
+ * <code>batchRedelivery="INDIVIDUAL"</code> the messages received after a failed batch, which are usually the
+ * redelivered ones, are then processed one at a time until as many messages as the failed batch had were processed,
+ * so a single message that cannot be processed does not keep the rest of its batch from being consumed.
+ * Batch consumers run on the receiver work manager, so its threading profile must allow a thread per consumer.
+ * Without a transaction and with AUTO_ACKNOWLEDGE messages are acknowledged as they are received, so batches are
+ * not redelivered at all.
+ * <p/>
+ * When the connector has a <code>maxNumberOfConsumers</code> greater than <code>numberOfConsumers</code>, the number
+ * of consumers of a queue is adjusted between both every <code>consumerScalingInterval</code> milliseconds, as decided
+ * by a {@link ConsumerScalingPolicy} from the time the consumers spent processing messages and, when the queue can be
+ * browsed, the number of messages waiting in it. Every change fires a {@link JmsConsumerScalingNotification}.
+ * Scaling down removes a consumer that is not processing a message when there is one, and otherwise waits for it to
+ * finish its message before closing it.
  */
 public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
 {
+    public static final long DEFAULT_BATCH_TIMEOUT = 100;
+
+    /**
+     * Maximum time a batch consumer waits for the first message of a batch before checking whether it was stopped
+     */
+    private static final long BATCH_POLL_INTERVAL = 1000;
+
+    /**
+     * Maximum number of messages browsed to measure the backlog of a queue per consumer
+     */
+    private static final int BACKLOG_BROWSE_LIMIT_PER_CONSUMER = ConsumerScalingPolicy.BACKLOG_PER_CONSUMER * 2;
+
     protected final List<SubReceiver> consumers;
 
     protected final int receiversCount;
 
+    protected final int batchSize;
+
+    protected final long batchTimeout;
+
+    protected final BatchRedelivery batchRedelivery;
+
     private final JmsConnector jmsConnector;
 
     final boolean isTopic;
@@ -62,6 +111,18 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
     private boolean reconnecting = false;
     private boolean started = false;
 
+    private final ConsumerScalingPolicy scalingPolicy;
+    private ScheduledFuture<?> scalingTask;
+    private final AtomicLong processingTime = new AtomicLong();
+    private final AtomicLong processedMessages = new AtomicLong();
+    private long lastScalingEvaluation;
+    private volatile double busyRatio;
+    private volatile long averageProcessingTime;
+    private volatile long backlog = ConsumerScalingPolicy.UNKNOWN_BACKLOG;
+    private volatile boolean backlogBrowsable = true;
+    private final AtomicLong scaleUps = new AtomicLong();
+    private final AtomicLong scaleDowns = new AtomicLong();
+
     public MultiConsumerJmsMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
             throws CreateException
     {
@@ -88,6 +149,27 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
             logger.debug("Creating " + receiversCount + " sub-receivers for " + endpoint.getEndpointURI());
         }
 
+        batchSize = MapUtils.getIntValue(endpoint.getProperties(), JmsConstants.BATCH_SIZE_PROPERTY, 1);
+        batchTimeout = MapUtils.getLongValue(endpoint.getProperties(), JmsConstants.BATCH_TIMEOUT_PROPERTY, DEFAULT_BATCH_TIMEOUT);
+        batchRedelivery = BatchRedelivery.valueOf(MapUtils.getString(endpoint.getProperties(),
+            JmsConstants.BATCH_REDELIVERY_PROPERTY, BatchRedelivery.BATCH.name()).toUpperCase());
+        if (batchSize > 1 && !endpoint.getTransactionConfig().isTransacted()
+            && jmsConnector.getAcknowledgementMode() != Session.CLIENT_ACKNOWLEDGE)
+        {
+            logger.warn("Endpoint " + endpoint.getEndpointURI() + " consumes messages in batches without a transaction "
+                        + "or CLIENT_ACKNOWLEDGE, so messages of batches that fail will not be redelivered");
+        }
+
+        int maxReceiversCount = isTopic ? 1 : jmsConnector.getMaxNumberOfConsumers();
+        if (maxReceiversCount > receiversCount)
+        {
+            scalingPolicy = new ConsumerScalingPolicy(receiversCount, maxReceiversCount);
+        }
+        else
+        {
+            scalingPolicy = null;
+        }
+
         consumers = new CopyOnWriteArrayList<SubReceiver>();
         reconnectWorkManager = new ReconnectWorkManager(getEndpoint().getMuleContext());
     }
@@ -113,6 +195,7 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         {
             startSubReceivers();
         }
+        startConsumerScaling();
     }
 
 
@@ -122,6 +205,7 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         super.doStop();
 
         logger.debug("doStop()");
+        stopConsumerScaling();
         if (consumers != null)
         {
             SubReceiver sub;
@@ -200,7 +284,7 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
     }
 
     @Override
-    protected void doDisconnect() throws Exception
+    protected synchronized void doDisconnect() throws Exception
     {
         logger.debug("doDisconnect()");
 
@@ -236,6 +320,271 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         }
     }
 
+    protected synchronized void startConsumerScaling()
+    {
+        if (scalingPolicy == null || scalingTask != null)
+        {
+            return;
+        }
+        long interval = jmsConnector.getConsumerScalingInterval();
+        processingTime.set(0);
+        processedMessages.set(0);
+        lastScalingEvaluation = System.nanoTime();
+        scalingTask = jmsConnector.getScheduler().scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    scaleConsumers();
+                }
+                catch (Exception e)
+                {
+                    logger.warn("Unable to scale consumers of " + endpoint.getEndpointURI() + ": " + e.getMessage());
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops scaling the consumers, once it returns no consumer is being added or removed
+     */
+    protected synchronized void stopConsumerScaling()
+    {
+        if (scalingTask != null)
+        {
+            scalingTask.cancel(false);
+            scalingTask = null;
+        }
+    }
+
+    /**
+     * Measures the load of the last interval and adds or removes a consumer as decided by the scaling policy. A
+     * removed consumer stops receiving right away but is closed once idle on the receiver work manager, so the lock
+     * of the receiver and the scheduler thread are not held while waiting for the message it is processing.
+     */
+    protected void scaleConsumers() throws MuleException
+    {
+        SubReceiver removed;
+        synchronized (this)
+        {
+            long now = System.nanoTime();
+            long elapsed = now - lastScalingEvaluation;
+            lastScalingEvaluation = now;
+            long busyTime = processingTime.getAndSet(0);
+            long processed = processedMessages.getAndSet(0);
+            if (scalingTask == null || reconnecting || !connected.get() || consumers.isEmpty())
+            {
+                return;
+            }
+
+            int current = consumers.size();
+            busyRatio = Math.min(1.0, (double) busyTime / ((double) elapsed * current));
+            averageProcessingTime = processed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(busyTime / processed);
+            backlog = measureBacklog(current);
+
+            int target = scalingPolicy.evaluate(current, busyRatio, backlog);
+            if (target > current)
+            {
+                SubReceiver sub = new SubReceiver();
+                sub.doConnect();
+                consumers.add(sub);
+                sub.doStart();
+                scaleUps.incrementAndGet();
+                fireScalingNotification(JmsConsumerScalingNotification.CONSUMER_ADDED);
+                return;
+            }
+            else if (target == current)
+            {
+                return;
+            }
+
+            removed = selectConsumerToRemove();
+            consumers.remove(removed);
+            scaleDowns.incrementAndGet();
+            fireScalingNotification(JmsConsumerScalingNotification.CONSUMER_REMOVED);
+        }
+        disconnectWhenIdle(removed);
+    }
+
+    private void disconnectWhenIdle(final SubReceiver sub) throws MuleException
+    {
+        final long timeout = getEndpoint().getMuleContext().getConfiguration().getShutdownTimeout();
+        try
+        {
+            getWorkManager().scheduleWork(new Work()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        sub.doDisconnectWhenIdle(timeout);
+                    }
+                    catch (MuleException e)
+                    {
+                        logger.warn("Unable to close removed consumer of " + endpoint.getEndpointURI() + ": " + e.getMessage());
+                    }
+                }
+
+                @Override
+                public void release()
+                {
+                    // nothing to do
+                }
+            }, WorkManager.INDEFINITE, null, jmsConnector);
+        }
+        catch (WorkException e)
+        {
+            // Closed on the scheduler thread instead, still without holding the lock of the receiver
+            sub.doDisconnectWhenIdle(timeout);
+        }
+    }
+
+    /**
+     * @return the most recently added consumer that is not processing a message, or the most recently added one if
+     *         every consumer is busy
+     */
+    private SubReceiver selectConsumerToRemove()
+    {
+        for (int i = consumers.size() - 1; i >= 0; i--)
+        {
+            SubReceiver sub = consumers.get(i);
+            if (!sub.isProcessingMessage)
+            {
+                return sub;
+            }
+        }
+        return consumers.get(consumers.size() - 1);
+    }
+
+    /**
+     * Counts the messages waiting in the queue, up to a limit, by browsing it.
+     *
+     * @return the number of messages, or {@link ConsumerScalingPolicy#UNKNOWN_BACKLOG} if the queue cannot be browsed
+     */
+    protected long measureBacklog(int currentConsumers)
+    {
+        if (isTopic || !backlogBrowsable)
+        {
+            return ConsumerScalingPolicy.UNKNOWN_BACKLOG;
+        }
+
+        Session session = null;
+        QueueBrowser browser = null;
+        try
+        {
+            JmsSupport jmsSupport = jmsConnector.getJmsSupport();
+            session = jmsSupport.createSession(jmsConnector.getConnection(), false, false, Session.AUTO_ACKNOWLEDGE,
+                jmsConnector.isNoLocal());
+            browser = session.createBrowser((Queue) jmsSupport.createDestination(session, endpoint));
+            long limit = (long) currentConsumers * BACKLOG_BROWSE_LIMIT_PER_CONSUMER;
+            long count = 0;
+            for (Enumeration<?> messages = browser.getEnumeration(); messages.hasMoreElements() && count < limit; count++)
+            {
+                messages.nextElement();
+            }
+            return count;
+        }
+        catch (UnsupportedOperationException | AbstractMethodError e)
+        {
+            // Not every provider supports browsing, scaling then relies on the busy ratio only
+            backlogBrowsable = false;
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Queue " + endpoint.getEndpointURI() + " cannot be browsed to measure its backlog: " + e);
+            }
+            return ConsumerScalingPolicy.UNKNOWN_BACKLOG;
+        }
+        catch (Exception e)
+        {
+            // Browsing is tried again on the next interval
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Unable to browse " + endpoint.getEndpointURI() + " to measure its backlog: " + e.getMessage());
+            }
+            return ConsumerScalingPolicy.UNKNOWN_BACKLOG;
+        }
+        finally
+        {
+            if (browser != null)
+            {
+                try
+                {
+                    browser.close();
+                }
+                catch (JMSException e)
+                {
+                    logger.debug("Unable to close queue browser", e);
+                }
+            }
+            jmsConnector.closeQuietly(session);
+        }
+    }
+
+    private void fireScalingNotification(int action)
+    {
+        if (logger.isInfoEnabled())
+        {
+            logger.info((action == JmsConsumerScalingNotification.CONSUMER_ADDED ? "Added" : "Removed")
+                        + " consumer of " + endpoint.getEndpointURI() + ", consumers: " + consumers.size()
+                        + ", busy ratio: " + busyRatio + ", average processing time: " + averageProcessingTime
+                        + " ms, backlog: " + backlog);
+        }
+        jmsConnector.fireNotification(new JmsConsumerScalingNotification(this, endpoint.getEndpointURI().toString(),
+            action, consumers.size(), busyRatio, averageProcessingTime, backlog));
+    }
+
+    /**
+     * @return current number of consumers
+     */
+    public int getActiveConsumers()
+    {
+        return consumers.size();
+    }
+
+    /**
+     * @return fraction of the last scaling interval the consumers spent processing messages
+     */
+    public double getBusyRatio()
+    {
+        return busyRatio;
+    }
+
+    /**
+     * @return average time in milliseconds taken to process a message during the last scaling interval
+     */
+    public long getAverageProcessingTime()
+    {
+        return averageProcessingTime;
+    }
+
+    /**
+     * @return number of messages waiting in the queue at the last scaling interval, up to the browse limit, or
+     *         {@link ConsumerScalingPolicy#UNKNOWN_BACKLOG} if unknown
+     */
+    public long getBacklog()
+    {
+        return backlog;
+    }
+
+    /**
+     * @return number of consumers added because of the load
+     */
+    public long getScaleUps()
+    {
+        return scaleUps.get();
+    }
+
+    /**
+     * @return number of consumers removed because of the load
+     */
+    public long getScaleDowns()
+    {
+        return scaleDowns.get();
+    }
+
     @Override
     public boolean shouldConsumeInEveryNode()
     {
@@ -252,6 +601,11 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         protected volatile boolean connected;
         protected volatile boolean started;
         protected volatile boolean isProcessingMessage;
+        private final Object processingMonitor = new Object();
+
+        private CountDownLatch batchConsumerStopped;
+        private volatile Thread batchConsumerThread;
+        private int individualMessages;
 
         protected void doConnect() throws MuleException
         {
@@ -278,6 +632,59 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
             connected = false;
         }
 
+        /**
+         * Stops receiving messages and closes the consumer once the message being processed, if any, is done, so
+         * its session is never recovered from another thread. If the message is still being processed after the
+         * timeout, the session is closed anyway and the broker redelivers the messages it did not acknowledge.
+         *
+         * @param timeout maximum time in milliseconds to wait for the message being processed
+         */
+        protected void doDisconnectWhenIdle(long timeout) throws MuleException
+        {
+            subLogger.debug("SUB doDisconnectWhenIdle()");
+            doStop(true);
+            try
+            {
+                if (!awaitIdle(timeout))
+                {
+                    logger.warn("Consumer of " + endpoint.getEndpointURI() + " still processing a message after "
+                                + timeout + " ms, closing it anyway");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            jmsConnector.closeQuietly(consumer);
+            consumer = null;
+            jmsConnector.closeQuietly(session);
+            session = null;
+            connected = false;
+        }
+
+        /**
+         * Waits until the consumer is not processing a message
+         *
+         * @return false if it was still processing a message when the timeout expired
+         */
+        private boolean awaitIdle(long timeout) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + timeout;
+            synchronized (processingMonitor)
+            {
+                while (isProcessingMessage)
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0)
+                    {
+                        return false;
+                    }
+                    processingMonitor.wait(remaining);
+                }
+            }
+            return true;
+        }
+
         protected void closeConsumer()
         {
             jmsConnector.closeQuietly(consumer);
@@ -311,6 +718,12 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
                 doConnect();
             }
 
+            if (batchSize > 1)
+            {
+                startBatchConsumer();
+                return;
+            }
+
             try
             {
                 MessageListener currentMessageListener = consumer.getMessageListener();
@@ -326,6 +739,163 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
             }
         }
 
+        private synchronized void startBatchConsumer() throws MuleException
+        {
+            if (batchConsumerStopped != null)
+            {
+                return;
+            }
+            started = true;
+            final CountDownLatch stopped = new CountDownLatch(1);
+            batchConsumerStopped = stopped;
+            try
+            {
+                getWorkManager().scheduleWork(new Work()
+                {
+                    @Override
+                    public void run()
+                    {
+                        batchConsumerThread = Thread.currentThread();
+                        try
+                        {
+                            consumeBatches();
+                        }
+                        finally
+                        {
+                            batchConsumerThread = null;
+                            stopped.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void release()
+                    {
+                        // nothing to do
+                    }
+                }, WorkManager.INDEFINITE, null, jmsConnector);
+            }
+            catch (WorkException e)
+            {
+                started = false;
+                batchConsumerStopped = null;
+                throw new LifecycleException(CoreMessages.failedToScheduleWork(), e, this);
+            }
+        }
+
+        /**
+         * Stops the batch consumer, waiting for the batch being processed to finish so the consumer is not closed
+         * while the batch is committed or acknowledged. If it does not finish within the shutdown timeout, the session
+         * is recovered when the consumer is closed so its messages are redelivered.
+         */
+        private void stopBatchConsumer()
+        {
+            CountDownLatch stopped;
+            synchronized (this)
+            {
+                started = false;
+                stopped = batchConsumerStopped;
+                batchConsumerStopped = null;
+            }
+            if (stopped == null || batchConsumerThread == Thread.currentThread())
+            {
+                return;
+            }
+
+            long timeout = BATCH_POLL_INTERVAL + batchTimeout + getEndpoint().getMuleContext().getConfiguration().getShutdownTimeout();
+            try
+            {
+                if (!stopped.await(timeout, TimeUnit.MILLISECONDS))
+                {
+                    logger.warn("Batch of " + endpoint.getEndpointURI() + " still being processed after " + timeout
+                                + " ms, its messages will be recovered");
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void consumeBatches()
+        {
+            while (started)
+            {
+                List<Object> batch;
+                try
+                {
+                    batch = receiveBatch(individualMessages > 0 ? 1 : batchSize);
+                }
+                catch (JMSException e)
+                {
+                    if (started)
+                    {
+                        // Handled as a connection failure, which reconnects and restarts the consumer
+                        started = false;
+                        jmsConnector.onException(e);
+                    }
+                    return;
+                }
+
+                if (batch.isEmpty())
+                {
+                    continue;
+                }
+
+                Message last = (Message) batch.get(batch.size() - 1);
+                int size = batch.size();
+                if (process(batch))
+                {
+                    try
+                    {
+                        // Acknowledges the whole batch when using CLIENT_ACKNOWLEDGE without a transaction
+                        last.acknowledge();
+                    }
+                    catch (JMSException e)
+                    {
+                        logger.warn("Unable to acknowledge batch of messages: " + e.getMessage());
+                    }
+                    individualMessages = Math.max(0, individualMessages - size);
+                }
+                else if (batchRedelivery == BatchRedelivery.INDIVIDUAL && size > 1)
+                {
+                    individualMessages = size;
+                }
+                else
+                {
+                    individualMessages = Math.max(0, individualMessages - size);
+                }
+            }
+        }
+
+        /**
+         * Receives up to the given number of messages, waiting at most the batch timeout after the first one.
+         *
+         * @return the messages received, empty if no message arrived during the poll interval
+         */
+        private List<Object> receiveBatch(int maxMessages) throws JMSException
+        {
+            List<Object> batch = new ArrayList<Object>(maxMessages);
+            Message message = consumer.receive(BATCH_POLL_INTERVAL);
+            if (message == null)
+            {
+                return batch;
+            }
+            batch.add(message);
+
+            long deadline = System.currentTimeMillis() + batchTimeout;
+            while (batch.size() < maxMessages && started)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                message = remaining > 0 ? consumer.receive(remaining) : consumer.receiveNoWait();
+                if (message == null)
+                {
+                    break;
+                }
+                batch.add(message);
+            }
+            return batch;
+        }
+
         /**
          * Stop the subreceiver.
          * @param force - if true, any exceptions will be logged but the subreceiver will be considered stopped regardless
@@ -335,6 +905,12 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         {
             subLogger.debug("SUB doStop()");
 
+            if (batchSize > 1)
+            {
+                stopBatchConsumer();
+                return;
+            }
+
             if (consumer != null)
             {
                 try
@@ -437,12 +1013,26 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
         @Override
         public void onMessage(final Message message)
         {
+            List<Object> messages = new ArrayList<Object>(1);
+            messages.add(message);
+            process(messages);
+        }
+
+        /**
+         * Processes the messages in a single transaction
+         *
+         * @return true if the messages were processed without rolling back the transaction
+         */
+        protected boolean process(List<Object> messages)
+        {
+            long start = System.nanoTime();
             try
             {
                 isProcessingMessage = true;
                 // Note: Despite the name "Worker", there is no new thread created here in order to maintain synchronicity for exception handling.
-                JmsWorker worker = new JmsWorker(message, MultiConsumerJmsMessageReceiver.this, this);
+                JmsWorker worker = new JmsWorker(messages, MultiConsumerJmsMessageReceiver.this, this);
                 worker.processMessages();
+                return true;
             }
             catch (Exception e)
             {
@@ -468,10 +1058,17 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
                 {
                     getEndpoint().getMuleContext().getExceptionListener().handleException(e, rollbackMethod);
                 }
+                return false;
             }
             finally
             {
-                isProcessingMessage = false;
+                synchronized (processingMonitor)
+                {
+                    isProcessingMessage = false;
+                    processingMonitor.notifyAll();
+                }
+                processingTime.addAndGet(System.nanoTime() - start);
+                processedMessages.addAndGet(messages.size());
             }
         }
     }
@@ -487,6 +1084,12 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
             messages.add(message);
         }
 
+        public JmsWorker(List<Object> messages, AbstractMessageReceiver receiver, SubReceiver subReceiver)
+        {
+            super(messages, receiver);
+            this.subReceiver = subReceiver;
+        }
+
         @Override
         protected Object preProcessMessage(Object message) throws Exception
         {
@@ -543,10 +1146,26 @@ public class MultiConsumerJmsMessageReceiver extends AbstractMessageReceiver
                     //We should still bind the session to the transaction, but we also need the message itself
                     //since that is the object that gets Acknowledged
                     //tx.bindResource(jmsConnector.getConnection(), session);
-                    ((JmsClientAcknowledgeTransaction) tx).setMessage((Message) messages.get(0));
+                    // Acknowledging the last message acknowledges every message received before it by the session
+                    ((JmsClientAcknowledgeTransaction) tx).setMessage((Message) messages.get(messages.size() - 1));
                 }
             }
         }
     }
 
+    /**
+     * How the messages of a batch that failed are processed when redelivered
+     */
+    public enum BatchRedelivery
+    {
+        /**
+         * Redelivered messages are processed in batches, like any other message
+         */
+        BATCH,
+
+        /**
+         * Redelivered messages are processed one at a time
+         */
+        INDIVIDUAL
+    }
 }
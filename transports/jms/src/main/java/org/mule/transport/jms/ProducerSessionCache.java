@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.config.i18n.MessageFactory;
+import org.mule.context.notification.ExceptionNotification;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps the sessions used by non transacted dispatches, along with a producer per
+ * destination, so they are reused by the following dispatches instead of being
+ * created and closed for every message.
+ * <p/>
+ * A session is used by a single dispatch at a time: dispatches {@link #acquire acquire}
+ * an idle session, or a new one when there is none, and {@link #release release} it
+ * when done. Up to the cache size idle sessions are kept, the rest are closed.
+ * <p/>
+ * With a send window, sessions are transacted and messages are sent without waiting
+ * for the broker to confirm each one, as providers only do a round trip on commit.
+ * The session is committed once as many messages as the window were sent, and idle
+ * sessions are committed when {@link #flushIdleSessions flushed}. Messages are only
+ * delivered once committed, so delivery is at most once: a failed send or commit
+ * loses every message of the window. Only the dispatch that failed gets an error,
+ * so each loss is also logged with the number of messages and their destinations,
+ * fired as an {@link ExceptionNotification} by the connector and added to the failed
+ * sends count.
+ */
+public class ProducerSessionCache
+{
+
+    public static final int MAX_PRODUCERS_PER_SESSION = 32;
+
+    private static final Log logger = LogFactory.getLog(ProducerSessionCache.class);
+
+    private final JmsConnector connector;
+    private final int sendWindow;
+    private final BlockingQueue<CachedSession> idleQueueSessions;
+    private final BlockingQueue<CachedSession> idleTopicSessions;
+    private volatile boolean closed;
+
+    private final AtomicLong createdSessions = new AtomicLong();
+    private final AtomicLong sends = new AtomicLong();
+    private final AtomicLong sendTime = new AtomicLong();
+    private final AtomicLong maxSendTime = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong failedSends = new AtomicLong();
+
+    /**
+     * @param connector the connector whose connection the sessions are created from
+     * @param maxIdleSessions maximum number of idle sessions kept for queues, and for
+     *            topics
+     * @param sendWindow number of messages sent before committing, 0 to send every
+     *            message synchronously
+     */
+    public ProducerSessionCache(JmsConnector connector, int maxIdleSessions, int sendWindow)
+    {
+        this.connector = connector;
+        this.sendWindow = sendWindow;
+        idleQueueSessions = new LinkedBlockingQueue<CachedSession>(maxIdleSessions);
+        idleTopicSessions = new LinkedBlockingQueue<CachedSession>(maxIdleSessions);
+    }
+
+    /**
+     * @return an idle session, or a new one if there is none, or null if the cache was
+     *         closed
+     */
+    public CachedSession acquire(boolean topic) throws JMSException
+    {
+        if (closed)
+        {
+            return null;
+        }
+        CachedSession cachedSession = getIdleSessions(topic).poll();
+        if (cachedSession == null)
+        {
+            Session session = connector.getJmsSupport().createSession(connector.getConnection(), topic,
+                sendWindow > 0, connector.getAcknowledgementMode(), connector.isNoLocal());
+            createdSessions.incrementAndGet();
+            cachedSession = new CachedSession(session, topic);
+        }
+        return cachedSession;
+    }
+
+    /**
+     * Returns a session to the cache, it is closed if it failed, the cache is full or
+     * the cache was closed.
+     */
+    public void release(CachedSession cachedSession)
+    {
+        BlockingQueue<CachedSession> idleSessions = getIdleSessions(cachedSession.topic);
+        if (cachedSession.invalid || closed || !idleSessions.offer(cachedSession))
+        {
+            cachedSession.close();
+        }
+        else if (closed && idleSessions.remove(cachedSession))
+        {
+            // The cache was closed while the session was being returned
+            cachedSession.close();
+        }
+    }
+
+    /**
+     * Commits the messages sent by idle sessions that did not fill their send window.
+     */
+    public void flushIdleSessions()
+    {
+        flushIdleSessions(idleQueueSessions);
+        flushIdleSessions(idleTopicSessions);
+    }
+
+    private void flushIdleSessions(BlockingQueue<CachedSession> idleSessions)
+    {
+        for (int i = idleSessions.size(); i > 0; i--)
+        {
+            CachedSession cachedSession = idleSessions.poll();
+            if (cachedSession == null)
+            {
+                return;
+            }
+            if (cachedSession.pendingSends > 0)
+            {
+                try
+                {
+                    cachedSession.commit();
+                }
+                catch (JMSException e)
+                {
+                    // Already reported as a lost window
+                }
+            }
+            release(cachedSession);
+        }
+    }
+
+    /**
+     * Commits and closes the idle sessions, sessions in use are closed when released.
+     */
+    public void close()
+    {
+        closed = true;
+        closeIdleSessions(idleQueueSessions);
+        closeIdleSessions(idleTopicSessions);
+    }
+
+    private void closeIdleSessions(BlockingQueue<CachedSession> idleSessions)
+    {
+        CachedSession cachedSession;
+        while ((cachedSession = idleSessions.poll()) != null)
+        {
+            cachedSession.close();
+        }
+    }
+
+    private BlockingQueue<CachedSession> getIdleSessions(boolean topic)
+    {
+        return topic ? idleTopicSessions : idleQueueSessions;
+    }
+
+    private void recordSend(long nanos)
+    {
+        sends.incrementAndGet();
+        sendTime.addAndGet(nanos);
+        long max = maxSendTime.get();
+        while (nanos > max && !maxSendTime.compareAndSet(max, nanos))
+        {
+            max = maxSendTime.get();
+        }
+    }
+
+    /**
+     * @return number of sessions created by the cache
+     */
+    public long getCreatedSessions()
+    {
+        return createdSessions.get();
+    }
+
+    /**
+     * @return number of messages sent through cached sessions
+     */
+    public long getSendCount()
+    {
+        return sends.get();
+    }
+
+    /**
+     * @return average time in microseconds a send took, including the commit of the
+     *         window when the send filled it
+     */
+    public long getAverageSendTime()
+    {
+        long count = sends.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sendTime.get() / count);
+    }
+
+    /**
+     * @return maximum time in microseconds a send took
+     */
+    public long getMaxSendTime()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(maxSendTime.get());
+    }
+
+    /**
+     * @return number of send windows committed
+     */
+    public long getCommitCount()
+    {
+        return commits.get();
+    }
+
+    /**
+     * @return number of messages that failed to be sent or committed
+     */
+    public long getFailedSendCount()
+    {
+        return failedSends.get();
+    }
+
+    /**
+     * A session with its producers, used by a single dispatch at a time
+     */
+    public class CachedSession
+    {
+
+        private final Session session;
+        private final boolean topic;
+        private final Map<String, MessageProducer> producers;
+        private int pendingSends;
+        private final Set<String> pendingDestinations = new LinkedHashSet<String>();
+        private boolean invalid;
+
+        private CachedSession(Session session, boolean topic)
+        {
+            this.session = session;
+            this.topic = topic;
+            producers = new LinkedHashMap<String, MessageProducer>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MessageProducer> eldest)
+                {
+                    if (size() > MAX_PRODUCERS_PER_SESSION)
+                    {
+                        connector.closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        public Session getSession()
+        {
+            return session;
+        }
+
+        /**
+         * @return the producer of the session for the destination of the endpoint,
+         *         created on first use
+         */
+        public MessageProducer getProducer(ImmutableEndpoint endpoint, boolean topic) throws JMSException
+        {
+            String key = (topic ? "topic:" : "queue:") + endpoint.getEndpointURI().getAddress();
+            MessageProducer producer = producers.get(key);
+            if (producer == null)
+            {
+                JmsSupport jmsSupport = connector.getJmsSupport();
+                Destination destination = jmsSupport.createDestination(session, endpoint);
+                producer = jmsSupport.createProducer(session, destination, topic);
+                producers.put(key, producer);
+            }
+            return producer;
+        }
+
+        /**
+         * Sends the message, committing the session if it fills the send window.
+         */
+        public void send(MessageProducer producer, Message message, boolean persistent, int priority, long ttl,
+                         boolean topic, ImmutableEndpoint endpoint) throws JMSException
+        {
+            long start = System.nanoTime();
+            try
+            {
+                connector.getJmsSupport().send(producer, message, persistent, priority, ttl, topic, endpoint);
+                if (sendWindow > 0)
+                {
+                    pendingDestinations.add(endpoint.getEndpointURI().getAddress());
+                    if (++pendingSends >= sendWindow)
+                    {
+                        commit();
+                    }
+                }
+            }
+            catch (JMSException e)
+            {
+                if (!invalid)
+                {
+                    // The messages of the window are rolled back when the session is closed
+                    failedSends.incrementAndGet();
+                    windowLost(e);
+                }
+                throw e;
+            }
+            finally
+            {
+                recordSend(System.nanoTime() - start);
+            }
+        }
+
+        private void commit() throws JMSException
+        {
+            try
+            {
+                session.commit();
+                pendingSends = 0;
+                pendingDestinations.clear();
+                commits.incrementAndGet();
+            }
+            catch (JMSException e)
+            {
+                windowLost(e);
+                throw e;
+            }
+        }
+
+        /**
+         * Marks the session so it is closed instead of reused when released, rolling
+         * back the messages sent since the last commit.
+         *
+         * @param cause the failure of the dispatch that used the session
+         */
+        public void invalidate(Exception cause)
+        {
+            if (!invalid)
+            {
+                windowLost(cause);
+            }
+        }
+
+        /**
+         * Invalidates the session, reporting the loss of the messages sent since the
+         * last commit, which the dispatches that sent them will never know about.
+         */
+        private void windowLost(Exception cause)
+        {
+            invalid = true;
+            int lost = pendingSends;
+            pendingSends = 0;
+            if (lost > 0)
+            {
+                failedSends.addAndGet(lost);
+                String description = "Lost " + lost + " messages sent asynchronously to " + pendingDestinations;
+                logger.error(description + ": " + cause.getMessage());
+                connector.fireNotification(new ExceptionNotification(
+                    new MuleRuntimeException(MessageFactory.createStaticMessage(description), cause)));
+            }
+            pendingDestinations.clear();
+        }
+
+        private void close()
+        {
+            if (!invalid && pendingSends > 0)
+            {
+                try
+                {
+                    commit();
+                }
+                catch (JMSException e)
+                {
+                    // Already reported as a lost window
+                }
+            }
+            for (Iterator<MessageProducer> it = producers.values().iterator(); it.hasNext(); )
+            {
+                connector.closeQuietly(it.next());
+            }
+            producers.clear();
+            connector.closeQuietly(session);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import org.mule.api.endpoint.ImmutableEndpoint;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A long-lived consumer of a reply destination shared by every request-response
+ * dispatch of a connector, instead of creating a consumer, and usually a temporary
+ * destination, for each request.
+ * <p/>
+ * Callers {@link #register register} the correlation ID of the request and wait on
+ * the returned {@link PendingReply}. Replies are matched on their JMSCorrelationID and
+ * complete the waiting caller without blocking the JMS delivery thread. A reply can
+ * arrive before the caller registers when the correlation ID is the message ID
+ * assigned on send, so unmatched replies are kept for the early reply timeout before
+ * they are discarded.
+ * <p/>
+ * The consumer takes every message sent to the destination, so a named destination
+ * must only be used for replies to this connector.
+ */
+public class SharedReplyToConsumer implements MessageListener
+{
+
+    private static final Log logger = LogFactory.getLog(SharedReplyToConsumer.class);
+
+    private final JmsConnector connector;
+    private final Session session;
+    private final Destination destination;
+    private final boolean temporary;
+    private final MessageConsumer consumer;
+    private final long earlyReplyTimeout;
+
+    private final ConcurrentMap<String, PendingReply> pendingReplies = new ConcurrentHashMap<String, PendingReply>();
+    private final ConcurrentMap<String, EarlyReply> earlyReplies = new ConcurrentHashMap<String, EarlyReply>();
+    // Early replies in arrival order, which is also the order in which they expire
+    private final Queue<EarlyReply> expiringReplies = new ConcurrentLinkedQueue<EarlyReply>();
+    private volatile boolean closed;
+
+    private final AtomicLong repliesReceived = new AtomicLong();
+    private final AtomicLong repliesDiscarded = new AtomicLong();
+
+    /**
+     * @param connector the connector whose connection is used to consume the replies
+     * @param destination the reply destination, or null to consume from a temporary
+     *            destination created for this consumer
+     * @param topic whether the destination is a topic
+     * @param endpoint the endpoint the consumer is created for
+     * @param earlyReplyTimeout time in milliseconds replies that do not match any
+     *            waiting caller are kept
+     */
+    public SharedReplyToConsumer(JmsConnector connector, Destination destination, boolean topic,
+                                 ImmutableEndpoint endpoint, long earlyReplyTimeout) throws JMSException
+    {
+        this.connector = connector;
+        this.earlyReplyTimeout = earlyReplyTimeout;
+
+        JmsSupport jmsSupport = connector.getJmsSupport();
+        session = jmsSupport.createSession(connector.getConnection(), topic, false, Session.AUTO_ACKNOWLEDGE,
+            connector.isNoLocal());
+        try
+        {
+            temporary = destination == null;
+            this.destination = temporary ? jmsSupport.createTemporaryDestination(session, topic) : destination;
+            consumer = jmsSupport.createConsumer(session, this.destination, topic, endpoint);
+            consumer.setMessageListener(this);
+        }
+        catch (JMSException e)
+        {
+            connector.closeQuietly(session);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the destination replies must be sent to
+     */
+    public Destination getDestination()
+    {
+        return destination;
+    }
+
+    /**
+     * Registers a caller waiting for the reply with the given correlation ID.
+     *
+     * @return the pending reply, or null if another caller is already waiting for a
+     *         reply with the same correlation ID
+     */
+    public PendingReply register(String correlationId)
+    {
+        PendingReply pendingReply = new PendingReply(correlationId);
+        if (pendingReplies.putIfAbsent(correlationId, pendingReply) != null)
+        {
+            return null;
+        }
+
+        EarlyReply earlyReply = earlyReplies.remove(correlationId);
+        if (earlyReply != null)
+        {
+            pendingReplies.remove(correlationId, pendingReply);
+            pendingReply.complete(earlyReply.message);
+        }
+        return pendingReply;
+    }
+
+    @Override
+    public void onMessage(Message message)
+    {
+        String correlationId;
+        try
+        {
+            correlationId = message.getJMSCorrelationID();
+        }
+        catch (JMSException e)
+        {
+            logger.warn("Discarding reply without a readable correlation ID: " + e.getMessage());
+            repliesDiscarded.incrementAndGet();
+            return;
+        }
+        if (correlationId == null)
+        {
+            logger.warn("Discarding reply without correlation ID received on " + destination);
+            repliesDiscarded.incrementAndGet();
+            return;
+        }
+
+        repliesReceived.incrementAndGet();
+        PendingReply pendingReply = pendingReplies.remove(correlationId);
+        if (pendingReply != null)
+        {
+            pendingReply.complete(message);
+            return;
+        }
+
+        // The caller may not have registered yet, keep the reply so it can claim it
+        EarlyReply earlyReply = new EarlyReply(correlationId, message);
+        earlyReplies.put(correlationId, earlyReply);
+        expiringReplies.offer(earlyReply);
+        pendingReply = pendingReplies.remove(correlationId);
+        if (pendingReply != null && earlyReplies.remove(correlationId, earlyReply))
+        {
+            pendingReply.complete(message);
+        }
+        discardExpiredReplies();
+    }
+
+    /**
+     * Discards the early replies kept longer than the early reply timeout. Only the
+     * expired replies are visited, as they are at the head of the queue.
+     */
+    private void discardExpiredReplies()
+    {
+        long now = System.currentTimeMillis();
+        EarlyReply oldest;
+        while ((oldest = expiringReplies.peek()) != null && now - oldest.receivedAt > earlyReplyTimeout)
+        {
+            // Replies already claimed by their caller are only removed from the queue
+            if (expiringReplies.remove(oldest) && earlyReplies.remove(oldest.correlationId, oldest))
+            {
+                repliesDiscarded.incrementAndGet();
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Discarded reply received on " + destination + " that no caller was waiting for");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the consumer can still receive replies
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Closes the consumer, callers still waiting for a reply are released without
+     * one.
+     */
+    public void close()
+    {
+        closed = true;
+        connector.closeQuietly(consumer);
+        if (temporary)
+        {
+            if (destination instanceof TemporaryQueue)
+            {
+                connector.closeQuietly((TemporaryQueue) destination);
+            }
+            else
+            {
+                connector.closeQuietly((TemporaryTopic) destination);
+            }
+        }
+        connector.closeQuietly(session);
+
+        for (PendingReply pendingReply : pendingReplies.values())
+        {
+            pendingReply.complete(null);
+        }
+        pendingReplies.clear();
+        earlyReplies.clear();
+        expiringReplies.clear();
+    }
+
+    /**
+     * @return number of callers waiting for a reply
+     */
+    public int getPendingReplies()
+    {
+        return pendingReplies.size();
+    }
+
+    /**
+     * @return number of replies received
+     */
+    public long getRepliesReceived()
+    {
+        return repliesReceived.get();
+    }
+
+    /**
+     * @return number of replies discarded because they had no correlation ID or no
+     *         caller was waiting for them, usually because the caller timed out
+     */
+    public long getRepliesDiscarded()
+    {
+        return repliesDiscarded.get();
+    }
+
+    /**
+     * A caller waiting for a reply
+     */
+    public class PendingReply
+    {
+
+        private final String correlationId;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Message reply;
+
+        private PendingReply(String correlationId)
+        {
+            this.correlationId = correlationId;
+        }
+
+        private void complete(Message message)
+        {
+            reply = message;
+            latch.countDown();
+        }
+
+        /**
+         * Waits for the reply.
+         *
+         * @return the reply, or null if it did not arrive before the timeout
+         */
+        public Message await(long timeout) throws InterruptedException
+        {
+            latch.await(timeout, TimeUnit.MILLISECONDS);
+            return reply;
+        }
+
+        /**
+         * Stops waiting for the reply, a reply arriving later is discarded.
+         */
+        public void cancel()
+        {
+            pendingReplies.remove(correlationId, this);
+        }
+    }
+
+    private static class EarlyReply
+    {
+
+        private final String correlationId;
+        private final Message message;
+        private final long receivedAt = System.currentTimeMillis();
+
+        private EarlyReply(String correlationId, Message message)
+        {
+            this.correlationId = correlationId;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms.notification;
+
+import org.mule.context.notification.CustomNotification;
+
+/**
+ * Fired when a JMS receiver adds or removes a consumer because of the load of its
+ * destination. It carries the measurements the decision was based on.
+ */
+public class JmsConsumerScalingNotification extends CustomNotification
+{
+
+    private static final long serialVersionUID = -3871720316592287203L;
+
+    private static final int JMS_SCALING_ACTION_BASE = CUSTOM_EVENT_ACTION_START_RANGE * 3;
+    public static final int CONSUMER_ADDED = JMS_SCALING_ACTION_BASE + 1;
+    public static final int CONSUMER_REMOVED = JMS_SCALING_ACTION_BASE + 2;
+
+    public static final String CONSUMER_ADDED_MSG = "jms.consumer.added";
+    public static final String CONSUMER_REMOVED_MSG = "jms.consumer.removed";
+
+    static
+    {
+        registerAction(CONSUMER_ADDED_MSG, CONSUMER_ADDED);
+        registerAction(CONSUMER_REMOVED_MSG, CONSUMER_REMOVED);
+    }
+
+    private final int consumers;
+    private final double busyRatio;
+    private final long averageProcessingTime;
+    private final long backlog;
+
+    /**
+     * @param receiver the receiver whose consumers changed
+     * @param endpointUri address of the endpoint of the receiver
+     * @param action {@link #CONSUMER_ADDED} or {@link #CONSUMER_REMOVED}
+     * @param consumers number of consumers after the change
+     * @param busyRatio fraction of the last interval the consumers spent processing
+     * @param averageProcessingTime average time in milliseconds taken to process a
+     *            message during the last interval
+     * @param backlog number of messages waiting in the destination, or -1 if unknown
+     */
+    public JmsConsumerScalingNotification(Object receiver, String endpointUri, int action, int consumers,
+                                          double busyRatio, long averageProcessingTime, long backlog)
+    {
+        super(receiver, action, endpointUri);
+        this.consumers = consumers;
+        this.busyRatio = busyRatio;
+        this.averageProcessingTime = averageProcessingTime;
+        this.backlog = backlog;
+    }
+
+    public int getConsumers()
+    {
+        return consumers;
+    }
+
+    public double getBusyRatio()
+    {
+        return busyRatio;
+    }
+
+    public long getAverageProcessingTime()
+    {
+        return averageProcessingTime;
+    }
+
+    public long getBacklog()
+    {
+        return backlog;
+    }
+
+    @Override
+    public String toString()
+    {
+        return EVENT_NAME + "{action = " + getActionName(action) + ", endpoint = " + resourceIdentifier
+               + ", consumers = " + consumers + ", busyRatio = " + busyRatio + ", averageProcessingTime = "
+               + averageProcessingTime + ", backlog = " + backlog + ", timestamp = " + timestamp + "}";
+    }
+}
@@ -19,6 +19,7 @@ import org.mule.transport.ConnectException;
 import org.mule.transport.jms.JmsConnector;
 import org.mule.transport.jms.JmsConstants;
 import org.mule.transport.jms.JmsMessageUtils;
+import org.mule.transport.jms.ProducerSessionCache;
 import org.mule.util.ClassUtils;
 
 import java.io.EOFException;
@@ -50,6 +51,8 @@ public abstract class AbstractJmsTransformer extends AbstractMessageTransformer
     protected Message transformToMessage(MuleMessage message) throws Exception
     {
         Session session = null;
+        ProducerSessionCache producerSessionCache = null;
+        ProducerSessionCache.CachedSession cachedSession = null;
         try
         {
             Message result;
@@ -62,8 +65,22 @@ public abstract class AbstractJmsTransformer extends AbstractMessageTransformer
             }
             else
             {
-                session = this.getSession();
-                result = JmsMessageUtils.toMessage(src, session);
+                producerSessionCache = getProducerSessionCache();
+                if (producerSessionCache != null)
+                {
+                    cachedSession = producerSessionCache.acquire(
+                        ((JmsConnector) endpoint.getConnector()).getTopicResolver().isTopic(endpoint));
+                }
+                if (cachedSession != null)
+                {
+                    // Messages can be created by any session, reuse one of the sessions kept for dispatches
+                    result = JmsMessageUtils.toMessage(src, cachedSession.getSession());
+                }
+                else
+                {
+                    session = this.getSession();
+                    result = JmsMessageUtils.toMessage(src, session);
+                }
             }
             this.setJmsProperties(message, result);
 
@@ -80,6 +97,11 @@ public abstract class AbstractJmsTransformer extends AbstractMessageTransformer
         }
         finally
         {
+            if (cachedSession != null)
+            {
+                producerSessionCache.release(cachedSession);
+            }
+
             /*
                 session.getTransacted() would be easier in most cases, but e.g. in Weblogic 8.x
                 Java EE apps there could be some quirks, see http://forums.bea.com/thread.jspa?threadID=200007643
@@ -192,6 +214,21 @@ public abstract class AbstractJmsTransformer extends AbstractMessageTransformer
         }
     }
 
+    /**
+     * @return the session cache of the connector if the message is created outside of a
+     *         transaction, null otherwise
+     */
+    private ProducerSessionCache getProducerSessionCache()
+    {
+        if (endpoint == null || !(endpoint.getConnector() instanceof JmsConnector)
+            || endpoint.getTransactionConfig().isTransacted()
+            || TransactionCoordination.getInstance().getTransaction() != null)
+        {
+            return null;
+        }
+        return ((JmsConnector) endpoint.getConnector()).getProducerSessionCache();
+    }
+
     protected Session getSession() throws Exception
     {
         if (endpoint != null)
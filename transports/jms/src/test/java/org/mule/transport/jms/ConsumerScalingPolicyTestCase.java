@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mule.transport.jms.ConsumerScalingPolicy.UNKNOWN_BACKLOG;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+
+import org.junit.Test;
+
+@SmallTest
+public class ConsumerScalingPolicyTestCase extends AbstractMuleTestCase
+{
+
+    private final ConsumerScalingPolicy policy = new ConsumerScalingPolicy(2, 4);
+
+    @Test
+    public void addsConsumerWhenBusy()
+    {
+        assertThat(policy.evaluate(2, 0.9, UNKNOWN_BACKLOG), equalTo(3));
+    }
+
+    @Test
+    public void addsConsumerWhenBacklogGrows()
+    {
+        assertThat(policy.evaluate(2, 0.5, 21), equalTo(3));
+        assertThat(policy.evaluate(2, 0.5, 20), equalTo(2));
+    }
+
+    @Test
+    public void doesNotExceedMaximum()
+    {
+        assertThat(policy.evaluate(4, 1.0, 1000), equalTo(4));
+    }
+
+    @Test
+    public void removesConsumerAfterConsecutiveIdleIntervals()
+    {
+        assertThat(policy.evaluate(3, 0.1, 0), equalTo(3));
+        assertThat(policy.evaluate(3, 0.1, UNKNOWN_BACKLOG), equalTo(3));
+        assertThat(policy.evaluate(3, 0.1, 0), equalTo(2));
+    }
+
+    @Test
+    public void busyIntervalResetsIdleIntervals()
+    {
+        policy.evaluate(3, 0.1, 0);
+        policy.evaluate(3, 0.1, 0);
+        assertThat(policy.evaluate(3, 0.5, 0), equalTo(3));
+        assertThat(policy.evaluate(3, 0.1, 0), equalTo(3));
+    }
+
+    @Test
+    public void keepsConsumersWhileMessagesAreWaiting()
+    {
+        for (int i = 0; i < ConsumerScalingPolicy.SCALE_DOWN_IDLE_INTERVALS; i++)
+        {
+            assertThat(policy.evaluate(3, 0.1, 5), equalTo(3));
+        }
+    }
+
+    @Test
+    public void doesNotGoBelowMinimum()
+    {
+        for (int i = 0; i < ConsumerScalingPolicy.SCALE_DOWN_IDLE_INTERVALS; i++)
+        {
+            assertThat(policy.evaluate(2, 0.0, 0), equalTo(2));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaximumBelowMinimum()
+    {
+        new ConsumerScalingPolicy(3, 2);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.mule.api.client.LocalMuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the redelivery of batches that fail because of a single message. The second message received fails
+ * twice, so the first message, which is processed before it in the same batch, shows whether its batch was
+ * redelivered as a whole or one message at a time.
+ */
+public class JmsBatchConsumerTestCase extends FunctionalTestCase
+{
+
+    private static final int MESSAGES = 5;
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "jms-batch-consumer-config.xml";
+    }
+
+    @Before
+    public void resetComponent()
+    {
+        PoisonMessageComponent.reset();
+    }
+
+    @Test
+    public void redeliversWholeBatch() throws Exception
+    {
+        dispatchAndAwait("batch");
+
+        // Processed again every time the batch is rolled back
+        assertThat(PoisonMessageComponent.getDeliveries(PoisonMessageComponent.first), equalTo(PoisonMessageComponent.FAILURES + 1));
+    }
+
+    @Test
+    public void redeliversMessagesOfFailedBatchIndividually() throws Exception
+    {
+        dispatchAndAwait("individual");
+
+        // Committed on its own once redelivered, the second failure only rolls back the poison message
+        assertThat(PoisonMessageComponent.getDeliveries(PoisonMessageComponent.first), equalTo(2));
+    }
+
+    private void dispatchAndAwait(String queue) throws Exception
+    {
+        LocalMuleClient client = muleContext.getClient();
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            client.dispatch("jms://" + queue + "?connector=JMS", TEST_MESSAGE + i, null);
+        }
+
+        PollingProber prober = new PollingProber(RECEIVE_TIMEOUT * 2, 100);
+        prober.check(new Probe()
+        {
+            @Override
+            public boolean isSatisfied()
+            {
+                return PoisonMessageComponent.getReceived() == MESSAGES
+                       && PoisonMessageComponent.getDeliveries(PoisonMessageComponent.poison) == PoisonMessageComponent.FAILURES + 1;
+            }
+
+            @Override
+            public String describeFailure()
+            {
+                return "Poison message was not processed after failing " + PoisonMessageComponent.FAILURES + " times";
+            }
+        });
+    }
+
+    /**
+     * Fails the first {@link #FAILURES} times it receives the second message it ever received
+     */
+    public static class PoisonMessageComponent
+    {
+
+        static final int FAILURES = 2;
+
+        private static final Map<String, Integer> deliveries = new HashMap<String, Integer>();
+        private static volatile String first;
+        private static volatile String poison;
+
+        public Object process(String payload)
+        {
+            int count;
+            synchronized (deliveries)
+            {
+                count = getDeliveries(payload) + 1;
+                deliveries.put(payload, count);
+                if (deliveries.size() == 1)
+                {
+                    first = payload;
+                }
+                else if (deliveries.size() == 2 && poison == null)
+                {
+                    poison = payload;
+                }
+            }
+
+            if (payload.equals(poison) && count <= FAILURES)
+            {
+                throw new IllegalStateException("Unable to process " + payload);
+            }
+            return payload;
+        }
+
+        static int getDeliveries(String payload)
+        {
+            synchronized (deliveries)
+            {
+                Integer count = deliveries.get(payload);
+                return count == null ? 0 : count;
+            }
+        }
+
+        static int getReceived()
+        {
+            synchronized (deliveries)
+            {
+                return deliveries.size();
+            }
+        }
+
+        static void reset()
+        {
+            synchronized (deliveries)
+            {
+                deliveries.clear();
+                first = null;
+                poison = null;
+            }
+        }
+    }
+}
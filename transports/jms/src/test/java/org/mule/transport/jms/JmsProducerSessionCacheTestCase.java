@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.api.MuleRuntimeException;
+import org.mule.api.context.notification.ServerNotification;
+import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.context.notification.ExceptionNotification;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.transport.jms.ProducerSessionCache.CachedSession;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+@SmallTest
+public class JmsProducerSessionCacheTestCase extends AbstractMuleTestCase
+{
+
+    private static final int SEND_WINDOW = 5;
+    private static final String ADDRESS = "cached";
+
+    @Mock
+    private JmsConnector connector;
+    @Mock
+    private JmsSupport jmsSupport;
+    @Mock
+    private MessageProducer producer;
+    @Mock
+    private Message message;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private ImmutableEndpoint endpoint;
+
+    private ProducerSessionCache cache;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(connector.getJmsSupport()).thenReturn(jmsSupport);
+        when(jmsSupport.createSession(any(Connection.class), anyBoolean(), anyBoolean(), anyInt(), anyBoolean()))
+            .thenReturn(mock(Session.class), mock(Session.class));
+        when(jmsSupport.createDestination(any(Session.class), any(ImmutableEndpoint.class)))
+            .thenReturn(mock(Destination.class));
+        when(jmsSupport.createProducer(any(Session.class), any(Destination.class), anyBoolean()))
+            .thenReturn(producer);
+        when(endpoint.getEndpointURI().getAddress()).thenReturn(ADDRESS);
+        cache = new ProducerSessionCache(connector, 1, SEND_WINDOW);
+    }
+
+    @Test
+    public void reusesReleasedSession() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        send(cachedSession, 1);
+        cache.release(cachedSession);
+
+        assertThat(cache.acquire(false), is(sameInstance(cachedSession)));
+        assertThat(cache.getCreatedSessions(), is(1L));
+    }
+
+    @Test
+    public void commitsWhenWindowIsFull() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        send(cachedSession, SEND_WINDOW - 1);
+        verify(cachedSession.getSession(), never()).commit();
+
+        send(cachedSession, 1);
+        verify(cachedSession.getSession()).commit();
+        assertThat(cache.getCommitCount(), is(1L));
+        assertThat(cache.getFailedSendCount(), is(0L));
+        verify(connector, never()).fireNotification(any(ServerNotification.class));
+    }
+
+    @Test
+    public void commitFailureLosesWindow() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        JMSException failure = new JMSException("commit failed");
+        doThrow(failure).when(cachedSession.getSession()).commit();
+        send(cachedSession, SEND_WINDOW - 1);
+
+        try
+        {
+            send(cachedSession, 1);
+            fail("The commit failure was not propagated to the dispatch");
+        }
+        catch (JMSException e)
+        {
+            assertThat(e, is(sameInstance(failure)));
+        }
+
+        assertThat(cache.getCommitCount(), is(0L));
+        assertThat(cache.getFailedSendCount(), is((long) SEND_WINDOW));
+        assertLossNotified(failure);
+
+        cache.release(cachedSession);
+        assertThat(cache.acquire(false), is(not(sameInstance(cachedSession))));
+        assertThat(cache.getCreatedSessions(), is(2L));
+    }
+
+    @Test
+    public void sendFailureLosesWindow() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        send(cachedSession, 2);
+        JMSException failure = new JMSException("send failed");
+        doThrow(failure).when(jmsSupport).send(producer, message, false, 4, 0, false, endpoint);
+
+        try
+        {
+            send(cachedSession, 1);
+            fail("The send failure was not propagated to the dispatch");
+        }
+        catch (JMSException e)
+        {
+            assertThat(e, is(sameInstance(failure)));
+        }
+
+        // The failed message and the two sent before it
+        assertThat(cache.getFailedSendCount(), is(3L));
+        assertLossNotified(failure);
+    }
+
+    @Test
+    public void invalidatingSessionLosesWindow() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        send(cachedSession, 2);
+        Exception failure = new IllegalStateException("dispatch failed");
+
+        cachedSession.invalidate(failure);
+        cachedSession.invalidate(failure);
+        cache.release(cachedSession);
+
+        assertThat(cache.getFailedSendCount(), is(2L));
+        assertLossNotified(failure);
+        verify(cachedSession.getSession(), never()).commit();
+        verify(connector).closeQuietly(cachedSession.getSession());
+    }
+
+    @Test
+    public void invalidatingSessionWithoutPendingSendsDoesNotNotify() throws Exception
+    {
+        CachedSession cachedSession = cache.acquire(false);
+        send(cachedSession, SEND_WINDOW);
+
+        cachedSession.invalidate(new IllegalStateException("dispatch failed"));
+
+        assertThat(cache.getFailedSendCount(), is(0L));
+        verify(connector, never()).fireNotification(any(ServerNotification.class));
+    }
+
+    private void send(CachedSession cachedSession, int count) throws JMSException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            cachedSession.send(cachedSession.getProducer(endpoint, false), message, false, 4, 0, false, endpoint);
+        }
+    }
+
+    private void assertLossNotified(Exception cause)
+    {
+        ArgumentCaptor<ServerNotification> notification = ArgumentCaptor.forClass(ServerNotification.class);
+        verify(connector, times(1)).fireNotification(notification.capture());
+        assertThat(notification.getValue(), is(instanceOf(ExceptionNotification.class)));
+        Throwable exception = ((ExceptionNotification) notification.getValue()).getException();
+        assertThat(exception, is(instanceOf(MuleRuntimeException.class)));
+        assertThat(exception.getCause(), is(sameInstance((Throwable) cause)));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.jms;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+import org.mule.api.MuleMessage;
+import org.mule.api.client.LocalMuleClient;
+import org.mule.tck.junit4.FunctionalTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests that concurrent request-response calls get their own reply through the
+ * consumer shared by the connector
+ */
+public class JmsSharedReplyToConsumerTestCase extends FunctionalTestCase
+{
+
+    private static final int REQUESTS = 50;
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "jms-shared-reply-to-config.xml";
+    }
+
+    @Test
+    public void repliesAreMatchedToTheirRequests() throws Exception
+    {
+        final LocalMuleClient client = muleContext.getClient();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<String>> replies = new ArrayList<Future<String>>();
+            for (int i = 0; i < REQUESTS; i++)
+            {
+                final String request = "request" + i;
+                replies.add(executor.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
+                    {
+                        MuleMessage response = client.send("vm://in", request, null);
+                        return response.getPayloadAsString();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < REQUESTS; i++)
+            {
+                assertThat(replies.get(i).get(), equalTo("request" + i + " replied"));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        JmsConnector connector = (JmsConnector) muleContext.getRegistry().lookupConnector("JMS");
+        SharedReplyToConsumer replyToConsumer = connector.getSharedReplyToConsumer(null, false, null);
+        assertThat(replyToConsumer.getRepliesReceived(), equalTo((long) REQUESTS));
+        assertThat(replyToConsumer.getPendingReplies(), equalTo(0));
+    }
+}
@@ -7,34 +7,52 @@
 package org.mule.transport.jms;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mule.api.config.MuleProperties;
+import org.mule.api.context.WorkManager;
 import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.execution.MessageProcessingManager;
 import org.mule.retry.policies.SimpleRetryPolicyTemplate;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
 import javax.jms.Session;
+import javax.resource.spi.work.ExecutionContext;
+import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkListener;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MultiConsumerJmsMessageReceiverTest extends AbstractMuleTestCase
@@ -92,6 +110,128 @@ public class MultiConsumerJmsMessageReceiverTest extends AbstractMuleTestCase
         verify(mockMessageConsumer, never()).setMessageListener(any(MessageListener.class));
     }
 
+    @Test
+    public void scalesConsumersUpAndDownRemovingIdleConsumer() throws Exception
+    {
+        List<MessageConsumer> messageConsumers = mockMessageConsumers();
+        Enumeration<?> backlog = mock(Enumeration.class);
+        when(mockQueueBrowser().getEnumeration()).thenReturn(backlog);
+        when(backlog.hasMoreElements()).thenReturn(true);
+        MultiConsumerJmsMessageReceiver messageReceiver = createScalingReceiver();
+
+        messageReceiver.scaleConsumers();
+        assertThat(messageReceiver.getActiveConsumers(), is(2));
+        assertThat(messageReceiver.getScaleUps(), is(1L));
+
+        when(backlog.hasMoreElements()).thenReturn(false);
+        MultiConsumerJmsMessageReceiver.SubReceiver busy = messageReceiver.consumers.get(1);
+        busy.isProcessingMessage = true;
+        for (int i = 0; i < ConsumerScalingPolicy.SCALE_DOWN_IDLE_INTERVALS; i++)
+        {
+            messageReceiver.scaleConsumers();
+        }
+
+        assertThat(messageReceiver.getActiveConsumers(), is(1));
+        assertThat(messageReceiver.getScaleDowns(), is(1L));
+        assertThat(messageReceiver.consumers.get(0), sameInstance(busy));
+        verify(messageConsumers.get(0)).setMessageListener(null);
+        verify(mockJmsConnector).closeQuietly(messageConsumers.get(0));
+        verify(mockJmsConnector, never()).closeQuietly(messageConsumers.get(1));
+        verify(mockJmsConnector.getSession(mockInboundEndpoint), never()).recover();
+    }
+
+    @Test
+    public void keepsBrowsingBacklogAfterTransientFailure() throws Exception
+    {
+        mockMessageConsumers();
+        when(mockQueueBrowser().getEnumeration()).thenThrow(new JMSException("Connection lost")).thenReturn(mock(Enumeration.class));
+        MultiConsumerJmsMessageReceiver messageReceiver = createScalingReceiver();
+
+        assertThat(messageReceiver.measureBacklog(1), is(ConsumerScalingPolicy.UNKNOWN_BACKLOG));
+        assertThat(messageReceiver.measureBacklog(1), is(0L));
+    }
+
+    @Test
+    public void stopsBrowsingBacklogWhenUnsupported() throws Exception
+    {
+        mockMessageConsumers();
+        QueueBrowser browser = mockQueueBrowser();
+        when(browser.getEnumeration()).thenThrow(new UnsupportedOperationException());
+        MultiConsumerJmsMessageReceiver messageReceiver = createScalingReceiver();
+
+        assertThat(messageReceiver.measureBacklog(1), is(ConsumerScalingPolicy.UNKNOWN_BACKLOG));
+        assertThat(messageReceiver.measureBacklog(1), is(ConsumerScalingPolicy.UNKNOWN_BACKLOG));
+
+        verify(browser, times(1)).getEnumeration();
+    }
+
+    private MultiConsumerJmsMessageReceiver createScalingReceiver() throws Exception
+    {
+        when(mockJmsConnector.getTopicResolver().isTopic(mockInboundEndpoint, true)).thenReturn(false);
+        when(mockJmsConnector.getNumberOfConsumers()).thenReturn(1);
+        when(mockJmsConnector.getMaxNumberOfConsumers()).thenReturn(2);
+        when(mockInboundEndpoint.getConnector()).thenReturn(mockJmsConnector);
+        when(mockInboundEndpoint.getMuleContext().getRegistry().get(MuleProperties.OBJECT_DEFAULT_MESSAGE_PROCESSING_MANAGER)).thenReturn(mock(MessageProcessingManager.class));
+        SimpleRetryPolicyTemplate retryPolicyTemplate = new SimpleRetryPolicyTemplate();
+        retryPolicyTemplate.setMuleContext(mockJmsConnector.getMuleContext());
+        when(mockInboundEndpoint.getRetryPolicyTemplate()).thenReturn(retryPolicyTemplate);
+        when(mockInboundEndpoint.getProperties().get(JmsConstants.DURABLE_PROPERTY)).thenReturn("false");
+        when(mockInboundEndpoint.getProperties().get(JmsConstants.DURABLE_NAME_PROPERTY)).thenReturn(null);
+
+        final WorkManager workManager = mock(WorkManager.class);
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation)
+            {
+                ((Work) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(workManager).scheduleWork(any(Work.class), anyLong(), any(ExecutionContext.class), any(WorkListener.class));
+
+        // Runs the closing of removed consumers on the test thread
+        MultiConsumerJmsMessageReceiver messageReceiver = new MultiConsumerJmsMessageReceiver(mockJmsConnector, mockFlowConstruct, mockInboundEndpoint)
+        {
+            @Override
+            protected WorkManager getWorkManager()
+            {
+                return workManager;
+            }
+        };
+        messageReceiver.initialise();
+        messageReceiver.doStart();
+        return messageReceiver;
+    }
+
+    private List<MessageConsumer> mockMessageConsumers() throws Exception
+    {
+        final List<MessageConsumer> messageConsumers = new ArrayList<MessageConsumer>();
+        when(mockJmsConnector.getJmsSupport()
+                    .createConsumer(any(Session.class), any(Destination.class), anyString(), anyBoolean(), anyString(), anyBoolean(), any(InboundEndpoint.class)))
+                    .thenAnswer(new Answer<MessageConsumer>()
+                    {
+                        @Override
+                        public MessageConsumer answer(InvocationOnMock invocation)
+                        {
+                            MessageConsumer messageConsumer = mock(TestMessageConsumer.class, CALLS_REAL_METHODS);
+                            messageConsumers.add(messageConsumer);
+                            return messageConsumer;
+                        }
+                    });
+        return messageConsumers;
+    }
+
+    private QueueBrowser mockQueueBrowser() throws Exception
+    {
+        Session browsingSession = mock(Session.class);
+        QueueBrowser browser = mock(QueueBrowser.class);
+        when(mockJmsConnector.getJmsSupport().createSession(any(Connection.class), anyBoolean(), anyBoolean(), anyInt(), anyBoolean()))
+                    .thenReturn(browsingSession);
+        when(mockJmsConnector.getJmsSupport().createDestination(browsingSession, mockInboundEndpoint)).thenReturn(mock(Queue.class));
+        when(browsingSession.createBrowser(any(Queue.class))).thenReturn(browser);
+        return browser;
+    }
+
     private abstract class TestMessageConsumer implements MessageConsumer
     {
 
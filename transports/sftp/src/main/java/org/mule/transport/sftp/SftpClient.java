@@ -31,7 +31,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -76,6 +78,12 @@ public class SftpClient
 
     private int connectionTimeoutMillis = 0; // No timeout by default
 
+    private int bulkRequests = 0; // Use the jsch default
+
+    private SftpSessionPool sessionPool;
+
+    private SftpSessionPool.Lease lease;
+
     public SftpClient(String host)
     {
         this(host, null);
@@ -132,25 +140,7 @@ public class SftpClient
     {
         try
         {
-            Properties hash = new Properties();
-            configureHostChecking(hash);
-            if (!StringUtils.isEmpty(preferredAuthenticationMethods))
-            {
-                hash.put(PREFERRED_AUTHENTICATION_METHODS, preferredAuthenticationMethods);
-            }
-
-            session = jsch.getSession(user, host);
-            session.setConfig(hash);
-            session.setPort(port);
-            session.setPassword(password);
-            session.setTimeout(connectionTimeoutMillis);
-            session.connect();
-
-            Channel channel = session.openChannel(CHANNEL_SFTP);
-            channel.connect();
-
-            channelSftp = (ChannelSftp) channel;
-            setHome(channelSftp.pwd());
+            connect(user, password, "password:" + password);
         }
         catch (JSchException e)
         {
@@ -181,33 +171,79 @@ public class SftpClient
                 jsch.addIdentity(new File(identityFile).getAbsolutePath(), passphrase);
             }
 
-            Properties hash = new Properties();
-            configureHostChecking(hash);
-            if (!StringUtils.isEmpty(preferredAuthenticationMethods))
-            {
-                hash.put(PREFERRED_AUTHENTICATION_METHODS, preferredAuthenticationMethods);
-            }
+            connect(user, null, "identity:" + new File(identityFile).getAbsolutePath() + ":" + passphrase);
+        }
+        catch (JSchException e)
+        {
+            logAndThrowLoginError(user, e);
+        }
+        catch (SftpException e)
+        {
+            logAndThrowLoginError(user, e);
+        }
+    }
 
-            session = jsch.getSession(user, host);
-            session.setConfig(hash);
-            session.setPort(port);
-            session.setTimeout(connectionTimeoutMillis);
+    private void connect(final String user, final String password, String credentials) throws JSchException, SftpException
+    {
+        if (sessionPool != null)
+        {
+            lease = sessionPool.acquire(getSessionKey(user, credentials), new SftpSessionPool.SessionFactory()
+            {
+                @Override
+                public Session createSession() throws JSchException
+                {
+                    return SftpClient.this.createSession(user, password);
+                }
+            });
+            session = lease.getSession();
+            channelSftp = lease.getChannel();
+        }
+        else
+        {
+            session = createSession(user, password);
             session.connect();
 
             Channel channel = session.openChannel(CHANNEL_SFTP);
             channel.connect();
-
             channelSftp = (ChannelSftp) channel;
-            setHome(channelSftp.pwd());
         }
-        catch (JSchException e)
+
+        if (bulkRequests > 0)
         {
-            logAndThrowLoginError(user, e);
+            channelSftp.setBulkRequests(bulkRequests);
         }
-        catch (SftpException e)
+        setHome(channelSftp.pwd());
+    }
+
+    private Session createSession(String user, String password) throws JSchException
+    {
+        Properties hash = new Properties();
+        configureHostChecking(hash);
+        if (!StringUtils.isEmpty(preferredAuthenticationMethods))
         {
-            logAndThrowLoginError(user, e);
+            hash.put(PREFERRED_AUTHENTICATION_METHODS, preferredAuthenticationMethods);
+        }
+
+        Session newSession = jsch.getSession(user, host);
+        newSession.setConfig(hash);
+        newSession.setPort(port);
+        if (password != null)
+        {
+            newSession.setPassword(password);
         }
+        newSession.setTimeout(connectionTimeoutMillis);
+        return newSession;
+    }
+
+    /**
+     * Sessions can only be shared by clients that would have opened exactly the same
+     * session, so the key includes everything used to configure it. It contains the
+     * credentials and must never be logged.
+     */
+    private String getSessionKey(String user, String credentials)
+    {
+        return user + "@" + host + ":" + port + "|" + credentials + "|" + knownHostsFile + "|"
+               + preferredAuthenticationMethods + "|" + connectionTimeoutMillis;
     }
 
     protected void configureHostChecking(Properties hash) throws JSchException
@@ -249,6 +285,29 @@ public class SftpClient
         this.connectionTimeoutMillis = connectionTimeoutMillis;
     }
 
+    /**
+     * Sets the number of read requests that are sent to the server without waiting
+     * for their responses when retrieving a file. Higher values improve the
+     * throughput over links with high latency.
+     *
+     * @param bulkRequests number of outstanding requests, or zero to use the jsch
+     *            default
+     */
+    public void setBulkRequests(int bulkRequests)
+    {
+        this.bulkRequests = bulkRequests;
+    }
+
+    /**
+     * Sets the pool of the sessions the SFTP channel of this client is opened on. When
+     * there is no pool, the client opens its own session on login and closes it on
+     * disconnect.
+     */
+    public void setSessionPool(SftpSessionPool sessionPool)
+    {
+        this.sessionPool = sessionPool;
+    }
+
     public void rename(String filename, String dest) throws IOException
     {
         // Notify sftp rename file action
@@ -298,6 +357,13 @@ public class SftpClient
 
     public void disconnect()
     {
+        if (lease != null)
+        {
+            // The session stays open in the pool for other clients
+            lease.release();
+            lease = null;
+            return;
+        }
         if (channelSftp != null)
         {
             channelSftp.disconnect();
@@ -367,6 +433,43 @@ public class SftpClient
         return null;
     }
 
+    public Map<String, SftpATTRS> listFileAttributes() throws IOException
+    {
+        return listFileAttributes(".");
+    }
+
+    /**
+     * Lists the files in a directory along with their attributes, which the server
+     * sends in the same response, so there is no need to stat each file.
+     *
+     * @param path directory to list
+     * @return the attributes of each file by file name, in listing order
+     * @throws IOException if the directory cannot be listed
+     */
+    public Map<String, SftpATTRS> listFileAttributes(String path) throws IOException
+    {
+        try
+        {
+            Map<String, SftpATTRS> files = new LinkedHashMap<String, SftpATTRS>();
+            Vector<LsEntry> entries = channelSftp.ls(path);
+            if (entries != null)
+            {
+                for (LsEntry entry : entries)
+                {
+                    if (!entry.getAttrs().isDir())
+                    {
+                        files.put(entry.getFilename(), entry.getAttrs());
+                    }
+                }
+            }
+            return files;
+        }
+        catch (SftpException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
     // public boolean logout()
     // {
     // return true;
@@ -391,6 +494,28 @@ public class SftpClient
         }
     }
 
+    /**
+     * Retrieves the contents of a file starting at the given offset. Unlike
+     * {@link #retrieveFile(String)}, no notification is sent, as this is meant to
+     * retrieve a part of a file.
+     *
+     * @param fileName name of the file
+     * @param offset number of bytes to skip from the beginning of the file
+     * @return the contents of the file starting at the offset
+     * @throws IOException if the file cannot be retrieved
+     */
+    public InputStream retrieveFile(String fileName, long offset) throws IOException
+    {
+        try
+        {
+            return channelSftp.get(fileName, null, offset);
+        }
+        catch (SftpException e)
+        {
+            throw new IOException(e.getMessage() + ".  Filename is " + fileName);
+        }
+    }
+
     // public OutputStream storeFileStream(String fileName) throws IOException
     // {
     // try
@@ -81,6 +81,9 @@ public class SftpConnectionFactory implements PoolableObjectFactory
             }
 
             client.setConnectionTimeoutMillis(endpoint.getResponseTimeout());
+            SftpConnector connector = (SftpConnector) endpoint.getConnector();
+            client.setBulkRequests(connector.getBulkRequests());
+            client.setSessionPool(connector.getSessionPool());
 
             SftpUtil sftpUtil = new SftpUtil(endpoint);
             String identityFile = sftpUtil.getIdentityFile();
@@ -22,9 +22,13 @@ import org.mule.transport.AbstractConnector;
 import org.mule.transport.file.ExpressionFilenameParser;
 import org.mule.transport.file.FilenameParser;
 import org.mule.transport.sftp.notification.SftpNotifier;
+import org.mule.util.concurrent.NamedThreadFactory;
+import org.mule.util.concurrent.ThreadNameHelper;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -71,6 +75,8 @@ public class SftpConnector extends AbstractConnector
     public static final String PROPERTY_KEEP_FILE_ON_ERROR = "keepFileOnError";
 
     public static final int DEFAULT_POLLING_FREQUENCY = 1000;
+    public static final long DEFAULT_MIN_SEGMENT_SIZE = 8 * 1024 * 1024;
+    public static final long DEFAULT_SESSION_IDLE_TIMEOUT = 60000;
 
     /**
      * logger used by this class
@@ -115,6 +121,44 @@ public class SftpConnector extends AbstractConnector
      */
     private int maxConnectionPoolSize;
 
+    /**
+     * Number of read requests sent to the server without waiting for their responses.
+     * 0 to use the jsch default.
+     */
+    private int bulkRequests = 0;
+
+    /**
+     * Maximum number of segments a file is split into to download it using parallel
+     * connections. 1 to download every file using a single connection.
+     */
+    private int maxParallelSegments = 1;
+
+    /**
+     * Minimum size in bytes of each segment when downloading using parallel connections
+     */
+    private long minSegmentSize = DEFAULT_MIN_SEGMENT_SIZE;
+
+    /**
+     * Maximum number of SFTP channels opened over each SSH session. 0 to open a new
+     * session for every connection.
+     */
+    private int maxChannelsPerSession = 0;
+
+    /**
+     * Time in milliseconds a pooled session without channels is kept open
+     */
+    private long sessionIdleTimeout = DEFAULT_SESSION_IDLE_TIMEOUT;
+
+    /**
+     * Interval in milliseconds between keep-alive messages sent on pooled sessions. 0
+     * to disable them.
+     */
+    private int keepAliveInterval = 0;
+
+    private SftpSessionPool sessionPool;
+
+    private final ConcurrentMap<EndpointURI, SftpTransferStatistics> transferStatistics = new ConcurrentHashMap<EndpointURI, SftpTransferStatistics>();
+
     /**
      * Value that can be set via the System property
      * 'mule.sftp.transport.maxConnectionPoolSize'. If it's set the value is used
@@ -376,6 +420,16 @@ public class SftpConnector extends AbstractConnector
         finally
         {
             pools.clear();
+            closeSessionPool();
+        }
+    }
+
+    private synchronized void closeSessionPool()
+    {
+        if (sessionPool != null)
+        {
+            sessionPool.close();
+            sessionPool = null;
         }
     }
 
@@ -581,6 +635,103 @@ public class SftpConnector extends AbstractConnector
         return maxConnectionPoolSize;
     }
 
+    public int getBulkRequests()
+    {
+        return bulkRequests;
+    }
+
+    public void setBulkRequests(int bulkRequests)
+    {
+        this.bulkRequests = bulkRequests;
+    }
+
+    public int getMaxParallelSegments()
+    {
+        return maxParallelSegments;
+    }
+
+    public void setMaxParallelSegments(int maxParallelSegments)
+    {
+        this.maxParallelSegments = maxParallelSegments;
+    }
+
+    public long getMinSegmentSize()
+    {
+        return minSegmentSize;
+    }
+
+    public void setMinSegmentSize(long minSegmentSize)
+    {
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    public int getMaxChannelsPerSession()
+    {
+        return maxChannelsPerSession;
+    }
+
+    public void setMaxChannelsPerSession(int maxChannelsPerSession)
+    {
+        this.maxChannelsPerSession = maxChannelsPerSession;
+    }
+
+    public long getSessionIdleTimeout()
+    {
+        return sessionIdleTimeout;
+    }
+
+    public void setSessionIdleTimeout(long sessionIdleTimeout)
+    {
+        this.sessionIdleTimeout = sessionIdleTimeout;
+    }
+
+    public int getKeepAliveInterval()
+    {
+        return keepAliveInterval;
+    }
+
+    public void setKeepAliveInterval(int keepAliveInterval)
+    {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * @return the pool of the SSH sessions shared by the connections of this
+     *         connector, or null when sessions are not shared
+     */
+    public synchronized SftpSessionPool getSessionPool()
+    {
+        if (maxChannelsPerSession <= 0)
+        {
+            return null;
+        }
+        if (sessionPool == null)
+        {
+            sessionPool = new SftpSessionPool(maxChannelsPerSession, sessionIdleTimeout, keepAliveInterval,
+                new NamedThreadFactory(ThreadNameHelper.getPrefix(muleContext) + "sftp.sessions." + getName()));
+        }
+        return sessionPool;
+    }
+
+    /**
+     * @return the statistics of the files retrieved from the given endpoint
+     */
+    public SftpTransferStatistics getTransferStatistics(ImmutableEndpoint endpoint)
+    {
+        EndpointURI endpointURI = endpoint.getEndpointURI();
+        SftpTransferStatistics statistics = transferStatistics.get(endpointURI);
+        if (statistics == null)
+        {
+            SftpTransferStatistics newStatistics = new SftpTransferStatistics();
+            statistics = transferStatistics.putIfAbsent(endpointURI, newStatistics);
+            if (statistics == null)
+            {
+                statistics = newStatistics;
+            }
+        }
+        return statistics;
+    }
+
     public Boolean isKeepFileOnError()
     {
         return keepFileOnError;
@@ -6,16 +6,21 @@
  */
 package org.mule.transport.sftp;
 
+import static org.mule.transport.sftp.notification.SftpTransportNotification.SFTP_GET_ACTION;
+
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.transport.sftp.notification.SftpNotifier;
 import org.mule.util.FileUtils;
 
+import com.jcraft.jsch.SftpATTRS;
+
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -34,6 +39,7 @@ public class SftpReceiverRequesterUtil
     private final ImmutableEndpoint endpoint;
     private final FilenameFilter filenameFilter;
     private final SftpUtil sftpUtil;
+    private final SftpSegmentedDownloader segmentedDownloader;
 
     public SftpReceiverRequesterUtil(ImmutableEndpoint endpoint)
     {
@@ -41,6 +47,8 @@ public class SftpReceiverRequesterUtil
         this.connector = (SftpConnector) endpoint.getConnector();
 
         sftpUtil = new SftpUtil(endpoint);
+        segmentedDownloader = new SftpSegmentedDownloader(endpoint, connector.getMaxParallelSegments(),
+            connector.getMinSegmentSize());
 
         if (endpoint.getFilter() instanceof FilenameFilter)
         {
@@ -85,14 +93,17 @@ public class SftpReceiverRequesterUtil
 
             // Get size check parameter
             long sizeCheckDelayMs = sftpUtil.getSizeCheckWaitTime();
+            boolean checkAge = checkFileAge && fileAge > 0;
 
-            String[] files = client.listFiles();
+            // The listing already contains the size and the modification time of each
+            // file, so there is no need to stat them one by one
+            Map<String, SftpATTRS> files = client.listFileAttributes();
 
             // Only return files that have completely been written and match
             // fileExtension
-            List<String> completedFiles = new ArrayList<String>(files.length);
+            List<String> completedFiles = new ArrayList<String>(files.size());
 
-            for (String file : files)
+            for (Map.Entry<String, SftpATTRS> file : files.entrySet())
             {
                 // Skip if no match.
                 // Note, Mule also uses this filter. We use the filter here because
@@ -101,36 +112,39 @@ public class SftpReceiverRequesterUtil
                 // that Mule
                 // later should have ignored. Thus this is an "early" filter so that
                 // improves performance.
-                if (filenameFilter != null && !filenameFilter.accept(null, file))
+                if (filenameFilter != null && !filenameFilter.accept(null, file.getKey()))
                 {
                     continue;
                 }
 
-                if (checkFileAge || sizeCheckDelayMs >= 0)
+                if (canProcessFile(file.getKey(), file.getValue(), checkAge ? fileAge : 0))
                 {
-                    // See if the file is still growing (either by age or size),
-                    // leave it alone if it is
-                    if (canProcessFile(file, client, fileAge, sizeCheckDelayMs))
+                    completedFiles.add(file.getKey());
+                    if (onlyGetTheFirstOne && sizeCheckDelayMs <= 0 && !checkAge)
                     {
-                        // logger.debug("marking file [" + files[i] +
-                        // "] as in transit.");
-                        // client.rename(files[i], files[i] + ".transtit");
-                        // completedFiles.add( files[i] + ".transtit" );
-                        completedFiles.add(file);
-                        if (onlyGetTheFirstOne)
-                        {
-                            break;
-                        }
+                        break;
                     }
                 }
-                else
+            }
+
+            if (!completedFiles.isEmpty() && (checkAge || sizeCheckDelayMs > 0))
+            {
+                // See if the files are still growing, leave them alone if they are.
+                // A single wait and listing is used for all the files.
+                if (sizeCheckDelayMs > 0)
                 {
-                    completedFiles.add(file);
-                    if (onlyGetTheFirstOne)
+                    if (logger.isDebugEnabled())
                     {
-                        break;
+                        logger.debug("Perform size check with a delay of: " + sizeCheckDelayMs + " ms.");
                     }
+                    Thread.sleep(sizeCheckDelayMs);
                 }
+                completedFiles = getUnchangedFiles(client, completedFiles, files, sizeCheckDelayMs > 0);
+            }
+
+            if (onlyGetTheFirstOne && completedFiles.size() > 1)
+            {
+                completedFiles = completedFiles.subList(0, 1);
             }
             return completedFiles.toArray(new String[completedFiles.size()]);
         }
@@ -184,7 +198,7 @@ public class SftpReceiverRequesterUtil
         InputStream fileInputStream;
         try
         {
-            fileInputStream = client.retrieveFile(fileName);
+            fileInputStream = retrieveFileContents(client, fileName, notifier);
         }
         catch (IOException e)
         {
@@ -225,6 +239,26 @@ public class SftpReceiverRequesterUtil
         return new SftpInputStream(client, fileInputStream, fileName, determineAutoDelete(), endpoint);
     }
 
+    private InputStream retrieveFileContents(SftpClient client, String fileName, SftpNotifier notifier) throws IOException
+    {
+        if (segmentedDownloader.isEnabled())
+        {
+            long size = client.getSize(fileName);
+            if (segmentedDownloader.isSegmented(size))
+            {
+                if (notifier != null)
+                {
+                    notifier.notify(SFTP_GET_ACTION, endpoint.getEndpointURI().getPath() + "/" + fileName, size);
+                }
+                return segmentedDownloader.download(client, fileName, size,
+                    connector.getTransferStatistics(endpoint).startTransfer());
+            }
+        }
+
+        InputStream inputStream = client.retrieveFile(fileName);
+        return connector.getTransferStatistics(endpoint).startTransfer().track(inputStream);
+    }
+
     private boolean determineAutoDelete()
     {
         boolean autoDelete;
@@ -325,113 +359,82 @@ public class SftpReceiverRequesterUtil
     }
 
     /**
-     * Checks if the file has been changed.
+     * Checks if a listed file is old enough to be processed.
      * <p/>
      * Note! This assumes that the time on both servers are synchronized!
-     * 
+     *
      * @param fileName The file to check
-     * @param client instance of StftClient
+     * @param attributes The attributes of the file returned by the listing
      * @param fileAge How old the file should be to be considered "old" and not
      *            changed
-     * @param sizeCheckDelayMs Wait time (in ms) between size-checks to determine if
-     *            a file is ready to be processed.
-     * @return true if the file has changed
-     * @throws Exception Error
+     * @return true if the file can be processed
      */
-    protected boolean canProcessFile(String fileName, SftpClient client, long fileAge, long sizeCheckDelayMs)
-        throws Exception
+    protected boolean canProcessFile(String fileName, SftpATTRS attributes, long fileAge)
     {
-        if (fileAge > 0 && !isOldFile(fileName, client, fileAge))
-        {
-            return false;
-        }
-
-        if (sizeCheckDelayMs > 0 && isSizeModified(fileName, client, sizeCheckDelayMs))
-        {
-            return false;
-        }
-
-        return true;
+        return fileAge <= 0 || isOldFile(fileName, attributes, fileAge);
     }
 
-    private boolean isSizeModified(String fileName, SftpClient client, long sizeCheckDelayMs) throws IOException, InterruptedException
+    /**
+     * Lists the directory again and returns the files that still exist and, when
+     * checking sizes, did not grow since the previous listing.
+     */
+    private List<String> getUnchangedFiles(SftpClient client,
+                                           List<String> fileNames,
+                                           Map<String, SftpATTRS> previousListing,
+                                           boolean checkSize) throws IOException
     {
-        try
-        {
-            if (logger.isDebugEnabled())
-            {
-                logger.debug("Perform size check with a delay of: " + sizeCheckDelayMs + " ms.");
-            }
+        Map<String, SftpATTRS> currentListing = client.listFileAttributes();
+        List<String> unchangedFiles = new ArrayList<String>(fileNames.size());
 
-            long fileSize1 = client.getSize(fileName);
-            Thread.sleep(sizeCheckDelayMs);
-            long fileSize2 = client.getSize(fileName);
-
-            if (fileSize1 == fileSize2)
+        for (String fileName : fileNames)
+        {
+            SftpATTRS attributes = currentListing.get(fileName);
+            if (attributes == null)
             {
                 if (logger.isDebugEnabled())
                 {
-                    logger.debug("File is stable (not growing), ready for retrieval: " + fileName);
+                    logger.debug("File was removed while checking it, skipping: " + fileName);
                 }
             }
-            else
+            else if (checkSize && attributes.getSize() != previousListing.get(fileName).getSize())
             {
                 if (logger.isDebugEnabled())
                 {
                     logger.debug("File is growing, deferring retrieval: " + fileName);
                 }
-                return true;
             }
-            return false;
-        }
-        catch (IOException e)
-        {
-            if (logger.isDebugEnabled())
+            else
             {
-                logger.debug(String.format("Cannot check if size of file '%s' was modified or not", fileName));
+                unchangedFiles.add(fileName);
             }
-
-            // Assumes the file size has changed
-            return true;
         }
+
+        return unchangedFiles;
     }
 
-    private boolean isOldFile(String fileName, SftpClient client, long fileAge) throws IOException
+    private boolean isOldFile(String fileName, SftpATTRS attributes, long fileAge)
     {
-        try
-        {
-            long lastModifiedTime = client.getLastModifiedTime(fileName);
-            long now = System.currentTimeMillis();
-            long diff = now - lastModifiedTime;
+        long lastModifiedTime = attributes.getMTime() * 1000L;
+        long now = System.currentTimeMillis();
+        long diff = now - lastModifiedTime;
 
-            // If the diff is negative it's a sign that the time on the test server
-            // and the ftps-server is not synchronized
-            if (diff < fileAge)
-            {
-                if (logger.isDebugEnabled())
-                {
-                    logger.debug("The file has not aged enough yet, will return nothing for: " + fileName
-                                 + ". The file must be " + (fileAge - diff) + "ms older, was " + diff);
-                }
-
-                return false;
-            }
-
-            if (logger.isDebugEnabled())
-            {
-                logger.debug("The file " + fileName + " has aged enough. Was " + diff);
-            }
-            return true;
-        }
-        catch (IOException e)
+        // If the diff is negative it's a sign that the time on the test server
+        // and the ftps-server is not synchronized
+        if (diff < fileAge)
         {
             if (logger.isDebugEnabled())
             {
-                logger.debug(String.format("Cannot check if age of file '%s' is old enough", fileName));
+                logger.debug("The file has not aged enough yet, will return nothing for: " + fileName
+                             + ". The file must be " + (fileAge - diff) + "ms older, was " + diff);
             }
 
-            // Assumes the file is not old enough
             return false;
         }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("The file " + fileName + " has aged enough. Was " + diff);
+        }
+        return true;
     }
 }
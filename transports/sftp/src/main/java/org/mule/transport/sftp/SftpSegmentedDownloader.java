@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.sftp;
+
+import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.util.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Downloads large files splitting them in segments that are retrieved in parallel,
+ * each one using its own connection to the SFTP server. This hides the latency of
+ * the link, which otherwise bounds the throughput of a single channel.
+ * <p/>
+ * The segments are written to a local temporary file that is deleted when the
+ * returned stream is closed. The client received by {@link #download} always takes
+ * part in the download, so if no additional connection can be opened the file is
+ * still retrieved, just sequentially. Segments that fail on an additional connection
+ * are retried with that client.
+ */
+public class SftpSegmentedDownloader
+{
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private final Log logger = LogFactory.getLog(getClass());
+
+    private final ImmutableEndpoint endpoint;
+    private final SftpConnector connector;
+    private final int maxSegments;
+    private final long minSegmentSize;
+
+    /**
+     * @param endpoint endpoint the files are retrieved from
+     * @param maxSegments maximum number of segments downloaded in parallel
+     * @param minSegmentSize minimum size in bytes of each segment
+     */
+    public SftpSegmentedDownloader(ImmutableEndpoint endpoint, int maxSegments, long minSegmentSize)
+    {
+        this.endpoint = endpoint;
+        this.connector = (SftpConnector) endpoint.getConnector();
+        this.maxSegments = maxSegments;
+        this.minSegmentSize = minSegmentSize;
+    }
+
+    public boolean isEnabled()
+    {
+        return maxSegments > 1 && minSegmentSize > 0;
+    }
+
+    /**
+     * @return whether a file of the given size is big enough to be downloaded in
+     *         more than one segment
+     */
+    public boolean isSegmented(long size)
+    {
+        return isEnabled() && getSegmentCount(size) > 1;
+    }
+
+    int getSegmentCount(long size)
+    {
+        return (int) Math.min(maxSegments, size / minSegmentSize);
+    }
+
+    /**
+     * Downloads a file to a local temporary file.
+     *
+     * @param client client connected to the endpoint
+     * @param fileName name of the file, relative to the endpoint directory
+     * @param size size of the file
+     * @param transfer transfer updated with the downloaded bytes
+     * @return a stream on the downloaded file, which is deleted once the stream is
+     *         closed
+     * @throws IOException if the file cannot be downloaded
+     */
+    public InputStream download(SftpClient client, String fileName, long size, SftpTransferStatistics.Transfer transfer)
+        throws IOException
+    {
+        File directory = new File(connector.getMuleContext().getConfiguration().getWorkingDirectory(), "sftp");
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException("Failed to create download directory: " + directory);
+        }
+
+        File localFile = File.createTempFile("sftp-", ".part", directory);
+        boolean downloaded = false;
+        try
+        {
+            RandomAccessFile output = new RandomAccessFile(localFile, "rw");
+            try
+            {
+                output.setLength(size);
+                new Download(fileName, size, output.getChannel(), transfer).run(client);
+            }
+            finally
+            {
+                output.close();
+            }
+
+            downloaded = true;
+            return new TemporaryFileInputStream(localFile);
+        }
+        finally
+        {
+            transfer.complete();
+            if (!downloaded)
+            {
+                FileUtils.deleteQuietly(localFile);
+            }
+        }
+    }
+
+    private class Download
+    {
+
+        private final String fileName;
+        private final long size;
+        private final FileChannel output;
+        private final SftpTransferStatistics.Transfer transfer;
+        private final int segmentCount;
+        private final long segmentSize;
+        private final AtomicInteger nextSegment = new AtomicInteger();
+        private final Queue<Integer> failedSegments = new ConcurrentLinkedQueue<Integer>();
+        private volatile boolean aborted;
+
+        private Download(String fileName, long size, FileChannel output, SftpTransferStatistics.Transfer transfer)
+        {
+            this.fileName = fileName;
+            this.size = size;
+            this.output = output;
+            this.transfer = transfer;
+            this.segmentCount = getSegmentCount(size);
+            this.segmentSize = size / segmentCount;
+        }
+
+        void run(SftpClient client) throws IOException
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Downloading " + fileName + " (" + size + " bytes) in " + segmentCount + " segments");
+            }
+
+            List<Helper> helpers = new ArrayList<Helper>(segmentCount - 1);
+            try
+            {
+                for (int i = 1; i < segmentCount; i++)
+                {
+                    Helper helper = new Helper();
+                    try
+                    {
+                        connector.getMuleContext().getWorkManager().execute(helper);
+                    }
+                    catch (RejectedExecutionException e)
+                    {
+                        // The remaining segments are downloaded by the clients already working
+                        break;
+                    }
+                    helpers.add(helper);
+                }
+
+                downloadSegments(client);
+                awaitHelpers(helpers);
+
+                Integer segment;
+                while ((segment = failedSegments.poll()) != null)
+                {
+                    downloadSegment(client, segment);
+                }
+            }
+            finally
+            {
+                aborted = true;
+            }
+        }
+
+        private void awaitHelpers(List<Helper> helpers) throws IOException
+        {
+            for (Helper helper : helpers)
+            {
+                // Helpers still queued are not needed anymore, so only wait for the running ones
+                if (!helper.started.compareAndSet(false, true))
+                {
+                    try
+                    {
+                        helper.finished.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while downloading " + fileName);
+                    }
+                }
+            }
+        }
+
+        private void downloadSegments(SftpClient client) throws IOException
+        {
+            int segment;
+            while (!aborted && (segment = nextSegment.getAndIncrement()) < segmentCount)
+            {
+                downloadSegment(client, segment);
+            }
+        }
+
+        private void downloadWithNewClient()
+        {
+            SftpClient client = null;
+            int segment = -1;
+            try
+            {
+                client = SftpConnectionFactory.createClient(endpoint, connector.getPreferredAuthenticationMethods());
+                client.changeWorkingDirectory(endpoint.getEndpointURI().getPath());
+
+                while (!aborted && (segment = nextSegment.getAndIncrement()) < segmentCount)
+                {
+                    downloadSegment(client, segment);
+                }
+            }
+            catch (Exception e)
+            {
+                if (segment >= 0 && segment < segmentCount)
+                {
+                    failedSegments.add(segment);
+                }
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Additional connection failed while downloading " + fileName
+                                 + ", its segments will be downloaded by the main connection", e);
+                }
+            }
+            finally
+            {
+                if (client != null)
+                {
+                    client.disconnect();
+                }
+            }
+        }
+
+        /**
+         * Downloads segments using an additional connection
+         */
+        private class Helper implements Runnable
+        {
+
+            private final AtomicBoolean started = new AtomicBoolean(false);
+            private final CountDownLatch finished = new CountDownLatch(1);
+
+            @Override
+            public void run()
+            {
+                if (started.compareAndSet(false, true))
+                {
+                    try
+                    {
+                        downloadWithNewClient();
+                    }
+                    finally
+                    {
+                        finished.countDown();
+                    }
+                }
+            }
+        }
+
+        private void downloadSegment(SftpClient client, int segment) throws IOException
+        {
+            long position = segment * segmentSize;
+            long remaining = segment == segmentCount - 1 ? size - position : segmentSize;
+
+            InputStream input = client.retrieveFile(fileName, position);
+            try
+            {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (remaining > 0)
+                {
+                    int count = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (count < 0)
+                    {
+                        throw new IOException("Unexpected end of file " + fileName + " at position " + position);
+                    }
+
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+                    while (bytes.hasRemaining())
+                    {
+                        position += output.write(bytes, position);
+                    }
+                    remaining -= count;
+                    transfer.addBytes(count);
+                }
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Stream on a downloaded file that deletes the file once closed
+     */
+    private static class TemporaryFileInputStream extends FileInputStream
+    {
+
+        private final File file;
+
+        private TemporaryFileInputStream(File file) throws IOException
+        {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+}
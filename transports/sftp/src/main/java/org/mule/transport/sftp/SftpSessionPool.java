@@ -0,0 +1,497 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.sftp;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Keeps authenticated SSH sessions open so several SFTP channels can be opened over
+ * each of them, avoiding the TCP connection, key exchange and authentication for
+ * every {@link SftpClient}.
+ * <p/>
+ * Sessions are grouped by a key that identifies the server and the credentials used
+ * to log in. A new session is only opened when every session of the key already has
+ * the maximum number of channels open. Opening a channel is a round trip to the
+ * server, so a failure doing it marks the session as broken and the channel is opened
+ * on a new session instead. Sessions of the same key are opened one at a time, so
+ * threads arriving at the same time share the new session instead of opening one
+ * each. Sessions without channels are closed once they have been idle for the
+ * configured time.
+ */
+public class SftpSessionPool
+{
+
+    private static final Log logger = LogFactory.getLog(SftpSessionPool.class);
+
+    private final int maxChannelsPerSession;
+    private final long idleTimeout;
+    private final int keepAliveInterval;
+    private final Map<String, List<PooledSession>> sessions = new HashMap<String, List<PooledSession>>();
+    private final ConcurrentMap<String, Object> connectLocks = new ConcurrentHashMap<String, Object>();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong handshakeTime = new AtomicLong();
+    private final AtomicLong channelsOpened = new AtomicLong();
+    private final AtomicLong sessionsEvicted = new AtomicLong();
+    private final AtomicLong sessionsDiscarded = new AtomicLong();
+
+    /**
+     * @param maxChannelsPerSession maximum number of channels open at the same time
+     *            on each session
+     * @param idleTimeout time in milliseconds after which a session without channels
+     *            is closed
+     * @param keepAliveInterval interval in milliseconds between keep-alive messages
+     *            sent to the server, or zero to disable them
+     * @param threadFactory factory of the thread that closes idle sessions
+     */
+    public SftpSessionPool(int maxChannelsPerSession, long idleTimeout, int keepAliveInterval, ThreadFactory threadFactory)
+    {
+        this.maxChannelsPerSession = maxChannelsPerSession;
+        this.idleTimeout = idleTimeout;
+        this.keepAliveInterval = keepAliveInterval;
+
+        evictor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (idleTimeout > 0)
+        {
+            evictor.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    evictIdleSessions();
+                }
+            }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens an SFTP channel on a session of the given key, opening a new session if
+     * none can take more channels.
+     *
+     * @param key identifies the server and credentials of the session
+     * @param sessionFactory creates the session when a new one is needed
+     * @return the lease of the channel, which must be released once it is not needed
+     * @throws JSchException if the channel cannot be opened
+     */
+    public Lease acquire(String key, SessionFactory sessionFactory) throws JSchException
+    {
+        Lease lease = acquirePooled(key);
+        if (lease != null)
+        {
+            return lease;
+        }
+
+        synchronized (getConnectLock(key))
+        {
+            // Another thread may have opened a session while this one was waiting
+            lease = acquirePooled(key);
+            if (lease != null)
+            {
+                return lease;
+            }
+
+            PooledSession pooledSession = new PooledSession(key, connect(sessionFactory));
+            try
+            {
+                ChannelSftp channel = openChannel(pooledSession.session);
+                synchronized (sessions)
+                {
+                    List<PooledSession> keySessions = sessions.get(key);
+                    if (keySessions == null)
+                    {
+                        keySessions = new ArrayList<PooledSession>();
+                        sessions.put(key, keySessions);
+                    }
+                    keySessions.add(pooledSession);
+                }
+                return new Lease(pooledSession, channel);
+            }
+            catch (JSchException e)
+            {
+                pooledSession.session.disconnect();
+                throw e;
+            }
+        }
+    }
+
+    private Lease acquirePooled(String key)
+    {
+        PooledSession pooledSession;
+        while ((pooledSession = reserveChannel(key)) != null)
+        {
+            try
+            {
+                return new Lease(pooledSession, openChannel(pooledSession.session));
+            }
+            catch (JSchException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Unable to open a channel on a pooled session, trying another session", e);
+                }
+                discard(pooledSession);
+            }
+        }
+        return null;
+    }
+
+    private Object getConnectLock(String key)
+    {
+        Object lock = connectLocks.get(key);
+        if (lock == null)
+        {
+            Object newLock = new Object();
+            lock = connectLocks.putIfAbsent(key, newLock);
+            if (lock == null)
+            {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    private PooledSession reserveChannel(String key)
+    {
+        synchronized (sessions)
+        {
+            List<PooledSession> keySessions = sessions.get(key);
+            if (keySessions == null)
+            {
+                return null;
+            }
+
+            PooledSession candidate = null;
+            for (Iterator<PooledSession> it = keySessions.iterator(); it.hasNext(); )
+            {
+                PooledSession pooledSession = it.next();
+                if (pooledSession.broken || !pooledSession.session.isConnected())
+                {
+                    // Closed once its last channel is released
+                    if (pooledSession.openChannels == 0)
+                    {
+                        it.remove();
+                        pooledSession.session.disconnect();
+                        sessionsDiscarded.incrementAndGet();
+                    }
+                }
+                else if (pooledSession.openChannels < maxChannelsPerSession
+                         && (candidate == null || pooledSession.openChannels > candidate.openChannels))
+                {
+                    // Fill the busiest sessions first so the others become idle and can be closed
+                    candidate = pooledSession;
+                }
+            }
+
+            if (candidate != null)
+            {
+                candidate.openChannels++;
+            }
+            return candidate;
+        }
+    }
+
+    private Session connect(SessionFactory sessionFactory) throws JSchException
+    {
+        Session session = sessionFactory.createSession();
+        if (keepAliveInterval > 0)
+        {
+            session.setServerAliveInterval(keepAliveInterval);
+        }
+
+        long start = System.nanoTime();
+        session.connect();
+        handshakes.incrementAndGet();
+        handshakeTime.addAndGet(System.nanoTime() - start);
+
+        return session;
+    }
+
+    private ChannelSftp openChannel(Session session) throws JSchException
+    {
+        Channel channel = session.openChannel(SftpClient.CHANNEL_SFTP);
+        channel.connect();
+        channelsOpened.incrementAndGet();
+        return (ChannelSftp) channel;
+    }
+
+    private void discard(PooledSession pooledSession)
+    {
+        synchronized (sessions)
+        {
+            pooledSession.openChannels--;
+            pooledSession.broken = true;
+            if (pooledSession.openChannels == 0)
+            {
+                remove(pooledSession);
+                pooledSession.session.disconnect();
+                sessionsDiscarded.incrementAndGet();
+            }
+        }
+    }
+
+    private void release(PooledSession pooledSession, ChannelSftp channel)
+    {
+        channel.disconnect();
+
+        synchronized (sessions)
+        {
+            pooledSession.openChannels--;
+            pooledSession.lastUsed = System.currentTimeMillis();
+            if (pooledSession.openChannels == 0 && (pooledSession.broken || !pooledSession.session.isConnected()))
+            {
+                remove(pooledSession);
+                pooledSession.session.disconnect();
+                sessionsDiscarded.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(PooledSession pooledSession)
+    {
+        List<PooledSession> keySessions = sessions.get(pooledSession.key);
+        if (keySessions != null)
+        {
+            keySessions.remove(pooledSession);
+            if (keySessions.isEmpty())
+            {
+                sessions.remove(pooledSession.key);
+            }
+        }
+    }
+
+    /**
+     * Closes the sessions without channels that have been idle longer than the idle
+     * timeout.
+     */
+    void evictIdleSessions()
+    {
+        long now = System.currentTimeMillis();
+        List<Session> evicted = new ArrayList<Session>();
+
+        synchronized (sessions)
+        {
+            for (Iterator<List<PooledSession>> keys = sessions.values().iterator(); keys.hasNext(); )
+            {
+                List<PooledSession> keySessions = keys.next();
+                for (Iterator<PooledSession> it = keySessions.iterator(); it.hasNext(); )
+                {
+                    PooledSession pooledSession = it.next();
+                    if (pooledSession.openChannels == 0 && now - pooledSession.lastUsed >= idleTimeout)
+                    {
+                        it.remove();
+                        evicted.add(pooledSession.session);
+                    }
+                }
+                if (keySessions.isEmpty())
+                {
+                    keys.remove();
+                }
+            }
+        }
+
+        for (Session session : evicted)
+        {
+            session.disconnect();
+            sessionsEvicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Closes every session, including the ones with channels still open
+     */
+    public void close()
+    {
+        evictor.shutdownNow();
+
+        synchronized (sessions)
+        {
+            for (List<PooledSession> keySessions : sessions.values())
+            {
+                for (PooledSession pooledSession : keySessions)
+                {
+                    pooledSession.session.disconnect();
+                }
+            }
+            sessions.clear();
+        }
+    }
+
+    /**
+     * @return number of sessions currently open
+     */
+    public int getOpenSessions()
+    {
+        synchronized (sessions)
+        {
+            int count = 0;
+            for (List<PooledSession> keySessions : sessions.values())
+            {
+                count += keySessions.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return number of channels currently open over the pooled sessions
+     */
+    public int getOpenChannels()
+    {
+        synchronized (sessions)
+        {
+            int count = 0;
+            for (List<PooledSession> keySessions : sessions.values())
+            {
+                for (PooledSession pooledSession : keySessions)
+                {
+                    count += pooledSession.openChannels;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return ratio between the open channels and the channels the open sessions can
+     *         take
+     */
+    public double getUtilization()
+    {
+        synchronized (sessions)
+        {
+            int openSessions = getOpenSessions();
+            return openSessions == 0 ? 0 : (double) getOpenChannels() / (openSessions * maxChannelsPerSession);
+        }
+    }
+
+    /**
+     * @return number of sessions opened, each one requiring a key exchange and
+     *         authentication
+     */
+    public long getHandshakes()
+    {
+        return handshakes.get();
+    }
+
+    /**
+     * @return average time in milliseconds spent opening a session
+     */
+    public long getAverageHandshakeTime()
+    {
+        long count = handshakes.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(handshakeTime.get() / count);
+    }
+
+    /**
+     * @return number of channels opened over the pooled sessions
+     */
+    public long getChannelsOpened()
+    {
+        return channelsOpened.get();
+    }
+
+    /**
+     * @return number of sessions closed because they were idle
+     */
+    public long getSessionsEvicted()
+    {
+        return sessionsEvicted.get();
+    }
+
+    /**
+     * @return number of sessions closed because they were disconnected or failed to
+     *         open a channel
+     */
+    public long getSessionsDiscarded()
+    {
+        return sessionsDiscarded.get();
+    }
+
+    /**
+     * Creates the sessions of the pool, which are connected by the pool itself
+     */
+    public interface SessionFactory
+    {
+
+        Session createSession() throws JSchException;
+    }
+
+    /**
+     * An SFTP channel opened over a pooled session
+     */
+    public class Lease
+    {
+
+        private final PooledSession pooledSession;
+        private final ChannelSftp channel;
+        private boolean released;
+
+        private Lease(PooledSession pooledSession, ChannelSftp channel)
+        {
+            this.pooledSession = pooledSession;
+            this.channel = channel;
+        }
+
+        public ChannelSftp getChannel()
+        {
+            return channel;
+        }
+
+        public Session getSession()
+        {
+            return pooledSession.session;
+        }
+
+        /**
+         * Closes the channel, leaving the session open for other channels
+         */
+        public synchronized void release()
+        {
+            if (!released)
+            {
+                released = true;
+                SftpSessionPool.this.release(pooledSession, channel);
+            }
+        }
+    }
+
+    private static class PooledSession
+    {
+
+        private final String key;
+        private final Session session;
+        private int openChannels = 1;
+        private long lastUsed = System.currentTimeMillis();
+        private boolean broken;
+
+        private PooledSession(String key, Session session)
+        {
+            this.key = key;
+            this.session = session;
+        }
+    }
+}
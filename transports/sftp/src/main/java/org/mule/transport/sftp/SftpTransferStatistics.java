@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.sftp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the files retrieved from an SFTP endpoint, exposing both the
+ * progress of the transfers in flight and the throughput of the completed ones.
+ */
+public class SftpTransferStatistics
+{
+
+    private final AtomicInteger activeTransfers = new AtomicInteger();
+    private final AtomicLong completedTransfers = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong completedBytes = new AtomicLong();
+    private final AtomicLong completedTransferTime = new AtomicLong();
+
+    /**
+     * Starts tracking a new transfer
+     */
+    public Transfer startTransfer()
+    {
+        activeTransfers.incrementAndGet();
+        return new Transfer();
+    }
+
+    /**
+     * @return number of transfers in progress
+     */
+    public int getActiveTransfers()
+    {
+        return activeTransfers.get();
+    }
+
+    /**
+     * @return number of completed transfers
+     */
+    public long getCompletedTransfers()
+    {
+        return completedTransfers.get();
+    }
+
+    /**
+     * @return number of bytes transferred so far, including the ones of the
+     *         transfers in progress
+     */
+    public long getBytesTransferred()
+    {
+        return bytesTransferred.get();
+    }
+
+    /**
+     * @return average throughput of the completed transfers, in bytes per second
+     */
+    public long getThroughput()
+    {
+        long time = completedTransferTime.get();
+        if (time == 0)
+        {
+            return 0;
+        }
+        return completedBytes.get() * TimeUnit.SECONDS.toNanos(1) / time;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SftpTransferStatistics{activeTransfers=" + getActiveTransfers() + ", completedTransfers="
+               + getCompletedTransfers() + ", bytesTransferred=" + getBytesTransferred() + ", throughput="
+               + getThroughput() + "}";
+    }
+
+    /**
+     * A single transfer, which must be completed once its last byte was read
+     */
+    public class Transfer
+    {
+
+        private final long startTime = System.nanoTime();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        public void addBytes(long count)
+        {
+            bytes.addAndGet(count);
+            bytesTransferred.addAndGet(count);
+        }
+
+        public void complete()
+        {
+            if (completed.compareAndSet(false, true))
+            {
+                activeTransfers.decrementAndGet();
+                completedTransfers.incrementAndGet();
+                completedBytes.addAndGet(bytes.get());
+                completedTransferTime.addAndGet(System.nanoTime() - startTime);
+            }
+        }
+
+        /**
+         * Wraps a stream so the bytes read from it are added to this transfer, which
+         * is completed when the stream is closed.
+         */
+        public InputStream track(InputStream inputStream)
+        {
+            return new FilterInputStream(inputStream)
+            {
+                @Override
+                public int read() throws IOException
+                {
+                    int result = super.read();
+                    if (result != -1)
+                    {
+                        addBytes(1);
+                    }
+                    return result;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException
+                {
+                    int count = super.read(b, off, len);
+                    if (count > 0)
+                    {
+                        addBytes(count);
+                    }
+                    return count;
+                }
+
+                @Override
+                public long skip(long n) throws IOException
+                {
+                    long count = super.skip(n);
+                    addBytes(count);
+                    return count;
+                }
+
+                @Override
+                public void close() throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        complete();
+                    }
+                }
+            };
+        }
+    }
+}
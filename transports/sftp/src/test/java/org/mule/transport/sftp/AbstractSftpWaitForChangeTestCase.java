@@ -17,6 +17,8 @@ import org.mule.tck.probe.PollingProber;
 import org.mule.tck.probe.Probe;
 import org.mule.tck.probe.Prober;
 
+import com.jcraft.jsch.SftpATTRS;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
@@ -109,14 +111,14 @@ public abstract class AbstractSftpWaitForChangeTestCase extends AbstractSftpFunc
         }
 
         @Override
-        protected boolean canProcessFile(String fileName, SftpClient client, long fileAge, long sizeCheckDelayMs) throws Exception
+        protected boolean canProcessFile(String fileName, SftpATTRS attributes, long fileAge)
         {
             if (FILE1_NAME.equals(fileName))
             {
                 deleteSftpFile(fileName);
             }
 
-            return super.canProcessFile(fileName, client, fileAge, sizeCheckDelayMs);
+            return super.canProcessFile(fileName, attributes, fileAge);
         }
 
         @Override
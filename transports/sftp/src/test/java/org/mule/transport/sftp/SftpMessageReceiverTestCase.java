@@ -25,6 +25,10 @@ import org.mule.util.lock.LockProvider;
 import org.mule.util.lock.MuleLockFactory;
 import org.mule.util.lock.SingleServerLockProvider;
 
+import com.jcraft.jsch.SftpATTRS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
@@ -52,7 +56,7 @@ public class SftpMessageReceiverTestCase extends AbstractMuleTestCase
         EndpointURI endpointURI = mock(EndpointURI.class);
 
         when(sftpConnector.getName()).thenReturn(CONNECTOR_NAME);
-        when(sftpConnector.createSftpClient(endpoint).listFiles()).thenReturn(FILE_NAMES);
+        when(sftpConnector.createSftpClient(endpoint).listFileAttributes()).thenReturn(createListing(FILE_NAMES));
         when(endpoint.getMuleContext()).thenReturn(muleContext);
         when(endpoint.getEndpointURI()).thenReturn(endpointURI);
         when(endpoint.getConnector()).thenReturn(sftpConnector);
@@ -131,4 +135,14 @@ public class SftpMessageReceiverTestCase extends AbstractMuleTestCase
             assertThat(lockObtained.get(), is(false));
         }
     }
+
+    private Map<String, SftpATTRS> createListing(String... fileNames)
+    {
+        Map<String, SftpATTRS> listing = new LinkedHashMap<String, SftpATTRS>();
+        for (String fileName : fileNames)
+        {
+            listing.put(fileName, mock(SftpATTRS.class));
+        }
+        return listing;
+    }
 }
@@ -24,7 +24,11 @@ import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.tck.junit4.AbstractMuleTestCase;
 import org.mule.tck.size.SmallTest;
 
+import com.jcraft.jsch.SftpATTRS;
+
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Before;
@@ -55,7 +59,7 @@ public class SftpMessageRequesterTestCase extends AbstractMuleTestCase
         EndpointURI endpointURI = mock(EndpointURI.class);
 
         when(sftpConnector.getName()).thenReturn(CONNECTOR_NAME);
-        when(sftpConnector.createSftpClient(endpoint).listFiles()).thenReturn(FILE_NAMES);
+        when(sftpConnector.createSftpClient(endpoint).listFileAttributes()).thenReturn(createListing(FILE_NAMES));
         when(sftpConnector.getArchiveDir()).thenReturn("archive");
         when(sftpConnector.getArchiveTempReceivingDir()).thenReturn("receiving");
         when(sftpConnector.getArchiveTempSendingDir()).thenReturn("sending");
@@ -92,4 +96,14 @@ public class SftpMessageRequesterTestCase extends AbstractMuleTestCase
         inputStream.close();
         verify(inputStream).postProcess();
     }
+
+    private Map<String, SftpATTRS> createListing(String... fileNames)
+    {
+        Map<String, SftpATTRS> listing = new LinkedHashMap<String, SftpATTRS>();
+        for (String fileName : fileNames)
+        {
+            listing.put(fileName, mock(SftpATTRS.class));
+        }
+        return listing;
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.sftp;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleException;
+import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.api.processor.MessageProcessor;
+import org.mule.util.concurrent.Latch;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SftpSegmentedDownloadTestCase extends AbstractSftpFunctionalTestCase
+{
+
+    private static final String FILENAME = "large.bin";
+    private static final int FILE_SIZE = 1024 * 1024 + 17;
+    private static final byte[] FILE_CONTENT = new byte[FILE_SIZE];
+    private static final int TIMEOUT = 10000;
+
+    private static Latch latch;
+    private static byte[] receivedContent;
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "mule-sftp-segmented-download-config.xml";
+    }
+
+    @Override
+    protected void setUpTestData() throws IOException
+    {
+        latch = new Latch();
+        receivedContent = null;
+        new Random(1).nextBytes(FILE_CONTENT);
+        sftpClient.storeFile(FILENAME, new ByteArrayInputStream(FILE_CONTENT));
+    }
+
+    @Test
+    public void downloadsFileInSegments() throws Exception
+    {
+        assertTrue("File was not received", latch.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertThat(Arrays.equals(FILE_CONTENT, receivedContent), is(true));
+
+        SftpConnector connector = (SftpConnector) muleContext.getRegistry().lookupConnector("SFTP");
+        ImmutableEndpoint endpoint = connector.getReceivers().values().iterator().next().getEndpoint();
+        SftpTransferStatistics statistics = connector.getTransferStatistics(endpoint);
+        assertThat(statistics.getCompletedTransfers(), equalTo(1L));
+        assertThat(statistics.getBytesTransferred(), equalTo((long) FILE_SIZE));
+        assertThat(statistics.getActiveTransfers(), equalTo(0));
+    }
+
+    public static class LatchMessageProcessor implements MessageProcessor
+    {
+
+        @Override
+        public MuleEvent process(MuleEvent event) throws MuleException
+        {
+            receivedContent = (byte[]) event.getMessage().getPayload();
+            latch.release();
+            return event;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.sftp;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.util.concurrent.NamedThreadFactory;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@SmallTest
+public class SftpSessionPoolTestCase extends AbstractMuleTestCase
+{
+
+    private static final String KEY = "user@host:22";
+    private static final long TIMEOUT = 5000;
+
+    private final SftpSessionPool pool = new SftpSessionPool(2, 0, 0, new NamedThreadFactory("sftp.sessions.test"));
+    private final TestSessionFactory sessionFactory = new TestSessionFactory();
+
+    @After
+    public void closePool()
+    {
+        pool.close();
+    }
+
+    @Test
+    public void sharesSessionUpToMaxChannels() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        SftpSessionPool.Lease second = pool.acquire(KEY, sessionFactory);
+        SftpSessionPool.Lease third = pool.acquire(KEY, sessionFactory);
+
+        assertThat(second.getSession(), sameInstance(first.getSession()));
+        assertThat(third.getSession(), not(sameInstance(first.getSession())));
+        assertThat(pool.getHandshakes(), equalTo(2L));
+        assertThat(pool.getOpenSessions(), equalTo(2));
+        assertThat(pool.getOpenChannels(), equalTo(3));
+        assertThat(pool.getUtilization(), equalTo(0.75));
+    }
+
+    @Test
+    public void doesNotShareSessionsOfDifferentKeys() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        SftpSessionPool.Lease second = pool.acquire("other@host:22", sessionFactory);
+
+        assertThat(second.getSession(), not(sameInstance(first.getSession())));
+    }
+
+    @Test
+    public void releaseKeepsSessionOpen() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        first.release();
+        first.release();
+
+        verify(first.getChannel()).disconnect();
+        verify(first.getSession(), never()).disconnect();
+        assertThat(pool.getOpenChannels(), equalTo(0));
+
+        SftpSessionPool.Lease second = pool.acquire(KEY, sessionFactory);
+        assertThat(second.getSession(), sameInstance(first.getSession()));
+        assertThat(pool.getHandshakes(), equalTo(1L));
+    }
+
+    @Test
+    public void replacesSessionThatFailsToOpenChannel() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        first.release();
+        when(first.getSession().openChannel(anyString())).thenThrow(new JSchException("Session is down"));
+
+        SftpSessionPool.Lease second = pool.acquire(KEY, sessionFactory);
+
+        assertThat(second.getSession(), not(sameInstance(first.getSession())));
+        verify(first.getSession()).disconnect();
+        assertThat(pool.getSessionsDiscarded(), equalTo(1L));
+        assertThat(pool.getOpenSessions(), equalTo(1));
+    }
+
+    @Test
+    public void skipsBrokenSessionWithChannelsOpen() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        SftpSessionPool.Lease second = pool.acquire(KEY, sessionFactory);
+        second.release();
+        when(first.getSession().openChannel(anyString())).thenThrow(new JSchException("Session is down"));
+        SftpSessionPool.Lease third = pool.acquire(KEY, sessionFactory);
+        when(first.getSession().openChannel(anyString())).thenReturn(mock(ChannelSftp.class));
+
+        SftpSessionPool.Lease fourth = pool.acquire(KEY, sessionFactory);
+
+        assertThat(fourth.getSession(), sameInstance(third.getSession()));
+        verify(first.getSession(), never()).disconnect();
+        first.release();
+        verify(first.getSession()).disconnect();
+        assertThat(pool.getOpenSessions(), equalTo(1));
+    }
+
+    @Test
+    public void opensOneSessionForConcurrentAcquires() throws Exception
+    {
+        sessionFactory.connectAllowed = new CountDownLatch(1);
+        final SftpSessionPool.Lease[] leases = new SftpSessionPool.Lease[2];
+        Thread[] threads = new Thread[leases.length];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        leases[index] = pool.acquire(KEY, sessionFactory);
+                    }
+                    catch (JSchException e)
+                    {
+                        // Checked by the assertions below
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        assertThat(sessionFactory.connecting.await(TIMEOUT, TimeUnit.MILLISECONDS), equalTo(true));
+        Thread.sleep(100);
+        sessionFactory.connectAllowed.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join(TIMEOUT);
+        }
+
+        assertThat(pool.getHandshakes(), equalTo(1L));
+        assertThat(leases[1].getSession(), sameInstance(leases[0].getSession()));
+    }
+
+    @Test
+    public void replacesDisconnectedSession() throws Exception
+    {
+        SftpSessionPool.Lease first = pool.acquire(KEY, sessionFactory);
+        first.release();
+        when(first.getSession().isConnected()).thenReturn(false);
+
+        SftpSessionPool.Lease second = pool.acquire(KEY, sessionFactory);
+
+        assertThat(second.getSession(), not(sameInstance(first.getSession())));
+        assertThat(pool.getOpenSessions(), equalTo(1));
+    }
+
+    @Test(expected = JSchException.class)
+    public void failsWhenSessionCannotConnect() throws Exception
+    {
+        sessionFactory.failConnect = true;
+
+        pool.acquire(KEY, sessionFactory);
+    }
+
+    @Test
+    public void evictsIdleSessionsWithoutChannels() throws Exception
+    {
+        SftpSessionPool.Lease idle = pool.acquire(KEY, sessionFactory);
+        SftpSessionPool.Lease busy = pool.acquire("other@host:22", sessionFactory);
+        idle.release();
+
+        pool.evictIdleSessions();
+
+        verify(idle.getSession()).disconnect();
+        verify(busy.getSession(), never()).disconnect();
+        assertThat(pool.getSessionsEvicted(), equalTo(1L));
+        assertThat(pool.getOpenSessions(), equalTo(1));
+    }
+
+    private static class TestSessionFactory implements SftpSessionPool.SessionFactory
+    {
+
+        private boolean failConnect;
+        private CountDownLatch connectAllowed;
+        private final CountDownLatch connecting = new CountDownLatch(1);
+
+        @Override
+        public Session createSession() throws JSchException
+        {
+            Session session = mock(Session.class);
+            when(session.isConnected()).thenReturn(true);
+            when(session.openChannel(anyString())).thenAnswer(new Answer<Object>()
+            {
+                @Override
+                public Object answer(InvocationOnMock invocation)
+                {
+                    return mock(ChannelSftp.class);
+                }
+            });
+            if (failConnect)
+            {
+                doThrow(new JSchException("Auth fail")).when(session).connect();
+            }
+            else if (connectAllowed != null)
+            {
+                doAnswer(new Answer<Object>()
+                {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable
+                    {
+                        connecting.countDown();
+                        connectAllowed.await();
+                        return null;
+                    }
+                }).when(session).connect();
+            }
+            return session;
+        }
+    }
+}
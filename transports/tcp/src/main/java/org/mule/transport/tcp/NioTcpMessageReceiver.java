@@ -0,0 +1,908 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import org.mule.api.MuleException;
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.context.WorkManager;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.lifecycle.CreateException;
+import org.mule.api.transaction.Transaction;
+import org.mule.api.transaction.TransactionException;
+import org.mule.api.transport.Connector;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.transport.AbstractMessageReceiver;
+import org.mule.transport.AbstractReceiverWorker;
+import org.mule.transport.ConnectException;
+import org.mule.transport.tcp.i18n.TcpMessages;
+import org.mule.util.concurrent.NamedThreadFactory;
+import org.mule.util.concurrent.ThreadNameHelper;
+import org.mule.util.monitor.Expirable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.resource.spi.work.WorkException;
+
+/**
+ * <code>NioTcpMessageReceiver</code> acts like a TCP server that reads its
+ * connections with the selector threads of the connector, see
+ * {@link TcpConnector#setSelectorThreads(int)}, instead of a thread per connection
+ * like the {@link TcpMessageReceiver}, so idle connections do not hold any thread.
+ * <p/>
+ * The data received are split into messages by a decoder of the
+ * {@link NonBlockingTcpProtocol} of the connector, and only complete messages are
+ * handed to the receiver threads. A connection is not read while its messages are
+ * processed, so they are processed in order, and their responses are written by the
+ * selector thread before the connection is read again.
+ * <p/>
+ * Selector threads never process messages themselves: when every receiver thread is
+ * busy, whatever the exhausted action of the receiver threading profile, the messages
+ * wait on their connection, which is not read until they could be handed over.
+ */
+public class NioTcpMessageReceiver extends AbstractMessageReceiver
+{
+
+    public static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final long SELECTOR_SHUTDOWN_TIMEOUT = 5000;
+
+    /**
+     * How long selector threads wait before handing over again the messages that
+     * found every receiver thread busy, when no connection of theirs was processed
+     */
+    private static final long WAITING_RETRY_INTERVAL = 100;
+
+    private final NonBlockingTcpProtocol protocol;
+    private final AtomicInteger nextSelector = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private SelectorThread[] selectorThreads;
+    private volatile SelectionKey acceptKey;
+    private volatile WorkManager processingWorkManager;
+
+    public NioTcpMessageReceiver(Connector connector, FlowConstruct flowConstruct, InboundEndpoint endpoint)
+            throws CreateException
+    {
+        super(connector, flowConstruct, endpoint);
+
+        TcpProtocol tcpProtocol = ((TcpConnector) connector).getTcpProtocol();
+        if (!(tcpProtocol instanceof NonBlockingTcpProtocol)
+            || !((NonBlockingTcpProtocol) tcpProtocol).supportsNonBlockingReads())
+        {
+            throw new CreateException(TcpMessages.protocolCannotReadWithoutBlocking(tcpProtocol), this);
+        }
+        protocol = (NonBlockingTcpProtocol) tcpProtocol;
+    }
+
+    @Override
+    protected void doConnect() throws ConnectException
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        URI uri = endpoint.getEndpointURI().getUri();
+
+        try
+        {
+            serverChannel = tcpConnector.getServerSocketChannel(uri);
+            serverChannel.configureBlocking(false);
+
+            selectorThreads = new SelectorThread[tcpConnector.getSelectorThreads()];
+            for (int i = 0; i < selectorThreads.length; i++)
+            {
+                selectorThreads[i] = new SelectorThread();
+            }
+        }
+        catch (Exception e)
+        {
+            closeSelectors();
+            throw new ConnectException(TcpMessages.failedToBindToUri(uri), e, this);
+        }
+
+        ThreadFactory threadFactory = new NamedThreadFactory(
+            ThreadNameHelper.receiver(connector.getMuleContext(), connector.getName()) + ".selector",
+            getClass().getClassLoader());
+        for (SelectorThread selectorThread : selectorThreads)
+        {
+            selectorThread.start(threadFactory);
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws ConnectException
+    {
+        closeSelectors();
+    }
+
+    @Override
+    protected void doStart() throws MuleException
+    {
+        processingWorkManager = createProcessingWorkManager();
+
+        // connections are accepted by the first selector thread
+        final SelectorThread acceptor = selectorThreads[0];
+        final ServerSocketChannel server = serverChannel;
+        acceptor.execute(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    acceptKey = server.register(acceptor.selector, SelectionKey.OP_ACCEPT);
+                }
+                catch (ClosedChannelException e)
+                {
+                    logger.debug("Server socket closed before accepting connections");
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void doStop() throws MuleException
+    {
+        SelectionKey key = acceptKey;
+        if (key != null)
+        {
+            key.cancel();
+            acceptKey = null;
+        }
+        disposeProcessingWorkManager();
+    }
+
+    /**
+     * Creates the receiver threads from the receiver threading profile of the
+     * connector, rejecting work when they are all busy instead of running it in the
+     * selector thread, or blocking it, as the other exhausted actions do.
+     */
+    private WorkManager createProcessingWorkManager() throws MuleException
+    {
+        ThreadingProfile threadingProfile = new ChainedThreadingProfile(connector.getReceiverThreadingProfile());
+        threadingProfile.setPoolExhaustedAction(ThreadingProfile.WHEN_EXHAUSTED_ABORT);
+        threadingProfile.setMuleContext(connector.getMuleContext());
+
+        WorkManager workManager = threadingProfile.createWorkManager(
+            ThreadNameHelper.receiver(connector.getMuleContext(), connector.getName()),
+            connector.getMuleContext().getConfiguration().getShutdownTimeout());
+        workManager.start();
+        return workManager;
+    }
+
+    private void disposeProcessingWorkManager()
+    {
+        WorkManager workManager = processingWorkManager;
+        processingWorkManager = null;
+        if (workManager != null)
+        {
+            workManager.dispose();
+        }
+    }
+
+    @Override
+    protected void doDispose()
+    {
+        disposeProcessingWorkManager();
+        closeSelectors();
+        logger.info("Closed Tcp port");
+    }
+
+    private synchronized void closeSelectors()
+    {
+        acceptKey = null;
+        try
+        {
+            if (serverChannel != null)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Closing: " + serverChannel);
+                }
+                serverChannel.close();
+            }
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to close server socket: " + e.getMessage(), e);
+        }
+        serverChannel = null;
+
+        if (selectorThreads != null)
+        {
+            for (SelectorThread selectorThread : selectorThreads)
+            {
+                if (selectorThread != null)
+                {
+                    selectorThread.stop();
+                }
+            }
+            selectorThreads = null;
+        }
+    }
+
+    /**
+     * @return the server socket of this receiver, or null when it is not connected
+     */
+    public ServerSocketChannel getServerSocketChannel()
+    {
+        return serverChannel;
+    }
+
+    /**
+     * @return the number of connections currently open
+     */
+    public int getOpenConnections()
+    {
+        return openConnections.get();
+    }
+
+    protected AbstractReceiverWorker createWork(List<Object> messages, Connection connection)
+    {
+        return new NioTcpWorker(messages, connection);
+    }
+
+    private long getIdleTimeout()
+    {
+        TcpConnector tcpConnector = (TcpConnector) connector;
+        if (tcpConnector.getKeepAliveTimeout() > 0)
+        {
+            return tcpConnector.getKeepAliveTimeout();
+        }
+        return Math.max(0, tcpConnector.getServerSoTimeout());
+    }
+
+    private void accept(ServerSocketChannel server)
+    {
+        SocketChannel channel;
+        try
+        {
+            while ((channel = server.accept()) != null)
+            {
+                try
+                {
+                    channel.configureBlocking(false);
+                    ((TcpConnector) connector).configureSocket(TcpConnector.SERVER, channel.socket());
+                    selectorThreads[(nextSelector.getAndIncrement() & Integer.MAX_VALUE) % selectorThreads.length]
+                        .register(channel);
+                }
+                catch (IOException e)
+                {
+                    logger.warn("Failed to configure connection: " + e.getMessage());
+                    closeQuietly(channel);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            if (!connector.isDisposed() && server.isOpen())
+            {
+                getEndpoint().getMuleContext().getExceptionListener().handleException(new ConnectException(e, this));
+            }
+        }
+    }
+
+    private void closeQuietly(SocketChannel channel)
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            logger.debug("Socket close failed with: " + e);
+        }
+    }
+
+    /**
+     * Waits for the connections registered with it to be ready, and reads, decodes
+     * and writes them. The connections are only used by the thread of their selector,
+     * other threads give it tasks to run.
+     */
+    private class SelectorThread implements Runnable
+    {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        // connections whose messages found every receiver thread busy, in arrival order
+        private final Queue<Connection> waitingConnections = new LinkedList<Connection>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        private volatile boolean running = true;
+        private volatile Thread thread;
+
+        SelectorThread() throws IOException
+        {
+            selector = Selector.open();
+        }
+
+        void execute(Runnable task)
+        {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(final SocketChannel channel)
+        {
+            execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        Connection connection = new Connection(channel, SelectorThread.this);
+                        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        openConnections.incrementAndGet();
+                        connection.startIdleTimeout();
+                    }
+                    catch (ClosedChannelException e)
+                    {
+                        closeQuietly(channel);
+                    }
+                }
+            });
+        }
+
+        void start(ThreadFactory threadFactory)
+        {
+            thread = threadFactory.newThread(this);
+            thread.start();
+        }
+
+        public void run()
+        {
+            try
+            {
+                while (running)
+                {
+                    try
+                    {
+                        if (waitingConnections.isEmpty())
+                        {
+                            selector.select();
+                        }
+                        else
+                        {
+                            selector.select(WAITING_RETRY_INTERVAL);
+                        }
+                        runTasks();
+                        scheduleWaitingConnections();
+                        handleSelectedKeys();
+                    }
+                    catch (Exception e)
+                    {
+                        if (running)
+                        {
+                            logger.error("Selector failed: " + e.getMessage(), e);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                closeConnections();
+                stopped.countDown();
+            }
+        }
+
+        private void runTasks()
+        {
+            Runnable task;
+            while ((task = tasks.poll()) != null)
+            {
+                task.run();
+            }
+        }
+
+        /**
+         * Hands the messages of the connection to a receiver thread, or keeps them
+         * until one is available, after the connections that were already waiting.
+         */
+        void schedule(Connection connection)
+        {
+            if (!waitingConnections.isEmpty() || !connection.schedule())
+            {
+                waitingConnections.add(connection);
+            }
+        }
+
+        private void scheduleWaitingConnections()
+        {
+            Connection connection;
+            while ((connection = waitingConnections.peek()) != null && connection.schedule())
+            {
+                waitingConnections.poll();
+            }
+        }
+
+        private void handleSelectedKeys()
+        {
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext())
+            {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid())
+                {
+                    continue;
+                }
+                if (key.attachment() == null)
+                {
+                    accept((ServerSocketChannel) key.channel());
+                    continue;
+                }
+
+                Connection connection = (Connection) key.attachment();
+                try
+                {
+                    if (key.isWritable())
+                    {
+                        connection.write();
+                    }
+                    if (key.isValid() && key.isReadable())
+                    {
+                        connection.read(readBuffer);
+                    }
+                }
+                catch (CancelledKeyException e)
+                {
+                    connection.close();
+                }
+            }
+        }
+
+        private void closeConnections()
+        {
+            waitingConnections.clear();
+            for (SelectionKey key : selector.keys())
+            {
+                if (key.attachment() != null)
+                {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try
+            {
+                selector.close();
+            }
+            catch (IOException e)
+            {
+                logger.debug("Selector close failed with: " + e);
+            }
+        }
+
+        void stop()
+        {
+            running = false;
+            if (thread == null)
+            {
+                // never started
+                closeConnections();
+                return;
+            }
+            selector.wakeup();
+            if (Thread.currentThread() != thread)
+            {
+                try
+                {
+                    if (!stopped.await(SELECTOR_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS))
+                    {
+                        logger.warn("Timed out waiting for the selector thread to close its connections");
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * A connection accepted by the receiver, only used by its selector thread except
+     * for queueing responses.
+     */
+    protected class Connection implements Expirable
+    {
+
+        private final SocketChannel channel;
+        private final SelectorThread selectorThread;
+        private final TcpFrameDecoder decoder;
+        private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<ByteBuffer>();
+        private final SocketAddress remoteAddress;
+        private SelectionKey key;
+        // data received and not decoded yet, ready to be read
+        private ByteBuffer pending;
+        // messages decoded and waiting for a receiver thread
+        private List<Object> messages;
+        private boolean endOfStream;
+        private boolean processing;
+        private boolean closed;
+
+        private Connection(SocketChannel channel, SelectorThread selectorThread)
+        {
+            this.channel = channel;
+            this.selectorThread = selectorThread;
+            this.decoder = protocol.createFrameDecoder();
+            this.remoteAddress = channel.socket().getRemoteSocketAddress();
+        }
+
+        public SocketAddress getRemoteAddress()
+        {
+            return remoteAddress;
+        }
+
+        /**
+         * Queues a response, which is written once the messages being processed are done
+         */
+        public void respond(byte[] response)
+        {
+            responses.add(ByteBuffer.wrap(response));
+        }
+
+        private void read(ByteBuffer readBuffer)
+        {
+            readBuffer.clear();
+            int read;
+            try
+            {
+                read = channel.read(readBuffer);
+            }
+            catch (IOException e)
+            {
+                // do not pollute the log with a stacktrace, as the blocking receiver
+                logger.info("Socket exception occured: " + e.getMessage());
+                close();
+                return;
+            }
+            if (read == 0)
+            {
+                return;
+            }
+
+            readBuffer.flip();
+            endOfStream = read < 0;
+            // a read that does not fill the buffer took all the data available for now
+            boolean drained = read < readBuffer.capacity();
+
+            ByteBuffer input = append(readBuffer);
+            List<Object> messages = new ArrayList<Object>();
+            try
+            {
+                Object message;
+                while ((message = decoder.decode(input)) != null)
+                {
+                    messages.add(message);
+                }
+                if (drained && (message = decoder.decodeRemaining(input, endOfStream)) != null)
+                {
+                    messages.add(message);
+                }
+            }
+            catch (Exception e)
+            {
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                close();
+                return;
+            }
+            keepRemaining(input);
+
+            if (!messages.isEmpty())
+            {
+                dispatch(messages);
+            }
+            else if (endOfStream)
+            {
+                close();
+            }
+            else
+            {
+                startIdleTimeout();
+            }
+        }
+
+        private ByteBuffer append(ByteBuffer data)
+        {
+            if (pending == null)
+            {
+                return data;
+            }
+            pending.compact();
+            if (pending.remaining() < data.remaining())
+            {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                    pending.position() + data.remaining()));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.put(data);
+            pending.flip();
+            return pending;
+        }
+
+        private void keepRemaining(ByteBuffer input)
+        {
+            if (!input.hasRemaining())
+            {
+                // idle connections do not keep any buffer
+                pending = null;
+            }
+            else if (input != pending)
+            {
+                pending = ByteBuffer.allocate(input.remaining() * 2);
+                pending.put(input);
+                pending.flip();
+            }
+        }
+
+        private void dispatch(List<Object> messages)
+        {
+            // not read again until the messages are processed
+            key.interestOps(0);
+            processing = true;
+            stopIdleTimeout();
+            this.messages = messages;
+            selectorThread.schedule(this);
+        }
+
+        /**
+         * @return false if every receiver thread is busy, the messages are then kept
+         *         until this is called again
+         */
+        private boolean schedule()
+        {
+            if (closed)
+            {
+                return true;
+            }
+            WorkManager workManager = processingWorkManager;
+            if (workManager == null)
+            {
+                logger.warn("Receiver is stopped, closing connection from: " + remoteAddress);
+                close();
+                return true;
+            }
+            try
+            {
+                workManager.scheduleWork(createWork(messages, this), WorkManager.INDEFINITE, null, connector);
+                messages = null;
+                return true;
+            }
+            catch (RejectedExecutionException e)
+            {
+                return false;
+            }
+            catch (WorkException e)
+            {
+                getEndpoint().getMuleContext().getExceptionListener().handleException(e);
+                close();
+                return true;
+            }
+        }
+
+        /**
+         * Called when processing the messages dispatched failed with an error, to close
+         * the connection as its state is unknown.
+         */
+        void failed()
+        {
+            selectorThread.execute(new Runnable()
+            {
+                public void run()
+                {
+                    processing = false;
+                    close();
+                }
+            });
+        }
+
+        /**
+         * Called once the messages dispatched were processed, to write their responses
+         * and read the connection again.
+         */
+        void processed()
+        {
+            selectorThread.execute(new Runnable()
+            {
+                public void run()
+                {
+                    processing = false;
+                    if (!closed)
+                    {
+                        write();
+                    }
+                }
+            });
+        }
+
+        private void write()
+        {
+            try
+            {
+                ByteBuffer response;
+                while ((response = responses.peek()) != null)
+                {
+                    channel.write(response);
+                    if (response.hasRemaining())
+                    {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    responses.poll();
+                }
+            }
+            catch (IOException e)
+            {
+                logger.info("Socket exception occured: " + e.getMessage());
+                close();
+                return;
+            }
+
+            if (endOfStream)
+            {
+                close();
+            }
+            else
+            {
+                key.interestOps(SelectionKey.OP_READ);
+                startIdleTimeout();
+            }
+        }
+
+        private void startIdleTimeout()
+        {
+            long idleTimeout = getIdleTimeout();
+            if (idleTimeout > 0)
+            {
+                ((TcpConnector) connector).getKeepAliveMonitor().addExpirable(idleTimeout,
+                    TimeUnit.MILLISECONDS, this);
+            }
+        }
+
+        private void stopIdleTimeout()
+        {
+            ((TcpConnector) connector).getKeepAliveMonitor().removeExpirable(this);
+        }
+
+        public void expired()
+        {
+            selectorThread.execute(new Runnable()
+            {
+                public void run()
+                {
+                    if (!processing)
+                    {
+                        if (logger.isDebugEnabled())
+                        {
+                            logger.debug("Closing idle connection from: " + remoteAddress);
+                        }
+                        close();
+                    }
+                }
+            });
+        }
+
+        private void close()
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            stopIdleTimeout();
+            if (key != null)
+            {
+                key.cancel();
+                openConnections.decrementAndGet();
+            }
+            closeQuietly(channel);
+            pending = null;
+            messages = null;
+            responses.clear();
+        }
+    }
+
+    protected class NioTcpWorker extends AbstractReceiverWorker
+    {
+
+        private final Connection connection;
+
+        public NioTcpWorker(List<Object> messages, Connection connection)
+        {
+            super(messages, NioTcpMessageReceiver.this);
+            this.connection = connection;
+        }
+
+        @Override
+        protected void bindTransaction(Transaction tx) throws TransactionException
+        {
+            //nothing to do
+        }
+
+        @Override
+        protected void handleResults(List messages) throws Exception
+        {
+            //should send back only if remote synch is set or no outbound endpoints
+            if (endpoint.getExchangePattern().hasResponse())
+            {
+                for (Iterator iterator = messages.iterator(); iterator.hasNext();)
+                {
+                    ByteArrayOutputStream response = new ByteArrayOutputStream();
+                    protocol.write(response, iterator.next());
+                    connection.respond(response.toByteArray());
+                }
+            }
+        }
+
+        @Override
+        protected void preRouteMuleMessage(final MuleMessage message) throws Exception
+        {
+            super.preRouteMuleMessage(message);
+
+            final SocketAddress clientAddress = connection.getRemoteAddress();
+            if (clientAddress != null)
+            {
+                message.setOutboundProperty(MuleProperties.MULE_REMOTE_CLIENT_ADDRESS, clientAddress.toString());
+            }
+        }
+
+        /**
+         * Hands the connection back to its selector thread in a finally block, as
+         * {@link #run()} does not release the worker when processing fails with an
+         * error, which would leave the connection paused forever.
+         */
+        @Override
+        protected void doRun()
+        {
+            boolean completed = false;
+            try
+            {
+                super.doRun();
+                completed = true;
+            }
+            finally
+            {
+                if (completed)
+                {
+                    connection.processed();
+                }
+                else
+                {
+                    connection.failed();
+                }
+            }
+        }
+
+        @Override
+        public void release()
+        {
+            // the connection is resumed by doRun
+        }
+    }
+
+}
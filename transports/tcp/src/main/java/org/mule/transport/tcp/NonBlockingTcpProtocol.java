@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+/**
+ * A {@link TcpProtocol} that can also read messages incrementally from the data a
+ * selector receives, so connections do not need a thread blocked on them while
+ * waiting for a message. Used by the {@link NioTcpMessageReceiver}.
+ */
+public interface NonBlockingTcpProtocol extends TcpProtocol
+{
+
+    /**
+     * @return false if the messages of the protocol cannot be read without blocking,
+     *         for instance when they are streamed, even though it extends a protocol
+     *         that can
+     */
+    boolean supportsNonBlockingReads();
+
+    /**
+     * @return a decoder for the messages of a new connection, only invoked when
+     *         {@link #supportsNonBlockingReads()} is true
+     */
+    TcpFrameDecoder createFrameDecoder();
+}
@@ -31,6 +31,13 @@ public class PollingTcpConnector extends TcpConnector
             PollingTcpMessageReceiver.class.getName());
     }
 
+    @Override
+    protected boolean isNonBlockingReceiverSupported()
+    {
+        // the receivers poll a server, they do not accept connections
+        return false;
+    }
+
     public long getPollingFrequency()
     {
         return pollingFrequency;
@@ -11,10 +11,13 @@ import org.mule.api.MuleContext;
 import org.mule.api.MuleException;
 import org.mule.api.MuleMessage;
 import org.mule.api.config.MuleProperties;
+import org.mule.api.construct.FlowConstruct;
 import org.mule.api.endpoint.ImmutableEndpoint;
+import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.transport.Connector;
 import org.mule.api.transport.MessageDispatcherFactory;
+import org.mule.api.transport.MessageReceiver;
 import org.mule.config.i18n.CoreMessages;
 import org.mule.model.streaming.CallbackOutputStream;
 import org.mule.transport.AbstractConnector;
@@ -31,6 +34,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
 
 import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 
@@ -76,6 +80,13 @@ public class TcpConnector extends AbstractConnector
     private ExpiryMonitor keepAliveMonitor;
     private Boolean failOnUnresolvedHost = Boolean.TRUE;
 
+    /**
+     * If greater than 0, inbound endpoints read their connections with this number of
+     * selector threads instead of a thread per connection, and only complete messages
+     * are handed to the receiver threads.
+     */
+    private int selectorThreads = 0;
+
     /** 
      * If set, the socket is not closed after sending a message.  This attribute 
      * only applies when sending data over a socket (Client).
@@ -273,6 +284,30 @@ public class TcpConnector extends AbstractConnector
         }
     }
 
+    @Override
+    protected MessageReceiver createReceiver(FlowConstruct flowConstruct, InboundEndpoint endpoint) throws Exception
+    {
+        if (selectorThreads > 0)
+        {
+            if (isNonBlockingReceiverSupported())
+            {
+                return new NioTcpMessageReceiver(this, flowConstruct, endpoint);
+            }
+            logger.warn("Selector threads are only supported by TCP connectors, using a thread per connection for: "
+                        + endpoint.getEndpointURI());
+        }
+        return super.createReceiver(flowConstruct, endpoint);
+    }
+
+    /**
+     * @return true if inbound connections can be read by selector threads, which
+     *         bypass the server socket factory of the connector except for binding
+     */
+    protected boolean isNonBlockingReceiverSupported()
+    {
+        return TCP.equals(getProtocol()) && getServerSocketFactory() instanceof TcpServerSocketFactory;
+    }
+
     @Override
     protected void doConnect() throws Exception
     {
@@ -500,6 +535,12 @@ public class TcpConnector extends AbstractConnector
         return getServerSocketFactory().createServerSocket(uri, getReceiveBacklog(), isReuseAddress());
     }
 
+    protected ServerSocketChannel getServerSocketChannel(URI uri) throws IOException
+    {
+        return ((TcpServerSocketFactory) getServerSocketFactory()).createServerSocketChannel(uri,
+            getReceiveBacklog(), isReuseAddress());
+    }
+
     private static int valueOrDefault(int value, int threshhold, int deflt)
     {
         if (value < threshhold)
@@ -530,6 +571,20 @@ public class TcpConnector extends AbstractConnector
         this.reuseAddress = reuseAddress;
     }
 
+    public int getSelectorThreads()
+    {
+        return selectorThreads;
+    }
+
+    /**
+     * Sets the number of selector threads reading the connections of inbound
+     * endpoints, 0 (the default) to read each connection with its own thread
+     */
+    public void setSelectorThreads(int selectorThreads)
+    {
+        this.selectorThreads = valueOrDefault(selectorThreads, 0, 0);
+    }
+
     public ExpiryMonitor getKeepAliveMonitor()
     {
         return keepAliveMonitor;
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits the data received on a connection into messages as they arrive, without
+ * blocking for the rest of a message. A decoder is created by a
+ * {@link NonBlockingTcpProtocol} for each connection, so it may keep the state of
+ * the connection between calls.
+ * <p/>
+ * The buffers given to a decoder are ready to be read, and decoding a message moves
+ * their position past the data of the message. The data of an incomplete message are
+ * left in the buffer, and are given again once more data were received.
+ */
+public interface TcpFrameDecoder
+{
+
+    /**
+     * Reads the next complete message from the data received so far.
+     *
+     * @param buffer the data received and not decoded yet
+     * @return the message, or null if the buffer does not hold a complete message
+     * @throws IOException if the data do not follow the protocol
+     */
+    Object decode(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Called once the complete messages were decoded and no more data are available
+     * for now, or the peer closed the connection. This lets protocols which end a
+     * message when data stop arriving return it.
+     *
+     * @param buffer the data received and not decoded yet
+     * @param endOfStream true if the peer closed the connection
+     * @return a message made of the remaining data, or null if there is none
+     * @throws IOException if the connection was closed in the middle of a message
+     */
+    Object decodeRemaining(ByteBuffer buffer, boolean endOfStream) throws IOException;
+}
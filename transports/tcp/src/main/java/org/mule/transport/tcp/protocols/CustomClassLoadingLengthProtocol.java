@@ -54,6 +54,16 @@ public class CustomClassLoadingLengthProtocol extends LengthProtocol
         }
     }
 
+    /**
+     * Objects are loaded from the socket stream itself, so they cannot be read by a
+     * selector.
+     */
+    @Override
+    public boolean supportsNonBlockingReads()
+    {
+        return false;
+    }
+
     public ClassLoader getClassLoader()
     {
         if (this.classLoader == null)
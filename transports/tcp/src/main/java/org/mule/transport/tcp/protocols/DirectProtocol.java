@@ -6,8 +6,12 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
@@ -24,7 +28,7 @@ import org.apache.commons.logging.LogFactory;
  *
  * <p>Writing simply writes the data to the socket.</p>
  */
-public class DirectProtocol extends AbstractByteProtocol
+public class DirectProtocol extends AbstractByteProtocol implements NonBlockingTcpProtocol
 {
 
     protected static final int UNLIMITED = -1;
@@ -85,6 +89,37 @@ public class DirectProtocol extends AbstractByteProtocol
         return nullEmptyArray(baos.toByteArray());
     }
 
+    public boolean supportsNonBlockingReads()
+    {
+        return true;
+    }
+
+    /**
+     * Messages end when no more data are (momentarily) available, or at the end of
+     * the stream when {@link #isRepeat(int, int)} keeps reading without available data.
+     */
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new TcpFrameDecoder()
+        {
+            public Object decode(ByteBuffer buffer)
+            {
+                return null;
+            }
+
+            public Object decodeRemaining(ByteBuffer buffer, boolean endOfStream)
+            {
+                if (!endOfStream && isRepeat(buffer.remaining(), 0))
+                {
+                    return null;
+                }
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                return nullEmptyArray(data);
+            }
+        };
+    }
+
     protected int remaining(int limit, int remain, int len)
     {
         if (UNLIMITED == limit)
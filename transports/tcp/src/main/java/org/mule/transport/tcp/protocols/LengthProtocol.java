@@ -6,11 +6,15 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -66,10 +70,7 @@ public class LengthProtocol extends DirectProtocol
             logger.debug("length: " + length);
         }
 
-        if (length < 0 || (getMaxMessageLength() > 0 && length > getMaxMessageLength()))
-        {
-            throw new IOException("Length " + length + " exceeds limit: " + getMaxMessageLength());
-        }
+        checkLength(length);
 
         // finally read the rest of the data
         byte[] buffer = new byte[length];
@@ -82,6 +83,53 @@ public class LengthProtocol extends DirectProtocol
         return buffer;
     }
 
+    /**
+     * Messages end once the number of bytes given by their length were received.
+     */
+    @Override
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new TcpFrameDecoder()
+        {
+            public Object decode(ByteBuffer buffer) throws IOException
+            {
+                if (buffer.remaining() < SIZE_INT)
+                {
+                    return null;
+                }
+                int length = buffer.getInt(buffer.position());
+                checkLength(length);
+                if (buffer.remaining() - SIZE_INT < length)
+                {
+                    return null;
+                }
+
+                buffer.position(buffer.position() + SIZE_INT);
+                byte[] data = new byte[length];
+                buffer.get(data);
+                return data;
+            }
+
+            public Object decodeRemaining(ByteBuffer buffer, boolean endOfStream) throws IOException
+            {
+                if (endOfStream && buffer.hasRemaining())
+                {
+                    throw new EOFException("Connection closed before the end of the message, "
+                                           + buffer.remaining() + " bytes received");
+                }
+                return null;
+            }
+        };
+    }
+
+    private void checkLength(int length) throws IOException
+    {
+        if (length < 0 || (getMaxMessageLength() > 0 && length > getMaxMessageLength()))
+        {
+            throw new IOException("Length " + length + " exceeds limit: " + getMaxMessageLength());
+        }
+    }
+
     @Override
     protected void writeByteArray(OutputStream os, byte[] data) throws IOException
     {
@@ -10,11 +10,13 @@ import org.mule.DefaultMuleMessage;
 import org.mule.RequestContext;
 import org.mule.api.MuleException;
 import org.mule.api.transformer.wire.WireFormat;
+import org.mule.transport.tcp.TcpFrameDecoder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Helper class for Mule message handling so that we can apply the same logic across all
@@ -74,4 +76,23 @@ class MuleMessageWorker
 
     }
 
+    /**
+     * @return a decoder reading the Mule messages of the data decoded by the given one
+     */
+    public TcpFrameDecoder createFrameDecoder(final TcpFrameDecoder delegate)
+    {
+        return new TcpFrameDecoder()
+        {
+            public Object decode(ByteBuffer buffer) throws IOException
+            {
+                return doRead(delegate.decode(buffer));
+            }
+
+            public Object decodeRemaining(ByteBuffer buffer, boolean endOfStream) throws IOException
+            {
+                return doRead(delegate.decodeRemaining(buffer, endOfStream));
+            }
+        };
+    }
+
 }
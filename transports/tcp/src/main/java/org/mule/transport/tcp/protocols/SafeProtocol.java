@@ -9,12 +9,15 @@ package org.mule.transport.tcp.protocols;
 import org.mule.ResponseOutputStream;
 import org.mule.api.serialization.DefaultObjectSerializer;
 import org.mule.api.serialization.ObjectSerializer;
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
 import org.mule.transport.tcp.TcpProtocol;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 import javax.inject.Inject;
 
@@ -25,12 +28,12 @@ import javax.inject.Inject;
  * You should probably change to LengthProtocol.
  * Remember - both sender and receiver must use the same protocol.
  */
-public class SafeProtocol implements TcpProtocol
+public class SafeProtocol implements NonBlockingTcpProtocol
 {
 
     public static final String COOKIE = "You are using SafeProtocol";
-    private TcpProtocol delegate = new LengthProtocol();
-    private TcpProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
+    private LengthProtocol delegate = new LengthProtocol();
+    private LengthProtocol cookieProtocol = new LengthProtocol(COOKIE.length());
 
     public Object read(InputStream is) throws IOException
     {
@@ -56,6 +59,63 @@ public class SafeProtocol implements TcpProtocol
         delegate.write(os, data);
     }
 
+    public boolean supportsNonBlockingReads()
+    {
+        return true;
+    }
+
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        final TcpFrameDecoder cookieDecoder = cookieProtocol.createFrameDecoder();
+        final TcpFrameDecoder dataDecoder = delegate.createFrameDecoder();
+        return new TcpFrameDecoder()
+        {
+            private boolean cookieRead = false;
+
+            public Object decode(ByteBuffer buffer) throws IOException
+            {
+                if (!cookieRead)
+                {
+                    Object cookie = null;
+                    try
+                    {
+                        cookie = cookieDecoder.decode(buffer);
+                    }
+                    catch (Exception e)
+                    {
+                        helpUser(e);
+                    }
+                    if (null == cookie)
+                    {
+                        return null;
+                    }
+                    if (!isCookie(cookie))
+                    {
+                        helpUser();
+                    }
+                    cookieRead = true;
+                }
+
+                Object result = dataDecoder.decode(buffer);
+                if (null != result)
+                {
+                    cookieRead = false;
+                }
+                return result;
+            }
+
+            public Object decodeRemaining(ByteBuffer buffer, boolean endOfStream) throws IOException
+            {
+                if (endOfStream && (cookieRead || buffer.hasRemaining()))
+                {
+                    // EOF in the middle of a message
+                    helpUser();
+                }
+                return null;
+            }
+        };
+    }
+
     public ResponseOutputStream createResponse(Socket socket) throws IOException
     {
         return new ResponseOutputStream(socket, new ProtocolStream(this, false, socket.getOutputStream()));
@@ -84,9 +144,7 @@ public class SafeProtocol implements TcpProtocol
         }
         if (null != cookie)
         {
-            if (!(cookie instanceof byte[]
-                  && ((byte[]) cookie).length == COOKIE.length()
-                  && COOKIE.equals(new String((byte[]) cookie))))
+            if (!isCookie(cookie))
             {
                 helpUser();
             }
@@ -98,6 +156,13 @@ public class SafeProtocol implements TcpProtocol
         return false; // eof
     }
 
+    private boolean isCookie(Object cookie)
+    {
+        return cookie instanceof byte[]
+               && ((byte[]) cookie).length == COOKIE.length()
+               && COOKIE.equals(new String((byte[]) cookie));
+    }
+
     private void helpUser() throws IOException
     {
         throw new IOException("You are not using a consistent protocol on your TCP transport. "
@@ -31,6 +31,16 @@ public class StreamingProtocol extends EOFProtocol implements TcpProtocol
         return is;
     }
 
+    /**
+     * Streamed messages are read by the flow from the socket, so they cannot be read
+     * by a selector.
+     */
+    @Override
+    public boolean supportsNonBlockingReads()
+    {
+        return false;
+    }
+
     /**
      * 
      * @param is
@@ -6,9 +6,13 @@
  */
 package org.mule.transport.tcp.protocols;
 
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -45,10 +49,11 @@ import java.util.concurrent.ConcurrentMap;
  * be read later.
  * </p>
  */
-public class XmlMessageProtocol extends AbstractByteProtocol
+public class XmlMessageProtocol extends AbstractByteProtocol implements NonBlockingTcpProtocol
 {
     
     private static final String XML_PATTERN = "<?xml";
+    private static final byte[] XML_PATTERN_BYTES = XML_PATTERN.getBytes();
 
     private static final int READ_BUFFER_SIZE = 4096;
     private static final int PUSHBACK_BUFFER_SIZE = READ_BUFFER_SIZE * 2;
@@ -127,6 +132,76 @@ public class XmlMessageProtocol extends AbstractByteProtocol
         }
     }
 
+    public boolean supportsNonBlockingReads()
+    {
+        return true;
+    }
+
+    /**
+     * Messages end where the declaration of the next document starts, or when
+     * {@link #isRepeat(int, int, int)} stops reading once no more data are available.
+     */
+    public TcpFrameDecoder createFrameDecoder()
+    {
+        return new TcpFrameDecoder()
+        {
+            // offset from the start of the message before which no declaration was found,
+            // starting at the 2nd byte to find the declaration of the next document
+            private int searchFrom = 1;
+
+            public Object decode(ByteBuffer buffer)
+            {
+                int patternIndex = indexOfPattern(buffer, searchFrom);
+                if (patternIndex < 0)
+                {
+                    searchFrom = Math.max(1, buffer.remaining() - XML_PATTERN_BYTES.length + 1);
+                    return null;
+                }
+                return readMessage(buffer, patternIndex);
+            }
+
+            public Object decodeRemaining(ByteBuffer buffer, boolean endOfStream)
+            {
+                if (!endOfStream && isRepeat(-1, buffer.remaining(), 0))
+                {
+                    return null;
+                }
+                return readMessage(buffer, buffer.remaining());
+            }
+
+            private Object readMessage(ByteBuffer buffer, int length)
+            {
+                searchFrom = 1;
+                byte[] message = new byte[length];
+                buffer.get(message);
+                return nullEmptyArray(message);
+            }
+        };
+    }
+
+    /**
+     * @return the offset of the xml declaration from the position of the buffer, or -1
+     *         if there is none after the given offset
+     */
+    private int indexOfPattern(ByteBuffer buffer, int fromOffset)
+    {
+        int start = buffer.position();
+        int last = buffer.limit() - XML_PATTERN_BYTES.length;
+        for (int i = start + fromOffset; i <= last; i++)
+        {
+            int j = 0;
+            while (j < XML_PATTERN_BYTES.length && buffer.get(i + j) == XML_PATTERN_BYTES[j])
+            {
+                j++;
+            }
+            if (j == XML_PATTERN_BYTES.length)
+            {
+                return i - start;
+            }
+        }
+        return -1;
+    }
+
     /**
      * Show we continue reading?  This class, following previous implementations, only
      * reads while input is saturated.
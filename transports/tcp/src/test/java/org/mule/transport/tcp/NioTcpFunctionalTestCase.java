@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.api.MuleEventContext;
+import org.mule.api.MuleMessage;
+import org.mule.api.client.MuleClient;
+import org.mule.api.transport.MessageReceiver;
+import org.mule.tck.functional.EventCallback;
+import org.mule.tck.functional.FunctionalTestComponent;
+import org.mule.tck.junit4.FunctionalTestCase;
+import org.mule.tck.junit4.rule.DynamicPort;
+import org.mule.tck.probe.PollingProber;
+import org.mule.tck.probe.Probe;
+import org.mule.transport.tcp.protocols.LengthProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Tests inbound endpoints of a connector with selector threads, reading more
+ * connections than there are selector threads, with messages split across writes,
+ * responses larger than the socket buffers and a single receiver thread
+ */
+public class NioTcpFunctionalTestCase extends FunctionalTestCase
+{
+
+    private static final int CONNECTIONS = 50;
+    private static final int BUSY_CONNECTIONS = 5;
+    private static final int LARGE_MESSAGE_SIZE = 1024 * 1024;
+    private static final int SOCKET_BUFFER_SIZE = 4096;
+
+    @Rule
+    public DynamicPort dynamicPort1 = new DynamicPort("port1");
+
+    @Rule
+    public DynamicPort dynamicPort2 = new DynamicPort("port2");
+
+    @Override
+    protected String getConfigFile()
+    {
+        return "nio-tcp-functional-test-flow.xml";
+    }
+
+    @Test
+    public void usesNonBlockingReceivers() throws Exception
+    {
+        TcpConnector connector = (TcpConnector) muleContext.getRegistry().lookupConnector("tcpConnector");
+        assertEquals(2, connector.getSelectorThreads());
+        for (MessageReceiver receiver : connector.getReceivers().values())
+        {
+            assertTrue(receiver instanceof NioTcpMessageReceiver);
+        }
+    }
+
+    @Test
+    public void testSend() throws Exception
+    {
+        MuleClient client = muleContext.getClient();
+        MuleMessage result = client.send("clientEndpoint", TEST_MESSAGE, null);
+        assertEquals(TEST_MESSAGE + " Received", result.getPayloadAsString());
+    }
+
+    @Test
+    public void writesResponsesLargerThanSocketBuffers() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        char[] chars = new char[LARGE_MESSAGE_SIZE];
+        Arrays.fill(chars, 'x');
+        String largeMessage = new String(chars);
+
+        Socket socket = new Socket();
+        try
+        {
+            // the response does not fit in the socket buffers, so it is written as it is read
+            socket.setReceiveBufferSize(SOCKET_BUFFER_SIZE);
+            socket.connect(new InetSocketAddress("localhost", dynamicPort1.getNumber()));
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            protocol.write(out, largeMessage);
+            out.flush();
+            assertEquals(largeMessage + " Received", new String((byte[]) protocol.read(in)));
+
+            // the connection is read again once the response was completely written
+            protocol.write(out, TEST_MESSAGE);
+            out.flush();
+            assertEquals(TEST_MESSAGE + " Received", new String((byte[]) protocol.read(in)));
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void keepsMessagesWaitingWhileReceiverThreadIsBusy() throws Exception
+    {
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        final FunctionalTestComponent component = getFunctionalTestComponent("oneWay");
+        component.setEventCallback(new EventCallback()
+        {
+            @Override
+            public void eventReceived(MuleEventContext context, Object component) throws Exception
+            {
+                threads.add(Thread.currentThread().getName());
+            }
+        });
+
+        LengthProtocol protocol = new LengthProtocol();
+        Socket[] sockets = new Socket[BUSY_CONNECTIONS];
+        try
+        {
+            // the single receiver thread is busy with the first message when the others arrive
+            for (int i = 0; i < BUSY_CONNECTIONS; i++)
+            {
+                sockets[i] = new Socket("localhost", dynamicPort2.getNumber());
+                OutputStream out = sockets[i].getOutputStream();
+                protocol.write(out, TEST_MESSAGE + i);
+                out.flush();
+            }
+
+            PollingProber prober = new PollingProber(RECEIVE_TIMEOUT, 100);
+            prober.check(new Probe()
+            {
+                @Override
+                public boolean isSatisfied()
+                {
+                    return component.getReceivedMessagesCount() == BUSY_CONNECTIONS;
+                }
+
+                @Override
+                public String describeFailure()
+                {
+                    return "Expected " + BUSY_CONNECTIONS + " messages but received " + component.getReceivedMessagesCount();
+                }
+            });
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                if (socket != null)
+                {
+                    socket.close();
+                }
+            }
+        }
+
+        for (String thread : threads)
+        {
+            assertFalse("Message processed by selector thread " + thread, thread.contains(".selector"));
+        }
+    }
+
+    @Test
+    public void readsFragmentedMessagesFromManyConnections() throws Exception
+    {
+        LengthProtocol protocol = new LengthProtocol();
+        Socket[] sockets = new Socket[CONNECTIONS];
+        try
+        {
+            for (int i = 0; i < CONNECTIONS; i++)
+            {
+                sockets[i] = new Socket("localhost", dynamicPort1.getNumber());
+            }
+
+            for (int i = 0; i < CONNECTIONS; i++)
+            {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                protocol.write(data, TEST_MESSAGE + i);
+                protocol.write(data, TEST_MESSAGE + i + "-2");
+                byte[] bytes = data.toByteArray();
+
+                // a message is only processed once it was completely received
+                OutputStream out = sockets[i].getOutputStream();
+                out.write(bytes, 0, 3);
+                out.flush();
+                out.write(bytes, 3, bytes.length - 3);
+                out.flush();
+            }
+
+            for (int i = 0; i < CONNECTIONS; i++)
+            {
+                InputStream in = new BufferedInputStream(sockets[i].getInputStream());
+                assertEquals(TEST_MESSAGE + i + " Received", new String((byte[]) protocol.read(in)));
+                assertEquals(TEST_MESSAGE + i + "-2 Received", new String((byte[]) protocol.read(in)));
+            }
+        }
+        finally
+        {
+            for (Socket socket : sockets)
+            {
+                if (socket != null)
+                {
+                    socket.close();
+                }
+            }
+        }
+    }
+}
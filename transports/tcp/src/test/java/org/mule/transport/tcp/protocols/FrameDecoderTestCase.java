@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.tcp.protocols;
+
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.mule.tck.junit4.AbstractMuleTestCase;
+import org.mule.tck.size.SmallTest;
+import org.mule.transport.tcp.NonBlockingTcpProtocol;
+import org.mule.transport.tcp.TcpFrameDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Feeds the decoders of the protocols with the data of several messages split in
+ * chunks of every size, like a selector may receive them
+ */
+@SmallTest
+public class FrameDecoderTestCase extends AbstractMuleTestCase
+{
+
+    private static final List<String> MESSAGES = Arrays.asList("first", "", "third message");
+    private static final List<String> XML_MESSAGES = Arrays.asList("<?xml version=\"1.0\"?><a/>",
+        "<?xml version=\"1.0\"?><b>text</b>");
+
+    @Test
+    public void lengthProtocol() throws Exception
+    {
+        assertDecodesInChunks(new LengthProtocol(), MESSAGES);
+    }
+
+    @Test
+    public void safeProtocol() throws Exception
+    {
+        assertDecodesInChunks(new SafeProtocol(), MESSAGES);
+    }
+
+    @Test
+    public void xmlMessageEOFProtocol() throws Exception
+    {
+        assertDecodesInChunks(new XmlMessageEOFProtocol(), XML_MESSAGES);
+    }
+
+    @Test
+    public void xmlMessageProtocolEndsMessageWhenNoMoreDataAvailable() throws Exception
+    {
+        byte[] data = write(new XmlMessageProtocol(), XML_MESSAGES);
+        assertThat(decode(new XmlMessageProtocol(), data, data.length, false), equalTo(XML_MESSAGES));
+    }
+
+    @Test
+    public void eofProtocolEndsMessageAtEndOfStream() throws Exception
+    {
+        byte[] data = "one message".getBytes();
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertThat(decode(new EOFProtocol(), data, chunk, true), equalTo(Arrays.asList("one message")));
+        }
+    }
+
+    @Test
+    public void protocolsReadingFromTheSocketStreamDoNotSupportNonBlockingReads() throws Exception
+    {
+        assertThat(new StreamingProtocol().supportsNonBlockingReads(), equalTo(false));
+        assertThat(new CustomClassLoadingLengthProtocol().supportsNonBlockingReads(), equalTo(false));
+        assertThat(new LengthProtocol().supportsNonBlockingReads(), equalTo(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void lengthProtocolFailsOnEndOfStreamWithinMessage() throws Exception
+    {
+        byte[] data = write(new LengthProtocol(), MESSAGES);
+        decode(new LengthProtocol(), Arrays.copyOf(data, data.length - 1), data.length, true);
+    }
+
+    @Test(expected = IOException.class)
+    public void safeProtocolFailsWithoutCookie() throws Exception
+    {
+        decode(new SafeProtocol(), write(new LengthProtocol(), MESSAGES), 1, true);
+    }
+
+    private void assertDecodesInChunks(NonBlockingTcpProtocol protocol, List<String> messages) throws Exception
+    {
+        byte[] data = write(protocol, messages);
+        for (int chunk = 1; chunk <= data.length; chunk++)
+        {
+            assertThat("chunk " + chunk, decode(protocol, data, chunk, true), equalTo(messages));
+        }
+    }
+
+    private byte[] write(NonBlockingTcpProtocol protocol, List<String> messages) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String message : messages)
+        {
+            protocol.write(out, message.getBytes());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the data received in chunks, keeping what was not decoded for the next
+     * chunk as the receiver does, then closes the stream if requested
+     */
+    private List<String> decode(NonBlockingTcpProtocol protocol, byte[] data, int chunk, boolean endOfStream)
+        throws IOException
+    {
+        TcpFrameDecoder decoder = protocol.createFrameDecoder();
+        List<String> messages = new ArrayList<String>();
+        ByteBuffer buffer = ByteBuffer.allocate(data.length);
+        buffer.flip();
+        for (int offset = 0; offset < data.length; offset += chunk)
+        {
+            buffer.compact();
+            buffer.put(data, offset, Math.min(chunk, data.length - offset));
+            buffer.flip();
+
+            Object message;
+            while ((message = decoder.decode(buffer)) != null)
+            {
+                messages.add(new String((byte[]) message));
+            }
+            if (offset + chunk >= data.length && !endOfStream)
+            {
+                addMessage(messages, decoder.decodeRemaining(buffer, false));
+            }
+        }
+        if (endOfStream)
+        {
+            addMessage(messages, decoder.decodeRemaining(buffer, true));
+        }
+        return messages;
+    }
+
+    private void addMessage(List<String> messages, Object message)
+    {
+        if (message != null)
+        {
+            messages.add(new String((byte[]) message));
+        }
+    }
+}
@@ -14,16 +14,28 @@ import org.mule.api.endpoint.EndpointURI;
 import org.mule.api.endpoint.ImmutableEndpoint;
 import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.api.lifecycle.InitialisationException;
+import org.mule.api.transaction.Transaction;
 import org.mule.api.transport.MessageReceiver;
 import org.mule.config.QueueProfile;
 import org.mule.endpoint.DynamicURIInboundEndpoint;
 import org.mule.endpoint.MuleEndpointURI;
 import org.mule.routing.filters.WildcardFilter;
+import org.mule.transaction.TransactionCoordination;
+import org.mule.transaction.XaTransaction;
 import org.mule.transport.AbstractConnector;
+import org.mule.util.concurrent.RingBufferQueue;
+import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueManager;
 import org.mule.util.queue.QueueSession;
 
+import java.io.Serializable;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 
 /**
  * <code>VMConnector</code> A simple endpoint wrapper to allow a Mule service to
@@ -34,8 +46,23 @@ public class VMConnector extends AbstractConnector
 {
 
     public static final String VM = "vm";
+
+    public static final int DEFAULT_TRANSIENT_QUEUE_CAPACITY = 1024;
+
     private QueueProfile queueProfile;
     private Integer queueTimeout;
+    private int transientQueueCapacity = DEFAULT_TRANSIENT_QUEUE_CAPACITY;
+
+    /**
+     * In memory queues of the non transactional receivers of non persistent queues, by address
+     */
+    private final ConcurrentMap<String, RingBufferQueue<Serializable>> transientQueues = new ConcurrentHashMap<String, RingBufferQueue<Serializable>>();
+
+    /**
+     * Number of committed messages in the queue manager for the addresses with a
+     * transient queue, so the queue manager is only used while it holds messages
+     */
+    private final ConcurrentMap<String, AtomicInteger> queueManagerMessages = new ConcurrentHashMap<String, AtomicInteger>();
 
     public VMConnector(MuleContext context)
     {
@@ -63,7 +90,8 @@ public class VMConnector extends AbstractConnector
     @Override
     protected void doDispose()
     {
-        // template method
+        transientQueues.clear();
+        queueManagerMessages.clear();
     }
 
     @Override
@@ -96,10 +124,189 @@ public class VMConnector extends AbstractConnector
         if (!endpoint.getExchangePattern().hasResponse())
         {
             queueProfile.configureQueue(endpoint.getMuleContext(), endpoint.getEndpointURI().getAddress(), getQueueManager());
+            if (transientQueueCapacity > 0 && !queueProfile.getObjectStore().isPersistent()
+                && !endpoint.getTransactionConfig().isTransacted())
+            {
+                createTransientQueue(endpoint.getEndpointURI().getAddress());
+            }
         }
         return serviceDescriptor.createMessageReceiver(this, flowConstruct, endpoint);
     }
 
+    private void createTransientQueue(String address) throws MuleException
+    {
+        if (transientQueues.containsKey(address))
+        {
+            return;
+        }
+        // The counter is published before it counts the messages already queued, so a
+        // message dispatched meanwhile may be counted twice but is never missed
+        AtomicInteger counter = new AtomicInteger();
+        AtomicInteger previousCounter = queueManagerMessages.putIfAbsent(address, counter);
+        if (previousCounter != null)
+        {
+            counter = previousCounter;
+        }
+        counter.addAndGet(getQueueSession().getQueue(address).size());
+
+        int maxOutstandingMessages = queueProfile.getMaxOutstandingMessages();
+        RingBufferQueue<Serializable> queue = new RingBufferQueue<Serializable>(
+            maxOutstandingMessages > 0 ? maxOutstandingMessages : transientQueueCapacity);
+        if (transientQueues.putIfAbsent(address, queue) == null && logger.isDebugEnabled())
+        {
+            logger.debug("Created transient queue for address: " + address);
+        }
+    }
+
+    /**
+     * Removes the transient queue of the address, moving the messages that were not
+     * consumed to the queue of the queue manager so they can still be requested.
+     */
+    @Override
+    protected void doUnregisterListener(FlowConstruct flowConstruct, InboundEndpoint endpoint, MessageReceiver receiver)
+    {
+        String address = endpoint.getEndpointURI().getAddress();
+        RingBufferQueue<Serializable> transientQueue = transientQueues.remove(address);
+        queueManagerMessages.remove(address);
+        if (transientQueue == null || transientQueue.isEmpty())
+        {
+            return;
+        }
+        int lost = 0;
+        try
+        {
+            Queue queue = getQueueSession().getQueue(address);
+            Serializable item;
+            while ((item = transientQueue.poll()) != null)
+            {
+                if (!queue.offer(item, 0))
+                {
+                    lost++;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            logger.warn("Failed to move the messages of the transient queue for address: " + address
+                        + " to the queue manager, the messages that were not moved are lost", e);
+            return;
+        }
+        if (lost > 0)
+        {
+            logger.warn(lost + " messages of the transient queue for address: " + address
+                        + " were lost as the queue of the queue manager is full");
+        }
+    }
+
+    /**
+     * Returns the in memory queue that replaces the queue of the queue manager for a
+     * non persistent queue consumed by a non transactional receiver, when transient
+     * queues are enabled. Messages are only dispatched to it outside of transactions and
+     * while the queue of the queue manager is empty, so receivers consume it first and
+     * then the queue of the queue manager.
+     *
+     * @return the transient queue, or null if messages to the address are always
+     *         queued in the queue manager
+     */
+    RingBufferQueue<Serializable> getTransientQueue(String address)
+    {
+        return transientQueues.get(address);
+    }
+
+    /**
+     * @return the number of committed messages in the queue manager for an address with
+     *         a transient queue, which avoids taking the lock of the queue manager to
+     *         check its queue, or 0 if the address has no transient queue
+     */
+    int getQueueManagerMessages(String address)
+    {
+        AtomicInteger counter = queueManagerMessages.get(address);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Counts a message queued in the queue manager for an address with a transient
+     * queue, once the current transaction commits if the queue session takes part in
+     * it, and wakes up the receiver waiting on the transient queue so it takes it.
+     */
+    void messageQueued(String address) throws Exception
+    {
+        updateQueueManagerMessages(address, 1);
+    }
+
+    /**
+     * Discounts a message taken from the queue manager for an address with a transient
+     * queue, once the current transaction commits if the queue session takes part in it.
+     */
+    void messageTaken(String address) throws Exception
+    {
+        updateQueueManagerMessages(address, -1);
+    }
+
+    private void updateQueueManagerMessages(final String address, final int delta) throws Exception
+    {
+        if (!queueManagerMessages.containsKey(address))
+        {
+            return;
+        }
+        Synchronization update = new Synchronization()
+        {
+            @Override
+            public void beforeCompletion()
+            {
+                // nothing to do
+            }
+
+            @Override
+            public void afterCompletion(int status)
+            {
+                if (status == Status.STATUS_COMMITTED)
+                {
+                    updateQueueManagerMessagesNow(address, delta);
+                }
+            }
+        };
+        Transaction transaction = TransactionCoordination.getInstance().getTransaction();
+        if (transaction instanceof VMTransaction)
+        {
+            ((VMTransaction) transaction).registerSynchronization(update);
+        }
+        else if (transaction instanceof XaTransaction && ((XaTransaction) transaction).getTransaction() != null)
+        {
+            ((XaTransaction) transaction).getTransaction().registerSynchronization(update);
+        }
+        else
+        {
+            // Other transactions do not support the queue session, so it was not enlisted
+            updateQueueManagerMessagesNow(address, delta);
+        }
+    }
+
+    private void updateQueueManagerMessagesNow(String address, int delta)
+    {
+        AtomicInteger counter = queueManagerMessages.get(address);
+        if (counter == null)
+        {
+            return;
+        }
+        if (delta > 0)
+        {
+            counter.addAndGet(delta);
+            RingBufferQueue<Serializable> transientQueue = transientQueues.get(address);
+            if (transientQueue != null)
+            {
+                transientQueue.wakeUpConsumers();
+            }
+            return;
+        }
+        int count;
+        do
+        {
+            count = counter.get();
+        }
+        while (count > 0 && !counter.compareAndSet(count, Math.max(0, count + delta)));
+    }
+
     public String getProtocol()
     {
         return "VM";
@@ -207,6 +414,26 @@ public class VMConnector extends AbstractConnector
         this.queueTimeout = queueTimeout;
     }
 
+    public int getTransientQueueCapacity()
+    {
+        return transientQueueCapacity;
+    }
+
+    /**
+     * Sets the capacity of the in memory queues used by the non transactional receivers
+     * of non persistent queues, so dispatches outside of transactions do not go through
+     * the queue manager.
+     *
+     * @param transientQueueCapacity capacity of the queues of unbounded queue profiles,
+     *            messages beyond it go to the queue manager. Bounded queue profiles use
+     *            their maxOutstandingMessages instead. Defaults to
+     *            {@link #DEFAULT_TRANSIENT_QUEUE_CAPACITY}, 0 disables transient queues.
+     */
+    public void setTransientQueueCapacity(int transientQueueCapacity)
+    {
+        this.transientQueueCapacity = transientQueueCapacity;
+    }
+
     public QueueManager getQueueManager()
     {
         return getMuleContext().getQueueManager();
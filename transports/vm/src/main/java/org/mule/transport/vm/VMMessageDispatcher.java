@@ -18,11 +18,15 @@ import org.mule.config.i18n.CoreMessages;
 import org.mule.api.execution.ExecutionCallback;
 import org.mule.api.execution.ExecutionTemplate;
 import org.mule.execution.TransactionalExecutionTemplate;
+import org.mule.transaction.TransactionCoordination;
 import org.mule.transport.AbstractMessageDispatcher;
 import org.mule.transport.vm.i18n.VMMessages;
+import org.mule.util.concurrent.RingBufferQueue;
 import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueSession;
 
+import java.io.Serializable;
+
 /**
  * <code>VMMessageDispatcher</code> is used for providing in memory interaction between components.
  */
@@ -48,6 +52,14 @@ public class VMMessageDispatcher extends AbstractMessageDispatcher
         MuleEvent eventToDispatch = DefaultMuleEvent.copy(event);
         eventToDispatch.clearFlowVariables();
         eventToDispatch.setMessage(eventToDispatch.getMessage().createInboundMessage());
+        if (offerToTransientQueue(eventToDispatch))
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("dispatched MuleEvent on transient queue of endpointUri: " + endpointUri);
+            }
+            return;
+        }
         QueueSession session = getQueueSession();
         Queue queue = session.getQueue(endpointUri.getAddress());
         if (!queue.offer(eventToDispatch.getMessage(), connector.getQueueTimeout()))
@@ -56,12 +68,47 @@ public class VMMessageDispatcher extends AbstractMessageDispatcher
             throw new DispatchException(VMMessages.queueIsFull(queue.getName(), queue.size()),
                 eventToDispatch, getEndpoint());
         }
+        connector.messageQueued(endpointUri.getAddress());
         if (logger.isDebugEnabled())
         {
             logger.debug("dispatched MuleEvent on endpointUri: " + endpointUri);
         }
     }
 
+    /**
+     * Queues the message in the transient queue of the address, if it has one and no
+     * transaction is active, as the transient queue does not take part in transactions.
+     * Messages also go to the queue manager while it holds messages for the address, so
+     * the receiver, which consumes the transient queue first, keeps them in order. That
+     * is checked with the count of messages the connector keeps for the address, so
+     * dispatches do not take the lock of the queue manager.
+     *
+     * @return false if the message has to be queued in the queue manager instead, which
+     *         is also the case when an unbounded transient queue is full
+     */
+    private boolean offerToTransientQueue(MuleEvent event) throws Exception
+    {
+        RingBufferQueue<Serializable> transientQueue = connector.getTransientQueue(endpoint.getEndpointURI().getAddress());
+        if (transientQueue == null || endpoint.getTransactionConfig().isTransacted()
+            || TransactionCoordination.getInstance().getTransaction() != null
+            || connector.getQueueManagerMessages(endpoint.getEndpointURI().getAddress()) > 0)
+        {
+            return false;
+        }
+
+        if (connector.getQueueProfile().getMaxOutstandingMessages() > 0)
+        {
+            if (!transientQueue.offer(event.getMessage(), connector.getQueueTimeout()))
+            {
+                // queue is full
+                throw new DispatchException(VMMessages.queueIsFull(endpoint.getEndpointURI().getAddress(),
+                    transientQueue.size()), event, getEndpoint());
+            }
+            return true;
+        }
+        return transientQueue.offer(event.getMessage());
+    }
+
     private QueueSession getQueueSession() throws MuleException
     {
         return connector.getTransactionalResource(endpoint);
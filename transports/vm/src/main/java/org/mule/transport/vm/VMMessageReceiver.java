@@ -24,6 +24,7 @@ import org.mule.api.transport.Connector;
 import org.mule.transport.ContinuousPollingReceiverWorker;
 import org.mule.transport.PollingReceiverWorker;
 import org.mule.transport.TransactedPollingMessageReceiver;
+import org.mule.util.concurrent.RingBufferQueue;
 import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueSession;
 
@@ -191,6 +192,12 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
 
     protected List<MuleMessage> getFirstMessages() throws Exception
     {
+        RingBufferQueue<Serializable> transientQueue = connector.getTransientQueue(endpoint.getEndpointURI().getAddress());
+        if (transientQueue != null)
+        {
+            return getFirstTransientMessages(transientQueue);
+        }
+
         // The queue from which to pull events
         QueueSession qs = connector.getTransactionalResource(endpoint);
         Queue queue = qs.getQueue(endpoint.getEndpointURI().getAddress());
@@ -227,9 +234,88 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
         return messages;
     }
 
+    /**
+     * Drains a batch of messages from the transient queue without locking, and completes
+     * it with the messages of the queue manager, which holds the messages dispatched
+     * within transactions or that overflowed the transient queue. The queue manager is
+     * only used while the connector counts messages in it for the address. Dispatches go
+     * to the queue manager while it holds messages, so taking the transient queue first
+     * keeps the messages in order and the transient queue is not refilled until the
+     * queue manager is drained. When both are empty the receiver waits on the transient
+     * queue, which is woken up when a message is committed to the queue manager.
+     */
+    protected List<MuleMessage> getFirstTransientMessages(RingBufferQueue<Serializable> transientQueue) throws Exception
+    {
+        String address = endpoint.getEndpointURI().getAddress();
+        int queueManagerMessages = connector.getQueueManagerMessages(address);
+        int maxMessages = getBatchSize(transientQueue.size() + queueManagerMessages) + 1;
+
+        List<Serializable> polledItems = new ArrayList<Serializable>();
+        transientQueue.drainTo(polledItems, maxMessages);
+        if (polledItems.size() < maxMessages && queueManagerMessages > 0)
+        {
+            pollQueueManager(address, polledItems, maxMessages);
+        }
+        if (polledItems.isEmpty())
+        {
+            Serializable polledItem = transientQueue.poll(connector.getQueueTimeout());
+            if (polledItem != null)
+            {
+                polledItems.add(polledItem);
+            }
+            else if (connector.getQueueManagerMessages(address) > 0)
+            {
+                // Woken up by a message committed to the queue manager
+                pollQueueManager(address, polledItems, maxMessages);
+            }
+        }
+
+        List<MuleMessage> messages = new ArrayList<MuleMessage>(polledItems.size());
+        for (Serializable polledItem : polledItems)
+        {
+            MuleMessage message = toMessage(polledItem);
+            if (message == null)
+            {
+                continue;
+            }
+            if (messages.isEmpty())
+            {
+                if (message instanceof DefaultMuleMessage)
+                {
+                    ((DefaultMuleMessage) message).setMuleContext(endpoint.getMuleContext());
+                }
+                messages.add(message);
+            }
+            else
+            {
+                messages.add(new DefaultMuleMessage(message, endpoint.getMuleContext()));
+            }
+        }
+        return messages;
+    }
+
+    private void pollQueueManager(String address, List<Serializable> polledItems, int maxMessages) throws Exception
+    {
+        Queue queue = connector.getTransactionalResource(endpoint).getQueue(address);
+        while (polledItems.size() < maxMessages)
+        {
+            Serializable polledItem = queue.poll(0);
+            if (polledItem == null)
+            {
+                break;
+            }
+            connector.messageTaken(address);
+            polledItems.add(polledItem);
+        }
+    }
+
     private MuleMessage getMessage(Queue queue, int timeout) throws InterruptedException
     {
-        Serializable polledItem = queue.poll(timeout);
+        return toMessage(queue.poll(timeout));
+    }
+
+    private MuleMessage toMessage(Serializable polledItem)
+    {
         if (polledItem instanceof MuleEvent)
         {
             return ((MuleEvent) polledItem).getMessage();
@@ -254,6 +340,12 @@ public class VMMessageReceiver extends TransactedPollingMessageReceiver
     {
         try
         {
+            RingBufferQueue<Serializable> transientQueue = connector.getTransientQueue(endpoint.getEndpointURI().getAddress());
+            if (transientQueue != null)
+            {
+                return transientQueue.isEmpty()
+                       && connector.getQueueManagerMessages(endpoint.getEndpointURI().getAddress()) == 0;
+            }
             QueueSession qs = connector.getQueueSession();
             Queue queue = qs.getQueue(endpoint.getEndpointURI().getAddress());
             return queue.size() == 0;
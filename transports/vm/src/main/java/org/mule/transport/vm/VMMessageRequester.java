@@ -11,6 +11,7 @@ import org.mule.api.MuleMessage;
 import org.mule.api.ThreadSafeAccess;
 import org.mule.api.endpoint.InboundEndpoint;
 import org.mule.transport.AbstractMessageRequester;
+import org.mule.util.concurrent.RingBufferQueue;
 import org.mule.util.queue.Queue;
 import org.mule.util.queue.QueueSession;
 
@@ -66,7 +67,17 @@ public class VMMessageRequester extends AbstractMessageRequester
                 }
                 try
                 {
-                    Serializable polledItem = queue.poll(timeout);
+                    // Messages dispatched outside of transactions may be in the transient queue of the address
+                    RingBufferQueue<Serializable> transientQueue = connector.getTransientQueue(endpoint.getEndpointURI().getAddress());
+                    Serializable polledItem = transientQueue == null ? null : transientQueue.poll();
+                    if (polledItem == null)
+                    {
+                        polledItem = queue.poll(timeout);
+                        if (polledItem != null)
+                        {
+                            connector.messageTaken(endpoint.getEndpointURI().getAddress());
+                        }
+                    }
 
                     if (polledItem instanceof MuleEvent)
                     {
@@ -15,9 +15,17 @@ import org.mule.util.queue.QueueManager;
 import org.mule.util.queue.QueueSession;
 import org.mule.util.xa.ResourceManagerException;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
 public class VMTransaction extends AbstractSingleResourceTransaction
 {
 
+    private final List<Synchronization> synchronizations = new CopyOnWriteArrayList<Synchronization>();
+
     public VMTransaction(MuleContext muleContext) throws TransactionException
     {
         this(muleContext, false);
@@ -52,12 +60,25 @@ public class VMTransaction extends AbstractSingleResourceTransaction
         }
     }
 
+    /**
+     * Registers a callback that is notified when the transaction commits or rolls back,
+     * once the queue session has been committed or rolled back.
+     */
+    public void registerSynchronization(Synchronization synchronization)
+    {
+        synchronizations.add(synchronization);
+    }
+
     protected void doBegin() throws TransactionException
     {
     }
 
     protected void doCommit() throws TransactionException
     {
+        for (Synchronization synchronization : synchronizations)
+        {
+            synchronization.beforeCompletion();
+        }
         try
         {
             if (resource != null)
@@ -67,8 +88,10 @@ public class VMTransaction extends AbstractSingleResourceTransaction
         }
         catch (ResourceManagerException e)
         {
+            afterCompletion(Status.STATUS_ROLLEDBACK);
             throw new TransactionException(CoreMessages.transactionCommitFailed(), e);
         }
+        afterCompletion(Status.STATUS_COMMITTED);
     }
 
     protected void doRollback() throws TransactionException
@@ -84,6 +107,19 @@ public class VMTransaction extends AbstractSingleResourceTransaction
         {
             throw new TransactionException(CoreMessages.transactionRollbackFailed(), e);
         }
+        finally
+        {
+            afterCompletion(Status.STATUS_ROLLEDBACK);
+        }
+    }
+
+    private void afterCompletion(int status)
+    {
+        for (Synchronization synchronization : synchronizations)
+        {
+            synchronization.afterCompletion(status);
+        }
+        synchronizations.clear();
     }
 
     @Override
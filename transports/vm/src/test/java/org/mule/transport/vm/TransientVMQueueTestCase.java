@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.transport.vm;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.mule.api.MuleMessage;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.config.ThreadingProfile;
+import org.mule.api.construct.FlowConstruct;
+import org.mule.api.endpoint.InboundEndpoint;
+import org.mule.api.transport.DispatchException;
+import org.mule.config.ChainedThreadingProfile;
+import org.mule.config.QueueProfile;
+import org.mule.tck.MuleTestUtils;
+import org.mule.tck.SensingNullMessageProcessor;
+import org.mule.tck.junit4.AbstractMuleContextTestCase;
+import org.mule.util.queue.QueueStore;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests that messages dispatched to a non persistent queue consumed by a non
+ * transactional receiver go through its transient queue, and through the queue
+ * manager when the transient queue overflows or a transaction is active, without
+ * losing their order
+ */
+public class TransientVMQueueTestCase extends AbstractMuleContextTestCase
+{
+
+    private static final String ADDRESS = "in";
+    private static final int CAPACITY = 4;
+    private static final int QUEUE_TIMEOUT = 100;
+
+    /**
+     * Makes the receiver take at most 2 messages per poll
+     */
+    private static final int RECEIVER_THREADS = 4;
+
+    private VMConnector connector;
+    private FlowConstruct flowConstruct;
+    private InboundEndpoint inboundEndpoint;
+    private VMMessageDispatcher dispatcher;
+
+    @Test
+    public void transientQueuesAreEnabledByDefault() throws Exception
+    {
+        createConnector(null);
+        createReceiver();
+
+        assertThat(connector.getTransientQueue(ADDRESS).getCapacity(), is(VMConnector.DEFAULT_TRANSIENT_QUEUE_CAPACITY));
+    }
+
+    @Test
+    public void transientQueuesCanBeDisabled() throws Exception
+    {
+        createConnector(null);
+        connector.setTransientQueueCapacity(0);
+        createReceiver();
+
+        assertThat(connector.getTransientQueue(ADDRESS), nullValue());
+    }
+
+    @Test
+    public void overflowsToQueueManagerKeepingOrder() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        VMMessageReceiver receiver = createReceiver();
+
+        dispatch(0, 10);
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(CAPACITY));
+        assertThat(getQueueManagerSize(), is(10 - CAPACITY));
+        assertThat(connector.getQueueManagerMessages(ADDRESS), is(10 - CAPACITY));
+
+        List<String> received = receive(receiver, 6);
+        assertThat(connector.getTransientQueue(ADDRESS).isEmpty(), is(true));
+
+        // The queue manager still holds messages, so the transient queue is not used
+        dispatch(10, 2);
+        assertThat(connector.getTransientQueue(ADDRESS).isEmpty(), is(true));
+
+        received.addAll(receive(receiver, 6));
+        assertThat(received, is(payloads(0, 12)));
+        assertThat(connector.getQueueManagerMessages(ADDRESS), is(0));
+
+        // Once the queue manager is drained dispatches use the transient queue again
+        dispatch(12, 1);
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(1));
+        assertThat(receive(receiver, 1), is(payloads(12, 1)));
+    }
+
+    @Test
+    public void countsMessagesQueuedBeforeReceiverIsCreated() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        dispatch(0, 2);
+
+        VMMessageReceiver receiver = createReceiver();
+        assertThat(connector.getQueueManagerMessages(ADDRESS), is(2));
+
+        dispatch(2, 1);
+        assertThat(connector.getTransientQueue(ADDRESS).isEmpty(), is(true));
+        assertThat(receive(receiver, 3), is(payloads(0, 3)));
+    }
+
+    @Test
+    public void dispatchesWithinTransactionGoThroughQueueManager() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        VMMessageReceiver receiver = createReceiver();
+
+        dispatch(0, 1);
+        VMTransaction transaction = new VMTransaction(muleContext);
+        transaction.begin();
+        try
+        {
+            dispatch(1, 1);
+            // Not counted until it is committed
+            assertThat(connector.getQueueManagerMessages(ADDRESS), is(0));
+        }
+        finally
+        {
+            transaction.commit();
+        }
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(1));
+        assertThat(getQueueManagerSize(), is(1));
+        assertThat(connector.getQueueManagerMessages(ADDRESS), is(1));
+
+        // Queued after the transactional message to keep them in order
+        dispatch(2, 1);
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(1));
+        assertThat(getQueueManagerSize(), is(2));
+
+        assertThat(receive(receiver, 3), is(payloads(0, 3)));
+    }
+
+    @Test
+    public void rolledBackDispatchesAreNotCounted() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        createReceiver();
+
+        VMTransaction transaction = new VMTransaction(muleContext);
+        transaction.begin();
+        try
+        {
+            dispatch(0, 1);
+        }
+        finally
+        {
+            transaction.rollback();
+        }
+        assertThat(connector.getQueueManagerMessages(ADDRESS), is(0));
+
+        dispatch(1, 1);
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(1));
+    }
+
+    @Test
+    public void wakesUpReceiverWhenMessageIsCommittedToQueueManager() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        final VMMessageReceiver receiver = createReceiver();
+        // Longer than the test waits, so the message is only received if the receiver is woken up
+        connector.setQueueTimeout(RECEIVE_TIMEOUT * 10);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<List<MuleMessage>> received = executor.submit(new Callable<List<MuleMessage>>()
+            {
+                @Override
+                public List<MuleMessage> call() throws Exception
+                {
+                    return receiver.getMessages();
+                }
+            });
+            Thread.sleep(100);
+
+            VMTransaction transaction = new VMTransaction(muleContext);
+            transaction.begin();
+            try
+            {
+                dispatch(0, 1);
+            }
+            finally
+            {
+                transaction.commit();
+            }
+
+            List<MuleMessage> messages = received.get(RECEIVE_TIMEOUT, TimeUnit.MILLISECONDS);
+            assertThat(messages.size(), is(1));
+            assertThat((String) messages.get(0).getPayload(), is(TEST_MESSAGE + 0));
+            assertThat(connector.getQueueManagerMessages(ADDRESS), is(0));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failsWhenBoundedQueueIsFull() throws Exception
+    {
+        QueueStore<Serializable> queueStore = muleContext.getRegistry().lookupObject(MuleProperties.QUEUE_STORE_DEFAULT_IN_MEMORY_NAME);
+        createConnector(CAPACITY * 4, new QueueProfile(CAPACITY, queueStore));
+        createReceiver();
+        assertThat(connector.getTransientQueue(ADDRESS).getCapacity(), is(CAPACITY));
+
+        dispatch(0, CAPACITY);
+        try
+        {
+            dispatch(CAPACITY, 1);
+            fail("Dispatching to a full bounded queue should fail");
+        }
+        catch (DispatchException e)
+        {
+            // expected
+        }
+        assertThat(connector.getTransientQueue(ADDRESS).size(), is(CAPACITY));
+        assertThat(getQueueManagerSize(), is(0));
+    }
+
+    @Test
+    public void movesMessagesToQueueManagerWhenListenerIsUnregistered() throws Exception
+    {
+        createConnector(CAPACITY, null);
+        connector.registerListener(inboundEndpoint, new SensingNullMessageProcessor(), flowConstruct);
+        assertThat(connector.getTransientQueue(ADDRESS), notNullValue());
+
+        dispatch(0, 2);
+        connector.unregisterListener(inboundEndpoint, flowConstruct);
+
+        assertThat(connector.getTransientQueue(ADDRESS), nullValue());
+        assertThat(getQueueManagerSize(), is(2));
+    }
+
+    private void createConnector(int transientQueueCapacity, QueueProfile queueProfile) throws Exception
+    {
+        createConnector(queueProfile);
+        connector.setTransientQueueCapacity(transientQueueCapacity);
+    }
+
+    private void createConnector(QueueProfile queueProfile) throws Exception
+    {
+        connector = new VMConnector(muleContext);
+        connector.setName("transientVm");
+        connector.setQueueTimeout(QUEUE_TIMEOUT);
+        connector.setQueueProfile(queueProfile);
+        ThreadingProfile receiverThreadingProfile = new ChainedThreadingProfile(muleContext.getDefaultMessageReceiverThreadingProfile());
+        receiverThreadingProfile.setMaxThreadsActive(RECEIVER_THREADS);
+        connector.setReceiverThreadingProfile(receiverThreadingProfile);
+        muleContext.getRegistry().registerConnector(connector);
+
+        String uri = "vm://" + ADDRESS + "?connector=transientVm";
+        flowConstruct = MuleTestUtils.getTestFlow(muleContext);
+        inboundEndpoint = muleContext.getEndpointFactory().getInboundEndpoint(uri);
+        dispatcher = new VMMessageDispatcher(muleContext.getEndpointFactory().getOutboundEndpoint(uri));
+    }
+
+    private VMMessageReceiver createReceiver() throws Exception
+    {
+        return (VMMessageReceiver) connector.createReceiver(flowConstruct, inboundEndpoint);
+    }
+
+    private void dispatch(int first, int count) throws Exception
+    {
+        for (int i = first; i < first + count; i++)
+        {
+            dispatcher.doDispatch(getTestEvent(TEST_MESSAGE + i));
+        }
+    }
+
+    private List<String> receive(VMMessageReceiver receiver, int count) throws Exception
+    {
+        List<String> payloads = new ArrayList<String>();
+        while (payloads.size() < count)
+        {
+            List<MuleMessage> messages = receiver.getMessages();
+            if (messages.isEmpty())
+            {
+                fail("Expected " + count + " messages but received " + payloads);
+            }
+            for (MuleMessage message : messages)
+            {
+                payloads.add((String) message.getPayload());
+            }
+        }
+        assertThat(payloads.size(), is(count));
+        return payloads;
+    }
+
+    private List<String> payloads(int first, int count)
+    {
+        String[] payloads = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            payloads[i] = TEST_MESSAGE + (first + i);
+        }
+        return Arrays.asList(payloads);
+    }
+
+    private int getQueueManagerSize() throws Exception
+    {
+        return connector.getQueueSession().getQueue(ADDRESS).size();
+    }
+}